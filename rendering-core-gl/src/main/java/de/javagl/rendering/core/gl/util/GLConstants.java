@@ -52,6 +52,16 @@ public class GLConstants
      */
     public static final int GL_BGRA = 32993;
     
+    /**
+     * The GL_COMPRESSED_RGBA_S3TC_DXT1_EXT constant
+     */
+    public static final int GL_COMPRESSED_RGBA_S3TC_DXT1_EXT = 33777;
+    
+    /**
+     * The GL_COMPRESSED_RGBA_S3TC_DXT5_EXT constant
+     */
+    public static final int GL_COMPRESSED_RGBA_S3TC_DXT5_EXT = 33779;
+    
 
     
     /**
@@ -213,6 +223,10 @@ public class GLConstants
             case GL_RGB : return "GL_RGB";
             case GL_RGBA : return "GL_RGBA";
             case GL_BGRA : return "GL_BGRA";
+            case GL_COMPRESSED_RGBA_S3TC_DXT1_EXT : 
+                return "GL_COMPRESSED_RGBA_S3TC_DXT1_EXT";
+            case GL_COMPRESSED_RGBA_S3TC_DXT5_EXT : 
+                return "GL_COMPRESSED_RGBA_S3TC_DXT5_EXT";
 
             case GL_BYTE : return "GL_BYTE";
             case GL_UNSIGNED_BYTE : return "GL_UNSIGNED_BYTE";
@@ -27,6 +27,7 @@
 
 package de.javagl.rendering.core.gl.util;
 
+import de.javagl.rendering.core.ImageData;
 import de.javagl.rendering.core.ImageTexture;
 import de.javagl.rendering.core.gl.DefaultGL;
 import de.javagl.rendering.core.gl.GLTextureFormat;
@@ -58,10 +59,26 @@ public class TextureFormatUtils
                 elements = 4;
                 break;
 
+            case BC1_RGBA:
+                type = GLConstants.GL_UNSIGNED_BYTE;
+                internalFormat = 
+                    GLConstants.GL_COMPRESSED_RGBA_S3TC_DXT1_EXT;
+                format = GLConstants.GL_RGBA;
+                elements = 4;
+                break;
+                
+            case BC3_RGBA:
+                type = GLConstants.GL_UNSIGNED_BYTE;
+                internalFormat = 
+                    GLConstants.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT;
+                format = GLConstants.GL_RGBA;
+                elements = 4;
+                break;
+                
             default:
                 throw new IllegalArgumentException(
-                    "Invalid image format. Currently only " +
-                    "INT_ARGB is supported.");
+                    "Invalid image format: " + 
+                    texture.getImageData().getType());
         }
 
         GLTextureFormat glTextureFormat = 
@@ -69,6 +86,40 @@ public class TextureFormatUtils
         return glTextureFormat;
     }
 
+    /**
+     * Returns whether the given {@link GLTextureFormat} describes a 
+     * compressed format, which has to be uploaded with 
+     * <code>glCompressedTexImage2D</code>
+     * 
+     * @param glTextureFormat The {@link GLTextureFormat}
+     * @return Whether the format is compressed
+     */
+    public static boolean isCompressed(GLTextureFormat glTextureFormat)
+    {
+        int internalFormat = glTextureFormat.getInternalFormat();
+        return 
+            internalFormat == GLConstants.GL_COMPRESSED_RGBA_S3TC_DXT1_EXT ||
+            internalFormat == GLConstants.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT;
+    }
+
+    /**
+     * Computes the total number of bytes of the data of all mipmap levels
+     * of the given {@link ImageTexture}
+     * 
+     * @param texture The {@link ImageTexture}
+     * @return The number of bytes
+     */
+    public static int computeDataSize(ImageTexture texture)
+    {
+        int size = 0;
+        for (int i = 0; i < texture.getNumMipLevels(); i++)
+        {
+            ImageData imageData = texture.getMipLevel(i);
+            size += imageData.getData().remaining();
+        }
+        return size;
+    }
+
     /**
      * Private constructor to prevent instantiation
      */
@@ -35,6 +35,9 @@ import static com.jogamp.opengl.GL.GL_DEPTH_ATTACHMENT;
 import static com.jogamp.opengl.GL.GL_DEPTH_BUFFER_BIT;
 import static com.jogamp.opengl.GL.GL_FRAMEBUFFER;
 import static com.jogamp.opengl.GL.GL_LINEAR;
+import static com.jogamp.opengl.GL.GL_MAP_READ_BIT;
+import static com.jogamp.opengl.GL.GL_READ_FRAMEBUFFER;
+import static com.jogamp.opengl.GL.GL_READ_FRAMEBUFFER_BINDING;
 import static com.jogamp.opengl.GL.GL_RENDERBUFFER;
 import static com.jogamp.opengl.GL.GL_RGBA;
 import static com.jogamp.opengl.GL.GL_TEXTURE_2D;
@@ -42,14 +45,24 @@ import static com.jogamp.opengl.GL.GL_TEXTURE_MAG_FILTER;
 import static com.jogamp.opengl.GL.GL_TEXTURE_MIN_FILTER;
 import static com.jogamp.opengl.GL.GL_TEXTURE_WRAP_S;
 import static com.jogamp.opengl.GL.GL_TEXTURE_WRAP_T;
+import static com.jogamp.opengl.GL.GL_UNSIGNED_BYTE;
+import static com.jogamp.opengl.GL.GL_VIEWPORT;
 import static com.jogamp.opengl.GL2ES2.GL_DEPTH_COMPONENT;
+import static com.jogamp.opengl.GL2ES3.GL_PIXEL_PACK_BUFFER;
+import static com.jogamp.opengl.GL2ES3.GL_STREAM_READ;
+import static com.jogamp.opengl.GL3ES3.GL_ALREADY_SIGNALED;
+import static com.jogamp.opengl.GL3ES3.GL_CONDITION_SATISFIED;
+import static com.jogamp.opengl.GL3ES3.GL_SYNC_GPU_COMMANDS_COMPLETE;
 
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import com.jogamp.opengl.GL3;
 
 import de.javagl.rendering.core.FrameBuffer;
+import de.javagl.rendering.core.FrameCapture;
 import de.javagl.rendering.core.gl.DefaultGL;
 import de.javagl.rendering.core.gl.GLFrameBuffer;
 import de.javagl.rendering.core.gl.GLTexture;
@@ -65,6 +78,72 @@ class JOGLFrameBufferHandler
     extends AbstractFrameBufferHandler<GLFrameBuffer> 
     implements FrameBufferHandler<GLFrameBuffer>
 {
+    /**
+     * The state of a {@link FrameCapture}: A ring of pixel pack buffer
+     * objects, and the fences that indicate when the transfer into 
+     * each of them has been completed. The captures that are in flight
+     * occupy the buffers starting at the first index, in the order 
+     * in which they have been requested.
+     */
+    private static class CaptureState
+    {
+        /**
+         * The pixel buffer objects
+         */
+        final int pbos[];
+        
+        /**
+         * The current sizes of the pixel buffer objects, in bytes
+         */
+        final int sizes[];
+        
+        /**
+         * The widths of the captured frames
+         */
+        final int widths[];
+        
+        /**
+         * The heights of the captured frames
+         */
+        final int heights[];
+        
+        /**
+         * The fences for the transfers into the pixel buffer objects
+         */
+        final long fences[];
+        
+        /**
+         * The index of the buffer of the oldest capture in flight
+         */
+        int first;
+        
+        /**
+         * The number of captures in flight
+         */
+        int count;
+        
+        /**
+         * Creates a new state for the given number of buffers
+         * 
+         * @param numBuffers The number of buffers
+         */
+        CaptureState(int numBuffers)
+        {
+            this.pbos = new int[numBuffers];
+            this.sizes = new int[numBuffers];
+            this.widths = new int[numBuffers];
+            this.heights = new int[numBuffers];
+            this.fences = new long[numBuffers];
+        }
+    }
+    
+    /**
+     * The number of bytes that one pixel of a frame buffer occupies: 
+     * 4 bytes for the color render buffer, the depth render buffer
+     * and the texture, respectively
+     */
+    private static final int BYTES_PER_PIXEL = 12;
+    
     /**
      * The current GL instance
      */
@@ -76,6 +155,12 @@ class JOGLFrameBufferHandler
     private final IntBuffer viewport = 
         BufferUtils.createIntBuffer(16);
     
+    /**
+     * The states of the {@link FrameCapture}s that are used
+     */
+    private final Map<FrameCapture, CaptureState> captureStates =
+        new IdentityHashMap<FrameCapture, CaptureState>();
+    
     /**
      * Set the current GL instance
      * 
@@ -92,6 +177,13 @@ class JOGLFrameBufferHandler
         int width = frameBuffer.getWidth();
         int height = frameBuffer.getHeight();
         
+        GLFrameBuffer pooledGLFrameBuffer = 
+            acquirePooled(width, height, GL_RGBA);
+        if (pooledGLFrameBuffer != null)
+        {
+            return pooledGLFrameBuffer;
+        }
+        
         // Generate and bind the FBO 
         int fboArray[] = {0};
         gl.glGenFramebuffers(1, fboArray, 0);
@@ -153,6 +245,15 @@ class JOGLFrameBufferHandler
 
     @Override
     public void releaseInternal(FrameBuffer frameBuffer, GLFrameBuffer glFrameBuffer)
+    {
+        int width = frameBuffer.getWidth();
+        int height = frameBuffer.getHeight();
+        long size = (long)width * height * BYTES_PER_PIXEL;
+        releasePooled(width, height, GL_RGBA, size, glFrameBuffer);
+    }
+    
+    @Override
+    protected void destroyInternal(GLFrameBuffer glFrameBuffer)
     {
         int fbo[] = { glFrameBuffer.getFBO() };
         gl.glDeleteFramebuffers(1,fbo,0);
@@ -185,6 +286,149 @@ class JOGLFrameBufferHandler
                 viewport.get(2), viewport.get(3));
         }
     }
+    
+    @Override
+    public void capture(FrameBuffer frameBuffer, FrameCapture frameCapture)
+    {
+        CaptureState state = captureStates.get(frameCapture);
+        if (state == null)
+        {
+            state = new CaptureState(frameCapture.getNumBuffers());
+            gl.glGenBuffers(state.pbos.length, state.pbos, 0);
+            captureStates.put(frameCapture, state);
+        }
+        if (state.count == state.pbos.length)
+        {
+            return;
+        }
+        int area[] = { 0, 0, 0, 0 };
+        int fbo = 0;
+        if (frameBuffer != null)
+        {
+            GLFrameBuffer glFrameBuffer = getInternal(frameBuffer);
+            if (glFrameBuffer == null)
+            {
+                return;
+            }
+            fbo = glFrameBuffer.getFBO();
+            area[2] = frameBuffer.getWidth();
+            area[3] = frameBuffer.getHeight();
+        }
+        else
+        {
+            gl.glGetIntegerv(GL_VIEWPORT, area, 0);
+        }
+        int w = area[2];
+        int h = area[3];
+        if (w <= 0 || h <= 0)
+        {
+            return;
+        }
+        int index = (state.first + state.count) % state.pbos.length;
+        int size = w * h * 4;
+        
+        int previousFbo[] = { 0 };
+        gl.glGetIntegerv(GL_READ_FRAMEBUFFER_BINDING, previousFbo, 0);
+        gl.glBindFramebuffer(GL_READ_FRAMEBUFFER, fbo);
+        gl.glBindBuffer(GL_PIXEL_PACK_BUFFER, state.pbos[index]);
+        if (state.sizes[index] != size)
+        {
+            gl.glBufferData(GL_PIXEL_PACK_BUFFER, size, null, GL_STREAM_READ);
+            state.sizes[index] = size;
+        }
+        gl.glReadPixels(area[0], area[1], w, h, 
+            GL_RGBA, GL_UNSIGNED_BYTE, 0L);
+        gl.glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+        gl.glBindFramebuffer(GL_READ_FRAMEBUFFER, previousFbo[0]);
+        
+        state.fences[index] = gl.glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        state.widths[index] = w;
+        state.heights[index] = h;
+        state.count++;
+    }
+    
+    @Override
+    public boolean hasPendingCaptures()
+    {
+        for (CaptureState state : captureStates.values())
+        {
+            if (state.count > 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public void processCaptures()
+    {
+        for (Map.Entry<FrameCapture, CaptureState> entry : 
+            captureStates.entrySet())
+        {
+            processCapture(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Fetch the pixels of all captures of the given {@link FrameCapture}
+     * whose transfer has been completed, and deliver them to the 
+     * {@link FrameCapture}
+     * 
+     * @param frameCapture The {@link FrameCapture}
+     * @param state The {@link CaptureState}
+     */
+    private void processCapture(FrameCapture frameCapture, CaptureState state)
+    {
+        while (state.count > 0)
+        {
+            int index = state.first;
+            int result = gl.glClientWaitSync(state.fences[index], 0, 0);
+            if (result != GL_ALREADY_SIGNALED && 
+                result != GL_CONDITION_SATISFIED)
+            {
+                break;
+            }
+            gl.glDeleteSync(state.fences[index]);
+            state.fences[index] = 0;
+            state.first = (state.first + 1) % state.pbos.length;
+            state.count--;
+            
+            int w = state.widths[index];
+            int h = state.heights[index];
+            int size = w * h * 4;
+            gl.glBindBuffer(GL_PIXEL_PACK_BUFFER, state.pbos[index]);
+            ByteBuffer mapped = gl.glMapBufferRange(
+                GL_PIXEL_PACK_BUFFER, 0, size, GL_MAP_READ_BIT);
+            if (mapped != null)
+            {
+                ByteBuffer pixels = frameCapture.obtainBuffer(size);
+                pixels.put(mapped);
+                pixels.rewind();
+                gl.glUnmapBuffer(GL_PIXEL_PACK_BUFFER);
+                frameCapture.deliver(pixels, w, h);
+            }
+        }
+        gl.glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+    }
+    
+    @Override
+    public void releaseCapture(FrameCapture frameCapture)
+    {
+        CaptureState state = captureStates.remove(frameCapture);
+        if (state == null)
+        {
+            return;
+        }
+        for (int i = 0; i < state.fences.length; i++)
+        {
+            if (state.fences[i] != 0)
+            {
+                gl.glDeleteSync(state.fences[i]);
+            }
+        }
+        gl.glDeleteBuffers(state.pbos.length, state.pbos, 0);
+    }
 
 
 }
@@ -39,6 +39,7 @@ import com.jogamp.opengl.GL3;
 import de.javagl.rendering.core.Attribute;
 import de.javagl.rendering.core.DataBufferType;
 import de.javagl.rendering.core.GraphicsObject;
+import de.javagl.rendering.core.ImageTexture;
 import de.javagl.rendering.core.Mapping;
 import de.javagl.rendering.core.Parameter;
 import de.javagl.rendering.core.Program;
@@ -249,6 +250,10 @@ class JOGLRenderedObjectHandler
             GLTexture glTexture = textureHandler.getInternal(texture);
             if (glTexture != null)
             {
+                if (texture instanceof ImageTexture)
+                {
+                    textureHandler.validate((ImageTexture)texture);
+                }
                 enableTexture(program, programParameter.getName(), 
                     glTexture, currentTextureIndex);
                 currentTextureIndex++;
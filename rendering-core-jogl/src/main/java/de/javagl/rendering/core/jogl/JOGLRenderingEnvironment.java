@@ -162,7 +162,7 @@ public class JOGLRenderingEnvironment
     
 
     @Override
-    public void triggerRendering()
+    protected void requestRepaint()
     {
         glComponent.repaint();
     }
@@ -183,6 +183,8 @@ public class JOGLRenderingEnvironment
 
         GL3 gl = glComponent.getGL().getGL3();
         renderer.setGL(gl);
+        renderer.getFrameBufferHandler().processCaptures();
+        renderer.getFrameBufferHandler().getFrameBufferPool().trim();
         
         gl.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
         gl.glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
@@ -27,17 +27,30 @@
 
 package de.javagl.rendering.core.jogl;
 import static com.jogamp.opengl.GL.GL_LINEAR;
+import static com.jogamp.opengl.GL.GL_LINEAR_MIPMAP_LINEAR;
+import static com.jogamp.opengl.GL.GL_MAP_INVALIDATE_BUFFER_BIT;
+import static com.jogamp.opengl.GL.GL_MAP_UNSYNCHRONIZED_BIT;
+import static com.jogamp.opengl.GL.GL_MAP_WRITE_BIT;
 import static com.jogamp.opengl.GL.GL_REPEAT;
 import static com.jogamp.opengl.GL.GL_TEXTURE_2D;
 import static com.jogamp.opengl.GL.GL_TEXTURE_MAG_FILTER;
 import static com.jogamp.opengl.GL.GL_TEXTURE_MIN_FILTER;
 import static com.jogamp.opengl.GL.GL_TEXTURE_WRAP_S;
 import static com.jogamp.opengl.GL.GL_TEXTURE_WRAP_T;
+import static com.jogamp.opengl.GL.GL_WRITE_ONLY;
 import static com.jogamp.opengl.GL2ES2.GL_STREAM_DRAW;
+import static com.jogamp.opengl.GL2ES3.GL_TEXTURE_MAX_LEVEL;
 import static com.jogamp.opengl.GL2GL3.GL_PIXEL_UNPACK_BUFFER;
-import static com.jogamp.opengl.GL2GL3.GL_READ_WRITE;
+import static com.jogamp.opengl.GL3ES3.GL_ALREADY_SIGNALED;
+import static com.jogamp.opengl.GL3ES3.GL_CONDITION_SATISFIED;
+import static com.jogamp.opengl.GL3ES3.GL_SYNC_GPU_COMMANDS_COMPLETE;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import com.jogamp.opengl.GL3;
 
@@ -45,6 +58,7 @@ import de.javagl.rendering.core.FrameBuffer;
 import de.javagl.rendering.core.FrameBufferTexture;
 import de.javagl.rendering.core.ImageData;
 import de.javagl.rendering.core.ImageTexture;
+import de.javagl.rendering.core.StreamingTexture;
 import de.javagl.rendering.core.Texture;
 import de.javagl.rendering.core.gl.DefaultGL;
 import de.javagl.rendering.core.gl.GLFrameBuffer;
@@ -64,6 +78,74 @@ class JOGLTextureHandler
     extends AbstractTextureHandler<GLTexture> 
     implements TextureHandler<GLTexture>
 {
+    /**
+     * The state of a {@link StreamingTexture}: A ring of pixel buffer 
+     * objects, and the fences that indicate when the upload from each
+     * of them has been completed
+     */
+    private static class StreamState
+    {
+        /**
+         * The pixel buffer objects
+         */
+        final int pbos[];
+        
+        /**
+         * The fences for the uploads from the pixel buffer objects. 
+         * A value of 0 indicates that the respective buffer is 
+         * currently mapped and owned by the producer.
+         */
+        final long fences[];
+        
+        /**
+         * The memory of the pixel buffer objects that are currently 
+         * mapped
+         */
+        final ByteBuffer mappedBuffers[];
+        
+        /**
+         * Creates a new state for the given number of buffers
+         * 
+         * @param numBuffers The number of buffers
+         */
+        StreamState(int numBuffers)
+        {
+            this.pbos = new int[numBuffers];
+            this.fences = new long[numBuffers];
+            this.mappedBuffers = new ByteBuffer[numBuffers];
+        }
+    }
+    
+    /**
+     * A pixel buffer object of a released {@link StreamingTexture} that
+     * was still being written by the producer when the texture was 
+     * released. It stays mapped until the producer has ended the frame.
+     */
+    private static class RetiredBuffer
+    {
+        /**
+         * The {@link StreamingTexture}
+         */
+        final StreamingTexture streamingTexture;
+        
+        /**
+         * The pixel buffer object
+         */
+        final int pbo;
+        
+        /**
+         * Creates a new retired buffer
+         * 
+         * @param streamingTexture The {@link StreamingTexture}
+         * @param pbo The pixel buffer object
+         */
+        RetiredBuffer(StreamingTexture streamingTexture, int pbo)
+        {
+            this.streamingTexture = streamingTexture;
+            this.pbo = pbo;
+        }
+    }
+    
     /**
      * The current GL instance
      */
@@ -74,12 +156,25 @@ class JOGLTextureHandler
      */
     private final JOGLFrameBufferHandler frameBufferHandler;
     
+    /**
+     * The states of the {@link StreamingTexture}s that are handled
+     */
+    private final Map<StreamingTexture, StreamState> streamStates;
+    
+    /**
+     * The {@link RetiredBuffer}s that are still written by producers
+     */
+    private final List<RetiredBuffer> retiredBuffers;
+    
     /**
      * Creates a new JOGLTextureHandler
      */
     JOGLTextureHandler()
     {
         this.frameBufferHandler = new JOGLFrameBufferHandler();
+        this.streamStates = 
+            new IdentityHashMap<StreamingTexture, StreamState>();
+        this.retiredBuffers = new ArrayList<RetiredBuffer>();
     }
 
     /**
@@ -96,6 +191,13 @@ class JOGLTextureHandler
     @Override
     public GLTexture handleInternal(Texture texture)
     {
+        if (texture instanceof StreamingTexture)
+        {
+            StreamingTexture streamingTexture = (StreamingTexture)texture;
+            GLTexture glTexture = handleImageTexture(streamingTexture);
+            createStream(streamingTexture);
+            return glTexture;
+        }
         if (texture instanceof ImageTexture)
         {
             ImageTexture imageTexture = (ImageTexture)texture;
@@ -114,6 +216,10 @@ class JOGLTextureHandler
     @Override
     public void releaseInternal(Texture texture, GLTexture glTexture)
     {
+        if (texture instanceof StreamingTexture)
+        {
+            releaseStream((StreamingTexture)texture);
+        }
         if (texture instanceof ImageTexture)
         {
             int buffer[] = {glTexture.getTexture()};
@@ -150,13 +256,23 @@ class JOGLTextureHandler
  
         gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, glTexture.getTexturePBO());
         gl.glBufferData(GL_PIXEL_UNPACK_BUFFER, 
-            imageTexture.getWidth() * 
-            imageTexture.getHeight() * 
-            glTextureFormat.getElements(),
+            TextureFormatUtils.computeDataSize(imageTexture),
             null, GL_STREAM_DRAW);
 
+        int numMipLevels = imageTexture.getNumMipLevels();
         gl.glBindTexture(GL_TEXTURE_2D, glTexture.getTexture());
-        gl.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        if (numMipLevels > 1)
+        {
+            gl.glTexParameteri(GL_TEXTURE_2D, 
+                GL_TEXTURE_MIN_FILTER, GL_LINEAR_MIPMAP_LINEAR);
+        }
+        else
+        {
+            gl.glTexParameteri(GL_TEXTURE_2D, 
+                GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        }
+        gl.glTexParameteri(GL_TEXTURE_2D, 
+            GL_TEXTURE_MAX_LEVEL, numMipLevels - 1);
         gl.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
         gl.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT); 
         gl.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT); 
@@ -170,12 +286,47 @@ class JOGLTextureHandler
     }
 
 
+    /**
+     * {@inheritDoc}<br>
+     * <br>
+     * Textures with compressed data or multiple mipmap levels can not 
+     * be updated partially. For these textures, the whole texture is 
+     * updated.
+     */
     @Override
     public void updateImageTexture(
         ImageTexture texture, int x, int y, int w, int h)
     {
+        if (w < 0)
+        {
+            throw new IllegalArgumentException(
+                "The width may not be negative, but is " + w);
+        }
+        if (h < 0)
+        {
+            throw new IllegalArgumentException(
+                "The height may not be negative, but is " + h);
+        }
+        int x0 = Math.max(0, x);
+        int y0 = Math.max(0, y);
+        int x1 = (int)Math.min(texture.getWidth(), (long)x + w);
+        int y1 = (int)Math.min(texture.getHeight(), (long)y + h);
+        if (x0 >= x1 || y0 >= y1)
+        {
+            return;
+        }
         GLTexture glTexture = getInternal(texture);
-        executeTextureUpdate(glTexture, texture);
+        GLTextureFormat glTextureFormat = glTexture.getGLTextureFormat();
+        if (TextureFormatUtils.isCompressed(glTextureFormat) ||
+            texture.getNumMipLevels() > 1)
+        {
+            executeTextureUpdate(glTexture, texture);
+        }
+        else
+        {
+            executeSubTextureUpdate(glTexture, texture, 
+                x0, y0, x1 - x0, y1 - y0);
+        }
     }
 
     @Override
@@ -200,27 +351,299 @@ class JOGLTextureHandler
         gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, glTexture.getTexturePBO());
         gl.glBindTexture(GL_TEXTURE_2D, glTexture.getTexture());
     
+        gl.glBufferData(GL_PIXEL_UNPACK_BUFFER, 
+            TextureFormatUtils.computeDataSize(imageTexture),
+            null, GL_STREAM_DRAW);
         ByteBuffer mappedPBOBuffer = 
-            gl.glMapBuffer(GL_PIXEL_UNPACK_BUFFER, GL_READ_WRITE);
+            gl.glMapBuffer(GL_PIXEL_UNPACK_BUFFER, GL_WRITE_ONLY);
         
         //System.out.println("Update texture "+glTexture);
-        mappedPBOBuffer.put(imageTexture.getImageData().getData());
+        int numMipLevels = imageTexture.getNumMipLevels();
+        long offsets[] = new long[numMipLevels];
+        for (int i = 0; i < numMipLevels; i++)
+        {
+            offsets[i] = mappedPBOBuffer.position();
+            mappedPBOBuffer.put(imageTexture.getMipLevel(i).getData());
+        }
         //System.out.println("Update texture "+glTexture+" done");
         
         gl.glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
 
+        boolean compressed = TextureFormatUtils.isCompressed(glTextureFormat);
+        for (int i = 0; i < numMipLevels; i++)
+        {
+            ImageData imageData = imageTexture.getMipLevel(i);
+            int w = imageData.getWidth();
+            int h = imageData.getHeight();
+            if (compressed)
+            {
+                int size = imageData.getData().remaining();
+                gl.glCompressedTexImage2D(
+                    GL_TEXTURE_2D, i, glTextureFormat.getInternalFormat(), 
+                    w, h, 0, size, offsets[i]);
+            }
+            else
+            {
+                gl.glTexImage2D(
+                    GL_TEXTURE_2D, i, glTextureFormat.getInternalFormat(), 
+                    w, h, 0, glTextureFormat.getFormat(), 
+                    glTextureFormat.getType(), offsets[i]);
+            }
+        }
+        
+        gl.glBindTexture(GL_TEXTURE_2D, 0);
+        gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+    }
+    
+    /**
+     * Execute the update of the specified region of the given 
+     * {@link GLTexture} based on the given {@link ImageTexture}. The 
+     * pixels of the region are packed tightly into the PBO, which is 
+     * orphaned before it is mapped, so that mapping it does not wait 
+     * for a previous upload from the PBO to complete. The region must
+     * be contained in the texture.
+     * 
+     * @param glTexture The {@link GLTexture}
+     * @param imageTexture The {@link ImageTexture}
+     * @param x The x-coordinate of the region
+     * @param y The y-coordinate of the region
+     * @param w The width of the region
+     * @param h The height of the region
+     */
+    private void executeSubTextureUpdate(GLTexture glTexture, 
+        ImageTexture imageTexture, int x, int y, int w, int h)
+    {
+        GLTextureFormat glTextureFormat = glTexture.getGLTextureFormat();
         ImageData imageData = imageTexture.getImageData();
-        int w = imageData.getWidth();
-        int h = imageData.getHeight();
-        gl.glTexImage2D(
-            GL_TEXTURE_2D, 0, glTextureFormat.getInternalFormat(), w, h, 
-            0, glTextureFormat.getFormat(), glTextureFormat.getType(), 0);
+        int elements = glTextureFormat.getElements();
+        int rowSize = w * elements;
+
+        gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, glTexture.getTexturePBO());
+        gl.glBindTexture(GL_TEXTURE_2D, glTexture.getTexture());
+        
+        gl.glBufferData(GL_PIXEL_UNPACK_BUFFER, 
+            (long)rowSize * h, null, GL_STREAM_DRAW);
+        ByteBuffer mappedPBOBuffer = 
+            gl.glMapBuffer(GL_PIXEL_UNPACK_BUFFER, GL_WRITE_ONLY);
+        try
+        {
+            ByteBuffer data = imageData.getData();
+            for (int r = 0; r < h; r++)
+            {
+                int start = ((y + r) * imageData.getWidth() + x) * elements;
+                data.limit(start + rowSize);
+                data.position(start);
+                mappedPBOBuffer.put(data);
+            }
+        }
+        finally
+        {
+            gl.glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+        }
+        
+        gl.glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, w, h, 
+            glTextureFormat.getFormat(), glTextureFormat.getType(), 0);
         
         gl.glBindTexture(GL_TEXTURE_2D, 0);
         gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
     }
     
 
+    /**
+     * {@inheritDoc}<br>
+     * <br>
+     * For a {@link StreamingTexture}, this will upload the most recent
+     * frame that has been published since the last call, and return the
+     * buffers of older frames and the buffers whose uploads have been 
+     * completed to the producer.
+     */
+    @Override
+    public void validate(ImageTexture texture)
+    {
+        releaseRetiredBuffers();
+        if (texture instanceof StreamingTexture)
+        {
+            updateStream((StreamingTexture)texture);
+        }
+        super.validate(texture);
+    }
+    
+    /**
+     * Create the ring of pixel buffer objects for the given 
+     * {@link StreamingTexture}, and provide their mapped memory to 
+     * the texture
+     * 
+     * @param streamingTexture The {@link StreamingTexture}
+     */
+    private void createStream(StreamingTexture streamingTexture)
+    {
+        int numBuffers = streamingTexture.getNumBuffers();
+        StreamState state = new StreamState(numBuffers);
+        gl.glGenBuffers(numBuffers, state.pbos, 0);
+        long size = TextureFormatUtils.computeDataSize(streamingTexture);
+        for (int i = 0; i < numBuffers; i++)
+        {
+            gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, state.pbos[i]);
+            gl.glBufferData(GL_PIXEL_UNPACK_BUFFER, size, null, GL_STREAM_DRAW);
+            mapStreamBuffer(streamingTexture, state, i);
+        }
+        gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+        streamStates.put(streamingTexture, state);
+    }
+    
+    /**
+     * Map the specified pixel buffer object of the given state, and 
+     * provide the mapped memory to the given {@link StreamingTexture}.
+     * The buffer is mapped unsynchronized, because it is only mapped 
+     * after the fence of its previous upload has been signaled. 
+     * 
+     * @param streamingTexture The {@link StreamingTexture}
+     * @param state The {@link StreamState}
+     * @param index The index of the buffer
+     */
+    private void mapStreamBuffer(
+        StreamingTexture streamingTexture, StreamState state, int index)
+    {
+        long size = TextureFormatUtils.computeDataSize(streamingTexture);
+        gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, state.pbos[index]);
+        ByteBuffer mapped = gl.glMapBufferRange(GL_PIXEL_UNPACK_BUFFER, 
+            0, size, GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_BUFFER_BIT | 
+            GL_MAP_UNSYNCHRONIZED_BIT);
+        state.mappedBuffers[index] = mapped;
+        streamingTexture.provideBuffer(index, mapped);
+    }
+    
+    /**
+     * Upload the most recent frame that has been published by the 
+     * producer of the given {@link StreamingTexture}, and map the buffers
+     * whose uploads have been completed again. Older frames would be 
+     * overwritten by the most recent one before they could be seen, so 
+     * their buffers are still mapped, and given back to the producer 
+     * directly.
+     * 
+     * @param streamingTexture The {@link StreamingTexture}
+     */
+    private void updateStream(StreamingTexture streamingTexture)
+    {
+        StreamState state = streamStates.get(streamingTexture);
+        GLTexture glTexture = getInternal(streamingTexture);
+        if (state == null || glTexture == null)
+        {
+            return;
+        }
+        GLTextureFormat glTextureFormat = glTexture.getGLTextureFormat();
+        int w = streamingTexture.getWidth();
+        int h = streamingTexture.getHeight();
+        int latestIndex = -1;
+        while (true)
+        {
+            int index = streamingTexture.pollFrame();
+            if (index == -1)
+            {
+                break;
+            }
+            if (latestIndex != -1)
+            {
+                streamingTexture.provideBuffer(
+                    latestIndex, state.mappedBuffers[latestIndex]);
+            }
+            latestIndex = index;
+        }
+        if (latestIndex != -1)
+        {
+            gl.glBindTexture(GL_TEXTURE_2D, glTexture.getTexture());
+            gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, state.pbos[latestIndex]);
+            gl.glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+            state.mappedBuffers[latestIndex] = null;
+            gl.glTexSubImage2D(GL_TEXTURE_2D, 0, 0, 0, w, h, 
+                glTextureFormat.getFormat(), glTextureFormat.getType(), 0);
+            state.fences[latestIndex] = 
+                gl.glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+            gl.glBindTexture(GL_TEXTURE_2D, 0);
+        }
+        for (int i = 0; i < state.fences.length; i++)
+        {
+            if (state.fences[i] != 0)
+            {
+                int result = gl.glClientWaitSync(state.fences[i], 0, 0);
+                if (result == GL_ALREADY_SIGNALED || 
+                    result == GL_CONDITION_SATISFIED)
+                {
+                    gl.glDeleteSync(state.fences[i]);
+                    state.fences[i] = 0;
+                    mapStreamBuffer(streamingTexture, state, i);
+                }
+            }
+        }
+        gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+    }
+    
+    /**
+     * Release the ring of pixel buffer objects of the given 
+     * {@link StreamingTexture}. The buffer that the producer may still
+     * be writing into is kept mapped as a {@link RetiredBuffer}, and 
+     * deleted in {@link #releaseRetiredBuffers()} after the producer
+     * has ended the frame.
+     * 
+     * @param streamingTexture The {@link StreamingTexture}
+     */
+    private void releaseStream(StreamingTexture streamingTexture)
+    {
+        StreamState state = streamStates.remove(streamingTexture);
+        int inUseIndex = streamingTexture.revokeBuffers();
+        if (state == null)
+        {
+            releaseRetiredBuffers();
+            return;
+        }
+        for (int i = 0; i < state.pbos.length; i++)
+        {
+            if (state.fences[i] != 0)
+            {
+                gl.glDeleteSync(state.fences[i]);
+            }
+            if (i == inUseIndex)
+            {
+                retiredBuffers.add(
+                    new RetiredBuffer(streamingTexture, state.pbos[i]));
+                continue;
+            }
+            if (state.mappedBuffers[i] != null)
+            {
+                gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, state.pbos[i]);
+                gl.glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+            }
+            gl.glDeleteBuffers(1, state.pbos, i);
+        }
+        gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+        releaseRetiredBuffers();
+    }
+    
+    /**
+     * Unmap and delete all {@link RetiredBuffer}s that are no longer 
+     * written by the producer
+     */
+    private void releaseRetiredBuffers()
+    {
+        if (retiredBuffers.isEmpty())
+        {
+            return;
+        }
+        Iterator<RetiredBuffer> iterator = retiredBuffers.iterator();
+        while (iterator.hasNext())
+        {
+            RetiredBuffer retiredBuffer = iterator.next();
+            if (!retiredBuffer.streamingTexture.isRevokedBufferInUse())
+            {
+                gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, retiredBuffer.pbo);
+                gl.glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+                gl.glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+                gl.glDeleteBuffers(1, new int[] { retiredBuffer.pbo }, 0);
+                iterator.remove();
+            }
+        }
+    }
+
     /**
      * Handle the given {@link FrameBufferTexture} and return 
      * the corresponding {@link GLTexture}
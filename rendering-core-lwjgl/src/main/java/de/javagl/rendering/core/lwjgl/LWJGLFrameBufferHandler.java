@@ -36,6 +36,7 @@ import static org.lwjgl.opengl.GL11.GL_TEXTURE_MAG_FILTER;
 import static org.lwjgl.opengl.GL11.GL_TEXTURE_MIN_FILTER;
 import static org.lwjgl.opengl.GL11.GL_TEXTURE_WRAP_S;
 import static org.lwjgl.opengl.GL11.GL_TEXTURE_WRAP_T;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
 import static org.lwjgl.opengl.GL11.GL_VIEWPORT;
 import static org.lwjgl.opengl.GL11.glBindTexture;
 import static org.lwjgl.opengl.GL11.glClear;
@@ -43,13 +44,24 @@ import static org.lwjgl.opengl.GL11.glClearColor;
 import static org.lwjgl.opengl.GL11.glDeleteTextures;
 import static org.lwjgl.opengl.GL11.glGenTextures;
 import static org.lwjgl.opengl.GL11.glGetInteger;
+import static org.lwjgl.opengl.GL11.glReadPixels;
 import static org.lwjgl.opengl.GL11.glTexImage2D;
 import static org.lwjgl.opengl.GL11.glTexParameterf;
 import static org.lwjgl.opengl.GL11.glViewport;
 import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL15.GL_STREAM_READ;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
+import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
+import static org.lwjgl.opengl.GL15.glGenBuffers;
+import static org.lwjgl.opengl.GL15.glUnmapBuffer;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_PACK_BUFFER;
 import static org.lwjgl.opengl.GL30.GL_COLOR_ATTACHMENT0;
 import static org.lwjgl.opengl.GL30.GL_DEPTH_ATTACHMENT;
 import static org.lwjgl.opengl.GL30.GL_FRAMEBUFFER;
+import static org.lwjgl.opengl.GL30.GL_MAP_READ_BIT;
+import static org.lwjgl.opengl.GL30.GL_READ_FRAMEBUFFER;
+import static org.lwjgl.opengl.GL30.GL_READ_FRAMEBUFFER_BINDING;
 import static org.lwjgl.opengl.GL30.GL_RENDERBUFFER;
 import static org.lwjgl.opengl.GL30.glBindFramebuffer;
 import static org.lwjgl.opengl.GL30.glBindRenderbuffer;
@@ -59,12 +71,24 @@ import static org.lwjgl.opengl.GL30.glFramebufferRenderbuffer;
 import static org.lwjgl.opengl.GL30.glFramebufferTexture2D;
 import static org.lwjgl.opengl.GL30.glGenFramebuffers;
 import static org.lwjgl.opengl.GL30.glGenRenderbuffers;
+import static org.lwjgl.opengl.GL30.glMapBufferRange;
 import static org.lwjgl.opengl.GL30.glRenderbufferStorage;
+import static org.lwjgl.opengl.GL32.GL_ALREADY_SIGNALED;
+import static org.lwjgl.opengl.GL32.GL_CONDITION_SATISFIED;
+import static org.lwjgl.opengl.GL32.GL_SYNC_GPU_COMMANDS_COMPLETE;
+import static org.lwjgl.opengl.GL32.glClientWaitSync;
+import static org.lwjgl.opengl.GL32.glDeleteSync;
+import static org.lwjgl.opengl.GL32.glFenceSync;
 
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.lwjgl.opengl.GLSync;
 
 import de.javagl.rendering.core.FrameBuffer;
+import de.javagl.rendering.core.FrameCapture;
 import de.javagl.rendering.core.gl.DefaultGL;
 import de.javagl.rendering.core.gl.GLFrameBuffer;
 import de.javagl.rendering.core.gl.GLTexture;
@@ -80,18 +104,103 @@ class LWJGLFrameBufferHandler
     extends AbstractFrameBufferHandler<GLFrameBuffer> 
     implements FrameBufferHandler<GLFrameBuffer>
 {
+    /**
+     * The state of a {@link FrameCapture}: A ring of pixel pack buffer
+     * objects, and the fences that indicate when the transfer into 
+     * each of them has been completed. The captures that are in flight
+     * occupy the buffers starting at the first index, in the order 
+     * in which they have been requested.
+     */
+    private static class CaptureState
+    {
+        /**
+         * The pixel buffer objects
+         */
+        final int pbos[];
+        
+        /**
+         * The current sizes of the pixel buffer objects, in bytes
+         */
+        final int sizes[];
+        
+        /**
+         * The widths of the captured frames
+         */
+        final int widths[];
+        
+        /**
+         * The heights of the captured frames
+         */
+        final int heights[];
+        
+        /**
+         * The fences for the transfers into the pixel buffer objects
+         */
+        final GLSync fences[];
+        
+        /**
+         * The index of the buffer of the oldest capture in flight
+         */
+        int first;
+        
+        /**
+         * The number of captures in flight
+         */
+        int count;
+        
+        /**
+         * Creates a new state for the given number of buffers
+         * 
+         * @param numBuffers The number of buffers
+         */
+        CaptureState(int numBuffers)
+        {
+            this.pbos = new int[numBuffers];
+            this.sizes = new int[numBuffers];
+            this.widths = new int[numBuffers];
+            this.heights = new int[numBuffers];
+            this.fences = new GLSync[numBuffers];
+        }
+    }
+    
+    /**
+     * The number of bytes that one pixel of a frame buffer occupies: 
+     * 4 bytes for the color render buffer, the depth render buffer
+     * and the texture, respectively
+     */
+    private static final int BYTES_PER_PIXEL = 12;
+    
     /**
      * Backup of the viewport
      */
     private final IntBuffer viewport = 
         BufferUtils.createIntBuffer(16);
     
+    /**
+     * The buffer for querying the area that is captured
+     */
+    private final IntBuffer area = 
+        BufferUtils.createIntBuffer(16);
+    
+    /**
+     * The states of the {@link FrameCapture}s that are used
+     */
+    private final Map<FrameCapture, CaptureState> captureStates =
+        new IdentityHashMap<FrameCapture, CaptureState>();
+    
     @Override
     public GLFrameBuffer handleInternal(FrameBuffer frameBuffer)
     {
         int width = frameBuffer.getWidth();
         int height = frameBuffer.getHeight();
         
+        GLFrameBuffer pooledGLFrameBuffer = 
+            acquirePooled(width, height, GL_RGBA);
+        if (pooledGLFrameBuffer != null)
+        {
+            return pooledGLFrameBuffer;
+        }
+        
         // Generate and bind the FBO 
         int fbo = glGenFramebuffers();
         glBindFramebuffer(GL_FRAMEBUFFER, fbo);
@@ -146,6 +255,15 @@ class LWJGLFrameBufferHandler
 
     @Override
     public void releaseInternal(FrameBuffer frameBuffer, GLFrameBuffer glFrameBuffer)
+    {
+        int width = frameBuffer.getWidth();
+        int height = frameBuffer.getHeight();
+        long size = (long)width * height * BYTES_PER_PIXEL;
+        releasePooled(width, height, GL_RGBA, size, glFrameBuffer);
+    }
+    
+    @Override
+    protected void destroyInternal(GLFrameBuffer glFrameBuffer)
     {
         glDeleteFramebuffers(glFrameBuffer.getFBO());
         glDeleteRenderbuffers(glFrameBuffer.getDepthBuffer());
@@ -174,5 +292,154 @@ class LWJGLFrameBufferHandler
                 viewport.get(2), viewport.get(3));
         }
     }
+    
+    @Override
+    public void capture(FrameBuffer frameBuffer, FrameCapture frameCapture)
+    {
+        CaptureState state = captureStates.get(frameCapture);
+        if (state == null)
+        {
+            state = new CaptureState(frameCapture.getNumBuffers());
+            for (int i = 0; i < state.pbos.length; i++)
+            {
+                state.pbos[i] = glGenBuffers();
+            }
+            captureStates.put(frameCapture, state);
+        }
+        if (state.count == state.pbos.length)
+        {
+            return;
+        }
+        int x = 0;
+        int y = 0;
+        int w = 0;
+        int h = 0;
+        int fbo = 0;
+        if (frameBuffer != null)
+        {
+            GLFrameBuffer glFrameBuffer = getInternal(frameBuffer);
+            if (glFrameBuffer == null)
+            {
+                return;
+            }
+            fbo = glFrameBuffer.getFBO();
+            w = frameBuffer.getWidth();
+            h = frameBuffer.getHeight();
+        }
+        else
+        {
+            glGetInteger(GL_VIEWPORT, area);
+            x = area.get(0);
+            y = area.get(1);
+            w = area.get(2);
+            h = area.get(3);
+        }
+        if (w <= 0 || h <= 0)
+        {
+            return;
+        }
+        int index = (state.first + state.count) % state.pbos.length;
+        int size = w * h * 4;
+        
+        int previousFbo = glGetInteger(GL_READ_FRAMEBUFFER_BINDING);
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, fbo);
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, state.pbos[index]);
+        if (state.sizes[index] != size)
+        {
+            glBufferData(GL_PIXEL_PACK_BUFFER, size, GL_STREAM_READ);
+            state.sizes[index] = size;
+        }
+        glReadPixels(x, y, w, h, GL_RGBA, GL_UNSIGNED_BYTE, 0L);
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, previousFbo);
+        
+        state.fences[index] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        state.widths[index] = w;
+        state.heights[index] = h;
+        state.count++;
+    }
+    
+    @Override
+    public boolean hasPendingCaptures()
+    {
+        for (CaptureState state : captureStates.values())
+        {
+            if (state.count > 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public void processCaptures()
+    {
+        for (Map.Entry<FrameCapture, CaptureState> entry : 
+            captureStates.entrySet())
+        {
+            processCapture(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Fetch the pixels of all captures of the given {@link FrameCapture}
+     * whose transfer has been completed, and deliver them to the 
+     * {@link FrameCapture}
+     * 
+     * @param frameCapture The {@link FrameCapture}
+     * @param state The {@link CaptureState}
+     */
+    private void processCapture(FrameCapture frameCapture, CaptureState state)
+    {
+        while (state.count > 0)
+        {
+            int index = state.first;
+            int result = glClientWaitSync(state.fences[index], 0, 0);
+            if (result != GL_ALREADY_SIGNALED && 
+                result != GL_CONDITION_SATISFIED)
+            {
+                break;
+            }
+            glDeleteSync(state.fences[index]);
+            state.fences[index] = null;
+            state.first = (state.first + 1) % state.pbos.length;
+            state.count--;
+            
+            int w = state.widths[index];
+            int h = state.heights[index];
+            int size = w * h * 4;
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, state.pbos[index]);
+            ByteBuffer mapped = glMapBufferRange(
+                GL_PIXEL_PACK_BUFFER, 0, size, GL_MAP_READ_BIT, null);
+            if (mapped != null)
+            {
+                ByteBuffer pixels = frameCapture.obtainBuffer(size);
+                pixels.put(mapped);
+                pixels.rewind();
+                glUnmapBuffer(GL_PIXEL_PACK_BUFFER);
+                frameCapture.deliver(pixels, w, h);
+            }
+        }
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+    }
+    
+    @Override
+    public void releaseCapture(FrameCapture frameCapture)
+    {
+        CaptureState state = captureStates.remove(frameCapture);
+        if (state == null)
+        {
+            return;
+        }
+        for (int i = 0; i < state.pbos.length; i++)
+        {
+            if (state.fences[i] != null)
+            {
+                glDeleteSync(state.fences[i]);
+            }
+            glDeleteBuffers(state.pbos[i]);
+        }
+    }
 
 }
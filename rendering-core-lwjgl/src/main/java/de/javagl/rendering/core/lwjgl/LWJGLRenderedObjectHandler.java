@@ -46,6 +46,7 @@ import static org.lwjgl.opengl.GL30.glGenVertexArrays;
 import de.javagl.rendering.core.Attribute;
 import de.javagl.rendering.core.DataBufferType;
 import de.javagl.rendering.core.GraphicsObject;
+import de.javagl.rendering.core.ImageTexture;
 import de.javagl.rendering.core.Mapping;
 import de.javagl.rendering.core.Parameter;
 import de.javagl.rendering.core.Program;
@@ -227,6 +228,10 @@ class LWJGLRenderedObjectHandler
             GLTexture glTexture = textureHandler.getInternal(texture);
             if (glTexture != null)
             {
+                if (texture instanceof ImageTexture)
+                {
+                    textureHandler.validate((ImageTexture)texture);
+                }
                 enableTexture(program, programParameter.getName(), 
                     glTexture, currentTextureIndex);
                 currentTextureIndex++;
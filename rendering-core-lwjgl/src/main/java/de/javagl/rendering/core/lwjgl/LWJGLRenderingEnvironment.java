@@ -146,7 +146,7 @@ public class LWJGLRenderingEnvironment
     
     
     @Override
-    public void triggerRendering()
+    protected void requestRepaint()
     {
         canvas.repaint();
     }
@@ -160,6 +160,8 @@ public class LWJGLRenderingEnvironment
     protected void preRender()
     {
         super.preRender();
+        renderer.getFrameBufferHandler().processCaptures();
+        renderer.getFrameBufferHandler().getFrameBufferPool().trim();
         int width = getRenderComponent().getWidth();
         int height = getRenderComponent().getHeight();
         glViewport(0, 0, width, height);
@@ -27,6 +27,7 @@
 
 package de.javagl.rendering.core.lwjgl;
 import static org.lwjgl.opengl.GL11.GL_LINEAR;
+import static org.lwjgl.opengl.GL11.GL_LINEAR_MIPMAP_LINEAR;
 import static org.lwjgl.opengl.GL11.GL_REPEAT;
 import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
 import static org.lwjgl.opengl.GL11.GL_TEXTURE_MAG_FILTER;
@@ -38,21 +39,43 @@ import static org.lwjgl.opengl.GL11.glDeleteTextures;
 import static org.lwjgl.opengl.GL11.glGenTextures;
 import static org.lwjgl.opengl.GL11.glTexImage2D;
 import static org.lwjgl.opengl.GL11.glTexParameteri;
-import static org.lwjgl.opengl.GL15.GL_READ_WRITE;
+import static org.lwjgl.opengl.GL11.glTexSubImage2D;
+import static org.lwjgl.opengl.GL12.GL_TEXTURE_MAX_LEVEL;
+import static org.lwjgl.opengl.GL13.glCompressedTexImage2D;
 import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static org.lwjgl.opengl.GL15.GL_WRITE_ONLY;
 import static org.lwjgl.opengl.GL15.glBindBuffer;
 import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
 import static org.lwjgl.opengl.GL15.glGenBuffers;
 import static org.lwjgl.opengl.GL15.glMapBuffer;
 import static org.lwjgl.opengl.GL15.glUnmapBuffer;
 import static org.lwjgl.opengl.GL21.GL_PIXEL_UNPACK_BUFFER;
+import static org.lwjgl.opengl.GL30.GL_MAP_INVALIDATE_BUFFER_BIT;
+import static org.lwjgl.opengl.GL30.GL_MAP_UNSYNCHRONIZED_BIT;
+import static org.lwjgl.opengl.GL30.GL_MAP_WRITE_BIT;
+import static org.lwjgl.opengl.GL30.glMapBufferRange;
+import static org.lwjgl.opengl.GL32.GL_ALREADY_SIGNALED;
+import static org.lwjgl.opengl.GL32.GL_CONDITION_SATISFIED;
+import static org.lwjgl.opengl.GL32.GL_SYNC_GPU_COMMANDS_COMPLETE;
+import static org.lwjgl.opengl.GL32.glClientWaitSync;
+import static org.lwjgl.opengl.GL32.glDeleteSync;
+import static org.lwjgl.opengl.GL32.glFenceSync;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.lwjgl.opengl.GLSync;
 
 import de.javagl.rendering.core.FrameBuffer;
 import de.javagl.rendering.core.FrameBufferTexture;
 import de.javagl.rendering.core.ImageData;
 import de.javagl.rendering.core.ImageTexture;
+import de.javagl.rendering.core.StreamingTexture;
 import de.javagl.rendering.core.Texture;
 import de.javagl.rendering.core.gl.DefaultGL;
 import de.javagl.rendering.core.gl.GLFrameBuffer;
@@ -72,22 +95,110 @@ class LWJGLTextureHandler
     extends AbstractTextureHandler<GLTexture> 
     implements TextureHandler<GLTexture>
 {
+    /**
+     * The state of a {@link StreamingTexture}: A ring of pixel buffer 
+     * objects, and the fences that indicate when the upload from each
+     * of them has been completed
+     */
+    private static class StreamState
+    {
+        /**
+         * The pixel buffer objects
+         */
+        final int pbos[];
+        
+        /**
+         * The fences for the uploads from the pixel buffer objects. 
+         * A value of <code>null</code> indicates that the respective 
+         * buffer is currently mapped and owned by the producer.
+         */
+        final GLSync fences[];
+        
+        /**
+         * The memory of the pixel buffer objects that are currently 
+         * mapped
+         */
+        final ByteBuffer mappedBuffers[];
+        
+        /**
+         * Creates a new state for the given number of buffers
+         * 
+         * @param numBuffers The number of buffers
+         */
+        StreamState(int numBuffers)
+        {
+            this.pbos = new int[numBuffers];
+            this.fences = new GLSync[numBuffers];
+            this.mappedBuffers = new ByteBuffer[numBuffers];
+        }
+    }
+    
+    /**
+     * A pixel buffer object of a released {@link StreamingTexture} that
+     * was still being written by the producer when the texture was 
+     * released. It stays mapped until the producer has ended the frame.
+     */
+    private static class RetiredBuffer
+    {
+        /**
+         * The {@link StreamingTexture}
+         */
+        final StreamingTexture streamingTexture;
+        
+        /**
+         * The pixel buffer object
+         */
+        final int pbo;
+        
+        /**
+         * Creates a new retired buffer
+         * 
+         * @param streamingTexture The {@link StreamingTexture}
+         * @param pbo The pixel buffer object
+         */
+        RetiredBuffer(StreamingTexture streamingTexture, int pbo)
+        {
+            this.streamingTexture = streamingTexture;
+            this.pbo = pbo;
+        }
+    }
+    
     /**
      * The {@link FrameBufferHandler}
      */
     private final LWJGLFrameBufferHandler frameBufferHandler;
     
+    /**
+     * The states of the {@link StreamingTexture}s that are handled
+     */
+    private final Map<StreamingTexture, StreamState> streamStates;
+    
+    /**
+     * The {@link RetiredBuffer}s that are still written by producers
+     */
+    private final List<RetiredBuffer> retiredBuffers;
+    
     /**
      * Creates a new LWJGLTextureHandler
      */
     LWJGLTextureHandler()
     {
         this.frameBufferHandler = new LWJGLFrameBufferHandler();
+        this.streamStates = 
+            new IdentityHashMap<StreamingTexture, StreamState>();
+        this.retiredBuffers = new ArrayList<RetiredBuffer>();
     }
 
     @Override
     public GLTexture handleInternal(Texture texture)
     {
+        if (texture instanceof StreamingTexture)
+        {
+            StreamingTexture streamingTexture = (StreamingTexture)texture;
+            GLTexture glTexture = handleImageTexture(streamingTexture);
+            createStream(streamingTexture);
+            return glTexture;
+        }
         if (texture instanceof ImageTexture)
         {
             ImageTexture imageTexture = (ImageTexture)texture;
@@ -106,6 +217,10 @@ class LWJGLTextureHandler
     @Override
     public void releaseInternal(Texture texture, GLTexture glTexture)
     {
+        if (texture instanceof StreamingTexture)
+        {
+            releaseStream((StreamingTexture)texture);
+        }
         if (texture instanceof ImageTexture)
         {
             glDeleteTextures(glTexture.getTexture());
@@ -136,13 +251,21 @@ class LWJGLTextureHandler
         
         glBindBuffer(GL_PIXEL_UNPACK_BUFFER, glTexture.getTexturePBO());
         glBufferData(GL_PIXEL_UNPACK_BUFFER, 
-            imageTexture.getWidth() * 
-            imageTexture.getHeight() * 
-            glTextureFormat.getElements(),
+            TextureFormatUtils.computeDataSize(imageTexture),
             GL_STREAM_DRAW);
 
+        int numMipLevels = imageTexture.getNumMipLevels();
         glBindTexture(GL_TEXTURE_2D, glTexture.getTexture());
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        if (numMipLevels > 1)
+        {
+            glTexParameteri(GL_TEXTURE_2D, 
+                GL_TEXTURE_MIN_FILTER, GL_LINEAR_MIPMAP_LINEAR);
+        }
+        else
+        {
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        }
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, numMipLevels - 1);
         glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
         glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT); 
         glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT); 
@@ -155,14 +278,47 @@ class LWJGLTextureHandler
         return glTexture;
     }
 
+    /**
+     * {@inheritDoc}<br>
+     * <br>
+     * Textures with compressed data or multiple mipmap levels can not 
+     * be updated partially. For these textures, the whole texture is 
+     * updated.
+     */
     @Override
     public void updateImageTexture(
         ImageTexture imageTexture, int x, int y, int w, int h)
     {
-        //System.out.println("Update texture "+x+" "+y+" "+w+" "+h);
-
+        if (w < 0)
+        {
+            throw new IllegalArgumentException(
+                "The width may not be negative, but is " + w);
+        }
+        if (h < 0)
+        {
+            throw new IllegalArgumentException(
+                "The height may not be negative, but is " + h);
+        }
+        int x0 = Math.max(0, x);
+        int y0 = Math.max(0, y);
+        int x1 = (int)Math.min(imageTexture.getWidth(), (long)x + w);
+        int y1 = (int)Math.min(imageTexture.getHeight(), (long)y + h);
+        if (x0 >= x1 || y0 >= y1)
+        {
+            return;
+        }
         GLTexture glTexture = getInternal(imageTexture);
-        executeTextureUpdate(glTexture, imageTexture);
+        GLTextureFormat glTextureFormat = glTexture.getGLTextureFormat();
+        if (TextureFormatUtils.isCompressed(glTextureFormat) ||
+            imageTexture.getNumMipLevels() > 1)
+        {
+            executeTextureUpdate(glTexture, imageTexture);
+        }
+        else
+        {
+            executeSubTextureUpdate(glTexture, imageTexture, 
+                x0, y0, x1 - x0, y1 - y0);
+        }
     }
 
     @Override
@@ -182,33 +338,303 @@ class LWJGLTextureHandler
     private void executeTextureUpdate(
         GLTexture glTexture, ImageTexture imageTexture)
     {
-        // TODO: Use dirtyRectangle to update only the necessary part
-
         GLTextureFormat glTextureFormat = glTexture.getGLTextureFormat();
         
         glBindBuffer(GL_PIXEL_UNPACK_BUFFER, glTexture.getTexturePBO());
         glBindTexture(GL_TEXTURE_2D, glTexture.getTexture());
 
+        glBufferData(GL_PIXEL_UNPACK_BUFFER, 
+            TextureFormatUtils.computeDataSize(imageTexture),
+            GL_STREAM_DRAW);
         ByteBuffer mappedPBOBuffer = 
-            glMapBuffer(GL_PIXEL_UNPACK_BUFFER, GL_READ_WRITE, null);
+            glMapBuffer(GL_PIXEL_UNPACK_BUFFER, GL_WRITE_ONLY, null);
 
         
         //System.out.println("Update texture "+glTexture);
-        mappedPBOBuffer.put(imageTexture.getImageData().getData());
+        int numMipLevels = imageTexture.getNumMipLevels();
+        long offsets[] = new long[numMipLevels];
+        for (int i = 0; i < numMipLevels; i++)
+        {
+            offsets[i] = mappedPBOBuffer.position();
+            mappedPBOBuffer.put(imageTexture.getMipLevel(i).getData());
+        }
         //System.out.println("Update texture "+glTexture+" done");
         
         glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
 
+        boolean compressed = TextureFormatUtils.isCompressed(glTextureFormat);
+        for (int i = 0; i < numMipLevels; i++)
+        {
+            ImageData imageData = imageTexture.getMipLevel(i);
+            int w = imageData.getWidth();
+            int h = imageData.getHeight();
+            if (compressed)
+            {
+                int size = imageData.getData().remaining();
+                glCompressedTexImage2D(
+                    GL_TEXTURE_2D, i, glTextureFormat.getInternalFormat(), 
+                    w, h, 0, size, offsets[i]);
+            }
+            else
+            {
+                glTexImage2D(
+                    GL_TEXTURE_2D, i, glTextureFormat.getInternalFormat(), 
+                    w, h, 0, glTextureFormat.getFormat(), 
+                    glTextureFormat.getType(), offsets[i]);
+            }
+        }
+
+        glBindTexture(GL_TEXTURE_2D, 0);
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+
+    }
+    
+    /**
+     * Execute the update of the specified region of the given 
+     * {@link GLTexture} based on the given {@link ImageTexture}. The 
+     * pixels of the region are packed tightly into the PBO, which is 
+     * orphaned before it is mapped, so that mapping it does not wait 
+     * for a previous upload from the PBO to complete. The region must
+     * be contained in the texture.
+     * 
+     * @param glTexture The {@link GLTexture}
+     * @param imageTexture The {@link ImageTexture}
+     * @param x The x-coordinate of the region
+     * @param y The y-coordinate of the region
+     * @param w The width of the region
+     * @param h The height of the region
+     */
+    private void executeSubTextureUpdate(GLTexture glTexture, 
+        ImageTexture imageTexture, int x, int y, int w, int h)
+    {
+        GLTextureFormat glTextureFormat = glTexture.getGLTextureFormat();
         ImageData imageData = imageTexture.getImageData();
-        int w = imageData.getWidth();
-        int h = imageData.getHeight();
-        glTexImage2D(
-            GL_TEXTURE_2D, 0, glTextureFormat.getInternalFormat(), w, h, 
-            0, glTextureFormat.getFormat(), glTextureFormat.getType(), 0);
+        int elements = glTextureFormat.getElements();
+        int rowSize = w * elements;
 
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, glTexture.getTexturePBO());
+        glBindTexture(GL_TEXTURE_2D, glTexture.getTexture());
+        
+        glBufferData(GL_PIXEL_UNPACK_BUFFER, 
+            (long)rowSize * h, GL_STREAM_DRAW);
+        ByteBuffer mappedPBOBuffer = 
+            glMapBuffer(GL_PIXEL_UNPACK_BUFFER, GL_WRITE_ONLY, null);
+        try
+        {
+            ByteBuffer data = imageData.getData();
+            for (int r = 0; r < h; r++)
+            {
+                int start = ((y + r) * imageData.getWidth() + x) * elements;
+                data.limit(start + rowSize);
+                data.position(start);
+                mappedPBOBuffer.put(data);
+            }
+        }
+        finally
+        {
+            glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+        }
+        
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, w, h, 
+            glTextureFormat.getFormat(), glTextureFormat.getType(), 0L);
+        
         glBindTexture(GL_TEXTURE_2D, 0);
         glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+    }
 
+    /**
+     * {@inheritDoc}<br>
+     * <br>
+     * For a {@link StreamingTexture}, this will upload the most recent
+     * frame that has been published since the last call, and return the
+     * buffers of older frames and the buffers whose uploads have been 
+     * completed to the producer.
+     */
+    @Override
+    public void validate(ImageTexture texture)
+    {
+        releaseRetiredBuffers();
+        if (texture instanceof StreamingTexture)
+        {
+            updateStream((StreamingTexture)texture);
+        }
+        super.validate(texture);
+    }
+    
+    /**
+     * Create the ring of pixel buffer objects for the given 
+     * {@link StreamingTexture}, and provide their mapped memory to 
+     * the texture
+     * 
+     * @param streamingTexture The {@link StreamingTexture}
+     */
+    private void createStream(StreamingTexture streamingTexture)
+    {
+        int numBuffers = streamingTexture.getNumBuffers();
+        StreamState state = new StreamState(numBuffers);
+        long size = TextureFormatUtils.computeDataSize(streamingTexture);
+        for (int i = 0; i < numBuffers; i++)
+        {
+            state.pbos[i] = glGenBuffers();
+            glBindBuffer(GL_PIXEL_UNPACK_BUFFER, state.pbos[i]);
+            glBufferData(GL_PIXEL_UNPACK_BUFFER, size, GL_STREAM_DRAW);
+            mapStreamBuffer(streamingTexture, state, i);
+        }
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+        streamStates.put(streamingTexture, state);
+    }
+    
+    /**
+     * Map the specified pixel buffer object of the given state, and 
+     * provide the mapped memory to the given {@link StreamingTexture}.
+     * The buffer is mapped unsynchronized, because it is only mapped 
+     * after the fence of its previous upload has been signaled. 
+     * 
+     * @param streamingTexture The {@link StreamingTexture}
+     * @param state The {@link StreamState}
+     * @param index The index of the buffer
+     */
+    private void mapStreamBuffer(
+        StreamingTexture streamingTexture, StreamState state, int index)
+    {
+        long size = TextureFormatUtils.computeDataSize(streamingTexture);
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, state.pbos[index]);
+        ByteBuffer mapped = glMapBufferRange(GL_PIXEL_UNPACK_BUFFER, 
+            0, size, GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_BUFFER_BIT | 
+            GL_MAP_UNSYNCHRONIZED_BIT, null);
+        state.mappedBuffers[index] = mapped;
+        streamingTexture.provideBuffer(index, mapped);
+    }
+    
+    /**
+     * Upload the most recent frame that has been published by the 
+     * producer of the given {@link StreamingTexture}, and map the buffers
+     * whose uploads have been completed again. Older frames would be 
+     * overwritten by the most recent one before they could be seen, so 
+     * their buffers are still mapped, and given back to the producer 
+     * directly.
+     * 
+     * @param streamingTexture The {@link StreamingTexture}
+     */
+    private void updateStream(StreamingTexture streamingTexture)
+    {
+        StreamState state = streamStates.get(streamingTexture);
+        GLTexture glTexture = getInternal(streamingTexture);
+        if (state == null || glTexture == null)
+        {
+            return;
+        }
+        GLTextureFormat glTextureFormat = glTexture.getGLTextureFormat();
+        int w = streamingTexture.getWidth();
+        int h = streamingTexture.getHeight();
+        int latestIndex = -1;
+        while (true)
+        {
+            int index = streamingTexture.pollFrame();
+            if (index == -1)
+            {
+                break;
+            }
+            if (latestIndex != -1)
+            {
+                streamingTexture.provideBuffer(
+                    latestIndex, state.mappedBuffers[latestIndex]);
+            }
+            latestIndex = index;
+        }
+        if (latestIndex != -1)
+        {
+            glBindTexture(GL_TEXTURE_2D, glTexture.getTexture());
+            glBindBuffer(GL_PIXEL_UNPACK_BUFFER, state.pbos[latestIndex]);
+            glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+            state.mappedBuffers[latestIndex] = null;
+            glTexSubImage2D(GL_TEXTURE_2D, 0, 0, 0, w, h, 
+                glTextureFormat.getFormat(), glTextureFormat.getType(), 0L);
+            state.fences[latestIndex] = 
+                glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+            glBindTexture(GL_TEXTURE_2D, 0);
+        }
+        for (int i = 0; i < state.fences.length; i++)
+        {
+            if (state.fences[i] != null)
+            {
+                int result = glClientWaitSync(state.fences[i], 0, 0);
+                if (result == GL_ALREADY_SIGNALED || 
+                    result == GL_CONDITION_SATISFIED)
+                {
+                    glDeleteSync(state.fences[i]);
+                    state.fences[i] = null;
+                    mapStreamBuffer(streamingTexture, state, i);
+                }
+            }
+        }
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+    }
+    
+    /**
+     * Release the ring of pixel buffer objects of the given 
+     * {@link StreamingTexture}. The buffer that the producer may still
+     * be writing into is kept mapped as a {@link RetiredBuffer}, and 
+     * deleted in {@link #releaseRetiredBuffers()} after the producer
+     * has ended the frame.
+     * 
+     * @param streamingTexture The {@link StreamingTexture}
+     */
+    private void releaseStream(StreamingTexture streamingTexture)
+    {
+        StreamState state = streamStates.remove(streamingTexture);
+        int inUseIndex = streamingTexture.revokeBuffers();
+        if (state == null)
+        {
+            releaseRetiredBuffers();
+            return;
+        }
+        for (int i = 0; i < state.pbos.length; i++)
+        {
+            if (state.fences[i] != null)
+            {
+                glDeleteSync(state.fences[i]);
+            }
+            if (i == inUseIndex)
+            {
+                retiredBuffers.add(
+                    new RetiredBuffer(streamingTexture, state.pbos[i]));
+                continue;
+            }
+            if (state.mappedBuffers[i] != null)
+            {
+                glBindBuffer(GL_PIXEL_UNPACK_BUFFER, state.pbos[i]);
+                glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+            }
+            glDeleteBuffers(state.pbos[i]);
+        }
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+        releaseRetiredBuffers();
+    }
+    
+    /**
+     * Unmap and delete all {@link RetiredBuffer}s that are no longer 
+     * written by the producer
+     */
+    private void releaseRetiredBuffers()
+    {
+        if (retiredBuffers.isEmpty())
+        {
+            return;
+        }
+        Iterator<RetiredBuffer> iterator = retiredBuffers.iterator();
+        while (iterator.hasNext())
+        {
+            RetiredBuffer retiredBuffer = iterator.next();
+            if (!retiredBuffer.streamingTexture.isRevokedBufferInUse())
+            {
+                glBindBuffer(GL_PIXEL_UNPACK_BUFFER, retiredBuffer.pbo);
+                glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+                glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+                glDeleteBuffers(retiredBuffer.pbo);
+                iterator.remove();
+            }
+        }
     }
 
     /**
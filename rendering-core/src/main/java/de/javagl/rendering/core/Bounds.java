@@ -0,0 +1,97 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+import javax.vecmath.Point3f;
+
+/**
+ * Interface describing the axis-aligned bounds of a {@link GraphicsObject},
+ * in object space, together with a bounding sphere. Instances of this 
+ * class are immutable. The bounds of a {@link GraphicsObject} may be 
+ * obtained with {@link GraphicsObjects#getBounds(GraphicsObject)}.
+ */
+public interface Bounds
+{
+    /**
+     * Returns the minimum x value
+     * 
+     * @return The minimum x value
+     */
+    float getMinX();
+
+    /**
+     * Returns the minimum y value
+     * 
+     * @return The minimum y value
+     */
+    float getMinY();
+
+    /**
+     * Returns the minimum z value
+     * 
+     * @return The minimum z value
+     */
+    float getMinZ();
+
+    /**
+     * Returns the maximum x value
+     * 
+     * @return The maximum x value
+     */
+    float getMaxX();
+
+    /**
+     * Returns the maximum y value
+     * 
+     * @return The maximum y value
+     */
+    float getMaxY();
+
+    /**
+     * Returns the maximum z value
+     * 
+     * @return The maximum z value
+     */
+    float getMaxZ();
+    
+    /**
+     * Returns the center of the bounding sphere, which is the
+     * center of the box. 
+     * 
+     * @return The center of the bounding sphere
+     */
+    Point3f getCenter();
+    
+    /**
+     * Returns the radius of the bounding sphere, which is half of the 
+     * diagonal of the box
+     * 
+     * @return The radius of the bounding sphere
+     */
+    float getRadius();
+}
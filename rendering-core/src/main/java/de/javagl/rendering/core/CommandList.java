@@ -31,12 +31,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.function.Supplier;
 
 /**
  * Implementation of a suppliers for lists of {@link Command} objects,
- * which is backed by a simple list.
+ * which is backed by a simple list. For large numbers of commands that
+ * are added and removed individually, a {@link RenderList} may be used.
  */
 public final class CommandList implements Supplier<List<Command>>
 {
@@ -92,7 +94,7 @@ public final class CommandList implements Supplier<List<Command>>
      */
     public void removeCommands(Command ... commands)
     {
-        this.commands.removeAll(Arrays.asList(commands));
+        removeCommands(Arrays.asList(commands));
     }
     
     /**
@@ -102,7 +104,7 @@ public final class CommandList implements Supplier<List<Command>>
      */
     public void removeCommands(Collection<? extends Command> commands)
     {
-        this.commands.removeAll(commands);
+        this.commands.removeAll(new HashSet<Command>(commands));
     }
     
     @Override
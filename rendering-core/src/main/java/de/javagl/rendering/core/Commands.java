@@ -67,8 +67,6 @@ import de.javagl.rendering.core.light.LightType;
 import de.javagl.rendering.core.material.Material;
 import de.javagl.rendering.core.utils.MatrixUtils;
 import de.javagl.rendering.core.utils.TupleUtils;
-import de.javagl.rendering.core.view.Camera;
-import de.javagl.rendering.core.view.CameraUtils;
 import de.javagl.rendering.core.view.View;
 
 
@@ -229,6 +227,108 @@ public class Commands
     }
     
     
+    /**
+     * Creates a {@link Command} that renders one level of the given 
+     * {@link LodGroup}. Each time that the command is executed, the
+     * screen size of the bounding sphere of the {@link LodGroup#getBounds()
+     * group bounds} is computed, using the model matrix from the given 
+     * supplier and the camera, projection and viewport of the given 
+     * {@link View}. The level is then {@link LodGroup#select(float, int)
+     * selected} based on this size, and rendered.<br>
+     * <br>
+     * The hysteresis of the level selection is applied relative to the
+     * level that was previously selected by the returned command. So
+     * the same {@link LodGroup} may be rendered by multiple commands 
+     * (for example, for multiple instances or views), without one 
+     * selection affecting the others.
+     * 
+     * @param lodGroup The {@link LodGroup}
+     * @param modelMatrixSupplier The supplier of the model matrix
+     * @param view The {@link View}
+     * @return The new {@link Command}
+     */
+    public static Command renderLod(LodGroup lodGroup,
+        Supplier<Matrix4f> modelMatrixSupplier, View view)
+    {
+        Objects.requireNonNull(lodGroup, "The lodGroup may not be null");
+        Objects.requireNonNull(modelMatrixSupplier, 
+            "The modelMatrixSupplier may not be null");
+        Objects.requireNonNull(view, "The view may not be null");
+        return wrap(new Command()
+        {
+            /**
+             * The level that was selected in the previous execution
+             */
+            private int previousLevel = 0;
+            
+            @Override
+            public void execute(Renderer renderer)
+            {
+                float screenSize = computeScreenSize(lodGroup.getBounds(), 
+                    modelMatrixSupplier.get(), view);
+                int level = lodGroup.select(screenSize, previousLevel);
+                previousLevel = level;
+                renderer.getRenderedObjectHandler().render(
+                    lodGroup.getLevel(level));
+            }
+            
+            @Override
+            public String toString()
+            {
+                return "renderLod("+lodGroup+")";
+            }
+            
+        });        
+    }
+    
+    /**
+     * Computes the size that the bounding sphere of the given 
+     * {@link Bounds} has on the screen, in pixels, when it is 
+     * transformed with the given model matrix and rendered with
+     * the given {@link View}. If the camera is inside the sphere,
+     * then <code>Float.POSITIVE_INFINITY</code> is returned.
+     * 
+     * @param bounds The {@link Bounds}
+     * @param modelMatrix The model matrix
+     * @param view The {@link View}
+     * @return The screen size
+     */
+    private static float computeScreenSize(
+        Bounds bounds, Matrix4f modelMatrix, View view)
+    {
+        Point3f center = bounds.getCenter();
+        modelMatrix.transform(center);
+        Matrix4f matrix = new Matrix4f();
+        view.getViewMatrix(matrix).transform(center);
+        
+        float sx = modelMatrix.m00 * modelMatrix.m00 
+            + modelMatrix.m10 * modelMatrix.m10 
+            + modelMatrix.m20 * modelMatrix.m20;
+        float sy = modelMatrix.m01 * modelMatrix.m01 
+            + modelMatrix.m11 * modelMatrix.m11 
+            + modelMatrix.m21 * modelMatrix.m21;
+        float sz = modelMatrix.m02 * modelMatrix.m02 
+            + modelMatrix.m12 * modelMatrix.m12 
+            + modelMatrix.m22 * modelMatrix.m22;
+        float scale = (float)Math.sqrt(Math.max(sx, Math.max(sy, sz)));
+        float radius = bounds.getRadius() * scale;
+        
+        Matrix4f projectionMatrix = view.getProjectionMatrix(matrix);
+        float halfHeight = view.getViewport().getHeight() * 0.5f;
+        if (projectionMatrix.m32 == 0)
+        {
+            // Orthographic projection
+            return 2 * radius * projectionMatrix.m11 * halfHeight;
+        }
+        float distance = -center.z;
+        if (distance <= radius)
+        {
+            return Float.POSITIVE_INFINITY;
+        }
+        return 2 * radius * projectionMatrix.m11 / distance * halfHeight;
+    }
+    
+    
     /**
      * Creates a new {@link Command} that activates the given 
      * {@link FrameBuffer}. The given {@link FrameBuffer} may
@@ -261,11 +361,81 @@ public class Commands
     
     
     
+    /**
+     * Creates a new {@link Command} that requests the contents of the 
+     * given {@link FrameBuffer} to be captured with the given
+     * {@link FrameCapture}. The given {@link FrameBuffer} may be 
+     * <code>null</code>, which will cause the default frame buffer 
+     * to be captured. When the {@link FrameCapture} is no longer 
+     * needed, its resources should be released with a command that
+     * is created with {@link #releaseCapture(FrameCapture)}.
+     *
+     * @param frameBuffer The {@link FrameBuffer}
+     * @param frameCapture The {@link FrameCapture}
+     * @return The new {@link Command}
+     * @see de.javagl.rendering.core.handling.FrameBufferHandler#capture
+     */
+    public static Command capture(
+        FrameBuffer frameBuffer, FrameCapture frameCapture)
+    {
+        Objects.requireNonNull(frameCapture, 
+            "The frameCapture may not be null");
+        return wrap(new Command()
+        {
+            @Override
+            public void execute(Renderer renderer)
+            {
+                renderer.getFrameBufferHandler().capture(
+                    frameBuffer, frameCapture);
+            }
+            
+            @Override
+            public String toString()
+            {
+                return "capture("+frameBuffer+","+frameCapture+")";
+            }
+            
+        });        
+    }
+    
+    /**
+     * Creates a new {@link Command} that releases all resources that 
+     * have been allocated for the given {@link FrameCapture}. Captures 
+     * of the given {@link FrameCapture} that are still in flight will 
+     * be discarded.
+     *
+     * @param frameCapture The {@link FrameCapture}
+     * @return The new {@link Command}
+     * @see de.javagl.rendering.core.handling.FrameBufferHandler#releaseCapture
+     */
+    public static Command releaseCapture(FrameCapture frameCapture)
+    {
+        Objects.requireNonNull(frameCapture, 
+            "The frameCapture may not be null");
+        return wrap(new Command()
+        {
+            @Override
+            public void execute(Renderer renderer)
+            {
+                renderer.getFrameBufferHandler().releaseCapture(
+                    frameCapture);
+            }
+            
+            @Override
+            public String toString()
+            {
+                return "releaseCapture("+frameCapture+")";
+            }
+            
+        });        
+    }
+    
     /**
      * Creates a {@link Command} that sets the view matrix for
      * the given {@link Program}.  
-     * The view matrix is computed from the {@link Camera} of the given 
-     * {@link View} using {@link CameraUtils#computeViewMatrix(Camera)}.
+     * The view matrix is obtained from the given {@link View} by calling
+     * {@link View#getViewMatrix(Matrix4f)}, which may return a matrix that 
+     * is cached for the current {@link View#getVersion() view version}.
      *   
      * @param program The program
      * @param viewMatrixName The uniform name for the matrix
@@ -275,20 +445,19 @@ public class Commands
     public static Command setViewMatrix(
         Program program, String viewMatrixName, View view)
     {
+        Matrix4f viewMatrix = new Matrix4f();
         return setMatrix4f(program, viewMatrixName, () ->
         {
-            Camera camera = view.getCamera();
-            Matrix4f viewMatrix = 
-                CameraUtils.computeViewMatrix(camera);
-            return viewMatrix;
+            return view.getViewMatrix(viewMatrix);
         });
     }
 
     /**
      * Creates a {@link Command} that sets the model-view matrix for
      * the given {@link Program}.  
-     * The view matrix is computed from the {@link Camera} of the given 
-     * {@link View} using {@link CameraUtils#computeViewMatrix(Camera)}.
+     * The view matrix is obtained from the given {@link View} by calling
+     * {@link View#getViewMatrix(Matrix4f)}, which may return a matrix that 
+     * is cached for the current {@link View#getVersion() view version}.
      * The model matrix is obtained from the given supplier.
      *   
      * @param program The program
@@ -301,14 +470,13 @@ public class Commands
         Program program, String modelViewMatrixName, View view,
         Supplier<Matrix4f> modelMatrixSupplier)
     {
+        Matrix4f viewMatrix = new Matrix4f();
+        Matrix4f modelviewMatrix = new Matrix4f();
         return setMatrix4f(program, modelViewMatrixName, () ->
         {
             Matrix4f modelMatrix = modelMatrixSupplier.get();
-            Camera camera = view.getCamera();
-            Matrix4f viewMatrix = 
-                CameraUtils.computeViewMatrix(camera);
-            Matrix4f modelviewMatrix = 
-                MatrixUtils.mul(viewMatrix, modelMatrix);
+            view.getViewMatrix(viewMatrix);
+            modelviewMatrix.mul(viewMatrix, modelMatrix);
             return modelviewMatrix;
         });
     }
@@ -316,8 +484,9 @@ public class Commands
     /**
      * Creates a {@link Command} that sets the model-view matrix for
      * the given {@link Program}.  
-     * The view matrix is computed from the {@link Camera} of the given 
-     * {@link View} using {@link CameraUtils#computeViewMatrix(Camera)}.
+     * The view matrix is obtained from the given {@link View} by calling
+     * {@link View#getViewMatrix(Matrix4f)}, which may return a matrix that 
+     * is cached for the current {@link View#getVersion() view version}.
      * A copy of the given matrix will be created, so changes in the 
      * matrix will not affect the {@link Command}. In order to create
      * a command where the matrix may be modified externally, use
@@ -342,7 +511,7 @@ public class Commands
      * Creates a {@link Command} that sets the projection matrix for
      * the given {@link Program}.  
      * The projection matrix is obtained from the given view by 
-     * calling {@link View#getProjectionMatrix()}.
+     * calling {@link View#getProjectionMatrix(Matrix4f)}.
      *   
      * @param program The program
      * @param viewMatrixName The uniform name for the matrix
@@ -352,16 +521,20 @@ public class Commands
     public static Command setProjectionMatrix(
         Program program, String viewMatrixName, View view)
     {
-        return setMatrix4f(program, viewMatrixName, 
-            view::getProjectionMatrix);
+        Matrix4f projectionMatrix = new Matrix4f();
+        return setMatrix4f(program, viewMatrixName, () ->
+        {
+            return view.getProjectionMatrix(projectionMatrix);
+        });
     }
     
     
     /**
      * Creates a {@link Command} that sets the normal matrix for
      * the given {@link Program}, as a 4x4 matrix.  
-     * The view matrix is computed from the {@link Camera} of the given 
-     * {@link View} using {@link CameraUtils#computeViewMatrix(Camera)}.
+     * The view matrix is obtained from the given {@link View} by calling
+     * {@link View#getViewMatrix(Matrix4f)}, which may return a matrix that 
+     * is cached for the current {@link View#getVersion() view version}.
      * The model matrix is obtained from the given supplier.
      *   
      * @param program The program
@@ -374,17 +547,16 @@ public class Commands
         Program program, String normalMatrixName, View view,
         Supplier<Matrix4f> modelMatrixSupplier)
     {
+        Matrix4f viewMatrix = new Matrix4f();
+        Matrix4f modelviewMatrix = new Matrix4f();
+        Matrix4f normalMatrix = new Matrix4f();
         return setMatrix4f(program, normalMatrixName, () ->
         {
             Matrix4f modelMatrix = modelMatrixSupplier.get();
-            Camera camera = view.getCamera();
-            Matrix4f viewMatrix = 
-                CameraUtils.computeViewMatrix(camera);
-            Matrix4f modelviewMatrix = 
-                MatrixUtils.mul(viewMatrix, modelMatrix);
-            Matrix4f normalMatrix =
-                MatrixUtils.transposed(
-                    MatrixUtils.inverse(modelviewMatrix));
+            view.getViewMatrix(viewMatrix);
+            modelviewMatrix.mul(viewMatrix, modelMatrix);
+            MatrixUtils.inverse(modelviewMatrix, normalMatrix);
+            normalMatrix.transpose();
             return normalMatrix;
         });
     }
@@ -392,8 +564,9 @@ public class Commands
     /**
      * Creates a {@link Command} that sets the normal matrix for
      * the given {@link Program}, as a 3x3 matrix.
-     * The view matrix is computed from the {@link Camera} of the given 
-     * {@link View} using {@link CameraUtils#computeViewMatrix(Camera)}.
+     * The view matrix is obtained from the given {@link View} by calling
+     * {@link View#getViewMatrix(Matrix4f)}, which may return a matrix that 
+     * is cached for the current {@link View#getVersion() view version}.
      * The model matrix is obtained from the given supplier.
      *   
      * @param program The program
@@ -406,18 +579,17 @@ public class Commands
         Program program, String normalMatrixName, View view,
         Supplier<Matrix4f> modelMatrixSupplier)
     {
+        Matrix4f viewMatrix = new Matrix4f();
+        Matrix4f modelviewMatrix = new Matrix4f();
+        Matrix4f normalMatrix = new Matrix4f();
+        Matrix3f normalMatrix3f = new Matrix3f();
         return setMatrix3f(program, normalMatrixName, () ->
         {
             Matrix4f modelMatrix = modelMatrixSupplier.get();
-            Camera camera = view.getCamera();
-            Matrix4f viewMatrix = 
-                CameraUtils.computeViewMatrix(camera);
-            Matrix4f modelviewMatrix = 
-                MatrixUtils.mul(viewMatrix, modelMatrix);
-            Matrix4f normalMatrix =
-                MatrixUtils.transposed(
-                    MatrixUtils.inverse(modelviewMatrix));
-            Matrix3f normalMatrix3f = new Matrix3f();
+            view.getViewMatrix(viewMatrix);
+            modelviewMatrix.mul(viewMatrix, modelMatrix);
+            MatrixUtils.inverse(modelviewMatrix, normalMatrix);
+            normalMatrix.transpose();
             normalMatrix.getRotationScale(normalMatrix3f);
             return normalMatrix3f;
         });
@@ -426,8 +598,9 @@ public class Commands
     /**
      * Creates a {@link Command} that sets the normal matrix for
      * the given {@link Program}, as a 3x3 matrix.
-     * The view matrix is computed from the {@link Camera} of the given 
-     * {@link View} using {@link CameraUtils#computeViewMatrix(Camera)}.
+     * The view matrix is obtained from the given {@link View} by calling
+     * {@link View#getViewMatrix(Matrix4f)}, which may return a matrix that 
+     * is cached for the current {@link View#getVersion() view version}.
      * The model matrix is obtained from the given supplier.
      * A copy of the given matrix will be created, so changes in the 
      * matrix will not affect the {@link Command}. In order to create
@@ -460,12 +633,14 @@ public class Commands
      *   </li>
      *   <li>
      *     the {@link Parameters#VIEW_MATRIX view matrix} which is computed
-     *     from the {@link Camera} of the {@link Renderer} using
-     *     {@link CameraUtils#computeViewMatrix(Camera)}
+     *     from the given {@link View} by calling 
+     *     {@link View#getViewMatrix(Matrix4f)}, which may return a 
+     *     matrix that is cached for the current 
+     *     {@link View#getVersion() view version}
      *   </li>
      *   <li>
      *     the {@link Parameters#PROJECTION_MATRIX projection matrix} which 
-     *     is computed obtained from {@link View#getProjectionMatrix()}
+     *     is obtained from {@link View#getProjectionMatrix(Matrix4f)}
      *   </li>
      *   <li>
      *     the {@link Parameters#NORMAL_MATRIX normal matrix} which is the
@@ -529,12 +704,14 @@ public class Commands
      *   </li>
      *   <li>
      *     the <b>view matrix</b> which is computed
-     *     from the {@link Camera} of the {@link Renderer} using
-     *     {@link CameraUtils#computeViewMatrix(Camera)}
+     *     from the given {@link View} by calling 
+     *     {@link View#getViewMatrix(Matrix4f)}, which may return a 
+     *     matrix that is cached for the current 
+     *     {@link View#getVersion() view version}
      *   </li>
      *   <li>
      *     the <b>projection matrix</b> which 
-     *     is obtained from {@link View#getProjectionMatrix()}
+     *     is obtained from {@link View#getProjectionMatrix(Matrix4f)}
      *   </li>
      *   <li>
      *     the <b>normal matrix</b> which is the
@@ -578,22 +755,40 @@ public class Commands
             "The view may not be null");
         return wrap(new Command()
         {
+            /**
+             * The view matrix
+             */
+            private final Matrix4f viewMatrix = new Matrix4f();
+            
+            /**
+             * The projection matrix
+             */
+            private final Matrix4f projectionMatrix = new Matrix4f();
+            
+            /**
+             * The model-view matrix
+             */
+            private final Matrix4f modelviewMatrix = new Matrix4f();
+            
+            /**
+             * The normal matrix
+             */
+            private final Matrix4f normalMatrix = new Matrix4f();
+            
             @Override
             public void execute(Renderer renderer)
             {
                 Matrix4f modelMatrix = modelMatrixSupplier.get();
 
-                Camera camera = view.getCamera();
-                Matrix4f viewMatrix = 
-                    CameraUtils.computeViewMatrix(camera);
-                
-                Matrix4f projectionMatrix = view.getProjectionMatrix();
+                view.getViewMatrix(viewMatrix);
+                view.getProjectionMatrix(projectionMatrix);
 
-                Matrix4f modelviewMatrix = 
-                    MatrixUtils.mul(viewMatrix, modelMatrix);
-                Matrix4f normalMatrix =
-                    MatrixUtils.transposed(
-                        MatrixUtils.inverse(modelviewMatrix));
+                modelviewMatrix.mul(viewMatrix, modelMatrix);
+                if (normalMatrixName != null)
+                {
+                    MatrixUtils.inverse(modelviewMatrix, normalMatrix);
+                    normalMatrix.transpose();
+                }
                 if (modelMatrixName != null)
                 {
                     renderer.getProgramHandler().setMatrix4f(
@@ -3037,14 +3232,17 @@ public class Commands
             "The view may not be null");
         return wrap(new Command()
         {
+            /**
+             * The view matrix
+             */
+            private final Matrix4f viewMatrix = new Matrix4f();
+            
             @Override
             public void execute(Renderer renderer)
             {
                 ProgramHandler<?> programHandler = renderer.getProgramHandler();
                 
-                Camera camera = view.getCamera();
-                Matrix4f viewMatrix = 
-                    CameraUtils.computeViewMatrix(camera);
+                view.getViewMatrix(viewMatrix);
                 
                 programHandler.setInt(program, Parameters.NUM_LIGHTS.getName(), 
                     lightSetup.getLights().size());
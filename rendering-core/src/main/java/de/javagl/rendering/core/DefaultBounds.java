@@ -0,0 +1,150 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+import javax.vecmath.Point3f;
+
+/**
+ * Default implementation of {@link Bounds}
+ */
+final class DefaultBounds implements Bounds
+{
+    /**
+     * The minimum x value
+     */
+    private final float minX;
+    
+    /**
+     * The minimum y value
+     */
+    private final float minY;
+    
+    /**
+     * The minimum z value
+     */
+    private final float minZ;
+    
+    /**
+     * The maximum x value
+     */
+    private final float maxX;
+    
+    /**
+     * The maximum y value
+     */
+    private final float maxY;
+    
+    /**
+     * The maximum z value
+     */
+    private final float maxZ;
+    
+    /**
+     * Creates new bounds
+     * 
+     * @param minX The minimum x value
+     * @param minY The minimum y value
+     * @param minZ The minimum z value
+     * @param maxX The maximum x value
+     * @param maxY The maximum y value
+     * @param maxZ The maximum z value
+     */
+    DefaultBounds(
+        float minX, float minY, float minZ, 
+        float maxX, float maxY, float maxZ)
+    {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+    
+    @Override
+    public float getMinX()
+    {
+        return minX;
+    }
+
+    @Override
+    public float getMinY()
+    {
+        return minY;
+    }
+
+    @Override
+    public float getMinZ()
+    {
+        return minZ;
+    }
+
+    @Override
+    public float getMaxX()
+    {
+        return maxX;
+    }
+
+    @Override
+    public float getMaxY()
+    {
+        return maxY;
+    }
+
+    @Override
+    public float getMaxZ()
+    {
+        return maxZ;
+    }
+    
+    @Override
+    public Point3f getCenter()
+    {
+        return new Point3f(
+            (minX + maxX) * 0.5f, 
+            (minY + maxY) * 0.5f, 
+            (minZ + maxZ) * 0.5f);
+    }
+    
+    @Override
+    public float getRadius()
+    {
+        float dx = maxX - minX;
+        float dy = maxY - minY;
+        float dz = maxZ - minZ;
+        return (float)Math.sqrt(dx * dx + dy * dy + dz * dz) * 0.5f;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DefaultBounds[" +
+            "(" + minX + "," + minY + "," + minZ + ")-" +
+            "(" + maxX + "," + maxY + "," + maxZ + ")]";
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import de.javagl.rendering.core.utils.BufferUtils;
+
+/**
+ * Default implementation of a {@link FrameCapture}. <br>
+ * <br>
+ * The delivered frames are post-processed and passed to the listener
+ * by tasks that are executed sequentially on the executor, so that 
+ * the listener receives the frames in the order in which they have
+ * been captured. The rows of large frames are processed in parallel.
+ */
+class DefaultFrameCapture implements FrameCapture
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(DefaultFrameCapture.class.getName());
+    
+    /**
+     * The number of pixels, starting at which the rows of a frame are
+     * processed in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 256 * 256;
+    
+    /**
+     * Whether the native byte order is little endian
+     */
+    private static final boolean LITTLE_ENDIAN = 
+        ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    
+    /**
+     * The number of buffers
+     */
+    private final int numBuffers;
+    
+    /**
+     * Whether the frames are flipped vertically
+     */
+    private final boolean flippingVertically;
+    
+    /**
+     * Whether the pixels are converted to ARGB
+     */
+    private final boolean convertingToArgb;
+    
+    /**
+     * The executor for the post-processing and the listener
+     */
+    private final Executor executor;
+    
+    /**
+     * The listener that receives the frames
+     */
+    private final FrameCaptureListener listener;
+    
+    /**
+     * The buffers that may be reused
+     */
+    private final Queue<ByteBuffer> freeBuffers;
+    
+    /**
+     * The tasks that are waiting to be executed
+     */
+    private final Queue<Runnable> tasks;
+    
+    /**
+     * Whether the execution of the pending tasks has been scheduled
+     */
+    private final AtomicBoolean scheduled;
+    
+    /**
+     * Creates a new frame capture
+     * 
+     * @param numBuffers The number of buffers
+     * @param flippingVertically Whether the frames are flipped vertically
+     * @param convertingToArgb Whether the pixels are converted to ARGB
+     * @param executor The executor
+     * @param listener The listener
+     */
+    DefaultFrameCapture(int numBuffers, boolean flippingVertically, 
+        boolean convertingToArgb, Executor executor, 
+        FrameCaptureListener listener)
+    {
+        this.numBuffers = numBuffers;
+        this.flippingVertically = flippingVertically;
+        this.convertingToArgb = convertingToArgb;
+        this.executor = executor;
+        this.listener = listener;
+        this.freeBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+        this.tasks = new ConcurrentLinkedQueue<Runnable>();
+        this.scheduled = new AtomicBoolean();
+    }
+    
+    @Override
+    public int getNumBuffers()
+    {
+        return numBuffers;
+    }
+    
+    @Override
+    public boolean isFlippingVertically()
+    {
+        return flippingVertically;
+    }
+    
+    @Override
+    public boolean isConvertingToArgb()
+    {
+        return convertingToArgb;
+    }
+    
+    @Override
+    public ByteBuffer obtainBuffer(int size)
+    {
+        while (true)
+        {
+            ByteBuffer buffer = freeBuffers.poll();
+            if (buffer == null)
+            {
+                buffer = BufferUtils.createByteBuffer(size);
+            }
+            else if (buffer.capacity() < size)
+            {
+                continue;
+            }
+            buffer.clear();
+            buffer.limit(size);
+            return buffer;
+        }
+    }
+    
+    @Override
+    public void deliver(ByteBuffer pixels, int width, int height)
+    {
+        tasks.add(() -> 
+        {
+            try
+            {
+                process(pixels, width, height);
+                pixels.rewind();
+                listener.frameCaptured(pixels, width, height);
+            }
+            finally
+            {
+                if (freeBuffers.size() < numBuffers)
+                {
+                    freeBuffers.add(pixels);
+                }
+            }
+        });
+        if (scheduled.compareAndSet(false, true))
+        {
+            executor.execute(this::executeTasks);
+        }
+    }
+    
+    /**
+     * Execute all pending tasks, until no more tasks are pending
+     */
+    private void executeTasks()
+    {
+        while (true)
+        {
+            Runnable task = tasks.poll();
+            while (task != null)
+            {
+                try
+                {
+                    task.run();
+                }
+                catch (RuntimeException e)
+                {
+                    logger.log(Level.WARNING, 
+                        "Error while delivering a captured frame", e);
+                }
+                task = tasks.poll();
+            }
+            scheduled.set(false);
+            
+            // A task may have been added after the queue was found to 
+            // be empty, but before the flag was reset
+            if (tasks.isEmpty() || !scheduled.compareAndSet(false, true))
+            {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Flip the given pixels vertically and convert them to ARGB, 
+     * depending on the configuration of this capture
+     * 
+     * @param pixels The pixels
+     * @param w The width
+     * @param h The height
+     */
+    private void process(ByteBuffer pixels, int w, int h)
+    {
+        if (!flippingVertically && !convertingToArgb)
+        {
+            return;
+        }
+        pixels.order(ByteOrder.nativeOrder());
+        IntBuffer ints = pixels.asIntBuffer();
+        int rows = flippingVertically ? (h + 1) / 2 : h;
+        if ((long)w * h >= PARALLEL_THRESHOLD)
+        {
+            IntStream.range(0, rows).parallel().forEach(y -> 
+                processRow(ints, w, h, y));
+        }
+        else
+        {
+            for (int y = 0; y < rows; y++)
+            {
+                processRow(ints, w, h, y);
+            }
+        }
+    }
+    
+    /**
+     * Process the specified row of the given pixels. If the pixels are
+     * flipped, then the row is swapped with the corresponding row from
+     * the bottom.
+     * 
+     * @param ints The pixels
+     * @param w The width
+     * @param h The height
+     * @param y The row
+     */
+    private void processRow(IntBuffer ints, int w, int h, int y)
+    {
+        int i0 = y * w;
+        if (!flippingVertically)
+        {
+            for (int x = 0; x < w; x++)
+            {
+                ints.put(i0 + x, toArgb(ints.get(i0 + x)));
+            }
+            return;
+        }
+        int i1 = (h - 1 - y) * w;
+        for (int x = 0; x < w; x++)
+        {
+            int v0 = ints.get(i0 + x);
+            int v1 = ints.get(i1 + x);
+            if (convertingToArgb)
+            {
+                v0 = toArgb(v0);
+                v1 = toArgb(v1);
+            }
+            ints.put(i0 + x, v1);
+            ints.put(i1 + x, v0);
+        }
+    }
+    
+    /**
+     * Convert the given pixel, which consists of the red, green, blue
+     * and alpha byte in memory, into an ARGB integer
+     * 
+     * @param rgba The RGBA pixel, read in native byte order
+     * @return The ARGB pixel
+     */
+    private static int toArgb(int rgba)
+    {
+        if (LITTLE_ENDIAN)
+        {
+            return (rgba & 0xFF00FF00) | 
+                ((rgba >> 16) & 0xFF) | ((rgba & 0xFF) << 16);
+        }
+        return (rgba >>> 8) | (rgba << 24);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "DefaultFrameCapture[" +
+            "numBuffers=" + numBuffers + "," +
+            "flippingVertically=" + flippingVertically + "," +
+            "convertingToArgb=" + convertingToArgb + "]";
+    }
+}
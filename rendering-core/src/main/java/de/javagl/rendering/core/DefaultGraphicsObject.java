@@ -60,6 +60,11 @@ class DefaultGraphicsObject implements GraphicsObject
      */
     private final List<Attribute> attributes;
     
+    /**
+     * The {@link Bounds} of this object, computed lazily
+     */
+    private volatile Bounds bounds;
+    
     /**
      * Creates a new {@link GraphicsObject} with the given indices
      * and the given {@link Mapping} from the {@link Attribute}s to the 
@@ -106,6 +111,24 @@ class DefaultGraphicsObject implements GraphicsObject
         return Collections.unmodifiableList(attributes);
     }
 
+    /**
+     * Returns the {@link Bounds} of this object, computing them from
+     * the {@link Attributes#VERTICES} when they are requested for the 
+     * first time
+     * 
+     * @return The {@link Bounds}
+     */
+    Bounds getBounds()
+    {
+        Bounds result = bounds;
+        if (result == null)
+        {
+            result = GraphicsObjects.computeBounds(this);
+            bounds = result;
+        }
+        return result;
+    }
+
     @Override
     public String toString()
     {
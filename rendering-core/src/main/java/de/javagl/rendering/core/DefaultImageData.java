@@ -71,6 +71,25 @@ class DefaultImageData implements ImageData
         this.type = ImageDataType.INT_ARGB;
     }
     
+    /**
+     * Creates a new ImageData with the given {@link ImageDataType}, for 
+     * an image with the specified size, that is backed by the given 
+     * buffer. The buffer will not be copied.
+     * 
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param type The {@link ImageDataType}
+     * @param data The buffer containing the data
+     */
+    DefaultImageData(int width, int height, ImageDataType type, 
+        ByteBuffer data)
+    {
+        this.width = width;
+        this.height = height;
+        this.data = data;
+        this.type = type;
+    }
+    
     @Override
     public ByteBuffer getData()
     {
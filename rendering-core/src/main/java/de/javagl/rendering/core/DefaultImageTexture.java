@@ -27,11 +27,12 @@
 
 package de.javagl.rendering.core;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
- * Implementation of a {@link Texture} that is backed by {@link ImageData}.<br>
- * <br>
- * TODO This interface may be extended with a listener infrastructure
+ * Implementation of a {@link Texture} that is backed by {@link ImageData}.
  */
 class DefaultImageTexture implements ImageTexture
 {
@@ -40,31 +41,17 @@ class DefaultImageTexture implements ImageTexture
      */
     private final ImageData imageData;
     
-//    /**
-//     * The listeners for update requests on this texture
-//     */
-//    private List<ImageTextureListener> 
-//        imageTextureListeners = 
-//            new CopyOnWriteArrayList<ImageTextureListener>();
+    /**
+     * The {@link ImageData} of all mipmap levels, starting with the
+     * {@link #imageData}
+     */
+    private final List<ImageData> mipLevels;
+    
+    /**
+     * The tracker for the dirty regions of this texture
+     */
+    private final DirtyRegionTracker dirtyRegionTracker;
     
-//    /**
-//     * Creates a new Texture. The texture will contain a <b>new</b> 
-//     * image that has the same contents as the given one. 
-//     * 
-//     * @param textureImage The input image
-//     */
-//    private DefaultImageTexture(BufferedImage textureImage)
-//    {
-//        int w = textureImage.getWidth();
-//        int h = textureImage.getHeight();
-//        
-//        image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-//        
-//        Graphics2D g = image.createGraphics();
-//        g.drawImage(textureImage, 0, 0, null);
-//        g.dispose();
-//    }
-
     /**
      * Creates a new image texture with the given size
      * 
@@ -74,6 +61,38 @@ class DefaultImageTexture implements ImageTexture
     DefaultImageTexture(int width, int height)
     {
         imageData = new DefaultImageData(width, height);
+        mipLevels = Collections.singletonList(imageData);
+        dirtyRegionTracker = new DirtyRegionTracker(width, height);
+    }
+    
+    /**
+     * Creates a new image texture that is backed by the given 
+     * {@link ImageData}
+     * 
+     * @param imageData The {@link ImageData}
+     */
+    DefaultImageTexture(ImageData imageData)
+    {
+        this.imageData = imageData;
+        this.mipLevels = Collections.singletonList(imageData);
+        this.dirtyRegionTracker = new DirtyRegionTracker(
+            imageData.getWidth(), imageData.getHeight());
+    }
+    
+    /**
+     * Creates a new image texture that is backed by the given mipmap
+     * levels. The first element of the given list will be the 
+     * {@link #getImageData() image data} of this texture.
+     * 
+     * @param mipLevels The {@link ImageData} of the mipmap levels
+     */
+    DefaultImageTexture(List<? extends ImageData> mipLevels)
+    {
+        this.imageData = mipLevels.get(0);
+        this.mipLevels = Collections.unmodifiableList(
+            new ArrayList<ImageData>(mipLevels));
+        this.dirtyRegionTracker = new DirtyRegionTracker(
+            imageData.getWidth(), imageData.getHeight());
     }
     
 
@@ -95,31 +114,45 @@ class DefaultImageTexture implements ImageTexture
         return imageData;
     }
     
-//    @Override
-//    public void requestUpdate(int x, int y, int width, int height)
-//    {
-//        for (ImageTextureListener u : 
-//             imageTextureListeners)
-//        {
-//            u.updateRequested(this, x, y, width, height);
-//        }
-//    }
-//    
-//    @Override
-//    public void addImageTextureListener(
-//        ImageTextureListener imageTextureListener)
-//    {
-//        imageTextureListeners.add(
-//            imageTextureListener);
-//    }
-//
-//    @Override
-//    public void removeImageTextureListener(
-//        ImageTextureListener imageTextureListener)
-//    {
-//        imageTextureListeners.remove(
-//            imageTextureListener);
-//    }
+    @Override
+    public int getNumMipLevels()
+    {
+        return mipLevels.size();
+    }
+    
+    @Override
+    public ImageData getMipLevel(int level)
+    {
+        return mipLevels.get(level);
+    }
+    
+    @Override
+    public void markDirty(int x, int y, int width, int height)
+    {
+        if (width < 0)
+        {
+            throw new IllegalArgumentException(
+                "The width may not be negative, but is " + width);
+        }
+        if (height < 0)
+        {
+            throw new IllegalArgumentException(
+                "The height may not be negative, but is " + height);
+        }
+        dirtyRegionTracker.add(x, y, width, height);
+    }
+    
+    @Override
+    public void markDirty()
+    {
+        dirtyRegionTracker.add(0, 0, getWidth(), getHeight());
+    }
+    
+    @Override
+    public List<ImageRegion> fetchDirtyRegions()
+    {
+        return dirtyRegionTracker.fetch();
+    }
     
     @Override
     public String toString()
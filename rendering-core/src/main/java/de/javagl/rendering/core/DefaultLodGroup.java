@@ -0,0 +1,201 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Default implementation of a {@link LodGroup}
+ */
+final class DefaultLodGroup implements LodGroup
+{
+    /**
+     * The {@link RenderedObject}s of the levels
+     */
+    private final List<RenderedObject> levels;
+    
+    /**
+     * The screen sizes below which the level with the next higher 
+     * index is selected, in descending order
+     */
+    private final float switchSizes[];
+    
+    /**
+     * The hysteresis, as a fraction of the switch sizes
+     */
+    private final float hysteresis;
+    
+    /**
+     * The number of triangles of each level
+     */
+    private final long numTriangles[];
+    
+    /**
+     * The {@link Bounds} of the most detailed level
+     */
+    private final Bounds bounds;
+    
+    /**
+     * The number of selections of each level
+     */
+    private final AtomicLongArray selectionCounts;
+    
+    /**
+     * The number of triangles that have been submitted for each level
+     */
+    private final AtomicLongArray triangleCounts;
+    
+    /**
+     * The current level
+     */
+    private volatile int currentLevel;
+    
+    /**
+     * Creates a new group
+     * 
+     * @param levels The {@link RenderedObject}s of the levels
+     * @param switchSizes The switch sizes
+     * @param hysteresis The hysteresis
+     */
+    DefaultLodGroup(List<? extends RenderedObject> levels, 
+        float switchSizes[], float hysteresis)
+    {
+        this.levels = new ArrayList<RenderedObject>(levels);
+        this.switchSizes = switchSizes.clone();
+        this.hysteresis = hysteresis;
+        this.numTriangles = new long[levels.size()];
+        for (int i = 0; i < levels.size(); i++)
+        {
+            numTriangles[i] = 
+                computeNumTriangles(levels.get(i).getGraphicsObject());
+        }
+        this.bounds = GraphicsObjects.getBounds(
+            levels.get(0).getGraphicsObject());
+        this.selectionCounts = new AtomicLongArray(levels.size());
+        this.triangleCounts = new AtomicLongArray(levels.size());
+        this.currentLevel = 0;
+    }
+    
+    /**
+     * Computes the number of triangles of the given {@link GraphicsObject}
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @return The number of triangles
+     */
+    private static long computeNumTriangles(GraphicsObject graphicsObject)
+    {
+        DataBuffer indices = graphicsObject.getIndices();
+        if (indices == null)
+        {
+            return graphicsObject.getNumVertices() / 3;
+        }
+        Buffer buffer = indices.getBuffer();
+        return buffer.remaining() / 3;
+    }
+    
+    @Override
+    public int getNumLevels()
+    {
+        return levels.size();
+    }
+
+    @Override
+    public RenderedObject getLevel(int level)
+    {
+        return levels.get(level);
+    }
+    
+    @Override
+    public Bounds getBounds()
+    {
+        return bounds;
+    }
+
+    @Override
+    public int select(float screenSize)
+    {
+        return select(screenSize, currentLevel);
+    }
+    
+    @Override
+    public int select(float screenSize, int previousLevel)
+    {
+        int level = 0;
+        for (int i = 0; i < switchSizes.length; i++)
+        {
+            float factor = previousLevel <= i ? 
+                1.0f - hysteresis : 1.0f + hysteresis;
+            if (screenSize < switchSizes[i] * factor)
+            {
+                level = i + 1;
+            }
+        }
+        currentLevel = level;
+        selectionCounts.incrementAndGet(level);
+        triangleCounts.addAndGet(level, numTriangles[level]);
+        return level;
+    }
+
+    @Override
+    public int getCurrentLevel()
+    {
+        return currentLevel;
+    }
+
+    @Override
+    public long getSelectionCount(int level)
+    {
+        return selectionCounts.get(level);
+    }
+
+    @Override
+    public long getTriangleCount(int level)
+    {
+        return triangleCounts.get(level);
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        for (int i = 0; i < levels.size(); i++)
+        {
+            selectionCounts.set(i, 0);
+            triangleCounts.set(i, 0);
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "DefaultLodGroup[levels=" + levels.size() + 
+            ",currentLevel=" + currentLevel + "]";
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.javagl.rendering.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Default implementation of a {@link StreamingTexture}.<br>
+ * <br>
+ * Each time that the buffers are revoked, the generation of the ring 
+ * is increased. The free buffers are tagged with the generation in 
+ * which they have been provided, and frames that have been started in
+ * an older generation are discarded, so that indices of revoked buffers
+ * never end up in a ring of newly provided buffers.
+ */
+class DefaultStreamingTexture extends DefaultImageTexture 
+    implements StreamingTexture
+{
+    /**
+     * The size of one frame, in bytes
+     */
+    private final int frameSize;
+    
+    /**
+     * The buffers that have been provided by the renderer
+     */
+    private final AtomicReferenceArray<ByteBuffer> buffers;
+    
+    /**
+     * The buffers that are available for the producer, each consisting 
+     * of the generation in the upper 32 bits and the index in the lower
+     * 32 bits
+     */
+    private final BlockingQueue<Long> freeIndices;
+    
+    /**
+     * The indices of the buffers that contain published frames
+     */
+    private final Queue<Integer> frameIndices;
+    
+    /**
+     * The index of the buffer of the frame that is currently being 
+     * written by the producer, or -1
+     */
+    private volatile int currentIndex;
+    
+    /**
+     * The generation of the buffers, which is increased each time that 
+     * the buffers are revoked
+     */
+    private int generation;
+    
+    /**
+     * The generation in which the current frame was started
+     */
+    private int frameGeneration;
+    
+    /**
+     * Creates a new streaming texture
+     * 
+     * @param width The width
+     * @param height The height
+     * @param numBuffers The number of buffers
+     */
+    DefaultStreamingTexture(int width, int height, int numBuffers)
+    {
+        super(width, height);
+        this.frameSize = width * height * 4;
+        this.buffers = new AtomicReferenceArray<ByteBuffer>(numBuffers);
+        this.freeIndices = new LinkedBlockingQueue<Long>();
+        this.frameIndices = new ConcurrentLinkedQueue<Integer>();
+        this.currentIndex = -1;
+    }
+    
+    @Override
+    public ByteBuffer beginFrame(long timeout, TimeUnit unit)
+        throws InterruptedException
+    {
+        if (currentIndex != -1)
+        {
+            throw new IllegalStateException(
+                "The previous frame was not ended");
+        }
+        while (true)
+        {
+            Long entry = freeIndices.poll(timeout, unit);
+            if (entry == null)
+            {
+                return null;
+            }
+            int index = (int)(entry & 0xFFFFFFFFL);
+            ByteBuffer buffer = null;
+            synchronized (this)
+            {
+                if ((int)(entry >>> 32) != generation)
+                {
+                    // The buffer was revoked after it was offered
+                    continue;
+                }
+                buffer = buffers.get(index);
+                currentIndex = index;
+                frameGeneration = generation;
+            }
+            ByteBuffer result = buffer.duplicate();
+            result.order(ByteOrder.nativeOrder());
+            result.clear();
+            result.limit(frameSize);
+            return result;
+        }
+    }
+    
+    @Override
+    public synchronized void endFrame()
+    {
+        int index = currentIndex;
+        if (index == -1)
+        {
+            throw new IllegalStateException("No frame was started");
+        }
+        currentIndex = -1;
+        if (frameGeneration != generation)
+        {
+            // The buffers have been revoked while the frame was written
+            return;
+        }
+        frameIndices.add(index);
+    }
+    
+    @Override
+    public int getNumBuffers()
+    {
+        return buffers.length();
+    }
+    
+    @Override
+    public synchronized void provideBuffer(int index, ByteBuffer buffer)
+    {
+        if (buffer.capacity() < frameSize)
+        {
+            throw new IllegalArgumentException(
+                "The buffer must have a capacity of at least " + 
+                frameSize + ", but has " + buffer.capacity());
+        }
+        buffers.set(index, buffer);
+        freeIndices.add(((long)generation << 32) | index);
+    }
+    
+    @Override
+    public int pollFrame()
+    {
+        Integer index = frameIndices.poll();
+        if (index == null)
+        {
+            return -1;
+        }
+        return index;
+    }
+    
+    @Override
+    public synchronized int revokeBuffers()
+    {
+        int index = -1;
+        if (currentIndex != -1 && frameGeneration == generation)
+        {
+            index = currentIndex;
+        }
+        generation++;
+        freeIndices.clear();
+        frameIndices.clear();
+        for (int i = 0; i < buffers.length(); i++)
+        {
+            buffers.set(i, null);
+        }
+        return index;
+    }
+    
+    @Override
+    public synchronized boolean isRevokedBufferInUse()
+    {
+        return currentIndex != -1 && frameGeneration != generation;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "DefaultStreamingTexture[" +
+            "width=" + getWidth() + "," +
+            "height=" + getHeight() + "," +
+            "numBuffers=" + getNumBuffers() + "]";
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.javagl.rendering.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class that collects the dirty regions of an image.<br>
+ * <br>
+ * The regions that are added are clipped to the image bounds. A new 
+ * region is merged with an existing one when uploading their bounding 
+ * box would cost fewer additional pixels than the assumed overhead of 
+ * a separate upload. When the number of regions exceeds a limit, all 
+ * regions are merged into their bounding box. 
+ */
+class DirtyRegionTracker
+{
+    /**
+     * The number of pixels that is assumed to be equivalent to the 
+     * overhead of a single upload operation
+     */
+    private static final long MERGE_OVERHEAD_PIXELS = 64 * 64;
+    
+    /**
+     * The maximum number of regions that are kept separately
+     */
+    private static final int MAX_REGIONS = 16;
+    
+    /**
+     * The width of the image
+     */
+    private final int width;
+    
+    /**
+     * The height of the image
+     */
+    private final int height;
+    
+    /**
+     * The current regions, each stored as (minX, minY, maxX, maxY), 
+     * with the maximum being exclusive
+     */
+    private final List<int[]> regions;
+    
+    /**
+     * Creates a new tracker for an image with the given size
+     * 
+     * @param width The width
+     * @param height The height
+     */
+    DirtyRegionTracker(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+        this.regions = new ArrayList<int[]>();
+    }
+    
+    /**
+     * Add the given region
+     * 
+     * @param x The x-coordinate
+     * @param y The y-coordinate
+     * @param w The width
+     * @param h The height
+     */
+    synchronized void add(int x, int y, int w, int h)
+    {
+        int minX = Math.max(0, x);
+        int minY = Math.max(0, y);
+        int maxX = (int)Math.min(width, (long)x + w);
+        int maxY = (int)Math.min(height, (long)y + h);
+        if (minX >= maxX || minY >= maxY)
+        {
+            return;
+        }
+        int region[] = { minX, minY, maxX, maxY };
+        boolean merged = true;
+        while (merged)
+        {
+            merged = false;
+            for (int i = 0; i < regions.size(); i++)
+            {
+                int other[] = regions.get(i);
+                if (shouldMerge(region, other))
+                {
+                    region = union(region, other);
+                    regions.remove(i);
+                    merged = true;
+                    break;
+                }
+            }
+        }
+        regions.add(region);
+        if (regions.size() > MAX_REGIONS)
+        {
+            int bounds[] = regions.get(0);
+            for (int i = 1; i < regions.size(); i++)
+            {
+                bounds = union(bounds, regions.get(i));
+            }
+            regions.clear();
+            regions.add(bounds);
+        }
+    }
+    
+    /**
+     * Returns the current regions, and clears this tracker
+     * 
+     * @return The regions
+     */
+    synchronized List<ImageRegion> fetch()
+    {
+        if (regions.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+        List<ImageRegion> result = new ArrayList<ImageRegion>();
+        for (int r[] : regions)
+        {
+            result.add(new DefaultImageRegion(
+                r[0], r[1], r[2] - r[0], r[3] - r[1]));
+        }
+        regions.clear();
+        return result;
+    }
+    
+    /**
+     * Returns whether the given regions should be merged
+     * 
+     * @param r0 The first region
+     * @param r1 The second region
+     * @return Whether the regions should be merged
+     */
+    private static boolean shouldMerge(int r0[], int r1[])
+    {
+        long ix = Math.max(0, Math.min(r0[2], r1[2]) - Math.max(r0[0], r1[0]));
+        long iy = Math.max(0, Math.min(r0[3], r1[3]) - Math.max(r0[1], r1[1]));
+        long covered = area(r0) + area(r1) - ix * iy;
+        long merged = area(union(r0, r1));
+        return merged - covered <= MERGE_OVERHEAD_PIXELS;
+    }
+    
+    /**
+     * Returns the area of the given region
+     * 
+     * @param r The region
+     * @return The area
+     */
+    private static long area(int r[])
+    {
+        return (long)(r[2] - r[0]) * (r[3] - r[1]);
+    }
+    
+    /**
+     * Returns the bounding box of the given regions
+     * 
+     * @param r0 The first region
+     * @param r1 The second region
+     * @return The bounding box
+     */
+    private static int[] union(int r0[], int r1[])
+    {
+        return new int[] { 
+            Math.min(r0[0], r1[0]), Math.min(r0[1], r1[1]), 
+            Math.max(r0[2], r1[2]), Math.max(r0[3], r1[3]) };
+    }
+}
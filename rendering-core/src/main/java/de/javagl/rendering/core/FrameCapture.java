@@ -0,0 +1,101 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+import java.nio.ByteBuffer;
+
+import de.javagl.rendering.core.handling.FrameBufferHandler;
+
+/**
+ * Interface describing the asynchronous capture of the contents of
+ * a {@link FrameBuffer}.<br>
+ * <br>
+ * A capture is requested with 
+ * {@link FrameBufferHandler#capture(FrameBuffer, FrameCapture)}. The
+ * pixels are read into one of {@link #getNumBuffers()} buffers on the
+ * GPU, and fetched a few frames later, when the transfer has been 
+ * completed, so that the capture does not stall the rendering. The 
+ * pixels are then post-processed and passed to a 
+ * {@link FrameCaptureListener} on a different thread.<br>
+ * <br>
+ * The methods {@link #obtainBuffer(int)} and 
+ * {@link #deliver(ByteBuffer, int, int)} are called by the 
+ * {@link FrameBufferHandler}, and not intended to be called by clients.
+ */
+public interface FrameCapture
+{
+    /**
+     * Returns the number of buffers that may be in flight at the same
+     * time. When a capture is requested while all buffers are in 
+     * flight, then this request will be skipped.
+     * 
+     * @return The number of buffers
+     */
+    int getNumBuffers();
+    
+    /**
+     * Returns whether the rows of the captured frames are flipped 
+     * vertically, so that the first row is the top row of the frame
+     * 
+     * @return Whether the frames are flipped vertically
+     */
+    boolean isFlippingVertically();
+    
+    /**
+     * Returns whether the RGBA pixels of the captured frames are 
+     * converted to ARGB integers, as described in 
+     * {@link FrameCaptureListener#frameCaptured(ByteBuffer, int, int)}
+     * 
+     * @return Whether the pixels are converted to ARGB
+     */
+    boolean isConvertingToArgb();
+    
+    /**
+     * Obtain a buffer that may receive the pixels of a captured frame.
+     * The returned buffer has a position of 0 and a limit of the given
+     * size, and must later be passed to 
+     * {@link #deliver(ByteBuffer, int, int)}. 
+     * 
+     * @param size The size of the buffer, in bytes
+     * @return The buffer
+     */
+    ByteBuffer obtainBuffer(int size);
+    
+    /**
+     * Deliver the given RGBA pixels of a captured frame, whose first
+     * row is the bottom row of the frame. The pixels will be 
+     * post-processed and passed to the {@link FrameCaptureListener}
+     * asynchronously. 
+     * 
+     * @param pixels The buffer that was obtained with 
+     * {@link #obtainBuffer(int)}
+     * @param width The width of the frame
+     * @param height The height of the frame
+     */
+    void deliver(ByteBuffer pixels, int width, int height);
+}
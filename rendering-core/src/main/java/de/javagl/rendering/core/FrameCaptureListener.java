@@ -0,0 +1,58 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for classes that want to be informed about frames that 
+ * have been captured with a {@link FrameCapture}
+ */
+public interface FrameCaptureListener
+{
+    /**
+     * Will be called when a frame has been captured.<br>
+     * <br>
+     * The given buffer contains 4 bytes for each pixel. If the 
+     * {@link FrameCapture} is {@link FrameCapture#isConvertingToArgb() 
+     * converting to ARGB}, then each pixel is an integer in native 
+     * byte order that consists of the alpha, red, green and blue value,
+     * as described for {@link ImageDataType#INT_ARGB}. Otherwise, each
+     * pixel consists of the red, green, blue and alpha byte. <br>
+     * <br>
+     * This method will be called on a thread of the executor of the
+     * {@link FrameCapture}, in the order in which the frames have been
+     * captured. The given buffer is only valid during this call, and
+     * will be reused afterwards.
+     * 
+     * @param pixels The pixels
+     * @param width The width of the frame
+     * @param height The height of the frame
+     */
+    void frameCaptured(ByteBuffer pixels, int width, int height);
+}
@@ -0,0 +1,187 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Methods for creating {@link FrameCapture} instances
+ */
+public class FrameCaptures
+{
+    /**
+     * The default number of buffers
+     */
+    private static final int DEFAULT_NUM_BUFFERS = 3;
+    
+    /**
+     * A builder for {@link FrameCapture} instances. <br>
+     * <br>
+     * By default, the capture uses {@value FrameCaptures#DEFAULT_NUM_BUFFERS}
+     * buffers, flips the frames vertically, converts the pixels to ARGB,
+     * and post-processes the frames using the common fork-join pool.
+     */
+    public static class Builder
+    {
+        /**
+         * The listener
+         */
+        private final FrameCaptureListener listener;
+        
+        /**
+         * The number of buffers
+         */
+        private int numBuffers;
+        
+        /**
+         * Whether the frames are flipped vertically
+         */
+        private boolean flippingVertically;
+        
+        /**
+         * Whether the pixels are converted to ARGB
+         */
+        private boolean convertingToArgb;
+        
+        /**
+         * The executor
+         */
+        private Executor executor;
+        
+        /**
+         * Creates a new builder
+         * 
+         * @param listener The listener
+         */
+        private Builder(FrameCaptureListener listener)
+        {
+            this.listener = listener;
+            this.numBuffers = DEFAULT_NUM_BUFFERS;
+            this.flippingVertically = true;
+            this.convertingToArgb = true;
+            this.executor = ForkJoinPool.commonPool();
+        }
+        
+        /**
+         * Set the number of buffers that may be in flight at the same 
+         * time. A larger number allows the transfer of each frame to 
+         * take more time before the rendering is affected, at the cost
+         * of a higher latency and memory consumption.
+         * 
+         * @param numBuffers The number of buffers
+         * @return This builder
+         * @throws IllegalArgumentException If the number is not positive
+         */
+        public Builder setNumBuffers(int numBuffers)
+        {
+            if (numBuffers <= 0)
+            {
+                throw new IllegalArgumentException(
+                    "The number of buffers must be positive, but is " + 
+                    numBuffers);
+            }
+            this.numBuffers = numBuffers;
+            return this;
+        }
+        
+        /**
+         * Set whether the frames should be flipped vertically, so that
+         * the first row is the top row of the frame
+         * 
+         * @param flippingVertically Whether the frames are flipped
+         * @return This builder
+         */
+        public Builder setFlippingVertically(boolean flippingVertically)
+        {
+            this.flippingVertically = flippingVertically;
+            return this;
+        }
+        
+        /**
+         * Set whether the RGBA pixels should be converted to ARGB 
+         * integers, as described in 
+         * {@link FrameCaptureListener#frameCaptured}
+         * 
+         * @param convertingToArgb Whether the pixels are converted
+         * @return This builder
+         */
+        public Builder setConvertingToArgb(boolean convertingToArgb)
+        {
+            this.convertingToArgb = convertingToArgb;
+            return this;
+        }
+        
+        /**
+         * Set the executor that will be used for the post-processing
+         * of the frames and for calling the listener
+         * 
+         * @param executor The executor
+         * @return This builder
+         */
+        public Builder setExecutor(Executor executor)
+        {
+            this.executor = Objects.requireNonNull(
+                executor, "The executor may not be null");
+            return this;
+        }
+        
+        /**
+         * Create the {@link FrameCapture}
+         * 
+         * @return The {@link FrameCapture}
+         */
+        public FrameCapture build()
+        {
+            return new DefaultFrameCapture(numBuffers, 
+                flippingVertically, convertingToArgb, executor, listener);
+        }
+    }
+    
+    /**
+     * Creates a new {@link Builder} for a {@link FrameCapture} that 
+     * passes the captured frames to the given listener
+     * 
+     * @param listener The listener
+     * @return The builder
+     */
+    public static Builder create(FrameCaptureListener listener)
+    {
+        Objects.requireNonNull(listener, "The listener may not be null");
+        return new Builder(listener);
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private FrameCaptures()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
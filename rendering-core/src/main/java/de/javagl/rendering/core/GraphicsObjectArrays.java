@@ -0,0 +1,191 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import de.javagl.rendering.core.utils.BufferUtils;
+
+/**
+ * Package-private utility methods for converting the indices and
+ * attribute data of {@link GraphicsObject}s from and to arrays.
+ */
+final class GraphicsObjectArrays
+{
+    /**
+     * Returns the indices of the given {@link GraphicsObject} as an
+     * array. The indices are treated as unsigned values. If the object
+     * does not have indices, then the array will contain the sequence
+     * 0...numVertices-1. 
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @return The indices
+     */
+    static int[] readIndices(GraphicsObject graphicsObject)
+    {
+        DataBuffer dataBuffer = graphicsObject.getIndices();
+        if (dataBuffer == null)
+        {
+            int result[] = new int[graphicsObject.getNumVertices()];
+            for (int i = 0; i < result.length; i++)
+            {
+                result[i] = i;
+            }
+            return result;
+        }
+        Buffer buffer = dataBuffer.getBuffer();
+        int position = buffer.position();
+        int result[] = new int[buffer.remaining()];
+        if (buffer instanceof IntBuffer)
+        {
+            IntBuffer b = (IntBuffer)buffer;
+            for (int i = 0; i < result.length; i++)
+            {
+                result[i] = b.get(position + i);
+            }
+        }
+        else if (buffer instanceof ShortBuffer)
+        {
+            ShortBuffer b = (ShortBuffer)buffer;
+            for (int i = 0; i < result.length; i++)
+            {
+                result[i] = b.get(position + i) & 0xFFFF;
+            }
+        }
+        else if (buffer instanceof ByteBuffer)
+        {
+            ByteBuffer b = (ByteBuffer)buffer;
+            for (int i = 0; i < result.length; i++)
+            {
+                result[i] = b.get(position + i) & 0xFF;
+            }
+        }
+        else
+        {
+            throw new IllegalArgumentException(
+                "Invalid index buffer type: " + buffer);
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the data of the given {@link DataBuffer}, which must be 
+     * a {@link DataBufferType#FLOAT} buffer, as an array
+     * 
+     * @param dataBuffer The {@link DataBuffer}
+     * @return The data
+     * @throws IllegalArgumentException If the given buffer does not
+     * contain float values
+     */
+    static float[] readFloats(DataBuffer dataBuffer)
+    {
+        Buffer buffer = dataBuffer.getBuffer();
+        if (!(buffer instanceof FloatBuffer))
+        {
+            throw new IllegalArgumentException(
+                "Expected a float buffer, but found " + buffer);
+        }
+        FloatBuffer b = ((FloatBuffer)buffer).duplicate();
+        float result[] = new float[b.remaining()];
+        b.get(result);
+        return result;
+    }
+    
+    /**
+     * Creates a {@link GraphicsObjects.Builder} for a {@link GraphicsObject}
+     * with the given indices. The indices will be stored as unsigned 
+     * short values if the number of vertices permits this, and as 
+     * unsigned int values otherwise.
+     * 
+     * @param indices The indices
+     * @param numVertices The number of vertices
+     * @return The {@link GraphicsObjects.Builder}
+     */
+    static GraphicsObjects.Builder createBuilder(
+        int indices[], int numVertices)
+    {
+        if (numVertices <= 65536)
+        {
+            ShortBuffer buffer = BufferUtils.createShortBuffer(indices.length);
+            for (int i = 0; i < indices.length; i++)
+            {
+                buffer.put(i, (short)indices[i]);
+            }
+            return GraphicsObjects.create(buffer, numVertices);
+        }
+        IntBuffer buffer = BufferUtils.createDirectBuffer(indices);
+        return GraphicsObjects.create(buffer, numVertices);
+    }
+    
+    /**
+     * Creates a new {@link GraphicsObject} with the given indices, whose
+     * attributes contain the data of the given object, with the vertices
+     * being reordered according to the given remapping: The data of 
+     * vertex <code>i</code> of the given object will be the data of 
+     * vertex <code>remap[i]</code> of the new object.
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @param indices The indices for the new object
+     * @param remap The remapping, which must be a permutation
+     * @return The new {@link GraphicsObject}
+     */
+    static GraphicsObject createReordered(
+        GraphicsObject graphicsObject, int indices[], int remap[])
+    {
+        int numVertices = graphicsObject.getNumVertices();
+        GraphicsObjects.Builder builder = 
+            createBuilder(indices, numVertices);
+        for (Attribute attribute : graphicsObject.getAttributes())
+        {
+            int size = attribute.getSize();
+            float data[] = readFloats(graphicsObject.getDataBuffer(attribute));
+            FloatBuffer buffer = 
+                BufferUtils.createFloatBuffer(numVertices * size);
+            for (int v = 0; v < numVertices; v++)
+            {
+                buffer.position(remap[v] * size);
+                buffer.put(data, v * size, size);
+            }
+            buffer.rewind();
+            builder.set(attribute, buffer);
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private GraphicsObjectArrays()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -31,15 +31,30 @@ import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.logging.Logger;
 
 import de.javagl.rendering.core.utils.BufferUtils;
+import de.javagl.rendering.core.utils.IndexOptimizer;
 
 /**
  * Methods and classes for creating {@link GraphicsObject} instances
  */
 public class GraphicsObjects
 {
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(GraphicsObjects.class.getName());
+    
+    /**
+     * The size of the FIFO vertex cache that is assumed for computing
+     * the average cache miss ratio in {@link #optimize(GraphicsObject)}
+     */
+    private static final int ACMR_CACHE_SIZE = 32;
+    
     /**
      * A Builder for {@link GraphicsObject} instances.
      */
@@ -831,6 +846,304 @@ public class GraphicsObjects
     }
     
     
+    /**
+     * Create a new {@link GraphicsObject} that is a unit sphere,
+     * located at the origin, consisting of 20*(4^depth) triangles.<br>
+     * <br>
+     * In contrast to {@link #createSphere(int)}, the vertices of the
+     * resulting object are shared among the adjacent triangles, so that 
+     * the object only consists of 10*(4^depth)+2 vertices.<br>
+     * <br>
+     * The {@link GraphicsObject#getAttributes() attributes} of this 
+     * {@link GraphicsObject} will be {@link Attributes#VERTICES}, 
+     * {@link Attributes#NORMALS}, {@link Attributes#TEXCOORDS}
+     * and {@link Attributes#COLORS}.
+     * 
+     * @param depth The recursion depth
+     * @return The new {@link GraphicsObject}
+     * @throws IllegalArgumentException If the given depth is negative
+     * or greater than 10
+     */
+    public static GraphicsObject createIndexedSphere(int depth)
+    {
+        return createIndexedSphere(depth, 
+            Attributes.VERTICES,  Attributes.NORMALS,  
+            Attributes.TEXCOORDS,  Attributes.COLORS, false);
+    }
+    
+    /**
+     * Create a new {@link GraphicsObject} that is a unit sphere,
+     * located at the origin, consisting of 20*(4^depth) triangles,
+     * where the vertices are shared among the adjacent triangles, 
+     * so that the object only consists of 10*(4^depth)+2 vertices.<br>
+     * <br>
+     * The indices will be unsigned short values if the number of 
+     * vertices permits this, and unsigned int values otherwise.<br>
+     * <br>
+     * For a unit sphere at the origin, the normals and colors are the 
+     * same as the vertices. If <code>shareBuffers</code> is 
+     * <code>true</code>, then the vertices, normals and colors will be 
+     * backed by the same buffer, so that the data is only stored (and 
+     * sent to the GPU) once. Otherwise, separate copies will be created, 
+     * so that the contents of one buffer may be modified without 
+     * affecting the other attributes.
+     * 
+     * @param depth The recursion depth
+     * @param verticesAttribute The {@link Attribute} that should be used for
+     * the vertices. This may not be <code>null</code>.
+     * @param normalsAttribute The {@link Attribute} that should be used for
+     * the normals. This may be <code>null</code>.
+     * @param texCoordsAttribute The {@link Attribute} that should be used
+     * for the texture coordinates. This may be <code>null</code>. 
+     * @param colorsAttribute The {@link Attribute} that should be used for
+     * the colors. This may be <code>null</code>.
+     * @param shareBuffers Whether the vertices, normals and colors should
+     * share the same buffer
+     * @return The new {@link GraphicsObject}
+     * @throws NullPointerException If the vertices attribute is 
+     * <code>null</code>
+     * @throws IllegalArgumentException If the given depth is negative
+     * or greater than 10
+     */
+    public static GraphicsObject createIndexedSphere(int depth,
+        Attribute verticesAttribute,
+        Attribute normalsAttribute,
+        Attribute texCoordsAttribute,
+        Attribute colorsAttribute,
+        boolean shareBuffers)
+    {
+        Objects.requireNonNull(verticesAttribute, 
+            "The verticesAttribute may not be null");
+        if (depth < 0 || depth > 10)
+        {
+            throw new IllegalArgumentException(
+                "The depth must be between 0 and 10, but is " + depth);
+        }
+        
+        final float X = 0.525731112119133606f; 
+        final float Z = 0.850650808352039932f;
+        float vdata[] = 
+        {    
+              -X, 0.0f,    Z, 
+               X, 0.0f,    Z, 
+              -X, 0.0f,   -Z, 
+               X, 0.0f,   -Z,    
+            0.0f,    Z,    X, 
+            0.0f,    Z,   -X, 
+            0.0f,   -Z,    X, 
+            0.0f,   -Z,   -X,    
+               Z,    X, 0.0f, 
+              -Z,    X, 0.0f, 
+               Z,   -X, 0.0f, 
+              -Z,   -X, 0.0f 
+        };
+        int tindices[] = 
+        { 
+             0, 4, 1,   0, 9, 4,   9, 5, 4,   4, 5, 8,   4, 8, 1,    
+             8,10, 1,   8, 3,10,   5, 3, 8,   5, 2, 3,   2, 7, 3,    
+             7,10, 3,   7, 6,10,   7,11, 6,  11, 0, 6,   0, 1, 6, 
+             6, 1,10,   9, 0,11,   9,11, 2,   9, 2, 5,   7, 2,11 
+        };
+        
+        int power = 1 << (2 * depth);
+        int numTriangles = 20 * power;
+        int numVertices = 10 * power + 2;
+        FloatBuffer vertices = BufferUtils.createFloatBuffer(numVertices * 3);
+        vertices.put(vdata);
+        vertices.rewind();
+        
+        // Subdivide each triangle into 4 triangles, using the midpoints
+        // of its edges. The midpoints are shared among the triangles
+        // that are adjacent to the respective edge.
+        int current[] = new int[numTriangles * 3];
+        int next[] = new int[numTriangles * 3];
+        System.arraycopy(tindices, 0, current, 0, tindices.length);
+        int maxEdges = depth == 0 ? 0 : 30 * (power / 4);
+        EdgeMidpoints midpoints = 
+            new EdgeMidpoints(vertices, 12, maxEdges);
+        int currentTriangles = 20;
+        for (int level = 0; level < depth; level++)
+        {
+            midpoints.clear();
+            int n = 0;
+            for (int t = 0; t < currentTriangles; t++)
+            {
+                int i1 = current[t * 3 + 0];
+                int i2 = current[t * 3 + 1];
+                int i3 = current[t * 3 + 2];
+                int i12 = midpoints.get(i1, i2);
+                int i23 = midpoints.get(i2, i3);
+                int i31 = midpoints.get(i3, i1);
+                next[n++] =  i1; next[n++] = i12; next[n++] = i31;
+                next[n++] =  i2; next[n++] = i23; next[n++] = i12;
+                next[n++] =  i3; next[n++] = i31; next[n++] = i23;
+                next[n++] = i12; next[n++] = i23; next[n++] = i31;
+            }
+            int temp[] = current;
+            current = next;
+            next = temp;
+            currentTriangles *= 4;
+        }
+        
+        // Write the indices with the same winding order 
+        // that is used by createSphere
+        GraphicsObjects.Builder builder = null;
+        if (numVertices <= 65536)
+        {
+            ShortBuffer indices = 
+                BufferUtils.createShortBuffer(numTriangles * 3);
+            for (int t = 0; t < numTriangles; t++)
+            {
+                indices.put((short)current[t * 3 + 0]);
+                indices.put((short)current[t * 3 + 2]);
+                indices.put((short)current[t * 3 + 1]);
+            }
+            indices.rewind();
+            builder = GraphicsObjects.create(indices, numVertices);
+        }
+        else
+        {
+            IntBuffer indices = 
+                BufferUtils.createIntBuffer(numTriangles * 3);
+            for (int t = 0; t < numTriangles; t++)
+            {
+                indices.put(current[t * 3 + 0]);
+                indices.put(current[t * 3 + 2]);
+                indices.put(current[t * 3 + 1]);
+            }
+            indices.rewind();
+            builder = GraphicsObjects.create(indices, numVertices);
+        }
+        builder.set(verticesAttribute, vertices);
+        
+        if (normalsAttribute != null)
+        {
+            builder.set(normalsAttribute, shareBuffers ? 
+                vertices : BufferUtils.createDirectBuffer(vertices));
+        }
+        if (texCoordsAttribute != null)
+        {
+            FloatBuffer texCoords = 
+                BufferUtils.createFloatBuffer(numVertices * 2);
+            for (int i = 0; i < numVertices; i++)
+            {
+                float nx = vertices.get(i * 3 + 0);
+                float ny = vertices.get(i * 3 + 1);
+                float nz = vertices.get(i * 3 + 2);
+                texCoords.put(
+                    (float) (Math.atan2(nx, nz) / (2 * Math.PI) + 0.5));
+                texCoords.put(
+                    (float) (Math.asin(ny) / Math.PI + 0.5));
+            }
+            texCoords.rewind();
+            builder.set(texCoordsAttribute, texCoords);
+        }
+        if (colorsAttribute != null)
+        {
+            builder.set(colorsAttribute, shareBuffers ? 
+                vertices : BufferUtils.createDirectBuffer(vertices));
+        }
+        GraphicsObject graphicsObject = builder.build();  
+        return graphicsObject;
+    }
+    
+    /**
+     * A cache for the midpoints of the edges of a unit sphere. It is 
+     * an open addressing hash map from (undirected) edges to the indices 
+     * of the vertices that are created for their midpoints. 
+     */
+    private static final class EdgeMidpoints
+    {
+        /**
+         * The vertices buffer, receiving the new midpoints
+         */
+        private final FloatBuffer vertices;
+        
+        /**
+         * The keys, each consisting of the two vertex indices of an edge.
+         * Unused entries are -1.
+         */
+        private final long keys[];
+        
+        /**
+         * The vertex indices of the midpoints
+         */
+        private final int values[];
+        
+        /**
+         * The mask for the hash table indices
+         */
+        private final int mask;
+        
+        /**
+         * The number of vertices that have been created so far
+         */
+        private int numVertices;
+        
+        /**
+         * Creates a new instance
+         * 
+         * @param vertices The vertices buffer
+         * @param numVertices The number of vertices that are already 
+         * contained in the buffer
+         * @param maxEdges The maximum number of edges that will have
+         * to be stored between two calls to {@link #clear()}
+         */
+        EdgeMidpoints(FloatBuffer vertices, int numVertices, int maxEdges)
+        {
+            this.vertices = vertices;
+            this.numVertices = numVertices;
+            int capacity = Integer.highestOneBit(Math.max(16, maxEdges)) * 4;
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+            this.mask = capacity - 1;
+            clear();
+        }
+        
+        /**
+         * Remove all edges from this cache. The vertices that have
+         * already been created are not affected.
+         */
+        void clear()
+        {
+            Arrays.fill(keys, -1L);
+        }
+        
+        /**
+         * Returns the index of the vertex at the midpoint of the given
+         * edge, projected on the unit sphere, creating it if necessary
+         * 
+         * @param i0 The first vertex index
+         * @param i1 The second vertex index
+         * @return The index of the midpoint vertex
+         */
+        int get(int i0, int i1)
+        {
+            long key = i0 < i1 ? 
+                ((long)i0 << 32) | i1 : ((long)i1 << 32) | i0;
+            int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (keys[slot] != -1L)
+            {
+                if (keys[slot] == key)
+                {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            float x = vertices.get(i0 * 3 + 0) + vertices.get(i1 * 3 + 0);
+            float y = vertices.get(i0 * 3 + 1) + vertices.get(i1 * 3 + 1);
+            float z = vertices.get(i0 * 3 + 2) + vertices.get(i1 * 3 + 2);
+            float invLength = 1.0f / (float)Math.sqrt(x * x + y * y + z * z);
+            int index = numVertices++;
+            vertices.put(index * 3 + 0, x * invLength);
+            vertices.put(index * 3 + 1, y * invLength);
+            vertices.put(index * 3 + 2, z * invLength);
+            keys[slot] = key;
+            values[slot] = index;
+            return index;
+        }
+    }
+    
     /**
      * Subdivision as described in the redbook
      * 
@@ -918,6 +1231,278 @@ public class GraphicsObjects
     }
     
     
+    /**
+     * Creates a new {@link GraphicsObject} that contains the unique 
+     * vertices of the given one: Vertices that have equal values for 
+     * all attributes are merged into a single vertex, and the indices 
+     * are remapped accordingly. If the given object does not have 
+     * indices, then the result will be an indexed object that 
+     * describes the same triangles.
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @return The new {@link GraphicsObject}
+     * @throws IllegalArgumentException If the given object contains
+     * attributes that do not consist of float values
+     */
+    public static GraphicsObject weld(GraphicsObject graphicsObject)
+    {
+        return weld(graphicsObject, 0.0f);
+    }
+    
+    /**
+     * Creates a new {@link GraphicsObject} that contains the unique 
+     * vertices of the given one: Vertices that have equal values for 
+     * all attributes are merged into a single vertex, and the indices 
+     * are remapped accordingly. If the given object does not have 
+     * indices, then the result will be an indexed object that 
+     * describes the same triangles.<br>
+     * <br>
+     * If the given epsilon is positive, then all attribute values are 
+     * quantized to multiples of epsilon before they are compared. The
+     * merged vertex receives the attributes of the first of the vertices
+     * that are merged.
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @param epsilon The quantization epsilon
+     * @return The new {@link GraphicsObject}
+     * @throws IllegalArgumentException If the given object contains
+     * attributes that do not consist of float values, or the epsilon
+     * is negative
+     */
+    public static GraphicsObject weld(
+        GraphicsObject graphicsObject, float epsilon)
+    {
+        Objects.requireNonNull(graphicsObject, 
+            "The graphicsObject may not be null");
+        if (epsilon < 0)
+        {
+            throw new IllegalArgumentException(
+                "The epsilon may not be negative, but is " + epsilon);
+        }
+        return VertexWelder.weld(graphicsObject, epsilon);
+    }
+    
+    /**
+     * Creates a new {@link GraphicsObject} that describes the same 
+     * triangles as the given one, but with the triangles and vertices 
+     * being reordered for more efficient rendering:
+     * <ul>
+     *   <li>
+     *     The triangles are reordered to improve the hit rate of the 
+     *     post-transform vertex cache
+     *   </li>
+     *   <li>
+     *     If the object has {@link Attributes#VERTICES}, then clusters
+     *     of these triangles are reordered to reduce overdraw
+     *   </li>
+     *   <li>
+     *     The vertices are reordered in the order of their first use
+     *   </li>
+     * </ul>
+     * The average cache miss ratio (ACMR) before and after the 
+     * optimization is logged.
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @return The new {@link GraphicsObject}
+     * @throws IllegalArgumentException If the given object contains
+     * attributes that do not consist of float values
+     * @see IndexOptimizer
+     */
+    public static GraphicsObject optimize(GraphicsObject graphicsObject)
+    {
+        Objects.requireNonNull(graphicsObject, 
+            "The graphicsObject may not be null");
+        int numVertices = graphicsObject.getNumVertices();
+        int indices[] = GraphicsObjectArrays.readIndices(graphicsObject);
+        float acmrBefore = 
+            IndexOptimizer.computeAcmr(indices, ACMR_CACHE_SIZE);
+        
+        int optimized[] = 
+            IndexOptimizer.optimizeVertexCache(indices, numVertices);
+        DataBuffer vertices = 
+            graphicsObject.getDataBuffer(Attributes.VERTICES);
+        if (vertices != null)
+        {
+            float positions[] = GraphicsObjectArrays.readFloats(vertices);
+            optimized = IndexOptimizer.optimizeOverdraw(optimized, positions);
+        }
+        int remap[] = 
+            IndexOptimizer.computeVertexFetchRemapping(optimized, numVertices);
+        for (int i = 0; i < optimized.length; i++)
+        {
+            optimized[i] = remap[optimized[i]];
+        }
+        float acmrAfter = 
+            IndexOptimizer.computeAcmr(optimized, ACMR_CACHE_SIZE);
+        logger.info("Optimized " + (optimized.length / 3) + " triangles, " +
+            "ACMR before: " + acmrBefore + ", after: " + acmrAfter);
+        return GraphicsObjectArrays.createReordered(
+            graphicsObject, optimized, remap);
+    }
+    
+    /**
+     * Creates a new {@link GraphicsObject} that is equal to the given 
+     * one, except for its {@link Attributes#TEXCOORDS}, which are 
+     * transformed by scaling them with the given scale and then adding 
+     * the given offset. This can be used for mapping the texture 
+     * coordinates of an object into a sub-region of a texture, for 
+     * example, into a region of a texture atlas. The indices and the 
+     * data buffers of all other attributes are shared with the given 
+     * object.
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @param uOffset The offset for the u-coordinates
+     * @param vOffset The offset for the v-coordinates
+     * @param uScale The scale for the u-coordinates
+     * @param vScale The scale for the v-coordinates
+     * @return The new {@link GraphicsObject}
+     * @throws IllegalArgumentException If the object does not have 
+     * texture coordinates
+     */
+    public static GraphicsObject transformTexCoords(
+        GraphicsObject graphicsObject, 
+        float uOffset, float vOffset, float uScale, float vScale)
+    {
+        Objects.requireNonNull(graphicsObject, 
+            "The graphicsObject may not be null");
+        float texCoords[] = readFloats(graphicsObject, Attributes.TEXCOORDS);
+        for (int i = 0; i + 1 < texCoords.length; i += 2)
+        {
+            texCoords[i + 0] = uOffset + texCoords[i + 0] * uScale;
+            texCoords[i + 1] = vOffset + texCoords[i + 1] * vScale;
+        }
+        Mappings.Builder<Attribute, DataBuffer> dataBuffersBuilder = 
+            Mappings.Builder.create();
+        for (Attribute attribute : graphicsObject.getAttributes())
+        {
+            if (attribute.equals(Attributes.TEXCOORDS))
+            {
+                dataBuffersBuilder.put(attribute, 
+                    DataBuffers.createFloatDataBuffer(
+                        BufferUtils.createDirectBuffer(texCoords)));
+            }
+            else
+            {
+                dataBuffersBuilder.put(attribute, 
+                    graphicsObject.getDataBuffer(attribute));
+            }
+        }
+        return new DefaultGraphicsObject(graphicsObject.getIndices(), 
+            graphicsObject.getNumVertices(), dataBuffersBuilder.build());
+    }
+    
+    /**
+     * Returns the indices of the given {@link GraphicsObject} as a new
+     * array. The indices are treated as unsigned values. If the object 
+     * does not have indices, then the array will contain the sequence 
+     * <code>0...numVertices-1</code>.
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @return The indices
+     * @throws IllegalArgumentException If the index buffer does not 
+     * contain byte, short or int values
+     */
+    public static int[] readIndices(GraphicsObject graphicsObject)
+    {
+        Objects.requireNonNull(graphicsObject, 
+            "The graphicsObject may not be null");
+        return GraphicsObjectArrays.readIndices(graphicsObject);
+    }
+    
+    /**
+     * Returns the data of the specified {@link Attribute} of the given 
+     * {@link GraphicsObject} as a new array.
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @param attribute The {@link Attribute}
+     * @return The data
+     * @throws IllegalArgumentException If the object does not have the
+     * given attribute, or its data does not consist of float values
+     */
+    public static float[] readFloats(
+        GraphicsObject graphicsObject, Attribute attribute)
+    {
+        Objects.requireNonNull(graphicsObject, 
+            "The graphicsObject may not be null");
+        DataBuffer dataBuffer = graphicsObject.getDataBuffer(attribute);
+        if (dataBuffer == null)
+        {
+            throw new IllegalArgumentException(
+                "The graphicsObject does not have an attribute " + attribute);
+        }
+        return GraphicsObjectArrays.readFloats(dataBuffer);
+    }
+    
+    /**
+     * Returns the object-space {@link Bounds} of the given 
+     * {@link GraphicsObject}, which are computed from the data of its
+     * {@link Attributes#VERTICES} attribute. For objects that have been 
+     * created with this class, the bounds are only computed once and 
+     * then cached, so the vertex data should not be modified afterwards.
+     * If the object does not have vertices, then the bounds will consist
+     * of the origin.
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @return The {@link Bounds}
+     */
+    public static Bounds getBounds(GraphicsObject graphicsObject)
+    {
+        Objects.requireNonNull(graphicsObject, 
+            "The graphicsObject may not be null");
+        if (graphicsObject instanceof DefaultGraphicsObject)
+        {
+            DefaultGraphicsObject defaultGraphicsObject =
+                (DefaultGraphicsObject)graphicsObject;
+            return defaultGraphicsObject.getBounds();
+        }
+        return computeBounds(graphicsObject);
+    }
+    
+    /**
+     * Computes the object-space {@link Bounds} of the given 
+     * {@link GraphicsObject} from the data of its 
+     * {@link Attributes#VERTICES} attribute
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @return The {@link Bounds}
+     */
+    static Bounds computeBounds(GraphicsObject graphicsObject)
+    {
+        DataBuffer dataBuffer = 
+            graphicsObject.getDataBuffer(Attributes.VERTICES);
+        if (dataBuffer == null || 
+            !(dataBuffer.getBuffer() instanceof FloatBuffer))
+        {
+            return new DefaultBounds(0, 0, 0, 0, 0, 0);
+        }
+        FloatBuffer vertices = (FloatBuffer)dataBuffer.getBuffer();
+        int position = vertices.position();
+        int n = vertices.remaining() / 3;
+        if (n == 0)
+        {
+            return new DefaultBounds(0, 0, 0, 0, 0, 0);
+        }
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        float maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++)
+        {
+            float x = vertices.get(position + i * 3 + 0);
+            float y = vertices.get(position + i * 3 + 1);
+            float z = vertices.get(position + i * 3 + 2);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+        return new DefaultBounds(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+    
     /**
      * Private constructor to prevent instantiation
      */
@@ -35,5 +35,22 @@ public enum ImageDataType
      * This type indicates that pixels are stored as integers consisting 
      * of 4 bytes, namely the alpha, red, green and blue value
      */
-    INT_ARGB
+    INT_ARGB,
+    
+    /**
+     * This type indicates that the pixels are block-compressed with
+     * the BC1 (DXT1) format. Each block of 4x4 pixels is stored in 
+     * 8 bytes, containing two RGB565 colors and a 2-bit index for 
+     * each pixel. The alpha value of a pixel is either 0 or 255.
+     */
+    BC1_RGBA,
+    
+    /**
+     * This type indicates that the pixels are block-compressed with
+     * the BC3 (DXT5) format. Each block of 4x4 pixels is stored in 
+     * 16 bytes, namely 8 bytes for the alpha values, followed by 
+     * 8 bytes for the colors, in the same format as in 
+     * {@link #BC1_RGBA}.
+     */
+    BC3_RGBA
 }
\ No newline at end of file
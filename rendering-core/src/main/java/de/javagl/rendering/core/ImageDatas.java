@@ -0,0 +1,132 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.javagl.rendering.core;
+
+import java.util.Objects;
+
+import de.javagl.rendering.core.utils.BufferUtils;
+
+/**
+ * Methods for creating {@link ImageData} instances, and for computing
+ * the sizes of image data with a certain {@link ImageDataType}
+ */
+public class ImageDatas
+{
+    /**
+     * Create a new {@link ImageData} with the given size and type. The 
+     * data will be stored in a direct buffer, with the size that is 
+     * computed with {@link #computeSize(int, int, ImageDataType)}. 
+     * 
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param type The {@link ImageDataType}
+     * @return The {@link ImageData}
+     * @throws IllegalArgumentException If the width or height is not
+     * positive
+     */
+    public static ImageData create(int width, int height, ImageDataType type)
+    {
+        Objects.requireNonNull(type, "The type may not be null");
+        long size = computeSize(width, height, type);
+        if (size > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException(
+                "The image is too large: " + width + "x" + height);
+        }
+        return new DefaultImageData(width, height, type, 
+            BufferUtils.createByteBuffer((int)size));
+    }
+    
+    /**
+     * Computes the number of bytes that are required for storing an
+     * image with the given size and {@link ImageDataType}. For 
+     * {@link #isCompressed(ImageDataType) compressed} types, this
+     * is the number of 4x4 blocks (where partial blocks at the right
+     * and bottom border count as full blocks), multiplied with the 
+     * size of one block.
+     * 
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param type The {@link ImageDataType}
+     * @return The size in bytes
+     * @throws IllegalArgumentException If the width or height is not
+     * positive
+     */
+    public static long computeSize(int width, int height, ImageDataType type)
+    {
+        if (width <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The width must be positive, but is " + width);
+        }
+        if (height <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The height must be positive, but is " + height);
+        }
+        long blocksX = (width + 3) / 4;
+        long blocksY = (height + 3) / 4;
+        switch (type)
+        {
+            case INT_ARGB:
+                return 4L * width * height;
+                
+            case BC1_RGBA:
+                return 8L * blocksX * blocksY;
+                
+            case BC3_RGBA:
+                return 16L * blocksX * blocksY;
+                
+            default:
+                break;
+        }
+        throw new IllegalArgumentException("Invalid type: " + type);
+    }
+    
+    /**
+     * Returns whether the given {@link ImageDataType} describes 
+     * block-compressed data
+     * 
+     * @param type The {@link ImageDataType}
+     * @return Whether the type is compressed
+     */
+    public static boolean isCompressed(ImageDataType type)
+    {
+        return type == ImageDataType.BC1_RGBA || 
+            type == ImageDataType.BC3_RGBA;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private ImageDatas()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
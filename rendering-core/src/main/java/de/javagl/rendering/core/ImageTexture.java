@@ -27,6 +27,8 @@
 
 package de.javagl.rendering.core;
 
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Interface for a {@link Texture} that is backed by {@link ImageData}
@@ -39,33 +41,100 @@ public interface ImageTexture extends Texture
      * @return The {@link ImageData}
      */
     ImageData getImageData();
+    
+    /**
+     * Returns the number of mipmap levels of this texture. This is 1 if 
+     * the texture does not have a mip chain.<br>
+     * <br>
+     * The default implementation returns 1.
+     * 
+     * @return The number of mipmap levels
+     */
+    default int getNumMipLevels()
+    {
+        return 1;
+    }
+    
+    /**
+     * Returns the {@link ImageData} of the specified mipmap level. The 
+     * {@link ImageData} of level 0 is the one that is returned by 
+     * {@link #getImageData()}.<br>
+     * <br>
+     * The default implementation only supports level 0, and returns
+     * the {@link #getImageData() image data}.
+     * 
+     * @param level The level
+     * @return The {@link ImageData}
+     * @throws IndexOutOfBoundsException If the level is negative or not
+     * smaller than the {@link #getNumMipLevels() number of levels}
+     */
+    default ImageData getMipLevel(int level)
+    {
+        if (level != 0)
+        {
+            throw new IndexOutOfBoundsException(
+                "Level " + level + " is not in [0,1)");
+        }
+        return getImageData();
+    }
 
-//    /**
-//     * Will inform all registered {@link ImageTextureListener
-//     * ImageTextureListeners} that the specified region of
-//     * this texture has to be updated.
-//     * 
-//     * @param x The x position of the region 
-//     * @param y The y position of the region
-//     * @param width The width of the region
-//     * @param height The height of the region
-//     */
-//    void requestUpdate(int x, int y, int width, int height);
-//    
-//    /**
-//     * Add the given listener to this texture
-//     * 
-//     * @param imageTextureListener The listener to add
-//     */
-//    void addImageTextureListener(
-//        ImageTextureListener imageTextureListener);
-//    
-//    /**
-//     * Remove the given listener from this texture
-//     * 
-//     * @param imageTextureListener The listener to remove
-//     */
-//    void removeImageTextureListener(
-//        ImageTextureListener imageTextureListener);
-//    
+    /**
+     * Mark the specified region of this texture as being dirty. This 
+     * should be called after the {@link #getImageData() image data} 
+     * in the given region has been modified. The regions that are 
+     * marked between two frames are collected and merged, and only 
+     * these regions will be uploaded when the texture is used for the
+     * next time. The region is clipped to the bounds of the texture.<br>
+     * <br>
+     * The default implementation does not track dirty regions, and 
+     * only checks the arguments. Textures that do not track dirty 
+     * regions have to be updated explicitly, with the methods of the
+     * {@link de.javagl.rendering.core.handling.TextureHandler}.
+     * 
+     * @param x The x-coordinate of the region
+     * @param y The y-coordinate of the region
+     * @param width The width of the region
+     * @param height The height of the region
+     * @throws IllegalArgumentException If the width or height is negative
+     */
+    default void markDirty(int x, int y, int width, int height)
+    {
+        if (width < 0)
+        {
+            throw new IllegalArgumentException(
+                "The width may not be negative, but is " + width);
+        }
+        if (height < 0)
+        {
+            throw new IllegalArgumentException(
+                "The height may not be negative, but is " + height);
+        }
+    }
+    
+    /**
+     * Mark this whole texture as being dirty.<br>
+     * <br>
+     * The default implementation marks the region from (0,0) to 
+     * (width,height) as being dirty.
+     * 
+     * @see #markDirty(int, int, int, int)
+     */
+    default void markDirty()
+    {
+        markDirty(0, 0, getWidth(), getHeight());
+    }
+    
+    /**
+     * Returns the regions that have been marked as dirty since the last 
+     * call to this method, and clears them. This is usually called by
+     * the renderer before the texture is used.<br>
+     * <br>
+     * The default implementation returns an empty list.
+     * 
+     * @return The dirty regions. This may be an empty list.
+     */
+    default List<ImageRegion> fetchDirtyRegions()
+    {
+        return Collections.emptyList();
+    }
 }
\ No newline at end of file
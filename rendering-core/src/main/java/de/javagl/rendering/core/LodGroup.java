@@ -0,0 +1,141 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+/**
+ * A group of {@link RenderedObject}s that represent the same object at 
+ * different levels of detail. Level 0 is the most detailed one. The 
+ * level that is rendered is selected based on the size that the 
+ * {@link Bounds} of the object have on the screen, in pixels. Instances
+ * of this class may be created with 
+ * {@link RenderedObjects#createLodGroup(java.util.List, float...)}, 
+ * and rendered with 
+ * {@link Commands#renderLod(LodGroup, java.util.function.Supplier, 
+ * de.javagl.rendering.core.view.View)}.<br>
+ * <br>
+ * In order to avoid flickering when the screen size of the object 
+ * is close to a switch size, the selection uses a hysteresis: A switch
+ * to a coarser level only happens when the size falls below the switch 
+ * size by a certain fraction, and a switch to a finer level only happens 
+ * when the size exceeds the switch size by this fraction.<br>
+ * <br>
+ * The group collects statistics about how often each level has been 
+ * selected, and how many triangles have been submitted for it.
+ */
+public interface LodGroup
+{
+    /**
+     * Returns the number of levels in this group
+     * 
+     * @return The number of levels
+     */
+    int getNumLevels();
+    
+    /**
+     * Returns the {@link RenderedObject} for the specified level
+     * 
+     * @param level The level
+     * @return The {@link RenderedObject}
+     * @throws IndexOutOfBoundsException If the level is negative or
+     * not smaller than the {@link #getNumLevels() number of levels}
+     */
+    RenderedObject getLevel(int level);
+    
+    /**
+     * Returns the object-space {@link Bounds} of this group, which are
+     * the bounds of the most detailed level
+     * 
+     * @return The {@link Bounds}
+     */
+    Bounds getBounds();
+    
+    /**
+     * Select the level that should be rendered for an object that has 
+     * the given size on the screen, in pixels. This will update the
+     * {@link #getCurrentLevel() current level} and the statistics of 
+     * the selected level.<br>
+     * <br>
+     * The hysteresis is applied relative to the 
+     * {@link #getCurrentLevel() current level}. When the same group is
+     * rendered several times per frame (for example, as multiple 
+     * instances, or in multiple views), then 
+     * {@link #select(float, int)} should be used instead.
+     * 
+     * @param screenSize The screen size, in pixels
+     * @return The selected level
+     */
+    int select(float screenSize);
+    
+    /**
+     * Select the level that should be rendered for an object that has 
+     * the given size on the screen, in pixels, and for which the given
+     * level had been selected previously. The hysteresis is applied 
+     * relative to the given previous level. This will update the
+     * {@link #getCurrentLevel() current level} and the statistics of 
+     * the selected level.
+     * 
+     * @param screenSize The screen size, in pixels
+     * @param previousLevel The previously selected level
+     * @return The selected level
+     */
+    int select(float screenSize, int previousLevel);
+    
+    /**
+     * Returns the level that was selected most recently, by any caller
+     * 
+     * @return The current level
+     */
+    int getCurrentLevel();
+    
+    /**
+     * Returns how often the specified level has been selected since
+     * the statistics have been reset
+     * 
+     * @param level The level
+     * @return The number of selections
+     * @throws IndexOutOfBoundsException If the level is negative or
+     * not smaller than the {@link #getNumLevels() number of levels}
+     */
+    long getSelectionCount(int level);
+    
+    /**
+     * Returns the total number of triangles that have been submitted
+     * for the specified level since the statistics have been reset
+     * 
+     * @param level The level
+     * @return The number of triangles
+     * @throws IndexOutOfBoundsException If the level is negative or
+     * not smaller than the {@link #getNumLevels() number of levels}
+     */
+    long getTriangleCount(int level);
+    
+    /**
+     * Reset the statistics of all levels
+     */
+    void resetStatistics();
+}
@@ -0,0 +1,283 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import de.javagl.rendering.core.utils.BufferUtils;
+
+/**
+ * Methods for computing mipmap levels of {@link ImageData}.<br>
+ * <br>
+ * The levels are computed on the CPU with a 2x2 box filter. Each level 
+ * has half the width and height of the previous level (rounded down), 
+ * but at least a size of 1. Along an axis where the previous level has
+ * an odd size, a 3-tap filter is used instead, so that all pixels of
+ * the previous level contribute to the result. All levels are stored 
+ * contiguously in a single direct buffer, and the rows of large levels
+ * are computed in parallel.
+ */
+public class MipMaps
+{
+    /**
+     * The number of pixels of a level, starting at which its rows are 
+     * computed in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 128 * 128;
+    
+    /**
+     * Creates a new {@link ImageTexture} that has the same contents as the 
+     * given one, and a complete chain of mipmap levels down to a size
+     * of 1x1.
+     * 
+     * @param texture The {@link ImageTexture}
+     * @return The new {@link ImageTexture}
+     * @throws IllegalArgumentException If the {@link ImageDataType} of 
+     * the texture is not supported
+     */
+    public static ImageTexture createMipMappedTexture(ImageTexture texture)
+    {
+        Objects.requireNonNull(texture, "The texture may not be null");
+        List<ImageData> mipLevels = computeMipLevels(texture.getImageData());
+        return Textures.createImageTexture(mipLevels);
+    }
+    
+    /**
+     * Returns the number of mipmap levels of a complete mip chain for an 
+     * image with the given size, including the level for the image itself
+     * 
+     * @param width The width
+     * @param height The height
+     * @return The number of mipmap levels
+     */
+    public static int computeNumMipLevels(int width, int height)
+    {
+        int size = Math.max(1, Math.max(width, height));
+        return 32 - Integer.numberOfLeadingZeros(size);
+    }
+    
+    /**
+     * Computes the complete chain of mipmap levels for the given 
+     * {@link ImageData}. The first element of the returned list will 
+     * contain a copy of the given data. All levels are slices of a 
+     * single direct buffer.<br>
+     * <br>
+     * Currently, only {@link ImageDataType#INT_ARGB} is supported.
+     * 
+     * @param imageData The {@link ImageData}
+     * @return The {@link ImageData} of all levels
+     * @throws IllegalArgumentException If the {@link ImageDataType} is
+     * not supported
+     */
+    public static List<ImageData> computeMipLevels(ImageData imageData)
+    {
+        Objects.requireNonNull(imageData, "The imageData may not be null");
+        if (imageData.getType() != ImageDataType.INT_ARGB)
+        {
+            throw new IllegalArgumentException(
+                "Only INT_ARGB is supported, but found " + 
+                imageData.getType());
+        }
+        int width = imageData.getWidth();
+        int height = imageData.getHeight();
+        int numLevels = computeNumMipLevels(width, height);
+        int offsets[] = new int[numLevels + 1];
+        for (int i = 0; i < numLevels; i++)
+        {
+            int w = Math.max(1, width >> i);
+            int h = Math.max(1, height >> i);
+            offsets[i + 1] = offsets[i] + w * h;
+        }
+        ByteBuffer buffer = BufferUtils.createByteBuffer(
+            offsets[numLevels] * 4);
+        ByteBuffer source = imageData.getData();
+        source.limit(source.position() + width * height * 4);
+        buffer.put(source);
+        buffer.clear();
+        
+        IntBuffer pixels = buffer.asIntBuffer();
+        for (int i = 1; i < numLevels; i++)
+        {
+            int sw = Math.max(1, width >> (i - 1));
+            int sh = Math.max(1, height >> (i - 1));
+            int tw = Math.max(1, width >> i);
+            int th = Math.max(1, height >> i);
+            downsample(pixels, offsets[i - 1], sw, sh, offsets[i], tw, th);
+        }
+        
+        List<ImageData> result = new ArrayList<ImageData>();
+        for (int i = 0; i < numLevels; i++)
+        {
+            int w = Math.max(1, width >> i);
+            int h = Math.max(1, height >> i);
+            ByteBuffer level = buffer.duplicate();
+            level.limit(offsets[i + 1] * 4);
+            level.position(offsets[i] * 4);
+            result.add(new DefaultImageData(
+                w, h, ImageDataType.INT_ARGB, level.slice()));
+        }
+        return result;
+    }
+    
+    /**
+     * Compute one mipmap level from the previous one, with a 2x2 box 
+     * filter. Along an axis where the source has an odd size, a 3-tap
+     * filter is used, as described in {@link #computeTaps}.
+     * 
+     * @param pixels The buffer containing all levels
+     * @param s The offset of the source level
+     * @param sw The width of the source level
+     * @param sh The height of the source level
+     * @param t The offset of the target level
+     * @param tw The width of the target level
+     * @param th The height of the target level
+     */
+    private static void downsample(IntBuffer pixels, 
+        int s, int sw, int sh, int t, int tw, int th)
+    {
+        if (tw * th >= PARALLEL_THRESHOLD)
+        {
+            IntStream.range(0, th).parallel().forEach(y -> 
+                downsampleRow(pixels, s, sw, sh, t, tw, th, y));
+        }
+        else
+        {
+            for (int y = 0; y < th; y++)
+            {
+                downsampleRow(pixels, s, sw, sh, t, tw, th, y);
+            }
+        }
+    }
+    
+    /**
+     * Compute one row of a mipmap level from the previous level
+     * 
+     * @param pixels The buffer containing all levels
+     * @param s The offset of the source level
+     * @param sw The width of the source level
+     * @param sh The height of the source level
+     * @param t The offset of the target level
+     * @param tw The width of the target level
+     * @param th The height of the target level
+     * @param y The row of the target level
+     */
+    private static void downsampleRow(IntBuffer pixels, 
+        int s, int sw, int sh, int t, int tw, int th, int y)
+    {
+        int ys[] = new int[3];
+        float yWeights[] = new float[3];
+        int numY = computeTaps(y, sh, th, ys, yWeights);
+        int xs[] = new int[3];
+        float xWeights[] = new float[3];
+        float sums[] = new float[4];
+        for (int x = 0; x < tw; x++)
+        {
+            int numX = computeTaps(x, sw, tw, xs, xWeights);
+            sums[0] = sums[1] = sums[2] = sums[3] = 0.0f;
+            for (int j = 0; j < numY; j++)
+            {
+                int row = s + ys[j] * sw;
+                for (int i = 0; i < numX; i++)
+                {
+                    int p = pixels.get(row + xs[i]);
+                    float weight = yWeights[j] * xWeights[i];
+                    sums[0] += (p & 0xFF) * weight;
+                    sums[1] += ((p >>> 8) & 0xFF) * weight;
+                    sums[2] += ((p >>> 16) & 0xFF) * weight;
+                    sums[3] += ((p >>> 24) & 0xFF) * weight;
+                }
+            }
+            int result = 0;
+            for (int c = 0; c < 4; c++)
+            {
+                int value = Math.min(255, (int)(sums[c] + 0.5f));
+                result |= value << (c * 8);
+            }
+            pixels.put(t + y * tw + x, result);
+        }
+    }
+    
+    /**
+     * Computes the source pixels and their weights that contribute to 
+     * the specified target pixel along one axis, and returns the number
+     * of these pixels.<br>
+     * <br>
+     * When the source size is 1, the only source pixel is used. When the 
+     * source size is even, the two source pixels <code>2*i</code> and 
+     * <code>2*i+1</code> are averaged. When the source size is odd, 
+     * then each target pixel covers <code>2+1/targetSize</code> source
+     * pixels, and the pixels <code>2*i</code>, <code>2*i+1</code> and
+     * <code>2*i+2</code> are weighted with their coverage.
+     * 
+     * @param i The index of the target pixel
+     * @param sourceSize The source size
+     * @param targetSize The target size
+     * @param indices The array that will store the source indices
+     * @param weights The array that will store the weights
+     * @return The number of source pixels
+     */
+    private static int computeTaps(int i, int sourceSize, int targetSize,
+        int indices[], float weights[])
+    {
+        if (sourceSize == 1)
+        {
+            indices[0] = 0;
+            weights[0] = 1.0f;
+            return 1;
+        }
+        if ((sourceSize & 1) == 0)
+        {
+            indices[0] = 2 * i;
+            indices[1] = 2 * i + 1;
+            weights[0] = 0.5f;
+            weights[1] = 0.5f;
+            return 2;
+        }
+        float invSourceSize = 1.0f / sourceSize;
+        indices[0] = 2 * i;
+        indices[1] = 2 * i + 1;
+        indices[2] = 2 * i + 2;
+        weights[0] = (targetSize - i) * invSourceSize;
+        weights[1] = targetSize * invSourceSize;
+        weights[2] = (i + 1) * invSourceSize;
+        return 3;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MipMaps()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
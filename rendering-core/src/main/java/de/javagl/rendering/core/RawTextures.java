@@ -0,0 +1,352 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Methods for reading and writing raw texture files.<br>
+ * <br>
+ * A raw texture file contains the uncompressed data of one or more 
+ * {@link ImageData} objects, so that it can be used for an 
+ * {@link ImageTexture} without decoding. The file starts with a header
+ * of {@value #HEADER_SIZE} bytes, consisting of the following 
+ * little-endian 32-bit integer values:
+ * <ul>
+ *   <li>The magic number <code>0x58455452</code> 
+ *   (the bytes <code>"RTEX"</code>)</li>
+ *   <li>The version number, currently 1</li>
+ *   <li>The width of the first level</li>
+ *   <li>The height of the first level</li>
+ *   <li>The code of the {@link ImageDataType}</li>
+ *   <li>The number of levels</li>
+ *   <li>Two reserved values</li>
+ * </ul>
+ * The header is followed by the tightly packed data of each level, 
+ * exactly as it is stored in the {@link ImageData#getData() data} of
+ * the {@link ImageData}. The size of each level is computed with
+ * {@link ImageDatas#computeSize(int, int, ImageDataType)}, so 
+ * block-compressed data can be stored as well. Each level has half the 
+ * width and height of the previous level, but at least a size of 1.<br>
+ * <br>
+ * When reading a raw texture file, the file is mapped into memory, and
+ * the resulting {@link ImageData} objects are directly backed by the 
+ * mapped buffer. Their data is read-only.
+ */
+public class RawTextures
+{
+    /**
+     * The size of the header, in bytes
+     */
+    public static final int HEADER_SIZE = 32;
+    
+    /**
+     * The magic number at the beginning of a raw texture file
+     */
+    private static final int MAGIC = 0x58455452;
+    
+    /**
+     * The current version of the file format
+     */
+    private static final int VERSION = 1;
+    
+    /**
+     * Map the raw texture file at the given path into memory, and create
+     * an {@link ImageTexture} that is backed by the levels of the file.
+     * If the file contains more than one level, they will be the
+     * {@link ImageTexture#getMipLevel(int) mipmap levels} of the 
+     * texture.
+     * 
+     * @param path The path
+     * @return The {@link ImageTexture}
+     * @throws IOException If the file can not be read, or is not a 
+     * valid raw texture file
+     */
+    public static ImageTexture mapImageTexture(Path path) throws IOException
+    {
+        List<ImageData> levels = mapImageData(path);
+        return Textures.createImageTexture(levels);
+    }
+    
+    /**
+     * Map the raw texture file at the given path into memory, and create
+     * one {@link ImageData} for each level that is contained in the file.
+     * The data of the returned objects is directly backed by the mapped 
+     * buffer.
+     * 
+     * @param path The path
+     * @return The unmodifiable list of {@link ImageData} objects
+     * @throws IOException If the file can not be read, or is not a 
+     * valid raw texture file
+     */
+    public static List<ImageData> mapImageData(Path path) throws IOException
+    {
+        Objects.requireNonNull(path, "The path may not be null");
+        MappedByteBuffer mapped = null;
+        try (FileChannel channel = 
+            FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size < HEADER_SIZE)
+            {
+                throw new IOException(
+                    "File is too small for a raw texture: " + path);
+            }
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IOException(
+                    "File is too large for a raw texture: " + path);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        ByteBuffer header = mapped.duplicate();
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        int magic = header.getInt(0);
+        int version = header.getInt(4);
+        int width = header.getInt(8);
+        int height = header.getInt(12);
+        int typeCode = header.getInt(16);
+        int numLevels = header.getInt(20);
+        if (magic != MAGIC)
+        {
+            throw new IOException("Not a raw texture file: " + path);
+        }
+        if (version != VERSION)
+        {
+            throw new IOException(
+                "Unsupported raw texture version " + version + ": " + path);
+        }
+        if (width <= 0 || height <= 0 || numLevels <= 0)
+        {
+            throw new IOException("Invalid size " + width + "x" + height + 
+                " with " + numLevels + " levels: " + path);
+        }
+        ImageDataType type = typeForCode(typeCode);
+        if (type == null)
+        {
+            throw new IOException(
+                "Invalid image data type " + typeCode + ": " + path);
+        }
+        List<ImageData> levels = new ArrayList<ImageData>();
+        long offset = HEADER_SIZE;
+        for (int i = 0; i < numLevels; i++)
+        {
+            int w = Math.max(1, width >> i);
+            int h = Math.max(1, height >> i);
+            long levelSize = ImageDatas.computeSize(w, h, type);
+            if (offset + levelSize > mapped.capacity())
+            {
+                throw new IOException("File is too small for " + 
+                    numLevels + " levels: " + path);
+            }
+            ByteBuffer data = mapped.duplicate();
+            data.limit((int)(offset + levelSize));
+            data.position((int)offset);
+            levels.add(new DefaultImageData(w, h, type, data.slice()));
+            offset += levelSize;
+        }
+        return Collections.unmodifiableList(levels);
+    }
+    
+    /**
+     * Write the given {@link ImageData} into a raw texture file with 
+     * a single level
+     * 
+     * @param imageData The {@link ImageData}
+     * @param path The path of the file
+     * @throws IOException If an IO error occurs
+     */
+    public static void write(ImageData imageData, Path path) 
+        throws IOException
+    {
+        write(Collections.singletonList(imageData), path);
+    }
+    
+    /**
+     * Write the given {@link ImageData} objects as the levels of a raw 
+     * texture file. Each level must have half the width and height of 
+     * the previous one (but at least a size of 1), and all levels must 
+     * have the same {@link ImageDataType}.
+     * 
+     * @param levels The {@link ImageData} objects
+     * @param path The path of the file
+     * @throws IOException If an IO error occurs
+     * @throws IllegalArgumentException If the given list is empty, or 
+     * the sizes or types of the levels are not consistent
+     */
+    public static void write(List<? extends ImageData> levels, Path path) 
+        throws IOException
+    {
+        Objects.requireNonNull(levels, "The levels may not be null");
+        Objects.requireNonNull(path, "The path may not be null");
+        if (levels.isEmpty())
+        {
+            throw new IllegalArgumentException(
+                "The levels may not be empty");
+        }
+        ImageData first = levels.get(0);
+        ImageDataType type = first.getType();
+        for (int i = 0; i < levels.size(); i++)
+        {
+            ImageData level = levels.get(i);
+            int w = Math.max(1, first.getWidth() >> i);
+            int h = Math.max(1, first.getHeight() >> i);
+            if (level.getWidth() != w || level.getHeight() != h)
+            {
+                throw new IllegalArgumentException(
+                    "Expected size " + w + "x" + h + " for level " + i + 
+                    ", but found " + level.getWidth() + "x" + 
+                    level.getHeight());
+            }
+            if (level.getType() != type)
+            {
+                throw new IllegalArgumentException(
+                    "Expected type " + type + " for level " + i + 
+                    ", but found " + level.getType());
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(first.getWidth());
+        header.putInt(first.getHeight());
+        header.putInt(codeForType(type));
+        header.putInt(levels.size());
+        header.putInt(0);
+        header.putInt(0);
+        header.flip();
+        try (FileChannel channel = FileChannel.open(path, 
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            writeFully(channel, header);
+            for (ImageData level : levels)
+            {
+                ByteBuffer data = level.getData();
+                long expected = ImageDatas.computeSize(
+                    level.getWidth(), level.getHeight(), type);
+                if (data.remaining() < expected)
+                {
+                    throw new IllegalArgumentException(
+                        "Expected " + expected + " bytes of data, but " + 
+                        "found only " + data.remaining());
+                }
+                data.limit(data.position() + (int)expected);
+                writeFully(channel, data);
+            }
+        }
+    }
+    
+    /**
+     * Write all remaining bytes of the given buffer into the given channel
+     * 
+     * @param channel The channel
+     * @param buffer The buffer
+     * @throws IOException If an IO error occurs
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer)
+        throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+    
+    /**
+     * Returns the code that is stored in a raw texture file for the 
+     * given {@link ImageDataType}
+     * 
+     * @param type The {@link ImageDataType}
+     * @return The code
+     */
+    private static int codeForType(ImageDataType type)
+    {
+        switch (type)
+        {
+            case INT_ARGB:
+                return 1;
+                
+            case BC1_RGBA:
+                return 2;
+                
+            case BC3_RGBA:
+                return 3;
+                
+            default:
+                break;
+        }
+        throw new IllegalArgumentException("Invalid type: " + type);
+    }
+    
+    /**
+     * Returns the {@link ImageDataType} for the given code that was 
+     * stored in a raw texture file, or <code>null</code> if the code 
+     * is not valid
+     * 
+     * @param code The code
+     * @return The {@link ImageDataType}
+     */
+    private static ImageDataType typeForCode(int code)
+    {
+        switch (code)
+        {
+            case 1:
+                return ImageDataType.INT_ARGB;
+                
+            case 2:
+                return ImageDataType.BC1_RGBA;
+                
+            case 3:
+                return ImageDataType.BC3_RGBA;
+                
+            default:
+                break;
+        }
+        return null;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private RawTextures()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
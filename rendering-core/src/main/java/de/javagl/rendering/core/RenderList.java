@@ -0,0 +1,438 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of a supplier for lists of {@link Command} objects
+ * that is intended for large numbers of commands which are added and
+ * removed individually.<br>
+ * <br>
+ * Each command is added with a sort key, and a {@link Handle} is returned
+ * that may later be used for removing the command in constant time. 
+ * The commands are supplied in ascending order of their sort keys. The
+ * order of commands with the same sort key remains stable, except for
+ * removals: When a command is removed, the last command with the same
+ * sort key takes its place.<br>
+ * <br>
+ * This class is thread-safe. The list that is returned by {@link #get()}
+ * is an unmodifiable snapshot of the current state. It is only rebuilt 
+ * when the contents have been modified, and it may be iterated by the 
+ * rendering thread while other threads add or remove commands.<br>
+ * <br>
+ * The snapshot of each sort key is stored in chunks of a fixed size. 
+ * Adding or removing a command only invalidates the (at most two) 
+ * chunks that contain the affected positions, so rebuilding the 
+ * snapshot after a modification only copies these chunks, and the
+ * references to the chunks of all sort keys.
+ */
+public final class RenderList implements Supplier<List<Command>>
+{
+    /**
+     * The number of commands in one chunk of the snapshot of a bucket
+     */
+    private static final int CHUNK_SIZE = 1024;
+    
+    /**
+     * A handle for a {@link Command} that was added to a 
+     * {@link RenderList}
+     */
+    public static final class Handle
+    {
+        /**
+         * The command
+         */
+        private final Command command;
+        
+        /**
+         * The sort key
+         */
+        private final int sortKey;
+        
+        /**
+         * The bucket that currently contains this handle, or 
+         * <code>null</code> if it was removed
+         */
+        private Bucket bucket;
+        
+        /**
+         * The index of this handle in its bucket
+         */
+        private int index;
+        
+        /**
+         * Creates a new handle
+         * 
+         * @param command The command
+         * @param sortKey The sort key
+         */
+        private Handle(Command command, int sortKey)
+        {
+            this.command = command;
+            this.sortKey = sortKey;
+        }
+        
+        /**
+         * Returns the {@link Command} of this handle
+         * 
+         * @return The {@link Command}
+         */
+        public Command getCommand()
+        {
+            return command;
+        }
+        
+        /**
+         * Returns the sort key of this handle
+         * 
+         * @return The sort key
+         */
+        public int getSortKey()
+        {
+            return sortKey;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "RenderList.Handle[command=" + command + 
+                ",sortKey=" + sortKey + "]";
+        }
+    }
+    
+    /**
+     * The handles for all commands that have the same sort key
+     */
+    private static final class Bucket
+    {
+        /**
+         * The handles
+         */
+        private Handle handles[] = new Handle[8];
+        
+        /**
+         * The number of handles
+         */
+        private int size;
+        
+        /**
+         * The snapshot of the commands of the handles, in chunks of 
+         * {@link RenderList#CHUNK_SIZE} commands. The chunk arrays are never 
+         * modified after they have been created.
+         */
+        private Command chunks[][] = new Command[0][];
+        
+        /**
+         * The chunks that have to be rebuilt
+         */
+        private final BitSet dirtyChunks = new BitSet();
+        
+        /**
+         * Mark the chunk that contains the given index as dirty
+         * 
+         * @param index The index
+         */
+        void markDirty(int index)
+        {
+            dirtyChunks.set(index / CHUNK_SIZE);
+        }
+        
+        /**
+         * Bring the chunks up to date, and add them to the given list
+         * 
+         * @param parts The list of chunks
+         */
+        void collectChunks(List<Command[]> parts)
+        {
+            int numChunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            if (chunks.length != numChunks)
+            {
+                chunks = Arrays.copyOf(chunks, numChunks);
+            }
+            for (int c = 0; c < numChunks; c++)
+            {
+                if (chunks[c] == null || dirtyChunks.get(c))
+                {
+                    int start = c * CHUNK_SIZE;
+                    int n = Math.min(CHUNK_SIZE, size - start);
+                    Command chunk[] = new Command[n];
+                    for (int i = 0; i < n; i++)
+                    {
+                        chunk[i] = handles[start + i].command;
+                    }
+                    chunks[c] = chunk;
+                }
+                parts.add(chunks[c]);
+            }
+            dirtyChunks.clear();
+        }
+    }
+    
+    /**
+     * An unmodifiable list that consists of the concatenation of 
+     * several non-empty arrays
+     */
+    private static final class ChunkedList 
+        extends AbstractList<Command> implements RandomAccess
+    {
+        /**
+         * The arrays
+         */
+        private final Command parts[][];
+        
+        /**
+         * The start index of each array, and the total size
+         */
+        private final int offsets[];
+        
+        /**
+         * Creates a new list
+         * 
+         * @param parts The arrays, which may not be empty
+         */
+        ChunkedList(List<Command[]> parts)
+        {
+            this.parts = parts.toArray(new Command[0][]);
+            this.offsets = new int[this.parts.length + 1];
+            for (int i = 0; i < this.parts.length; i++)
+            {
+                offsets[i + 1] = offsets[i] + this.parts[i].length;
+            }
+        }
+        
+        @Override
+        public Command get(int index)
+        {
+            if (index < 0 || index >= size())
+            {
+                throw new IndexOutOfBoundsException(
+                    "Index " + index + " is not in [0," + size() + ")");
+            }
+            int part = Arrays.binarySearch(offsets, 0, parts.length, index);
+            if (part < 0)
+            {
+                part = -part - 2;
+            }
+            return parts[part][index - offsets[part]];
+        }
+        
+        @Override
+        public int size()
+        {
+            return offsets[parts.length];
+        }
+    }
+    
+    /**
+     * The lock for modifications
+     */
+    private final Object lock = new Object();
+    
+    /**
+     * The buckets, sorted by their sort key
+     */
+    private final TreeMap<Integer, Bucket> buckets;
+    
+    /**
+     * The total number of commands
+     */
+    private int size;
+    
+    /**
+     * The current snapshot, or <code>null</code> if it has to be rebuilt
+     */
+    private volatile List<Command> snapshot;
+    
+    /**
+     * Creates a new, empty {@link RenderList}
+     */
+    public RenderList()
+    {
+        this.buckets = new TreeMap<Integer, Bucket>();
+        this.snapshot = Collections.emptyList();
+    }
+    
+    /**
+     * Add the given {@link Command} to this list, with a sort key of 0
+     * 
+     * @param command The {@link Command}
+     * @return The {@link Handle} for removing the command
+     * @throws NullPointerException If the command is <code>null</code>
+     */
+    public Handle add(Command command)
+    {
+        return add(command, 0);
+    }
+    
+    /**
+     * Add the given {@link Command} to this list, with the given sort key
+     * 
+     * @param command The {@link Command}
+     * @param sortKey The sort key
+     * @return The {@link Handle} for removing the command
+     * @throws NullPointerException If the command is <code>null</code>
+     */
+    public Handle add(Command command, int sortKey)
+    {
+        Objects.requireNonNull(command, "The command may not be null");
+        Handle handle = new Handle(command, sortKey);
+        synchronized (lock)
+        {
+            Bucket bucket = buckets.get(sortKey);
+            if (bucket == null)
+            {
+                bucket = new Bucket();
+                buckets.put(sortKey, bucket);
+            }
+            if (bucket.size == bucket.handles.length)
+            {
+                bucket.handles = 
+                    Arrays.copyOf(bucket.handles, bucket.size * 2);
+            }
+            handle.bucket = bucket;
+            handle.index = bucket.size;
+            bucket.markDirty(bucket.size);
+            bucket.handles[bucket.size++] = handle;
+            size++;
+            snapshot = null;
+        }
+        return handle;
+    }
+    
+    /**
+     * Remove the {@link Command} of the given {@link Handle} from this
+     * list. If the command was already removed, or was not contained in 
+     * this list, then this call has no effect.
+     * 
+     * @param handle The {@link Handle}
+     * @return Whether the command was removed
+     */
+    public boolean remove(Handle handle)
+    {
+        if (handle == null)
+        {
+            return false;
+        }
+        synchronized (lock)
+        {
+            Bucket bucket = handle.bucket;
+            if (bucket == null || buckets.get(handle.sortKey) != bucket)
+            {
+                return false;
+            }
+            int last = bucket.size - 1;
+            bucket.markDirty(handle.index);
+            bucket.markDirty(last);
+            Handle moved = bucket.handles[last];
+            bucket.handles[handle.index] = moved;
+            moved.index = handle.index;
+            bucket.handles[last] = null;
+            bucket.size--;
+            if (bucket.size == 0)
+            {
+                buckets.remove(handle.sortKey);
+            }
+            handle.bucket = null;
+            size--;
+            snapshot = null;
+        }
+        return true;
+    }
+    
+    /**
+     * Remove all {@link Command}s from this list
+     */
+    public void clear()
+    {
+        synchronized (lock)
+        {
+            for (Bucket bucket : buckets.values())
+            {
+                for (int i = 0; i < bucket.size; i++)
+                {
+                    bucket.handles[i].bucket = null;
+                }
+            }
+            buckets.clear();
+            size = 0;
+            snapshot = null;
+        }
+    }
+    
+    /**
+     * Returns the number of {@link Command}s in this list
+     * 
+     * @return The number of commands
+     */
+    public int size()
+    {
+        synchronized (lock)
+        {
+            return size;
+        }
+    }
+    
+    @Override
+    public List<Command> get()
+    {
+        List<Command> result = snapshot;
+        if (result != null)
+        {
+            return result;
+        }
+        synchronized (lock)
+        {
+            if (snapshot == null)
+            {
+                List<Command[]> parts = new ArrayList<Command[]>();
+                for (Bucket bucket : buckets.values())
+                {
+                    bucket.collectChunks(parts);
+                }
+                snapshot = new ChunkedList(parts);
+            }
+            return snapshot;
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "RenderList[size=" + size() + "]";
+    }
+}
@@ -27,6 +27,9 @@
 
 package de.javagl.rendering.core;
 
+import java.util.List;
+import java.util.Objects;
+
 //import de.javagl.rendering.core.impl.AttributeMappings;
 
 /**
@@ -145,6 +148,81 @@ public class RenderedObjects
         return new Builder(graphicsObject, program);
     }
     
+    /**
+     * The default hysteresis for {@link LodGroup}s, as a fraction of
+     * the switch sizes
+     */
+    private static final float DEFAULT_LOD_HYSTERESIS = 0.1f;
+    
+    /**
+     * Creates a new {@link LodGroup} with a default hysteresis of 10%. 
+     * See {@link #createLodGroup(List, float[], float)} for details.
+     * 
+     * @param levels The {@link RenderedObject}s of the levels
+     * @param switchSizes The switch sizes, in pixels
+     * @return The {@link LodGroup}
+     * @throws IllegalArgumentException If the arguments are not valid
+     * as described in {@link #createLodGroup(List, float[], float)}
+     */
+    public static LodGroup createLodGroup(
+        List<? extends RenderedObject> levels, float ... switchSizes)
+    {
+        return createLodGroup(levels, switchSizes, DEFAULT_LOD_HYSTERESIS);
+    }
+    
+    /**
+     * Creates a new {@link LodGroup}. The given list contains the 
+     * {@link RenderedObject}s for the levels of detail, starting with 
+     * the most detailed one. The switch sizes are the screen sizes 
+     * (diameters of the bounding sphere, in pixels) below which the 
+     * next coarser level will be selected, in descending order. So 
+     * for <code>n</code> levels, there have to be <code>n-1</code> 
+     * switch sizes. The given list will be copied.
+     * 
+     * @param levels The {@link RenderedObject}s of the levels
+     * @param switchSizes The switch sizes, in pixels
+     * @param hysteresis The hysteresis, as a fraction of the switch sizes
+     * @return The {@link LodGroup}
+     * @throws IllegalArgumentException If the list is empty, the number
+     * of switch sizes is not one less than the number of levels, the 
+     * switch sizes are not in descending order, or the hysteresis is
+     * not in [0,1)
+     */
+    public static LodGroup createLodGroup(
+        List<? extends RenderedObject> levels, float switchSizes[], 
+        float hysteresis)
+    {
+        Objects.requireNonNull(levels, "The levels may not be null");
+        Objects.requireNonNull(switchSizes, 
+            "The switchSizes may not be null");
+        if (levels.isEmpty())
+        {
+            throw new IllegalArgumentException(
+                "The levels may not be empty");
+        }
+        if (switchSizes.length != levels.size() - 1)
+        {
+            throw new IllegalArgumentException(
+                "Expected " + (levels.size() - 1) + " switch sizes for " 
+                + levels.size() + " levels, but found " 
+                + switchSizes.length);
+        }
+        for (int i = 1; i < switchSizes.length; i++)
+        {
+            if (switchSizes[i] > switchSizes[i - 1])
+            {
+                throw new IllegalArgumentException(
+                    "The switch sizes must be in descending order");
+            }
+        }
+        if (hysteresis < 0 || hysteresis >= 1)
+        {
+            throw new IllegalArgumentException(
+                "The hysteresis must be in [0,1), but is " + hysteresis);
+        }
+        return new DefaultLodGroup(levels, switchSizes, hysteresis);
+    }
+    
     /**
      * Private constructor to prevent instantiation
      */
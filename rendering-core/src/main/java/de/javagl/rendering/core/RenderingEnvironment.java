@@ -91,7 +91,9 @@ public interface RenderingEnvironment<T>
 
     
     /**
-     * Triggers a rendering pass.
+     * Triggers a rendering pass. This method may be called from any 
+     * thread. Implementations may coalesce multiple calls into a single
+     * rendering pass.
      */
     void triggerRendering();
 
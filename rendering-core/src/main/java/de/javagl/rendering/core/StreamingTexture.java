@@ -0,0 +1,144 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.javagl.rendering.core;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link ImageTexture} whose contents are streamed from a producer 
+ * thread, for example, from a video decoder.<br>
+ * <br>
+ * The renderer provides a ring of buffers for the texture, which are 
+ * usually mapped pixel buffer objects. The producer obtains the next 
+ * free buffer with {@link #beginFrame(long, TimeUnit)}, fills it with 
+ * the pixels of one frame, and publishes it with {@link #endFrame()}.
+ * The renderer then only has to issue the copy from the buffer into 
+ * the texture, and returns the buffer into the ring when this copy has
+ * been completed. This way, filling the buffers overlaps with the 
+ * rendering, and neither thread has to wait for the other as long as 
+ * there is a free buffer.<br>
+ * <br>
+ * The frames have the same layout as {@link ImageDataType#INT_ARGB} 
+ * {@link ImageData} with the size of this texture. The 
+ * {@link #getImageData() image data} of this texture only defines the 
+ * initial contents.<br>
+ * <br>
+ * The methods {@link #getNumBuffers()}, 
+ * {@link #provideBuffer(int, ByteBuffer)}, {@link #pollFrame()}, 
+ * {@link #revokeBuffers()} and {@link #isRevokedBufferInUse()} are 
+ * intended to be called by the renderer only. When the texture is 
+ * released by the renderer while the producer is writing a frame, 
+ * then the buffer of this frame stays valid until the frame is ended.
+ */
+public interface StreamingTexture extends ImageTexture
+{
+    /**
+     * Obtain the next free buffer for a frame, waiting up to the given 
+     * time if no buffer is available. Returns <code>null</code> if no 
+     * buffer became available within the given time. Otherwise, the 
+     * returned buffer has the native byte order, and its remaining 
+     * bytes are the bytes of one frame. The frame has to be published
+     * with {@link #endFrame()} before the next frame can be started.
+     * 
+     * @param timeout The maximum time to wait. If this is not positive,
+     * then this method will not wait.
+     * @param unit The unit of the timeout
+     * @return The buffer, or <code>null</code>
+     * @throws InterruptedException If the thread is interrupted while
+     * waiting
+     * @throws IllegalStateException If a frame was started and not yet
+     * ended
+     */
+    ByteBuffer beginFrame(long timeout, TimeUnit unit) 
+        throws InterruptedException;
+    
+    /**
+     * Publish the frame that was started with 
+     * {@link #beginFrame(long, TimeUnit)}, so that it will be uploaded 
+     * the next time the texture is used for rendering.
+     * 
+     * @throws IllegalStateException If no frame was started
+     */
+    void endFrame();
+    
+    /**
+     * Returns the number of buffers in the ring
+     * 
+     * @return The number of buffers
+     */
+    int getNumBuffers();
+    
+    /**
+     * Called by the renderer to make the buffer with the given index 
+     * available for the producer. 
+     * 
+     * @param index The index of the buffer
+     * @param buffer The buffer, with at least the size of one frame
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the {@link #getNumBuffers() number of buffers}
+     * @throws IllegalArgumentException If the buffer is too small
+     */
+    void provideBuffer(int index, ByteBuffer buffer);
+    
+    /**
+     * Called by the renderer to obtain the index of the oldest frame
+     * that was published and not yet polled. Returns -1 if there is no
+     * such frame. After this call, the buffer belongs to the renderer 
+     * until it is provided again.
+     * 
+     * @return The index of the buffer of the frame, or -1
+     */
+    int pollFrame();
+    
+    /**
+     * Called by the renderer when the buffers are no longer valid, 
+     * for example, when the texture is released. All buffers will be
+     * removed, and pending frames will be discarded. A frame that is 
+     * currently written by the producer will be discarded when it is
+     * ended, even when new buffers have been provided in the meantime.
+     * <br>
+     * <br>
+     * The index of the buffer of this frame is returned. The renderer
+     * must keep this buffer valid as long as 
+     * {@link #isRevokedBufferInUse()} returns <code>true</code>.
+     * 
+     * @return The index of the buffer that is still written by the 
+     * producer, or -1 if no frame is currently written
+     */
+    int revokeBuffers();
+    
+    /**
+     * Returns whether the producer is still writing a frame into a buffer
+     * that was returned by {@link #revokeBuffers()}. 
+     * 
+     * @return Whether a revoked buffer is still in use
+     */
+    boolean isRevokedBufferInUse();
+}
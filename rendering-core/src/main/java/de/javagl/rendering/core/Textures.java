@@ -27,6 +27,7 @@
 
 package de.javagl.rendering.core;
 
+import java.util.List;
 
 /**
  * Methods for creating {@link Texture} instances
@@ -45,6 +46,64 @@ public class Textures
         return new DefaultImageTexture(width, height);
     }
     
+    /**
+     * Creates a new {@link ImageTexture} that is backed by the given
+     * {@link ImageData}
+     * 
+     * @param imageData The {@link ImageData}
+     * @return The {@link Texture}
+     */
+    public static ImageTexture createImageTexture(ImageData imageData)
+    {
+        return new DefaultImageTexture(imageData);
+    }
+    
+    /**
+     * Creates a new {@link ImageTexture} that is backed by the given
+     * mipmap levels. The first element of the given list will be the
+     * {@link ImageTexture#getImageData() image data} of the texture. 
+     * Each following level should have half the width and height of 
+     * the previous one, but at least a size of 1.
+     * 
+     * @param mipLevels The {@link ImageData} of the mipmap levels
+     * @return The {@link Texture}
+     * @throws IllegalArgumentException If the given list is empty
+     */
+    public static ImageTexture createImageTexture(
+        List<? extends ImageData> mipLevels)
+    {
+        if (mipLevels.isEmpty())
+        {
+            throw new IllegalArgumentException(
+                "The mipLevels may not be empty");
+        }
+        return new DefaultImageTexture(mipLevels);
+    }
+    
+    /**
+     * Creates a new {@link StreamingTexture} with the given size, which
+     * uses the given number of buffers for streaming the frames. At 
+     * least 2 buffers are required, so that the producer can fill one
+     * buffer while the other one is uploaded. 
+     * 
+     * @param width The width
+     * @param height The height
+     * @param numBuffers The number of buffers
+     * @return The {@link StreamingTexture}
+     * @throws IllegalArgumentException If the number of buffers is 
+     * smaller than 2
+     */
+    public static StreamingTexture createStreamingTexture(
+        int width, int height, int numBuffers)
+    {
+        if (numBuffers < 2)
+        {
+            throw new IllegalArgumentException(
+                "The numBuffers must be at least 2, but is " + numBuffers);
+        }
+        return new DefaultStreamingTexture(width, height, numBuffers);
+    }
+    
     /**
      * Creates a new {@link FrameBufferTexture} for the given 
      * {@link FrameBuffer}
@@ -0,0 +1,117 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+import de.javagl.rendering.core.utils.BufferUtils;
+import de.javagl.rendering.core.utils.VertexRemapping;
+
+/**
+ * Package-private implementation of the welding of the vertices of
+ * {@link GraphicsObject}s, as offered by 
+ * {@link GraphicsObjects#weld(GraphicsObject, float)}
+ */
+final class VertexWelder
+{
+    /**
+     * Creates a new {@link GraphicsObject} where vertices of the given
+     * object that have equal values for all attributes are merged.
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @param epsilon The quantization epsilon
+     * @return The new {@link GraphicsObject}
+     */
+    static GraphicsObject weld(GraphicsObject graphicsObject, float epsilon)
+    {
+        int numVertices = graphicsObject.getNumVertices();
+        List<Attribute> attributes = graphicsObject.getAttributes();
+        
+        // Collect the values of all attributes of each vertex in one array
+        int stride = 0;
+        for (Attribute attribute : attributes)
+        {
+            stride += attribute.getSize();
+        }
+        float values[] = new float[numVertices * stride];
+        int offset = 0;
+        for (Attribute attribute : attributes)
+        {
+            int size = attribute.getSize();
+            float data[] = GraphicsObjectArrays.readFloats(
+                graphicsObject.getDataBuffer(attribute));
+            for (int i = 0; i < numVertices; i++)
+            {
+                System.arraycopy(data, i * size, 
+                    values, i * stride + offset, size);
+            }
+            offset += size;
+        }
+        
+        int remap[] = new int[numVertices];
+        int numUniqueVertices = VertexRemapping.computeRemapping(
+            values, stride, epsilon, remap);
+        
+        int indices[] = GraphicsObjectArrays.readIndices(graphicsObject);
+        for (int i = 0; i < indices.length; i++)
+        {
+            indices[i] = remap[indices[i]];
+        }
+        GraphicsObjects.Builder builder = 
+            GraphicsObjectArrays.createBuilder(indices, numUniqueVertices);
+        offset = 0;
+        for (Attribute attribute : attributes)
+        {
+            int size = attribute.getSize();
+            FloatBuffer buffer = 
+                BufferUtils.createFloatBuffer(numUniqueVertices * size);
+            int next = 0;
+            for (int i = 0; i < numVertices; i++)
+            {
+                if (remap[i] == next)
+                {
+                    buffer.put(values, i * stride + offset, size);
+                    next++;
+                }
+            }
+            buffer.rewind();
+            builder.set(attribute, buffer);
+            offset += size;
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private VertexWelder()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.javagl.rendering.core.atlas;
+
+import de.javagl.rendering.core.ImageTexture;
+
+/**
+ * Describes the region of one texture inside a page of a 
+ * {@link TextureAtlas}.<br>
+ * <br>
+ * A texture coordinate <code>(u, v)</code> of the original texture 
+ * is mapped to the texture coordinate 
+ * <code>(uOffset + u * uScale, vOffset + v * vScale)</code> in the 
+ * page. This transform may either be applied to the texture 
+ * coordinates of the objects (see 
+ * {@link TextureAtlases#remapTexCoords}), or be passed to a shader 
+ * program as a uniform. 
+ */
+public interface AtlasRegion
+{
+    /**
+     * Returns the index of the page that contains this region
+     * 
+     * @return The page index
+     */
+    int getPageIndex();
+    
+    /**
+     * Returns the page that contains this region
+     * 
+     * @return The page
+     */
+    ImageTexture getPage();
+    
+    /**
+     * Returns the x-coordinate of this region in the page, in pixels
+     * 
+     * @return The x-coordinate
+     */
+    int getX();
+    
+    /**
+     * Returns the y-coordinate of this region in the page, in pixels
+     * 
+     * @return The y-coordinate
+     */
+    int getY();
+    
+    /**
+     * Returns the width of this region, in pixels
+     * 
+     * @return The width
+     */
+    int getWidth();
+    
+    /**
+     * Returns the height of this region, in pixels
+     * 
+     * @return The height
+     */
+    int getHeight();
+    
+    /**
+     * Returns the offset of the u-coordinates
+     * 
+     * @return The u-offset
+     */
+    float getUOffset();
+    
+    /**
+     * Returns the offset of the v-coordinates
+     * 
+     * @return The v-offset
+     */
+    float getVOffset();
+    
+    /**
+     * Returns the scale of the u-coordinates
+     * 
+     * @return The u-scale
+     */
+    float getUScale();
+    
+    /**
+     * Returns the scale of the v-coordinates
+     * 
+     * @return The v-scale
+     */
+    float getVScale();
+}
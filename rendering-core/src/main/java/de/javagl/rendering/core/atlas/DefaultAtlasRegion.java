@@ -0,0 +1,159 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.javagl.rendering.core.atlas;
+
+import de.javagl.rendering.core.ImageTexture;
+
+/**
+ * Default implementation of an {@link AtlasRegion}
+ */
+class DefaultAtlasRegion implements AtlasRegion
+{
+    /**
+     * The page index
+     */
+    private final int pageIndex;
+    
+    /**
+     * The page
+     */
+    private final ImageTexture page;
+    
+    /**
+     * The x-coordinate
+     */
+    private final int x;
+    
+    /**
+     * The y-coordinate
+     */
+    private final int y;
+    
+    /**
+     * The width
+     */
+    private final int width;
+    
+    /**
+     * The height
+     */
+    private final int height;
+    
+    /**
+     * Creates a new region
+     * 
+     * @param pageIndex The page index
+     * @param page The page
+     * @param x The x-coordinate
+     * @param y The y-coordinate
+     * @param width The width
+     * @param height The height
+     */
+    DefaultAtlasRegion(int pageIndex, ImageTexture page, 
+        int x, int y, int width, int height)
+    {
+        this.pageIndex = pageIndex;
+        this.page = page;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int getPageIndex()
+    {
+        return pageIndex;
+    }
+
+    @Override
+    public ImageTexture getPage()
+    {
+        return page;
+    }
+
+    @Override
+    public int getX()
+    {
+        return x;
+    }
+
+    @Override
+    public int getY()
+    {
+        return y;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return height;
+    }
+
+    @Override
+    public float getUOffset()
+    {
+        return (float)x / page.getWidth();
+    }
+
+    @Override
+    public float getVOffset()
+    {
+        return (float)y / page.getHeight();
+    }
+
+    @Override
+    public float getUScale()
+    {
+        return (float)width / page.getWidth();
+    }
+
+    @Override
+    public float getVScale()
+    {
+        return (float)height / page.getHeight();
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "AtlasRegion[" +
+            "pageIndex=" + pageIndex + "," +
+            "x=" + x + "," +
+            "y=" + y + "," +
+            "width=" + width + "," +
+            "height=" + height + "]";
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.javagl.rendering.core.atlas;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import de.javagl.rendering.core.ImageTexture;
+
+/**
+ * Default implementation of a {@link TextureAtlas}
+ */
+class DefaultTextureAtlas implements TextureAtlas
+{
+    /**
+     * The pages
+     */
+    private final List<ImageTexture> pages;
+    
+    /**
+     * The mapping from the original textures to their regions
+     */
+    private final Map<ImageTexture, AtlasRegion> regions;
+    
+    /**
+     * Creates a new atlas
+     * 
+     * @param pages The pages
+     * @param regions The mapping from textures to regions
+     */
+    DefaultTextureAtlas(List<ImageTexture> pages, 
+        Map<ImageTexture, AtlasRegion> regions)
+    {
+        this.pages = Collections.unmodifiableList(pages);
+        this.regions = regions;
+    }
+
+    @Override
+    public List<ImageTexture> getPages()
+    {
+        return pages;
+    }
+
+    @Override
+    public AtlasRegion getRegion(ImageTexture texture)
+    {
+        return regions.get(texture);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "TextureAtlas[" +
+            "pages=" + pages.size() + "," +
+            "regions=" + regions.size() + "]";
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.javagl.rendering.core.atlas;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A rectangle packer that uses the skyline bottom-left heuristic.<br>
+ * <br>
+ * The packer maintains the "skyline", which is the upper boundary of
+ * the rectangles that have been placed so far, as a list of horizontal
+ * segments. A new rectangle is placed on top of the skyline, at the 
+ * position where its upper edge is lowest. Ties are resolved by 
+ * preferring the narrower segment, to keep wide segments available 
+ * for wide rectangles.
+ */
+class SkylinePacker
+{
+    /**
+     * A horizontal segment of the skyline
+     */
+    private static class Segment
+    {
+        /**
+         * The x-coordinate of the segment
+         */
+        int x;
+        
+        /**
+         * The y-coordinate of the segment
+         */
+        int y;
+        
+        /**
+         * The width of the segment
+         */
+        int width;
+        
+        /**
+         * Creates a new segment
+         * 
+         * @param x The x-coordinate
+         * @param y The y-coordinate
+         * @param width The width
+         */
+        Segment(int x, int y, int width)
+        {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+        }
+    }
+    
+    /**
+     * The width of the packing area
+     */
+    private final int width;
+    
+    /**
+     * The height of the packing area
+     */
+    private final int height;
+    
+    /**
+     * The segments of the skyline, sorted by their x-coordinate
+     */
+    private final List<Segment> skyline;
+    
+    /**
+     * Creates a new packer for an area with the given size
+     * 
+     * @param width The width
+     * @param height The height
+     */
+    SkylinePacker(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+        this.skyline = new ArrayList<Segment>();
+        this.skyline.add(new Segment(0, 0, width));
+    }
+    
+    /**
+     * Try to place a rectangle with the given size. If the rectangle
+     * can be placed, then its position is returned as an array 
+     * containing the x- and y-coordinate. If there is not enough 
+     * space for the rectangle, then <code>null</code> is returned.
+     * 
+     * @param w The width of the rectangle
+     * @param h The height of the rectangle
+     * @return The position, or <code>null</code>
+     */
+    int[] insert(int w, int h)
+    {
+        int bestIndex = -1;
+        int bestTop = Integer.MAX_VALUE;
+        int bestWidth = Integer.MAX_VALUE;
+        int bestY = 0;
+        for (int i = 0; i < skyline.size(); i++)
+        {
+            int y = computeY(i, w);
+            if (y < 0 || y + h > height)
+            {
+                continue;
+            }
+            int segmentWidth = skyline.get(i).width;
+            if (y + h < bestTop || 
+                (y + h == bestTop && segmentWidth < bestWidth))
+            {
+                bestIndex = i;
+                bestTop = y + h;
+                bestWidth = segmentWidth;
+                bestY = y;
+            }
+        }
+        if (bestIndex == -1)
+        {
+            return null;
+        }
+        int x = skyline.get(bestIndex).x;
+        addSegment(bestIndex, x, bestY + h, w);
+        return new int[] { x, bestY };
+    }
+    
+    /**
+     * Computes the y-coordinate at which a rectangle with the given 
+     * width would be placed when its left edge is at the start of the
+     * segment with the given index. Returns -1 if the rectangle would 
+     * exceed the right border of the area.
+     * 
+     * @param index The segment index
+     * @param w The width of the rectangle
+     * @return The y-coordinate, or -1
+     */
+    private int computeY(int index, int w)
+    {
+        int x = skyline.get(index).x;
+        if (x + w > width)
+        {
+            return -1;
+        }
+        int y = 0;
+        int remaining = w;
+        for (int i = index; remaining > 0; i++)
+        {
+            Segment segment = skyline.get(i);
+            y = Math.max(y, segment.y);
+            remaining -= segment.width;
+        }
+        return y;
+    }
+    
+    /**
+     * Add a new segment to the skyline, replacing the parts of the 
+     * segments that it covers, and merge neighboring segments that 
+     * have the same height.
+     * 
+     * @param index The index at which the segment is inserted
+     * @param x The x-coordinate of the segment
+     * @param y The y-coordinate of the segment
+     * @param w The width of the segment
+     */
+    private void addSegment(int index, int x, int y, int w)
+    {
+        skyline.add(index, new Segment(x, y, w));
+        int end = x + w;
+        int i = index + 1;
+        while (i < skyline.size())
+        {
+            Segment segment = skyline.get(i);
+            if (segment.x >= end)
+            {
+                break;
+            }
+            int segmentEnd = segment.x + segment.width;
+            if (segmentEnd <= end)
+            {
+                skyline.remove(i);
+            }
+            else
+            {
+                segment.width = segmentEnd - end;
+                segment.x = end;
+                break;
+            }
+        }
+        for (int j = 0; j + 1 < skyline.size(); )
+        {
+            Segment current = skyline.get(j);
+            Segment next = skyline.get(j + 1);
+            if (current.y == next.y)
+            {
+                current.width += next.width;
+                skyline.remove(j + 1);
+            }
+            else
+            {
+                j++;
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.javagl.rendering.core.atlas;
+
+import java.util.List;
+
+import de.javagl.rendering.core.ImageTexture;
+
+/**
+ * A texture atlas, consisting of one or more pages that contain the 
+ * image data of many smaller textures. Objects that use textures of
+ * the same page can be rendered with a single texture binding, when
+ * their texture coordinates are mapped into the respective 
+ * {@link AtlasRegion}. Instances are created with a
+ * {@link TextureAtlases.Builder}.
+ */
+public interface TextureAtlas
+{
+    /**
+     * Returns the unmodifiable list of pages of this atlas
+     * 
+     * @return The pages
+     */
+    List<ImageTexture> getPages();
+    
+    /**
+     * Returns the {@link AtlasRegion} for the given texture, or 
+     * <code>null</code> if the given texture was not added to this atlas
+     * 
+     * @param texture The texture
+     * @return The {@link AtlasRegion}
+     */
+    AtlasRegion getRegion(ImageTexture texture);
+}
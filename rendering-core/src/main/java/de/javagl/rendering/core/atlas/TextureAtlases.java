@@ -0,0 +1,354 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.javagl.rendering.core.atlas;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import de.javagl.rendering.core.GraphicsObject;
+import de.javagl.rendering.core.GraphicsObjects;
+import de.javagl.rendering.core.ImageData;
+import de.javagl.rendering.core.ImageDataType;
+import de.javagl.rendering.core.ImageDatas;
+import de.javagl.rendering.core.ImageTexture;
+import de.javagl.rendering.core.Textures;
+
+/**
+ * Methods for creating {@link TextureAtlas} instances
+ */
+public class TextureAtlases
+{
+    /**
+     * The default padding, in pixels
+     */
+    private static final int DEFAULT_PADDING = 2;
+    
+    /**
+     * A builder for {@link TextureAtlas} instances.<br>
+     * <br>
+     * The textures that are added to the builder are sorted by their 
+     * height, and placed into the pages with a skyline packer. When 
+     * a texture does not fit into any of the existing pages, a new 
+     * page is created. Each texture is surrounded by a padding, which
+     * is filled with the border pixels of the texture, so that 
+     * filtering at the border of a region does not sample pixels of 
+     * the neighboring regions.<br>
+     * <br>
+     * Only the first {@link ImageTexture#getMipLevel(int) mipmap level}
+     * of the textures is used, and only textures with 
+     * {@link ImageDataType#INT_ARGB} data are supported. Textures whose 
+     * texture coordinates rely on repeating the texture can not be 
+     * placed in an atlas.
+     */
+    public static class Builder
+    {
+        /**
+         * The width of the pages
+         */
+        private final int pageWidth;
+        
+        /**
+         * The height of the pages
+         */
+        private final int pageHeight;
+        
+        /**
+         * The padding, in pixels
+         */
+        private int padding;
+        
+        /**
+         * The textures that have been added
+         */
+        private final Set<ImageTexture> textures;
+        
+        /**
+         * Creates a new builder
+         * 
+         * @param pageWidth The width of the pages
+         * @param pageHeight The height of the pages
+         */
+        private Builder(int pageWidth, int pageHeight)
+        {
+            this.pageWidth = pageWidth;
+            this.pageHeight = pageHeight;
+            this.padding = DEFAULT_PADDING;
+            this.textures = new LinkedHashSet<ImageTexture>();
+        }
+        
+        /**
+         * Set the padding that is inserted around each texture, in 
+         * pixels. The default padding is {@value TextureAtlases#DEFAULT_PADDING}.
+         * 
+         * @param padding The padding
+         * @return This builder
+         * @throws IllegalArgumentException If the padding is negative
+         */
+        public Builder setPadding(int padding)
+        {
+            if (padding < 0)
+            {
+                throw new IllegalArgumentException(
+                    "The padding may not be negative, but is " + padding);
+            }
+            this.padding = padding;
+            return this;
+        }
+        
+        /**
+         * Add the given texture to the atlas
+         * 
+         * @param texture The texture
+         * @return This builder
+         */
+        public Builder add(ImageTexture texture)
+        {
+            Objects.requireNonNull(texture, "The texture may not be null");
+            textures.add(texture);
+            return this;
+        }
+        
+        /**
+         * Add all the given textures to the atlas
+         * 
+         * @param textures The textures
+         * @return This builder
+         */
+        public Builder addAll(Collection<? extends ImageTexture> textures)
+        {
+            Objects.requireNonNull(textures, 
+                "The textures may not be null");
+            for (ImageTexture texture : textures)
+            {
+                add(texture);
+            }
+            return this;
+        }
+        
+        /**
+         * Build the {@link TextureAtlas}
+         * 
+         * @return The {@link TextureAtlas}
+         * @throws IllegalArgumentException If one of the textures does 
+         * not have {@link ImageDataType#INT_ARGB} data, or is too large
+         * to fit into a page with the current padding
+         */
+        public TextureAtlas build()
+        {
+            List<ImageTexture> sorted = new ArrayList<ImageTexture>(textures);
+            for (ImageTexture texture : sorted)
+            {
+                validate(texture);
+            }
+            sorted.sort((t0, t1) -> 
+            {
+                int c = Integer.compare(t1.getHeight(), t0.getHeight());
+                if (c != 0)
+                {
+                    return c;
+                }
+                return Integer.compare(t1.getWidth(), t0.getWidth());
+            });
+            
+            List<SkylinePacker> packers = new ArrayList<SkylinePacker>();
+            int placements[][] = new int[sorted.size()][];
+            for (int i = 0; i < sorted.size(); i++)
+            {
+                ImageTexture texture = sorted.get(i);
+                int w = texture.getWidth() + 2 * padding;
+                int h = texture.getHeight() + 2 * padding;
+                int position[] = null;
+                int pageIndex = 0;
+                while (position == null)
+                {
+                    if (pageIndex == packers.size())
+                    {
+                        packers.add(
+                            new SkylinePacker(pageWidth, pageHeight));
+                    }
+                    position = packers.get(pageIndex).insert(w, h);
+                    if (position == null)
+                    {
+                        pageIndex++;
+                    }
+                }
+                placements[i] = new int[] { 
+                    pageIndex, position[0] + padding, position[1] + padding };
+            }
+            
+            List<ImageTexture> pages = new ArrayList<ImageTexture>();
+            for (int i = 0; i < packers.size(); i++)
+            {
+                ImageData pageData = ImageDatas.create(
+                    pageWidth, pageHeight, ImageDataType.INT_ARGB);
+                pages.add(Textures.createImageTexture(pageData));
+            }
+            Map<ImageTexture, AtlasRegion> regions = 
+                new IdentityHashMap<ImageTexture, AtlasRegion>();
+            for (int i = 0; i < sorted.size(); i++)
+            {
+                ImageTexture texture = sorted.get(i);
+                int placement[] = placements[i];
+                regions.put(texture, new DefaultAtlasRegion(
+                    placement[0], pages.get(placement[0]), 
+                    placement[1], placement[2], 
+                    texture.getWidth(), texture.getHeight()));
+            }
+            IntStream.range(0, sorted.size()).parallel().forEach(i -> 
+            {
+                AtlasRegion region = regions.get(sorted.get(i));
+                copy(sorted.get(i).getImageData(), region, padding);
+            });
+            return new DefaultTextureAtlas(pages, regions);
+        }
+        
+        /**
+         * Make sure that the given texture can be placed in a page 
+         * of this atlas
+         * 
+         * @param texture The texture
+         * @throws IllegalArgumentException If the texture can not be 
+         * placed in a page
+         */
+        private void validate(ImageTexture texture)
+        {
+            ImageDataType type = texture.getImageData().getType();
+            if (type != ImageDataType.INT_ARGB)
+            {
+                throw new IllegalArgumentException(
+                    "Only INT_ARGB textures are supported, but found " + 
+                    type);
+            }
+            if (texture.getWidth() + 2 * padding > pageWidth ||
+                texture.getHeight() + 2 * padding > pageHeight)
+            {
+                throw new IllegalArgumentException(
+                    "A texture with size " + texture.getWidth() + "x" + 
+                    texture.getHeight() + " and a padding of " + padding + 
+                    " does not fit into a page with size " + 
+                    pageWidth + "x" + pageHeight);
+            }
+        }
+    }
+    
+    /**
+     * Creates a new {@link Builder} for a {@link TextureAtlas} with 
+     * pages of the given size
+     * 
+     * @param pageWidth The width of the pages
+     * @param pageHeight The height of the pages
+     * @return The {@link Builder}
+     * @throws IllegalArgumentException If the width or height is not
+     * positive
+     */
+    public static Builder create(int pageWidth, int pageHeight)
+    {
+        if (pageWidth <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The pageWidth must be positive, but is " + pageWidth);
+        }
+        if (pageHeight <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The pageHeight must be positive, but is " + pageHeight);
+        }
+        return new Builder(pageWidth, pageHeight);
+    }
+    
+    /**
+     * Creates a new {@link GraphicsObject} from the given one, whose 
+     * texture coordinates are mapped into the given {@link AtlasRegion}.
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @param region The {@link AtlasRegion}
+     * @return The new {@link GraphicsObject}
+     * @throws IllegalArgumentException If the object does not have 
+     * texture coordinates
+     * @see GraphicsObjects#transformTexCoords
+     */
+    public static GraphicsObject remapTexCoords(
+        GraphicsObject graphicsObject, AtlasRegion region)
+    {
+        Objects.requireNonNull(region, "The region may not be null");
+        return GraphicsObjects.transformTexCoords(graphicsObject, 
+            region.getUOffset(), region.getVOffset(), 
+            region.getUScale(), region.getVScale());
+    }
+    
+    /**
+     * Copy the given image data into the given region of its page, 
+     * and fill the padding around the region with the border pixels
+     * 
+     * @param source The source {@link ImageData}
+     * @param region The {@link AtlasRegion}
+     * @param padding The padding
+     */
+    private static void copy(
+        ImageData source, AtlasRegion region, int padding)
+    {
+        ByteBuffer sBuffer = source.getData();
+        sBuffer.order(ByteOrder.nativeOrder());
+        IntBuffer s = sBuffer.asIntBuffer();
+        ByteBuffer tBuffer = region.getPage().getImageData().getData();
+        tBuffer.order(ByteOrder.nativeOrder());
+        IntBuffer t = tBuffer.asIntBuffer();
+        int pageWidth = region.getPage().getWidth();
+        int w = region.getWidth();
+        int h = region.getHeight();
+        for (int y = -padding; y < h + padding; y++)
+        {
+            int sy = Math.min(Math.max(y, 0), h - 1);
+            int tOffset = (region.getY() + y) * pageWidth + region.getX();
+            for (int x = -padding; x < w + padding; x++)
+            {
+                int sx = Math.min(Math.max(x, 0), w - 1);
+                t.put(tOffset + x, s.get(sy * w + sx));
+            }
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private TextureAtlases()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
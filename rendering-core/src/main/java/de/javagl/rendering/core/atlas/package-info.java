@@ -0,0 +1,5 @@
+/**
+ * Classes for packing many small textures into the pages of a 
+ * texture atlas. 
+ */
+package de.javagl.rendering.core.atlas;
@@ -0,0 +1,360 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.culling;
+
+import java.util.Arrays;
+
+/**
+ * A bounding volume hierarchy over a set of axis-aligned boxes, which is 
+ * used for hierarchical frustum culling. The topology is built once 
+ * from the box centers, and the node bounds may be refitted when the 
+ * boxes move.<br>
+ * <br>
+ * The boxes are given as an array with 6 elements per box, containing 
+ * the minimum and maximum coordinates. The nodes are stored in flat 
+ * arrays. The children of a node are always stored after the node 
+ * itself, so the bounds can be refitted in a single backward pass.
+ */
+final class BoundingVolumeHierarchy
+{
+    /**
+     * The maximum number of boxes in a leaf
+     */
+    private static final int MAX_LEAF_SIZE = 4;
+    
+    /**
+     * The number of boxes
+     */
+    private final int numBoxes;
+    
+    /**
+     * The box indices, ordered so that each leaf refers to a contiguous
+     * range of this array
+     */
+    private final int order[];
+    
+    /**
+     * The bounds of the nodes, 6 elements per node
+     */
+    private final float nodeBounds[];
+    
+    /**
+     * The index of the first child of each node. The second child is 
+     * stored directly after the first one. For leaves, this is -1.
+     */
+    private final int nodeChild[];
+    
+    /**
+     * The start index in the {@link #order} array for each leaf
+     */
+    private final int nodeStart[];
+    
+    /**
+     * The number of boxes for each leaf
+     */
+    private final int nodeCount[];
+    
+    /**
+     * The number of nodes
+     */
+    private int numNodes;
+    
+    /**
+     * A stack for the traversal, storing node indices and plane masks
+     */
+    private int stack[];
+    
+    /**
+     * Creates a new hierarchy for the given boxes
+     * 
+     * @param boxes The boxes, 6 elements per box
+     * @param numBoxes The number of boxes
+     */
+    BoundingVolumeHierarchy(float boxes[], int numBoxes)
+    {
+        this.numBoxes = numBoxes;
+        this.order = new int[numBoxes];
+        for (int i = 0; i < numBoxes; i++)
+        {
+            order[i] = i;
+        }
+        int maxNodes = Math.max(1, 2 * numBoxes - 1);
+        this.nodeBounds = new float[maxNodes * 6];
+        this.nodeChild = new int[maxNodes];
+        this.nodeStart = new int[maxNodes];
+        this.nodeCount = new int[maxNodes];
+        this.stack = new int[64];
+        
+        float centers[] = new float[numBoxes * 3];
+        for (int i = 0; i < numBoxes; i++)
+        {
+            for (int c = 0; c < 3; c++)
+            {
+                centers[i * 3 + c] = 
+                    (boxes[i * 6 + c] + boxes[i * 6 + 3 + c]) * 0.5f;
+            }
+        }
+        numNodes = 1;
+        build(0, 0, numBoxes, centers);
+        refit(boxes);
+    }
+    
+    /**
+     * Recursively build the specified node for the given range of the 
+     * {@link #order} array, splitting at the median of the centers along 
+     * the axis where the centers have the largest extent
+     * 
+     * @param node The node index
+     * @param start The start of the range
+     * @param end The end of the range
+     * @param centers The box centers
+     */
+    private void build(int node, int start, int end, float centers[])
+    {
+        int count = end - start;
+        if (count <= MAX_LEAF_SIZE)
+        {
+            nodeChild[node] = -1;
+            nodeStart[node] = start;
+            nodeCount[node] = count;
+            return;
+        }
+        float min[] = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE };
+        float max[] = { -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+        for (int i = start; i < end; i++)
+        {
+            int box = order[i];
+            for (int c = 0; c < 3; c++)
+            {
+                min[c] = Math.min(min[c], centers[box * 3 + c]);
+                max[c] = Math.max(max[c], centers[box * 3 + c]);
+            }
+        }
+        int axis = 0;
+        for (int c = 1; c < 3; c++)
+        {
+            if (max[c] - min[c] > max[axis] - min[axis])
+            {
+                axis = c;
+            }
+        }
+        int middle = (start + end) >>> 1;
+        select(start, end - 1, middle, centers, axis);
+        
+        int child = numNodes;
+        numNodes += 2;
+        nodeChild[node] = child;
+        nodeStart[node] = start;
+        nodeCount[node] = 0;
+        build(child, start, middle, centers);
+        build(child + 1, middle, end, centers);
+    }
+    
+    /**
+     * Partially sort the given range of the {@link #order} array, so that
+     * the element at index k is the one that would be there if the range
+     * was sorted by the center coordinate along the given axis
+     * 
+     * @param left The left index, inclusive
+     * @param right The right index, inclusive
+     * @param k The index of the element to select
+     * @param centers The box centers
+     * @param axis The axis
+     */
+    private void select(int left, int right, int k, 
+        float centers[], int axis)
+    {
+        while (left < right)
+        {
+            float pivot = centers[order[(left + right) >>> 1] * 3 + axis];
+            int i = left;
+            int j = right;
+            while (i <= j)
+            {
+                while (centers[order[i] * 3 + axis] < pivot)
+                {
+                    i++;
+                }
+                while (centers[order[j] * 3 + axis] > pivot)
+                {
+                    j--;
+                }
+                if (i <= j)
+                {
+                    int temp = order[i];
+                    order[i] = order[j];
+                    order[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j)
+            {
+                right = j;
+            }
+            else if (k >= i)
+            {
+                left = i;
+            }
+            else
+            {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of boxes that this hierarchy was built for
+     * 
+     * @return The number of boxes
+     */
+    int getNumBoxes()
+    {
+        return numBoxes;
+    }
+    
+    /**
+     * Recompute the bounds of all nodes from the given boxes, which must 
+     * have the same number of elements as the ones that this hierarchy
+     * was built for
+     * 
+     * @param boxes The boxes, 6 elements per box
+     */
+    void refit(float boxes[])
+    {
+        for (int node = numNodes - 1; node >= 0; node--)
+        {
+            int n = node * 6;
+            int child = nodeChild[node];
+            if (child < 0)
+            {
+                nodeBounds[n + 0] = Float.POSITIVE_INFINITY;
+                nodeBounds[n + 1] = Float.POSITIVE_INFINITY;
+                nodeBounds[n + 2] = Float.POSITIVE_INFINITY;
+                nodeBounds[n + 3] = Float.NEGATIVE_INFINITY;
+                nodeBounds[n + 4] = Float.NEGATIVE_INFINITY;
+                nodeBounds[n + 5] = Float.NEGATIVE_INFINITY;
+                int start = nodeStart[node];
+                int end = start + nodeCount[node];
+                for (int i = start; i < end; i++)
+                {
+                    int b = order[i] * 6;
+                    for (int c = 0; c < 3; c++)
+                    {
+                        nodeBounds[n + c] = 
+                            Math.min(nodeBounds[n + c], boxes[b + c]);
+                        nodeBounds[n + 3 + c] = 
+                            Math.max(nodeBounds[n + 3 + c], boxes[b + 3 + c]);
+                    }
+                }
+            }
+            else
+            {
+                int c0 = child * 6;
+                int c1 = (child + 1) * 6;
+                for (int c = 0; c < 3; c++)
+                {
+                    nodeBounds[n + c] = Math.min(
+                        nodeBounds[c0 + c], nodeBounds[c1 + c]);
+                    nodeBounds[n + 3 + c] = Math.max(
+                        nodeBounds[c0 + 3 + c], nodeBounds[c1 + 3 + c]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Traverse this hierarchy, and set the elements of the given array
+     * to <code>true</code> for all boxes that intersect the given 
+     * {@link Frustum}. Subtrees that are outside of the frustum are 
+     * skipped, and for subtrees that are completely inside a plane, 
+     * this plane is not tested again.
+     * 
+     * @param frustum The {@link Frustum}
+     * @param boxes The boxes, 6 elements per box
+     * @param visible The array storing the visibility flags
+     * @return The number of visible boxes
+     */
+    int cull(Frustum frustum, float boxes[], boolean visible[])
+    {
+        int numVisible = 0;
+        int size = 0;
+        stack[size++] = 0;
+        stack[size++] = Frustum.ALL_PLANES;
+        while (size > 0)
+        {
+            int mask = stack[--size];
+            int node = stack[--size];
+            int n = node * 6;
+            if (mask != 0)
+            {
+                mask = frustum.classify(
+                    nodeBounds[n + 0], nodeBounds[n + 1], nodeBounds[n + 2], 
+                    nodeBounds[n + 3], nodeBounds[n + 4], nodeBounds[n + 5], 
+                    mask);
+                if (mask < 0)
+                {
+                    continue;
+                }
+            }
+            int child = nodeChild[node];
+            if (child >= 0)
+            {
+                if (size + 4 > stack.length)
+                {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[size++] = child + 1;
+                stack[size++] = mask;
+                stack[size++] = child;
+                stack[size++] = mask;
+                continue;
+            }
+            int start = nodeStart[node];
+            int end = start + nodeCount[node];
+            for (int i = start; i < end; i++)
+            {
+                int box = order[i];
+                if (mask != 0)
+                {
+                    int b = box * 6;
+                    if (frustum.classify(
+                        boxes[b + 0], boxes[b + 1], boxes[b + 2], 
+                        boxes[b + 3], boxes[b + 4], boxes[b + 5], 
+                        mask) < 0)
+                    {
+                        continue;
+                    }
+                }
+                visible[box] = true;
+                numVisible++;
+            }
+        }
+        return numVisible;
+    }
+}
@@ -0,0 +1,463 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.culling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.vecmath.Matrix4f;
+
+import de.javagl.rendering.core.Bounds;
+import de.javagl.rendering.core.Command;
+import de.javagl.rendering.core.Commands;
+import de.javagl.rendering.core.GraphicsObjects;
+import de.javagl.rendering.core.RenderedObject;
+import de.javagl.rendering.core.RenderingEnvironment;
+import de.javagl.rendering.core.view.View;
+
+/**
+ * A supplier for lists of {@link Command} objects that only supplies the
+ * commands for objects that are inside the view frustum. It may be 
+ * passed to {@link RenderingEnvironment#addCommandSupplier(Supplier)}.
+ * <br>
+ * <br>
+ * Each command is associated with the object-space {@link Bounds} of the
+ * object that it renders, and a supplier for the model matrix. Each time
+ * that the list of commands is requested, the bounds are transformed 
+ * with the current model matrices, and tested against the frustum of 
+ * the {@link View}. When there are many commands, this test is performed
+ * hierarchically, using a bounding volume hierarchy that is built once 
+ * and refitted in each frame. The commands that are returned are in the 
+ * same order in which they have been added.<br>
+ * <br>
+ * Optionally, an {@link OcclusionCuller} may be set. The commands that 
+ * pass the frustum test will then additionally be tested against the 
+ * depth buffer of the occluders.<br>
+ * <br>
+ * The number of commands that have been drawn and culled in the most 
+ * recent frame can be obtained with {@link #getNumDrawn()} and
+ * {@link #getNumCulled()}. The number of commands that have been culled
+ * due to occlusion is reported separately, via {@link #getNumOccluded()}.
+ * <br>
+ * <br>
+ * Commands may be added and removed from any thread, also while the
+ * list of commands is computed on the rendering thread. The changes 
+ * will then take effect in the next frame. 
+ */
+public final class CullingStage implements Supplier<List<Command>>
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(CullingStage.class.getName());
+    
+    /**
+     * The number of commands starting at which a bounding volume 
+     * hierarchy will be used
+     */
+    private static final int HIERARCHY_THRESHOLD = 64;
+    
+    /**
+     * An entry of this stage
+     */
+    private static class Entry
+    {
+        /**
+         * The {@link Command}
+         */
+        final Command command;
+        
+        /**
+         * The object-space {@link Bounds}
+         */
+        final Bounds bounds;
+        
+        /**
+         * The supplier for the model matrix
+         */
+        final Supplier<Matrix4f> modelMatrixSupplier;
+        
+        /**
+         * Creates a new entry
+         * 
+         * @param command The {@link Command}
+         * @param bounds The {@link Bounds}
+         * @param modelMatrixSupplier The model matrix supplier
+         */
+        Entry(Command command, Bounds bounds, 
+            Supplier<Matrix4f> modelMatrixSupplier)
+        {
+            this.command = command;
+            this.bounds = bounds;
+            this.modelMatrixSupplier = modelMatrixSupplier;
+        }
+    }
+    
+    /**
+     * The {@link View}
+     */
+    private final View view;
+    
+    /**
+     * The {@link Frustum}
+     */
+    private final Frustum frustum;
+    
+    /**
+     * The optional {@link OcclusionCuller}
+     */
+    private volatile OcclusionCuller occlusionCuller;
+    
+    /**
+     * The view-projection matrix
+     */
+    private final Matrix4f viewProjectionMatrix;
+    
+    /**
+     * The entries
+     */
+    private final List<Entry> entries;
+    
+    /**
+     * The world-space boxes of the entries, 6 elements per entry
+     */
+    private float boxes[];
+    
+    /**
+     * The visibility flags of the entries
+     */
+    private boolean visible[];
+    
+    /**
+     * The {@link BoundingVolumeHierarchy}, or <code>null</code> if 
+     * it was not built yet. This is only accessed on the rendering 
+     * thread.
+     */
+    private BoundingVolumeHierarchy hierarchy;
+    
+    /**
+     * Whether the {@link BoundingVolumeHierarchy} has to be rebuilt
+     */
+    private volatile boolean hierarchyInvalid;
+    
+    /**
+     * The number of commands that have been drawn in the last frame
+     */
+    private volatile int numDrawn;
+    
+    /**
+     * The number of commands that have been culled in the last frame
+     */
+    private volatile int numCulled;
+    
+    /**
+     * The number of commands that have been culled due to occlusion
+     * in the last frame
+     */
+    private volatile int numOccluded;
+    
+    /**
+     * Creates a new culling stage for the given {@link View}
+     * 
+     * @param view The {@link View}
+     */
+    public CullingStage(View view)
+    {
+        this.view = Objects.requireNonNull(view, "The view may not be null");
+        this.frustum = new Frustum();
+        this.viewProjectionMatrix = new Matrix4f();
+        this.entries = new CopyOnWriteArrayList<Entry>();
+        this.boxes = new float[0];
+        this.visible = new boolean[0];
+    }
+    
+    /**
+     * Add a {@link Command} that renders the given {@link RenderedObject},
+     * using the {@link GraphicsObjects#getBounds(
+     * de.javagl.rendering.core.GraphicsObject) bounds} of its 
+     * graphics object. 
+     * 
+     * @param renderedObject The {@link RenderedObject}
+     * @param modelMatrixSupplier The supplier for the model matrix
+     * @return The {@link Command} that was added
+     */
+    public Command add(RenderedObject renderedObject, 
+        Supplier<Matrix4f> modelMatrixSupplier)
+    {
+        Command command = Commands.render(renderedObject);
+        add(command, 
+            GraphicsObjects.getBounds(renderedObject.getGraphicsObject()), 
+            modelMatrixSupplier);
+        return command;
+    }
+    
+    /**
+     * Add the given {@link Command}, which will only be supplied when
+     * the given {@link Bounds}, transformed with the model matrix from
+     * the given supplier, intersect the view frustum. The command will
+     * usually set up the matrices and render the object, and may be 
+     * created with {@link Commands#create(Command...)}.
+     * 
+     * @param command The {@link Command}
+     * @param bounds The object-space {@link Bounds}
+     * @param modelMatrixSupplier The supplier for the model matrix
+     */
+    public void add(Command command, Bounds bounds, 
+        Supplier<Matrix4f> modelMatrixSupplier)
+    {
+        Objects.requireNonNull(command, "The command may not be null");
+        Objects.requireNonNull(bounds, "The bounds may not be null");
+        Objects.requireNonNull(modelMatrixSupplier, 
+            "The modelMatrixSupplier may not be null");
+        entries.add(new Entry(command, bounds, modelMatrixSupplier));
+        hierarchyInvalid = true;
+    }
+    
+    /**
+     * Remove the given {@link Command} from this stage
+     * 
+     * @param command The {@link Command}
+     */
+    public void remove(Command command)
+    {
+        for (Entry entry : entries)
+        {
+            if (entry.command == command)
+            {
+                if (entries.remove(entry))
+                {
+                    hierarchyInvalid = true;
+                }
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Invalidate the bounding volume hierarchy, causing it to be rebuilt
+     * in the next frame. The hierarchy is refitted in each frame, but 
+     * its quality may degrade when objects move over large distances, 
+     * and this method may be called in this case. 
+     */
+    public void invalidateHierarchy()
+    {
+        hierarchyInvalid = true;
+    }
+    
+    /**
+     * Set the {@link OcclusionCuller} that should be used for testing
+     * the commands that are inside the view frustum. The occlusion culler
+     * will be updated with the current view-projection matrix in each 
+     * frame. If the given culler is <code>null</code>, then no occlusion
+     * culling will be performed. 
+     * 
+     * @param occlusionCuller The {@link OcclusionCuller}
+     */
+    public void setOcclusionCuller(OcclusionCuller occlusionCuller)
+    {
+        this.occlusionCuller = occlusionCuller;
+    }
+    
+    /**
+     * Returns the number of commands that have been culled in the 
+     * most recent frame because they have been occluded. This is
+     * included in the {@link #getNumCulled() number of culled commands}. 
+     * 
+     * @return The number of occluded commands
+     */
+    public int getNumOccluded()
+    {
+        return numOccluded;
+    }
+    
+    /**
+     * Returns the number of commands that have been supplied in the 
+     * most recent frame
+     * 
+     * @return The number of drawn commands
+     */
+    public int getNumDrawn()
+    {
+        return numDrawn;
+    }
+    
+    /**
+     * Returns the number of commands that have been culled in the
+     * most recent frame
+     * 
+     * @return The number of culled commands
+     */
+    public int getNumCulled()
+    {
+        return numCulled;
+    }
+    
+    @Override
+    public List<Command> get()
+    {
+        // Reset the flag before taking the snapshot of the entries, 
+        // so that concurrent modifications cause another rebuild
+        boolean rebuild = hierarchyInvalid;
+        hierarchyInvalid = false;
+        Entry currentEntries[] = entries.toArray(new Entry[0]);
+        int n = currentEntries.length;
+        if (boxes.length < n * 6)
+        {
+            boxes = new float[n * 6];
+            visible = new boolean[n];
+        }
+        view.getViewProjectionMatrix(viewProjectionMatrix);
+        frustum.update(viewProjectionMatrix);
+        for (int i = 0; i < n; i++)
+        {
+            Entry entry = currentEntries[i];
+            computeWorldBox(entry.bounds, entry.modelMatrixSupplier.get(), 
+                boxes, i * 6);
+            visible[i] = false;
+        }
+        
+        int visibleCount = 0;
+        if (n >= HIERARCHY_THRESHOLD)
+        {
+            if (rebuild || hierarchy == null || 
+                hierarchy.getNumBoxes() != n)
+            {
+                hierarchy = new BoundingVolumeHierarchy(boxes, n);
+            }
+            else
+            {
+                hierarchy.refit(boxes);
+            }
+            visibleCount = hierarchy.cull(frustum, boxes, visible);
+        }
+        else
+        {
+            for (int i = 0; i < n; i++)
+            {
+                int b = i * 6;
+                visible[i] = frustum.intersectsBox(
+                    boxes[b + 0], boxes[b + 1], boxes[b + 2], 
+                    boxes[b + 3], boxes[b + 4], boxes[b + 5]);
+                if (visible[i])
+                {
+                    visibleCount++;
+                }
+            }
+        }
+        
+        int occludedCount = 0;
+        OcclusionCuller currentOcclusionCuller = occlusionCuller;
+        if (currentOcclusionCuller != null)
+        {
+            currentOcclusionCuller.update(viewProjectionMatrix);
+            for (int i = 0; i < n; i++)
+            {
+                int b = i * 6;
+                if (visible[i] && currentOcclusionCuller.isBoxOccluded(
+                    boxes[b + 0], boxes[b + 1], boxes[b + 2], 
+                    boxes[b + 3], boxes[b + 4], boxes[b + 5]))
+                {
+                    visible[i] = false;
+                    occludedCount++;
+                }
+            }
+            visibleCount -= occludedCount;
+        }
+        
+        List<Command> result = new ArrayList<Command>(visibleCount);
+        for (int i = 0; i < n; i++)
+        {
+            if (visible[i])
+            {
+                result.add(currentEntries[i].command);
+            }
+        }
+        numDrawn = visibleCount;
+        numCulled = n - visibleCount;
+        numOccluded = occludedCount;
+        if (logger.isLoggable(Level.FINE))
+        {
+            logger.fine("Culling: drawn " + numDrawn + 
+                ", culled " + numCulled + ", occluded " + numOccluded);
+        }
+        return Collections.unmodifiableList(result);
+    }
+    
+    /**
+     * Compute the axis-aligned box that contains the given {@link Bounds}
+     * after they have been transformed with the given matrix, and write
+     * its minimum and maximum coordinates into the given array
+     * 
+     * @param bounds The {@link Bounds}
+     * @param m The matrix
+     * @param result The array storing the result
+     * @param offset The offset in the array
+     */
+    static void computeWorldBox(
+        Bounds bounds, Matrix4f m, float result[], int offset)
+    {
+        float cx = (bounds.getMinX() + bounds.getMaxX()) * 0.5f;
+        float cy = (bounds.getMinY() + bounds.getMaxY()) * 0.5f;
+        float cz = (bounds.getMinZ() + bounds.getMaxZ()) * 0.5f;
+        float ex = (bounds.getMaxX() - bounds.getMinX()) * 0.5f;
+        float ey = (bounds.getMaxY() - bounds.getMinY()) * 0.5f;
+        float ez = (bounds.getMaxZ() - bounds.getMinZ()) * 0.5f;
+        
+        float wx = m.m00 * cx + m.m01 * cy + m.m02 * cz + m.m03;
+        float wy = m.m10 * cx + m.m11 * cy + m.m12 * cz + m.m13;
+        float wz = m.m20 * cx + m.m21 * cy + m.m22 * cz + m.m23;
+        float rx = 
+            Math.abs(m.m00) * ex + Math.abs(m.m01) * ey + Math.abs(m.m02) * ez;
+        float ry = 
+            Math.abs(m.m10) * ex + Math.abs(m.m11) * ey + Math.abs(m.m12) * ez;
+        float rz = 
+            Math.abs(m.m20) * ex + Math.abs(m.m21) * ey + Math.abs(m.m22) * ez;
+        
+        result[offset + 0] = wx - rx;
+        result[offset + 1] = wy - ry;
+        result[offset + 2] = wz - rz;
+        result[offset + 3] = wx + rx;
+        result[offset + 4] = wy + ry;
+        result[offset + 5] = wz + rz;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "CullingStage[entries=" + entries.size() + 
+            ",drawn=" + numDrawn + ",culled=" + numCulled + 
+            ",occluded=" + numOccluded + "]";
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.culling;
+
+import java.util.Objects;
+
+import javax.vecmath.Matrix4f;
+
+import de.javagl.rendering.core.view.View;
+
+/**
+ * A view frustum, consisting of six planes that are extracted from a
+ * view-projection matrix. The planes are stored as normalized 
+ * <code>(a,b,c,d)</code> tuples, with the normals pointing into the
+ * frustum.
+ */
+public final class Frustum
+{
+    /**
+     * The number of planes
+     */
+    static final int NUM_PLANES = 6;
+    
+    /**
+     * The mask that indicates that all planes have to be tested
+     */
+    static final int ALL_PLANES = (1 << NUM_PLANES) - 1;
+    
+    /**
+     * The plane coefficients, 4 for each plane, in the order
+     * left, right, bottom, top, near, far
+     */
+    private final float planes[];
+    
+    /**
+     * Creates a new frustum that contains everything
+     */
+    public Frustum()
+    {
+        this.planes = new float[NUM_PLANES * 4];
+        for (int i = 0; i < NUM_PLANES; i++)
+        {
+            planes[i * 4 + 3] = Float.POSITIVE_INFINITY;
+        }
+    }
+    
+    /**
+     * Update this frustum based on the current camera and projection 
+     * matrix of the given {@link View}
+     * 
+     * @param view The {@link View}
+     */
+    public void update(View view)
+    {
+        Objects.requireNonNull(view, "The view may not be null");
+        update(view.getViewProjectionMatrix(new Matrix4f()));
+    }
+    
+    /**
+     * Update this frustum based on the given view-projection matrix, 
+     * which is the product of the projection matrix and the view matrix.
+     * If the given matrix is a model-view-projection matrix, then the
+     * planes will be in the model coordinate system.
+     * 
+     * @param m The view-projection matrix
+     */
+    public void update(Matrix4f m)
+    {
+        Objects.requireNonNull(m, "The matrix may not be null");
+        setPlane(0, m.m30 + m.m00, m.m31 + m.m01, m.m32 + m.m02, m.m33 + m.m03);
+        setPlane(1, m.m30 - m.m00, m.m31 - m.m01, m.m32 - m.m02, m.m33 - m.m03);
+        setPlane(2, m.m30 + m.m10, m.m31 + m.m11, m.m32 + m.m12, m.m33 + m.m13);
+        setPlane(3, m.m30 - m.m10, m.m31 - m.m11, m.m32 - m.m12, m.m33 - m.m13);
+        setPlane(4, m.m30 + m.m20, m.m31 + m.m21, m.m32 + m.m22, m.m33 + m.m23);
+        setPlane(5, m.m30 - m.m20, m.m31 - m.m21, m.m32 - m.m22, m.m33 - m.m23);
+    }
+    
+    /**
+     * Set the specified plane to contain the normalized version of 
+     * the given coefficients
+     * 
+     * @param index The plane index
+     * @param a The a-coefficient
+     * @param b The b-coefficient
+     * @param c The c-coefficient
+     * @param d The d-coefficient
+     */
+    private void setPlane(int index, float a, float b, float c, float d)
+    {
+        float length = (float)Math.sqrt(a * a + b * b + c * c);
+        float invLength = length == 0 ? 0.0f : 1.0f / length;
+        planes[index * 4 + 0] = a * invLength;
+        planes[index * 4 + 1] = b * invLength;
+        planes[index * 4 + 2] = c * invLength;
+        planes[index * 4 + 3] = d * invLength;
+    }
+    
+    /**
+     * Returns the specified plane coefficients. The given array must have
+     * a length of at least 4. 
+     * 
+     * @param index The plane index, in [0,6): left, right, bottom, top, 
+     * near, far
+     * @param result The array that will store the result
+     * @return The result array
+     */
+    public float[] getPlane(int index, float result[])
+    {
+        System.arraycopy(planes, index * 4, result, 0, 4);
+        return result;
+    }
+
+    /**
+     * Returns whether the given sphere is at least partially inside 
+     * this frustum
+     * 
+     * @param x The x-coordinate of the center
+     * @param y The y-coordinate of the center
+     * @param z The z-coordinate of the center
+     * @param radius The radius
+     * @return Whether the sphere intersects this frustum
+     */
+    public boolean intersectsSphere(float x, float y, float z, float radius)
+    {
+        for (int i = 0; i < NUM_PLANES; i++)
+        {
+            float distance = 
+                planes[i * 4 + 0] * x + 
+                planes[i * 4 + 1] * y + 
+                planes[i * 4 + 2] * z + 
+                planes[i * 4 + 3];
+            if (distance < -radius)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the given axis-aligned box is at least partially 
+     * inside this frustum. This test is conservative: It may return 
+     * <code>true</code> for boxes that are close to a corner of the
+     * frustum but outside of it.
+     * 
+     * @param minX The minimum x-coordinate
+     * @param minY The minimum y-coordinate
+     * @param minZ The minimum z-coordinate
+     * @param maxX The maximum x-coordinate
+     * @param maxY The maximum y-coordinate
+     * @param maxZ The maximum z-coordinate
+     * @return Whether the box intersects this frustum
+     */
+    public boolean intersectsBox(
+        float minX, float minY, float minZ, 
+        float maxX, float maxY, float maxZ)
+    {
+        return classify(minX, minY, minZ, maxX, maxY, maxZ, ALL_PLANES) >= 0;
+    }
+    
+    /**
+     * Classify the given axis-aligned box against the planes of this
+     * frustum that are indicated by the bits in the given mask. If the 
+     * box is outside of one of these planes, then -1 is returned. 
+     * Otherwise, the mask of the planes that the box intersects is 
+     * returned: The box is completely inside of all planes whose bits 
+     * are not set in the result. So when the result is 0, the box is 
+     * completely inside the frustum, and all boxes contained in it 
+     * do not have to be tested any more.
+     * 
+     * @param minX The minimum x-coordinate
+     * @param minY The minimum y-coordinate
+     * @param minZ The minimum z-coordinate
+     * @param maxX The maximum x-coordinate
+     * @param maxY The maximum y-coordinate
+     * @param maxZ The maximum z-coordinate
+     * @param mask The mask of the planes to test
+     * @return The classification result
+     */
+    int classify(
+        float minX, float minY, float minZ, 
+        float maxX, float maxY, float maxZ, int mask)
+    {
+        float cx = (minX + maxX) * 0.5f;
+        float cy = (minY + maxY) * 0.5f;
+        float cz = (minZ + maxZ) * 0.5f;
+        float ex = (maxX - minX) * 0.5f;
+        float ey = (maxY - minY) * 0.5f;
+        float ez = (maxZ - minZ) * 0.5f;
+        int result = 0;
+        for (int i = 0; i < NUM_PLANES; i++)
+        {
+            int bit = 1 << i;
+            if ((mask & bit) == 0)
+            {
+                continue;
+            }
+            float a = planes[i * 4 + 0];
+            float b = planes[i * 4 + 1];
+            float c = planes[i * 4 + 2];
+            float distance = a * cx + b * cy + c * cz + planes[i * 4 + 3];
+            float radius = 
+                Math.abs(a) * ex + Math.abs(b) * ey + Math.abs(c) * ez;
+            if (distance < -radius)
+            {
+                return -1;
+            }
+            if (distance < radius)
+            {
+                result |= bit;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("Frustum[");
+        for (int i = 0; i < NUM_PLANES; i++)
+        {
+            if (i > 0)
+            {
+                sb.append(",");
+            }
+            sb.append("(").append(planes[i * 4 + 0]);
+            sb.append(",").append(planes[i * 4 + 1]);
+            sb.append(",").append(planes[i * 4 + 2]);
+            sb.append(",").append(planes[i * 4 + 3]).append(")");
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.culling;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A low-resolution depth buffer that triangles can be rasterized into 
+ * on the CPU, together with a hierarchical depth pyramid that is used
+ * for testing whether screen-space rectangles are occluded.<br>
+ * <br>
+ * The depth values are in [0,1], with 0 being the near plane. Level 0 
+ * of the pyramid is the depth buffer itself. Each texel of a higher 
+ * level contains the maximum (farthest) depth of the corresponding 
+ * texels in the level below, so that the tests are conservative.
+ */
+final class HierarchicalDepthBuffer
+{
+    /**
+     * The number of rows that are rasterized by one task
+     */
+    private static final int BAND_HEIGHT = 16;
+    
+    /**
+     * The number of triangles above which the rasterization is 
+     * performed in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 256;
+    
+    /**
+     * The widths of the levels
+     */
+    private final int widths[];
+    
+    /**
+     * The heights of the levels
+     */
+    private final int heights[];
+    
+    /**
+     * The depth values of the levels
+     */
+    private final float levels[][];
+    
+    /**
+     * The screen-space triangles, 9 elements per triangle (x, y and 
+     * depth of each vertex)
+     */
+    private float triangles[];
+    
+    /**
+     * The number of triangles
+     */
+    private int numTriangles;
+    
+    /**
+     * Creates a new depth buffer with the given size
+     * 
+     * @param width The width
+     * @param height The height
+     */
+    HierarchicalDepthBuffer(int width, int height)
+    {
+        int numLevels = 1;
+        int w = width;
+        int h = height;
+        while (w > 1 || h > 1)
+        {
+            w = (w + 1) / 2;
+            h = (h + 1) / 2;
+            numLevels++;
+        }
+        this.widths = new int[numLevels];
+        this.heights = new int[numLevels];
+        this.levels = new float[numLevels][];
+        w = width;
+        h = height;
+        for (int i = 0; i < numLevels; i++)
+        {
+            widths[i] = w;
+            heights[i] = h;
+            levels[i] = new float[w * h];
+            w = (w + 1) / 2;
+            h = (h + 1) / 2;
+        }
+        this.triangles = new float[9 * 64];
+        clear();
+    }
+    
+    /**
+     * Returns the width of level 0
+     * 
+     * @return The width
+     */
+    int getWidth()
+    {
+        return widths[0];
+    }
+    
+    /**
+     * Returns the height of level 0
+     * 
+     * @return The height
+     */
+    int getHeight()
+    {
+        return heights[0];
+    }
+    
+    /**
+     * Returns the depth value at the given position of level 0
+     * 
+     * @param x The x-coordinate
+     * @param y The y-coordinate
+     * @return The depth value
+     */
+    float getDepth(int x, int y)
+    {
+        return levels[0][y * widths[0] + x];
+    }
+    
+    /**
+     * Reset all depth values to 1.0, and remove all triangles
+     */
+    void clear()
+    {
+        Arrays.fill(levels[0], 1.0f);
+        numTriangles = 0;
+    }
+    
+    /**
+     * Add the given triangle, in screen coordinates, to be rasterized
+     * in the next call to {@link #rasterize()}
+     * 
+     * @param x0 The x-coordinate of the first vertex
+     * @param y0 The y-coordinate of the first vertex
+     * @param z0 The depth of the first vertex
+     * @param x1 The x-coordinate of the second vertex
+     * @param y1 The y-coordinate of the second vertex
+     * @param z1 The depth of the second vertex
+     * @param x2 The x-coordinate of the third vertex
+     * @param y2 The y-coordinate of the third vertex
+     * @param z2 The depth of the third vertex
+     */
+    void addTriangle(
+        float x0, float y0, float z0, 
+        float x1, float y1, float z1, 
+        float x2, float y2, float z2)
+    {
+        if ((numTriangles + 1) * 9 > triangles.length)
+        {
+            triangles = Arrays.copyOf(triangles, triangles.length * 2);
+        }
+        int t = numTriangles * 9;
+        triangles[t + 0] = x0;
+        triangles[t + 1] = y0;
+        triangles[t + 2] = z0;
+        triangles[t + 3] = x1;
+        triangles[t + 4] = y1;
+        triangles[t + 5] = z1;
+        triangles[t + 6] = x2;
+        triangles[t + 7] = y2;
+        triangles[t + 8] = z2;
+        numTriangles++;
+    }
+    
+    /**
+     * Rasterize all triangles that have been added, and build the 
+     * depth pyramid. The image is divided into horizontal bands, 
+     * which are rasterized in parallel when there are many triangles.
+     */
+    void rasterize()
+    {
+        int numBands = (heights[0] + BAND_HEIGHT - 1) / BAND_HEIGHT;
+        if (numTriangles >= PARALLEL_THRESHOLD)
+        {
+            IntStream.range(0, numBands).parallel().forEach(
+                b -> rasterizeBand(b * BAND_HEIGHT, 
+                    Math.min(heights[0], (b + 1) * BAND_HEIGHT)));
+        }
+        else
+        {
+            rasterizeBand(0, heights[0]);
+        }
+        for (int i = 1; i < levels.length; i++)
+        {
+            downsample(i);
+        }
+    }
+    
+    /**
+     * Rasterize all triangles into the given range of rows. Pixels are
+     * covered when their center is inside the triangle, and the depth 
+     * is interpolated linearly in screen space.
+     * 
+     * @param minRow The minimum row, inclusive
+     * @param maxRow The maximum row, exclusive
+     */
+    private void rasterizeBand(int minRow, int maxRow)
+    {
+        int width = widths[0];
+        float depth[] = levels[0];
+        for (int i = 0; i < numTriangles; i++)
+        {
+            int t = i * 9;
+            float x0 = triangles[t + 0];
+            float y0 = triangles[t + 1];
+            float z0 = triangles[t + 2];
+            float x1 = triangles[t + 3];
+            float y1 = triangles[t + 4];
+            float z1 = triangles[t + 5];
+            float x2 = triangles[t + 6];
+            float y2 = triangles[t + 7];
+            float z2 = triangles[t + 8];
+            
+            float area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+            if (area == 0 || Float.isNaN(area))
+            {
+                continue;
+            }
+            int minX = Math.max(0, 
+                (int)Math.ceil(Math.min(x0, Math.min(x1, x2)) - 0.5f));
+            int maxX = Math.min(width - 1, 
+                (int)Math.floor(Math.max(x0, Math.max(x1, x2)) - 0.5f));
+            int minY = Math.max(minRow, 
+                (int)Math.ceil(Math.min(y0, Math.min(y1, y2)) - 0.5f));
+            int maxY = Math.min(maxRow - 1, 
+                (int)Math.floor(Math.max(y0, Math.max(y1, y2)) - 0.5f));
+            if (minX > maxX || minY > maxY)
+            {
+                continue;
+            }
+            
+            // Edge functions, normalized so that they are positive 
+            // inside the triangle, regardless of the winding order
+            float invArea = 1.0f / area;
+            float a0 = (y1 - y2) * invArea;
+            float b0 = (x2 - x1) * invArea;
+            float c0 = (x1 * y2 - x2 * y1) * invArea;
+            float a1 = (y2 - y0) * invArea;
+            float b1 = (x0 - x2) * invArea;
+            float c1 = (x2 * y0 - x0 * y2) * invArea;
+            float a2 = (y0 - y1) * invArea;
+            float b2 = (x1 - x0) * invArea;
+            float c2 = (x0 * y1 - x1 * y0) * invArea;
+            
+            for (int y = minY; y <= maxY; y++)
+            {
+                float py = y + 0.5f;
+                int row = y * width;
+                for (int x = minX; x <= maxX; x++)
+                {
+                    float px = x + 0.5f;
+                    float w0 = a0 * px + b0 * py + c0;
+                    float w1 = a1 * px + b1 * py + c1;
+                    float w2 = a2 * px + b2 * py + c2;
+                    if (w0 < 0 || w1 < 0 || w2 < 0)
+                    {
+                        continue;
+                    }
+                    float z = w0 * z0 + w1 * z1 + w2 * z2;
+                    if (z < depth[row + x])
+                    {
+                        depth[row + x] = Math.max(0.0f, z);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Compute the specified level of the pyramid from the level below
+     * 
+     * @param level The level
+     */
+    private void downsample(int level)
+    {
+        float source[] = levels[level - 1];
+        int sw = widths[level - 1];
+        int sh = heights[level - 1];
+        float target[] = levels[level];
+        int tw = widths[level];
+        int th = heights[level];
+        for (int y = 0; y < th; y++)
+        {
+            int sy0 = y * 2;
+            int sy1 = Math.min(sy0 + 1, sh - 1);
+            for (int x = 0; x < tw; x++)
+            {
+                int sx0 = x * 2;
+                int sx1 = Math.min(sx0 + 1, sw - 1);
+                float d = Math.max(
+                    Math.max(source[sy0 * sw + sx0], source[sy0 * sw + sx1]),
+                    Math.max(source[sy1 * sw + sx0], source[sy1 * sw + sx1]));
+                target[y * tw + x] = d;
+            }
+        }
+    }
+    
+    /**
+     * Returns whether the given screen-space rectangle is occluded when
+     * its nearest depth is the given value. The rectangle is tested 
+     * against the level of the pyramid where it covers at most 2x2 
+     * texels. 
+     * 
+     * @param minX The minimum x-coordinate
+     * @param minY The minimum y-coordinate
+     * @param maxX The maximum x-coordinate
+     * @param maxY The maximum y-coordinate
+     * @param minDepth The minimum depth
+     * @return Whether the rectangle is occluded
+     */
+    boolean isOccluded(
+        float minX, float minY, float maxX, float maxY, float minDepth)
+    {
+        int x0 = Math.max(0, (int)Math.floor(minX));
+        int y0 = Math.max(0, (int)Math.floor(minY));
+        int x1 = Math.min(widths[0] - 1, (int)Math.floor(maxX));
+        int y1 = Math.min(heights[0] - 1, (int)Math.floor(maxY));
+        if (x0 > x1 || y0 > y1)
+        {
+            return false;
+        }
+        int size = Math.max(x1 - x0, y1 - y0);
+        int level = 0;
+        while (size > 1 && level < levels.length - 1)
+        {
+            size >>= 1;
+            level++;
+        }
+        x0 >>= level;
+        y0 >>= level;
+        x1 >>= level;
+        y1 >>= level;
+        float depth[] = levels[level];
+        int w = widths[level];
+        for (int y = y0; y <= y1; y++)
+        {
+            for (int x = x0; x <= x1; x++)
+            {
+                if (minDepth <= depth[y * w + x])
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.culling;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import javax.vecmath.Matrix4f;
+
+import de.javagl.rendering.core.Attributes;
+import de.javagl.rendering.core.Bounds;
+import de.javagl.rendering.core.GraphicsObject;
+import de.javagl.rendering.core.GraphicsObjects;
+import de.javagl.rendering.core.view.View;
+
+/**
+ * A class for occlusion culling on the CPU. A set of occluder 
+ * {@link GraphicsObject}s, which usually are simplified versions of large
+ * objects like walls, is rasterized into a low-resolution depth buffer 
+ * in each call to {@link #update(Matrix4f)}. From this depth buffer, 
+ * a hierarchical depth pyramid is built, which allows quickly testing
+ * whether the screen-space rectangle of a bounding box is completely 
+ * behind the occluders.<br>
+ * <br>
+ * This class does not require a GPU. It may be used on its own, or 
+ * passed to {@link CullingStage#setOcclusionCuller(OcclusionCuller)} to 
+ * skip the commands of occluded objects.<br>
+ * <br>
+ * Occluders may be added and removed from any thread, also while the
+ * occluders are rasterized on the rendering thread. The changes 
+ * will take effect in the next call to {@link #update(Matrix4f)}.
+ */
+public final class OcclusionCuller
+{
+    /**
+     * An occluder
+     */
+    private static class Occluder
+    {
+        /**
+         * The {@link GraphicsObject}
+         */
+        final GraphicsObject graphicsObject;
+        
+        /**
+         * The triangle indices
+         */
+        final int indices[];
+        
+        /**
+         * The vertex positions, 3 elements per vertex
+         */
+        final float positions[];
+        
+        /**
+         * The supplier for the model matrix
+         */
+        final Supplier<Matrix4f> modelMatrixSupplier;
+        
+        /**
+         * Creates a new occluder
+         * 
+         * @param graphicsObject The {@link GraphicsObject}
+         * @param modelMatrixSupplier The supplier for the model matrix
+         */
+        Occluder(GraphicsObject graphicsObject, 
+            Supplier<Matrix4f> modelMatrixSupplier)
+        {
+            this.graphicsObject = graphicsObject;
+            this.indices = GraphicsObjects.readIndices(graphicsObject);
+            this.positions = GraphicsObjects.readFloats(
+                graphicsObject, Attributes.VERTICES);
+            this.modelMatrixSupplier = modelMatrixSupplier;
+        }
+    }
+    
+    /**
+     * The occluders. This is a copy-on-write list, so that it may be
+     * modified while the occluders are rasterized.
+     */
+    private final List<Occluder> occluders;
+    
+    /**
+     * The {@link HierarchicalDepthBuffer}
+     */
+    private final HierarchicalDepthBuffer depthBuffer;
+    
+    /**
+     * The current view-projection matrix
+     */
+    private final Matrix4f viewProjectionMatrix;
+    
+    /**
+     * The clip coordinates of the vertices of the current occluder,
+     * 4 elements per vertex
+     */
+    private float clipCoordinates[];
+    
+    /**
+     * The vertices of a triangle that is clipped against the near plane,
+     * 4 elements for each of the up to 4 vertices
+     */
+    private final float clipped[];
+    
+    /**
+     * Creates a new occlusion culler with a depth buffer of the given
+     * size. The size should be small, for example 256x128 pixels.
+     * 
+     * @param width The width of the depth buffer
+     * @param height The height of the depth buffer
+     * @throws IllegalArgumentException If the width or height is not 
+     * positive
+     */
+    public OcclusionCuller(int width, int height)
+    {
+        if (width <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The width must be positive, but is " + width);
+        }
+        if (height <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The height must be positive, but is " + height);
+        }
+        this.occluders = new CopyOnWriteArrayList<Occluder>();
+        this.depthBuffer = new HierarchicalDepthBuffer(width, height);
+        this.viewProjectionMatrix = new Matrix4f();
+        this.viewProjectionMatrix.setIdentity();
+        this.clipCoordinates = new float[0];
+        this.clipped = new float[16];
+    }
+    
+    /**
+     * Add the given {@link GraphicsObject} as an occluder. The object 
+     * must consist of triangles, and have {@link Attributes#VERTICES}.
+     * Its indices and vertices are copied when it is added.
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     * @param modelMatrixSupplier The supplier for the model matrix
+     * @throws IllegalArgumentException If the object does not have
+     * vertices
+     */
+    public void addOccluder(GraphicsObject graphicsObject, 
+        Supplier<Matrix4f> modelMatrixSupplier)
+    {
+        Objects.requireNonNull(graphicsObject, 
+            "The graphicsObject may not be null");
+        Objects.requireNonNull(modelMatrixSupplier, 
+            "The modelMatrixSupplier may not be null");
+        occluders.add(new Occluder(graphicsObject, modelMatrixSupplier));
+    }
+    
+    /**
+     * Remove the given {@link GraphicsObject} from the occluders
+     * 
+     * @param graphicsObject The {@link GraphicsObject}
+     */
+    public void removeOccluder(GraphicsObject graphicsObject)
+    {
+        occluders.removeIf(o -> o.graphicsObject == graphicsObject);
+    }
+    
+    /**
+     * Returns the width of the depth buffer
+     * 
+     * @return The width
+     */
+    public int getWidth()
+    {
+        return depthBuffer.getWidth();
+    }
+    
+    /**
+     * Returns the height of the depth buffer
+     * 
+     * @return The height
+     */
+    public int getHeight()
+    {
+        return depthBuffer.getHeight();
+    }
+    
+    /**
+     * Returns the depth value at the given pixel of the depth buffer, 
+     * in [0,1]. Pixels that are not covered by any occluder have a 
+     * depth of 1.0. The y-axis points upwards, as in OpenGL. 
+     * 
+     * @param x The x-coordinate
+     * @param y The y-coordinate
+     * @return The depth value
+     * @throws IndexOutOfBoundsException If the coordinates are not valid
+     */
+    public float getDepth(int x, int y)
+    {
+        if (x < 0 || x >= getWidth() || y < 0 || y >= getHeight())
+        {
+            throw new IndexOutOfBoundsException(
+                "Pixel (" + x + "," + y + ") is not in a depth buffer of " +
+                "size " + getWidth() + "x" + getHeight());
+        }
+        return depthBuffer.getDepth(x, y);
+    }
+    
+    /**
+     * Update the depth buffer based on the current camera and projection 
+     * matrix of the given {@link View}
+     * 
+     * @param view The {@link View}
+     */
+    public void update(View view)
+    {
+        Objects.requireNonNull(view, "The view may not be null");
+        update(view.getViewProjectionMatrix(new Matrix4f()));
+    }
+    
+    /**
+     * Rasterize all occluders into the depth buffer, using the given 
+     * view-projection matrix, and build the depth pyramid.
+     * 
+     * @param viewProjectionMatrix The view-projection matrix
+     */
+    public void update(Matrix4f viewProjectionMatrix)
+    {
+        Objects.requireNonNull(viewProjectionMatrix, 
+            "The viewProjectionMatrix may not be null");
+        this.viewProjectionMatrix.set(viewProjectionMatrix);
+        depthBuffer.clear();
+        Matrix4f m = new Matrix4f();
+        for (Occluder occluder : occluders)
+        {
+            m.mul(viewProjectionMatrix, 
+                occluder.modelMatrixSupplier.get());
+            addTriangles(occluder, m);
+        }
+        depthBuffer.rasterize();
+    }
+    
+    /**
+     * Transform the vertices of the given occluder into clip space,
+     * and add its triangles to the depth buffer, after clipping them
+     * against the near plane
+     * 
+     * @param occluder The occluder
+     * @param m The model-view-projection matrix
+     */
+    private void addTriangles(Occluder occluder, Matrix4f m)
+    {
+        float p[] = occluder.positions;
+        int numVertices = p.length / 3;
+        if (clipCoordinates.length < numVertices * 4)
+        {
+            clipCoordinates = new float[numVertices * 4];
+        }
+        float c[] = clipCoordinates;
+        for (int v = 0; v < numVertices; v++)
+        {
+            float x = p[v * 3 + 0];
+            float y = p[v * 3 + 1];
+            float z = p[v * 3 + 2];
+            c[v * 4 + 0] = m.m00 * x + m.m01 * y + m.m02 * z + m.m03;
+            c[v * 4 + 1] = m.m10 * x + m.m11 * y + m.m12 * z + m.m13;
+            c[v * 4 + 2] = m.m20 * x + m.m21 * y + m.m22 * z + m.m23;
+            c[v * 4 + 3] = m.m30 * x + m.m31 * y + m.m32 * z + m.m33;
+        }
+        int indices[] = occluder.indices;
+        int numTriangles = indices.length / 3;
+        for (int t = 0; t < numTriangles; t++)
+        {
+            int i0 = indices[t * 3 + 0] * 4;
+            int i1 = indices[t * 3 + 1] * 4;
+            int i2 = indices[t * 3 + 2] * 4;
+            float d0 = c[i0 + 2] + c[i0 + 3];
+            float d1 = c[i1 + 2] + c[i1 + 3];
+            float d2 = c[i2 + 2] + c[i2 + 3];
+            if (d0 < 0 && d1 < 0 && d2 < 0)
+            {
+                continue;
+            }
+            if (d0 >= 0 && d1 >= 0 && d2 >= 0)
+            {
+                addTriangle(c, i0, c, i1, c, i2);
+                continue;
+            }
+            int n = clipNear(c, i0, i1, i2);
+            addTriangle(clipped, 0, clipped, 4, clipped, 8);
+            if (n == 4)
+            {
+                addTriangle(clipped, 0, clipped, 8, clipped, 12);
+            }
+        }
+    }
+    
+    /**
+     * Clip the triangle with the given vertices against the near plane,
+     * which is the plane where <code>z = -w</code> in clip space, and 
+     * store the resulting 3 or 4 vertices in the {@link #clipped} array
+     * 
+     * @param c The clip coordinates
+     * @param i0 The offset of the first vertex
+     * @param i1 The offset of the second vertex
+     * @param i2 The offset of the third vertex
+     * @return The number of resulting vertices
+     */
+    private int clipNear(float c[], int i0, int i1, int i2)
+    {
+        int input[] = { i0, i1, i2 };
+        int n = 0;
+        for (int i = 0; i < 3; i++)
+        {
+            int a = input[i];
+            int b = input[(i + 1) % 3];
+            float da = c[a + 2] + c[a + 3];
+            float db = c[b + 2] + c[b + 3];
+            if (da >= 0)
+            {
+                System.arraycopy(c, a, clipped, n * 4, 4);
+                n++;
+            }
+            if ((da >= 0) != (db >= 0))
+            {
+                float s = da / (da - db);
+                for (int k = 0; k < 4; k++)
+                {
+                    clipped[n * 4 + k] = c[a + k] + s * (c[b + k] - c[a + k]);
+                }
+                n++;
+            }
+        }
+        return n;
+    }
+    
+    /**
+     * Perform the perspective division and viewport transform for the 
+     * given clip coordinates, and add the resulting triangle to the 
+     * depth buffer
+     * 
+     * @param c0 The array containing the first vertex
+     * @param i0 The offset of the first vertex
+     * @param c1 The array containing the second vertex
+     * @param i1 The offset of the second vertex
+     * @param c2 The array containing the third vertex
+     * @param i2 The offset of the third vertex
+     */
+    private void addTriangle(
+        float c0[], int i0, float c1[], int i1, float c2[], int i2)
+    {
+        float w = depthBuffer.getWidth();
+        float h = depthBuffer.getHeight();
+        float iw0 = 1.0f / c0[i0 + 3];
+        float iw1 = 1.0f / c1[i1 + 3];
+        float iw2 = 1.0f / c2[i2 + 3];
+        depthBuffer.addTriangle(
+            (c0[i0 + 0] * iw0 * 0.5f + 0.5f) * w,
+            (c0[i0 + 1] * iw0 * 0.5f + 0.5f) * h,
+            c0[i0 + 2] * iw0 * 0.5f + 0.5f,
+            (c1[i1 + 0] * iw1 * 0.5f + 0.5f) * w,
+            (c1[i1 + 1] * iw1 * 0.5f + 0.5f) * h,
+            c1[i1 + 2] * iw1 * 0.5f + 0.5f,
+            (c2[i2 + 0] * iw2 * 0.5f + 0.5f) * w,
+            (c2[i2 + 1] * iw2 * 0.5f + 0.5f) * h,
+            c2[i2 + 2] * iw2 * 0.5f + 0.5f);
+    }
+    
+    /**
+     * Returns whether the given object-space {@link Bounds}, transformed
+     * with the given model matrix, are completely hidden behind the 
+     * occluders, as of the last call to {@link #update(Matrix4f)}
+     * 
+     * @param bounds The {@link Bounds}
+     * @param modelMatrix The model matrix
+     * @return Whether the bounds are occluded
+     */
+    public boolean isOccluded(Bounds bounds, Matrix4f modelMatrix)
+    {
+        float box[] = new float[6];
+        CullingStage.computeWorldBox(bounds, modelMatrix, box, 0);
+        return isBoxOccluded(box[0], box[1], box[2], box[3], box[4], box[5]);
+    }
+    
+    /**
+     * Returns whether the given world-space box is completely hidden 
+     * behind the occluders, as of the last call to 
+     * {@link #update(Matrix4f)}. Boxes that intersect the near plane
+     * are never considered to be occluded.
+     * 
+     * @param minX The minimum x-coordinate
+     * @param minY The minimum y-coordinate
+     * @param minZ The minimum z-coordinate
+     * @param maxX The maximum x-coordinate
+     * @param maxY The maximum y-coordinate
+     * @param maxZ The maximum z-coordinate
+     * @return Whether the box is occluded
+     */
+    public boolean isBoxOccluded(
+        float minX, float minY, float minZ, 
+        float maxX, float maxY, float maxZ)
+    {
+        Matrix4f m = viewProjectionMatrix;
+        float w = depthBuffer.getWidth();
+        float h = depthBuffer.getHeight();
+        float sMinX = Float.POSITIVE_INFINITY;
+        float sMinY = Float.POSITIVE_INFINITY;
+        float sMaxX = Float.NEGATIVE_INFINITY;
+        float sMaxY = Float.NEGATIVE_INFINITY;
+        float minDepth = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < 8; i++)
+        {
+            float x = (i & 1) == 0 ? minX : maxX;
+            float y = (i & 2) == 0 ? minY : maxY;
+            float z = (i & 4) == 0 ? minZ : maxZ;
+            float cx = m.m00 * x + m.m01 * y + m.m02 * z + m.m03;
+            float cy = m.m10 * x + m.m11 * y + m.m12 * z + m.m13;
+            float cz = m.m20 * x + m.m21 * y + m.m22 * z + m.m23;
+            float cw = m.m30 * x + m.m31 * y + m.m32 * z + m.m33;
+            if (cz < -cw || cw <= 0)
+            {
+                return false;
+            }
+            float iw = 1.0f / cw;
+            float sx = (cx * iw * 0.5f + 0.5f) * w;
+            float sy = (cy * iw * 0.5f + 0.5f) * h;
+            float sz = cz * iw * 0.5f + 0.5f;
+            sMinX = Math.min(sMinX, sx);
+            sMinY = Math.min(sMinY, sy);
+            sMaxX = Math.max(sMaxX, sx);
+            sMaxY = Math.max(sMaxY, sy);
+            minDepth = Math.min(minDepth, sz);
+        }
+        return depthBuffer.isOccluded(sMinX, sMinY, sMaxX, sMaxY, minDepth);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "OcclusionCuller[occluders=" + occluders.size() + 
+            ",size=" + getWidth() + "x" + getHeight() + "]";
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Classes for culling objects that are not visible before they are 
+ * rendered. 
+ */
+package de.javagl.rendering.core.culling;
@@ -30,7 +30,13 @@ package de.javagl.rendering.core.handling;
 import de.javagl.rendering.core.FrameBuffer;
 
 /**
- * Abstract base implementation of a {@link FrameBufferHandler}.
+ * Abstract base implementation of a {@link FrameBufferHandler}.<br>
+ * <br>
+ * Implementations may use {@link #acquirePooled(int, int, int)} and
+ * {@link #releasePooled(int, int, int, long, Object)} to reuse the 
+ * internal representations of released {@link FrameBuffer}s. 
+ * Representations that are evicted from the {@link FrameBufferPool}
+ * are passed to {@link #destroyInternal(Object)}.
  * 
  * @param <U> The type of the internal representation of the
  * objects handled by this class  
@@ -39,6 +45,66 @@ public abstract class AbstractFrameBufferHandler<U>
     extends AbstractReferenceHandler<FrameBuffer, U> 
     implements FrameBufferHandler<U>
 {
+    /**
+     * The pool for the internal representations
+     */
+    private final DefaultFrameBufferPool<U> frameBufferPool;
+    
+    /**
+     * Default constructor
+     */
+    protected AbstractFrameBufferHandler()
+    {
+        this.frameBufferPool = new DefaultFrameBufferPool<U>(
+            u -> destroyInternal(u));
+    }
+    
+    /**
+     * Take an internal representation with the given size and format 
+     * from the {@link FrameBufferPool}. Returns <code>null</code> if 
+     * there is no such representation, in which case a new one has 
+     * to be created.
+     * 
+     * @param width The width
+     * @param height The height
+     * @param format The implementation-specific format
+     * @return The internal representation, or <code>null</code>
+     */
+    protected final U acquirePooled(int width, int height, int format)
+    {
+        return frameBufferPool.acquire(width, height, format);
+    }
+    
+    /**
+     * Put the given internal representation into the 
+     * {@link FrameBufferPool}, so that it may be reused
+     * 
+     * @param width The width
+     * @param height The height
+     * @param format The implementation-specific format
+     * @param size The size of the representation, in bytes
+     * @param u The internal representation
+     */
+    protected final void releasePooled(
+        int width, int height, int format, long size, U u)
+    {
+        frameBufferPool.release(width, height, format, size, u);
+    }
+    
+    /**
+     * Destroy the given internal representation, which has been evicted
+     * from the {@link FrameBufferPool}
+     * 
+     * @param u The internal representation
+     */
+    protected abstract void destroyInternal(U u);
+    
+    @Override
+    public FrameBufferPool getFrameBufferPool()
+    {
+        return frameBufferPool;
+    }
+    
     @Override
     protected void handleChildren(FrameBuffer t) 
     {
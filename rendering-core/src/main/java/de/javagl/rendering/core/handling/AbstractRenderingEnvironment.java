@@ -78,6 +78,11 @@ public abstract class AbstractRenderingEnvironment<T>
      */
     private final List<Command> tasks;
     
+    /**
+     * The {@link FrameScheduler} that decides when frames are rendered
+     */
+    private final FrameScheduler frameScheduler;
+    
     /**
      * Creates a new AbstractRenderingEnvironment
      */
@@ -88,6 +93,7 @@ public abstract class AbstractRenderingEnvironment<T>
                 ? extends List<? extends Command>>>();
         this.view = Views.create();
         this.tasks = Collections.synchronizedList(new ArrayList<Command>());
+        this.frameScheduler = new FrameScheduler(this::requestRepaint);
     }
     
     /**
@@ -104,6 +110,13 @@ public abstract class AbstractRenderingEnvironment<T>
      */
     protected abstract int getRenderComponentHeight();
     
+    /**
+     * Request a repaint of the render component, which will cause 
+     * {@link #render()} to be called. This is called by the 
+     * {@link FrameScheduler} when a frame should be rendered.
+     */
+    protected abstract void requestRepaint();
+    
     /**
      * Internal initialization, to be called after the constructors
      * of the derived classes have completed.
@@ -127,6 +140,30 @@ public abstract class AbstractRenderingEnvironment<T>
         return view;
     }
     
+    /**
+     * Returns the {@link FrameScheduler} that decides when frames are
+     * rendered in this environment, and provides timing information 
+     * about the rendered frames
+     * 
+     * @return The {@link FrameScheduler}
+     */
+    public final FrameScheduler getFrameScheduler()
+    {
+        return frameScheduler;
+    }
+    
+    /**
+     * {@inheritDoc}<br>
+     * <br>
+     * The request is passed to the {@link FrameScheduler}, which coalesces
+     * it with a pending request, if there is one.
+     */
+    @Override
+    public final void triggerRendering()
+    {
+        frameScheduler.requestFrame();
+    }
+    
     
     @Override
     public final void addTask(Command command)
@@ -172,12 +209,18 @@ public abstract class AbstractRenderingEnvironment<T>
     /**
      * Renders. This will consist of
      * <ul>
+     *   <li>Notifying the {@link FrameScheduler} that a frame started</li>
      *   <li>calling {@link #preRender()} </li>
      *   <li>Updating the view</li>
      *   <li>Executing all tasks that had been 
      *       added with {@link #addTask(Command)}</li>
      *   <li>Obtaining and executing all Commands from the Command supplier</li> 
      *   <li>calling {@link #postRender()} </li>
+     *   <li>Notifying the {@link FrameScheduler} that a frame finished</li>
+     *   <li>Requesting another frame if there are 
+     *       {@link FrameBufferHandler#hasPendingCaptures() pending 
+     *       captures}, because they are only delivered at the beginning
+     *       of a frame</li>
      * </ul>
      * 
      */
@@ -185,6 +228,29 @@ public abstract class AbstractRenderingEnvironment<T>
     {
         //System.out.println("Rendering pass");
         
+        frameScheduler.frameStarted();
+        try
+        {
+            renderFrame();
+        }
+        finally
+        {
+            frameScheduler.frameFinished();
+        }
+        if (getRenderer().getFrameBufferHandler().hasPendingCaptures())
+        {
+            frameScheduler.requestFrame();
+        }
+        
+        //System.out.println("Rendering pass DONE");
+    }
+    
+    /**
+     * Performs the actual rendering of a frame, as described in 
+     * {@link #render()}
+     */
+    private void renderFrame()
+    {
         preRender();
         
         int w = getRenderComponentWidth();
@@ -218,8 +284,6 @@ public abstract class AbstractRenderingEnvironment<T>
         }
         
         postRender();
-        
-        //System.out.println("Rendering pass DONE");
     }
 
     @Override
@@ -37,20 +37,14 @@ import de.javagl.rendering.core.Texture;
  */
 public abstract class AbstractTextureHandler<U> 
     extends AbstractReferenceHandler<Texture, U> 
-    implements TextureHandler<U>//, ImageTextureListener
-    
+    implements TextureHandler<U>
 {
-    /**
-     * The manager for dirty rectangles of textures
-     */
-    //private DirtyRectangleManager<Texture> dirtyRectangleManager;
-    
     /**
      * Creates a new AbstractTextureHandler
      */
     protected AbstractTextureHandler()
     {
-        //dirtyRectangleManager = new DirtyRectangleManager<Texture>();
+        // Default constructor
     }
     
     @Override
@@ -64,30 +58,5 @@ public abstract class AbstractTextureHandler<U>
     {
         // No children
     }
-
-//    @Override
-//    public void updateRequested(ImageTexture texture, int x, int y, int width, int height)
-//    {
-//        dirtyRectangleManager.addDirtyRectangle(texture, x, y, width, height);
-//    }
-//    
-//    /**
-//     * Validate the given texture. If an update has been requested
-//     * for the given texture, then this method will call 
-//     * {@link #updateImageTexture(ImageTexture, int, int, int, int)}
-//     * with the respective region. 
-//     *  
-//     * @param texture The texture to validate
-//     */
-//    protected void validate(ImageTexture texture)
-//    {
-//        Rectangle region = dirtyRectangleManager.getDirtyRectangle(texture);
-//        if (region != null)
-//        {
-//            updateImageTexture(
-//                texture, region.x, region.y, region.width, region.height);
-//            dirtyRectangleManager.clearDirtyRectangle(texture);
-//        }
-//    }
     
 }
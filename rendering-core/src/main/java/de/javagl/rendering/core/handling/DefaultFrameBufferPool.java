@@ -0,0 +1,390 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.handling;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Default implementation of a {@link FrameBufferPool}. 
+ * 
+ * @param <U> The type of the internal representations
+ */
+class DefaultFrameBufferPool<U> implements FrameBufferPool
+{
+    /**
+     * The default maximum age, in seconds
+     */
+    private static final long DEFAULT_MAX_AGE_S = 5;
+    
+    /**
+     * The default memory budget, in bytes
+     */
+    private static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+    
+    /**
+     * The key of a pooled representation
+     */
+    private static final class Key
+    {
+        /**
+         * The width
+         */
+        private final int width;
+        
+        /**
+         * The height
+         */
+        private final int height;
+        
+        /**
+         * The format
+         */
+        private final int format;
+        
+        /**
+         * Creates a new key
+         * 
+         * @param width The width
+         * @param height The height
+         * @param format The format
+         */
+        Key(int width, int height, int format)
+        {
+            this.width = width;
+            this.height = height;
+            this.format = format;
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(width, height, format);
+        }
+        
+        @Override
+        public boolean equals(Object object)
+        {
+            if (this == object)
+            {
+                return true;
+            }
+            if (!(object instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key)object;
+            return width == other.width && 
+                height == other.height && 
+                format == other.format;
+        }
+    }
+    
+    /**
+     * A pooled representation
+     * 
+     * @param <U> The type of the representation
+     */
+    private static final class Entry<U>
+    {
+        /**
+         * The key
+         */
+        final Key key;
+        
+        /**
+         * The representation
+         */
+        final U value;
+        
+        /**
+         * The size, in bytes
+         */
+        final long size;
+        
+        /**
+         * The time when the representation was added, in nanoseconds
+         */
+        final long time;
+        
+        /**
+         * Creates a new entry
+         * 
+         * @param key The key
+         * @param value The representation
+         * @param size The size
+         * @param time The time
+         */
+        Entry(Key key, U value, long size, long time)
+        {
+            this.key = key;
+            this.value = value;
+            this.size = size;
+            this.time = time;
+        }
+    }
+    
+    /**
+     * The consumer that destroys evicted representations
+     */
+    private final Consumer<? super U> destroyer;
+    
+    /**
+     * The pooled entries for each key. The most recently added entry
+     * is the first one.
+     */
+    private final Map<Key, Deque<Entry<U>>> entries;
+    
+    /**
+     * All pooled entries, in the order in which they have been added
+     */
+    private final Set<Entry<U>> entriesByAge;
+    
+    /**
+     * The maximum age, in nanoseconds
+     */
+    private volatile long maxAgeNs;
+    
+    /**
+     * The memory budget, in bytes
+     */
+    private volatile long memoryBudget;
+    
+    /**
+     * The number of hits
+     */
+    private volatile long hits;
+    
+    /**
+     * The number of misses
+     */
+    private volatile long misses;
+    
+    /**
+     * The number of evictions
+     */
+    private volatile long evictions;
+    
+    /**
+     * The number of pooled entries
+     */
+    private volatile int numPooled;
+    
+    /**
+     * The total size of the pooled entries
+     */
+    private volatile long pooledBytes;
+    
+    /**
+     * Creates a new pool
+     * 
+     * @param destroyer The consumer that destroys evicted representations
+     */
+    DefaultFrameBufferPool(Consumer<? super U> destroyer)
+    {
+        this.destroyer = destroyer;
+        this.entries = new HashMap<Key, Deque<Entry<U>>>();
+        this.entriesByAge = new LinkedHashSet<Entry<U>>();
+        this.maxAgeNs = TimeUnit.SECONDS.toNanos(DEFAULT_MAX_AGE_S);
+        this.memoryBudget = DEFAULT_MEMORY_BUDGET;
+    }
+    
+    /**
+     * Take a representation with the given size and format from this 
+     * pool. Returns <code>null</code> if there is no such 
+     * representation.
+     * 
+     * @param width The width
+     * @param height The height
+     * @param format The format
+     * @return The representation, or <code>null</code>
+     */
+    U acquire(int width, int height, int format)
+    {
+        trim();
+        Key key = new Key(width, height, format);
+        Deque<Entry<U>> deque = entries.get(key);
+        if (deque == null)
+        {
+            misses++;
+            return null;
+        }
+        Entry<U> entry = deque.pollFirst();
+        if (deque.isEmpty())
+        {
+            entries.remove(key);
+        }
+        entriesByAge.remove(entry);
+        numPooled--;
+        pooledBytes -= entry.size;
+        hits++;
+        return entry.value;
+    }
+    
+    /**
+     * Put the given representation into this pool
+     * 
+     * @param width The width
+     * @param height The height
+     * @param format The format
+     * @param size The size of the representation, in bytes
+     * @param value The representation
+     */
+    void release(int width, int height, int format, long size, U value)
+    {
+        Key key = new Key(width, height, format);
+        Entry<U> entry = new Entry<U>(key, value, size, System.nanoTime());
+        entries.computeIfAbsent(key, k -> new ArrayDeque<Entry<U>>())
+            .addFirst(entry);
+        entriesByAge.add(entry);
+        numPooled++;
+        pooledBytes += size;
+        trim();
+    }
+    
+    @Override
+    public void setMaxAge(long maxAge, TimeUnit unit)
+    {
+        if (maxAge < 0)
+        {
+            throw new IllegalArgumentException(
+                "The maximum age may not be negative, but is " + maxAge);
+        }
+        this.maxAgeNs = unit.toNanos(maxAge);
+    }
+    
+    @Override
+    public void setMemoryBudget(long memoryBudget)
+    {
+        if (memoryBudget < 0)
+        {
+            throw new IllegalArgumentException(
+                "The memory budget may not be negative, but is " + 
+                memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+    }
+    
+    @Override
+    public long getHits()
+    {
+        return hits;
+    }
+    
+    @Override
+    public long getMisses()
+    {
+        return misses;
+    }
+    
+    @Override
+    public long getEvictions()
+    {
+        return evictions;
+    }
+    
+    @Override
+    public int getNumPooled()
+    {
+        return numPooled;
+    }
+    
+    @Override
+    public long getPooledBytes()
+    {
+        return pooledBytes;
+    }
+    
+    @Override
+    public void trim()
+    {
+        long now = System.nanoTime();
+        Iterator<Entry<U>> iterator = entriesByAge.iterator();
+        while (iterator.hasNext())
+        {
+            Entry<U> entry = iterator.next();
+            if (now - entry.time <= maxAgeNs && pooledBytes <= memoryBudget)
+            {
+                break;
+            }
+            iterator.remove();
+            evict(entry);
+        }
+    }
+    
+    @Override
+    public void clear()
+    {
+        Iterator<Entry<U>> iterator = entriesByAge.iterator();
+        while (iterator.hasNext())
+        {
+            Entry<U> entry = iterator.next();
+            iterator.remove();
+            evict(entry);
+        }
+    }
+    
+    /**
+     * Remove the given entry from the map of entries, and destroy
+     * its representation
+     * 
+     * @param entry The entry
+     */
+    private void evict(Entry<U> entry)
+    {
+        Deque<Entry<U>> deque = entries.get(entry.key);
+        deque.remove(entry);
+        if (deque.isEmpty())
+        {
+            entries.remove(entry.key);
+        }
+        numPooled--;
+        pooledBytes -= entry.size;
+        evictions++;
+        destroyer.accept(entry.value);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "DefaultFrameBufferPool[" +
+            "hits=" + hits + "," +
+            "misses=" + misses + "," +
+            "evictions=" + evictions + "," +
+            "numPooled=" + numPooled + "," +
+            "pooledBytes=" + pooledBytes + "]";
+    }
+}
@@ -28,6 +28,7 @@
 package de.javagl.rendering.core.handling;
 
 import de.javagl.rendering.core.FrameBuffer;
+import de.javagl.rendering.core.FrameCapture;
 
 /**
  * A class that is a {@link Handler} for 
@@ -49,4 +50,63 @@ public interface FrameBufferHandler<U> extends Handler<FrameBuffer, U>
      */
     void setFrameBufferActive(FrameBuffer frameBuffer);
     
+    /**
+     * Request the current contents of the given {@link FrameBuffer} to 
+     * be captured with the given {@link FrameCapture}. When the given 
+     * {@link FrameBuffer} is <code>null</code>, then the contents of 
+     * the current viewport of the default frame buffer are captured.
+     * <br>
+     * <br>
+     * The transfer of the pixels is only started by this call. The 
+     * pixels will be fetched in one of the subsequent calls to 
+     * {@link #processCaptures()}, when the transfer has been completed.
+     * When all buffers of the {@link FrameCapture} are still in flight,
+     * then the request is skipped.
+     * 
+     * @param frameBuffer The {@link FrameBuffer}
+     * @param frameCapture The {@link FrameCapture}
+     */
+    void capture(FrameBuffer frameBuffer, FrameCapture frameCapture);
+    
+    /**
+     * Fetch the pixels of all captures whose transfer has been completed,
+     * and {@link FrameCapture#deliver deliver} them to the respective
+     * {@link FrameCapture}. This method is called by the rendering 
+     * environment once per frame.
+     */
+    void processCaptures();
+    
+    /**
+     * Returns whether there are captures whose transfer has been started,
+     * but whose pixels have not yet been delivered by 
+     * {@link #processCaptures()}. While this is the case, the rendering 
+     * environment has to render further frames, even when nothing else
+     * has changed.<br>
+     * <br>
+     * The default implementation returns <code>false</code>.
+     * 
+     * @return Whether there are pending captures
+     */
+    default boolean hasPendingCaptures()
+    {
+        return false;
+    }
+    
+    /**
+     * Release all resources that have been allocated for the given
+     * {@link FrameCapture}. Captures that are still in flight will 
+     * be discarded.
+     * 
+     * @param frameCapture The {@link FrameCapture}
+     */
+    void releaseCapture(FrameCapture frameCapture);
+    
+    /**
+     * Returns the {@link FrameBufferPool} that keeps the internal 
+     * representations of released {@link FrameBuffer}s for reuse
+     * 
+     * @return The {@link FrameBufferPool}
+     */
+    FrameBufferPool getFrameBufferPool();
+    
 }
@@ -0,0 +1,121 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.handling;
+
+import java.util.concurrent.TimeUnit;
+
+import de.javagl.rendering.core.FrameBuffer;
+
+/**
+ * Interface for a pool of the internal representations of 
+ * {@link FrameBuffer} objects.<br>
+ * <br>
+ * When a {@link FrameBuffer} is released by a {@link FrameBufferHandler},
+ * then its internal representation is not destroyed immediately, but
+ * kept in this pool. When a {@link FrameBuffer} with the same size and
+ * format is handled later, then the pooled representation is reused. 
+ * Pooled representations are destroyed when they have not been reused
+ * within the maximum age, or when the total size of the pooled 
+ * representations exceeds the memory budget, starting with the ones 
+ * that have been pooled for the longest time. <br>
+ * <br>
+ * The pool is maintained on the rendering thread. The statistics may
+ * be queried from any thread.
+ */
+public interface FrameBufferPool
+{
+    /**
+     * Set the maximum time that a representation may stay in this pool
+     * before it is destroyed
+     * 
+     * @param maxAge The maximum age
+     * @param unit The unit of the maximum age
+     * @throws IllegalArgumentException If the maximum age is negative
+     */
+    void setMaxAge(long maxAge, TimeUnit unit);
+    
+    /**
+     * Set the maximum total size of the representations that are kept
+     * in this pool, in bytes. A budget of 0 disables the pooling.
+     * 
+     * @param memoryBudget The memory budget, in bytes
+     * @throws IllegalArgumentException If the budget is negative
+     */
+    void setMemoryBudget(long memoryBudget);
+    
+    /**
+     * Returns the number of times that a representation could be
+     * taken from this pool
+     * 
+     * @return The number of hits
+     */
+    long getHits();
+    
+    /**
+     * Returns the number of times that no matching representation
+     * was found in this pool, so that a new one had to be created
+     * 
+     * @return The number of misses
+     */
+    long getMisses();
+    
+    /**
+     * Returns the number of representations that have been destroyed
+     * due to their age or due to the memory budget
+     * 
+     * @return The number of evictions
+     */
+    long getEvictions();
+    
+    /**
+     * Returns the number of representations that are currently pooled
+     * 
+     * @return The number of pooled representations
+     */
+    int getNumPooled();
+    
+    /**
+     * Returns the total size of the representations that are currently
+     * pooled, in bytes
+     * 
+     * @return The pooled size
+     */
+    long getPooledBytes();
+    
+    /**
+     * Destroy the representations that exceed the maximum age or the 
+     * memory budget. This is called by the rendering environment once
+     * per frame.
+     */
+    void trim();
+    
+    /**
+     * Destroy all representations that are currently pooled
+     */
+    void clear();
+}
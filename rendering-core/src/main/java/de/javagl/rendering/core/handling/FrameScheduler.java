@@ -0,0 +1,548 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.handling;
+
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class that decides when frames are rendered, and collects timing
+ * information about the rendered frames.<br>
+ * <br>
+ * Requests for rendering a frame are passed to {@link #requestFrame()}.
+ * These requests are coalesced: When a frame was already requested and
+ * has not started yet, further requests are ignored. The actual 
+ * rendering is triggered with the <code>Runnable</code> that is given 
+ * in the constructor, usually by calling <code>repaint</code> on the
+ * rendering component.<br>
+ * <br>
+ * Depending on the {@link Mode}, frames are only rendered on demand, or
+ * additionally requested by a timer that runs at the 
+ * {@link #setTargetFps(double) target frame rate}.<br>
+ * <br>
+ * The rendering environment has to call {@link #frameStarted()} and
+ * {@link #frameFinished()} at the beginning and the end of each frame.
+ */
+public final class FrameScheduler
+{
+    /**
+     * The modes of a {@link FrameScheduler}
+     */
+    public static enum Mode
+    {
+        /**
+         * Frames are only rendered when they are requested
+         */
+        ON_DEMAND,
+        
+        /**
+         * Frames are rendered continuously, at the target frame rate
+         */
+        CONTINUOUS,
+        
+        /**
+         * Frames are rendered at the target frame rate while the scene is 
+         * {@link FrameScheduler#setAnimating(boolean) animating}, or
+         * frames have been requested recently, and only on demand 
+         * otherwise
+         */
+        ADAPTIVE
+    }
+    
+    /**
+     * The time, in nanoseconds, after which a pending frame request is
+     * considered to be lost, and a new request is passed on. This may
+     * happen when the rendering component is not visible, and does not
+     * respond to repaint requests.
+     */
+    private static final long STALE_REQUEST_NS = 1000000000L;
+    
+    /**
+     * The weight of a new sample in the exponential moving averages
+     */
+    private static final double SMOOTHING = 0.1;
+    
+    /**
+     * The runnable that actually triggers the rendering
+     */
+    private final Runnable repaint;
+    
+    /**
+     * The time stamp of the currently pending frame request, or 0 if no
+     * frame request is pending
+     */
+    private final AtomicLong pendingRequestNs;
+    
+    /**
+     * The executor for the timer
+     */
+    private ScheduledExecutorService executor;
+    
+    /**
+     * The future of the timer task
+     */
+    private ScheduledFuture<?> timerFuture;
+    
+    /**
+     * The current mode
+     */
+    private volatile Mode mode;
+    
+    /**
+     * The target frame rate
+     */
+    private volatile double targetFps;
+    
+    /**
+     * Whether the scene is currently animating
+     */
+    private volatile boolean animating;
+    
+    /**
+     * The time, in nanoseconds, for which frames will continue to be 
+     * rendered in {@link Mode#ADAPTIVE} mode after the last request
+     */
+    private volatile long idleTimeoutNs;
+    
+    /**
+     * The time stamp of the most recent call to {@link #requestFrame()}
+     */
+    private volatile long lastRequestNs;
+    
+    /**
+     * The number of requests that have been coalesced with pending ones
+     */
+    private final AtomicLong coalescedRequests;
+    
+    /**
+     * The number of frames that have been rendered
+     */
+    private volatile long frameCount;
+    
+    /**
+     * The time stamp of the start of the current frame
+     */
+    private long frameStartNs;
+    
+    /**
+     * The time stamp of the start of the previous frame
+     */
+    private long previousFrameStartNs;
+    
+    /**
+     * The average time that was spent for rendering a frame
+     */
+    private volatile double averageFrameTimeNs;
+    
+    /**
+     * The average time between the starts of two frames
+     */
+    private volatile double averageFrameIntervalNs;
+    
+    /**
+     * The average squared deviation of the frame interval from its average
+     */
+    private volatile double frameIntervalVarianceNs2;
+    
+    /**
+     * The maximum time between the starts of two frames
+     */
+    private volatile long maxFrameIntervalNs;
+    
+    /**
+     * Creates a new frame scheduler in {@link Mode#ON_DEMAND} mode, with
+     * a target frame rate of 60, and an idle timeout of 500 milliseconds
+     * 
+     * @param repaint The runnable that triggers the rendering of a frame
+     * @throws NullPointerException If the given runnable is 
+     * <code>null</code>
+     */
+    public FrameScheduler(Runnable repaint)
+    {
+        this.repaint = Objects.requireNonNull(repaint, 
+            "The repaint runnable may not be null");
+        this.pendingRequestNs = new AtomicLong();
+        this.coalescedRequests = new AtomicLong();
+        this.mode = Mode.ON_DEMAND;
+        this.targetFps = 60.0;
+        this.idleTimeoutNs = TimeUnit.MILLISECONDS.toNanos(500);
+    }
+    
+    /**
+     * Request the rendering of a frame. If a frame has already been 
+     * requested and has not been started yet, this call has no effect.
+     * This method may be called from any thread.
+     */
+    public void requestFrame()
+    {
+        long now = System.nanoTime();
+        lastRequestNs = now;
+        requestFrame(now);
+    }
+    
+    /**
+     * Request the rendering of a frame, coalescing it with a pending 
+     * request if there is one.
+     * 
+     * @param now The current time stamp
+     */
+    private void requestFrame(long now)
+    {
+        long pending = pendingRequestNs.get();
+        if (pending != 0 && now - pending < STALE_REQUEST_NS)
+        {
+            coalescedRequests.incrementAndGet();
+            return;
+        }
+        if (pendingRequestNs.compareAndSet(pending, now))
+        {
+            repaint.run();
+        }
+        else
+        {
+            coalescedRequests.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Set the mode of this scheduler
+     * 
+     * @param mode The {@link Mode}
+     * @throws NullPointerException If the mode is <code>null</code>
+     */
+    public synchronized void setMode(Mode mode)
+    {
+        this.mode = Objects.requireNonNull(mode, "The mode may not be null");
+        updateTimer();
+    }
+    
+    /**
+     * Returns the mode of this scheduler
+     * 
+     * @return The {@link Mode}
+     */
+    public Mode getMode()
+    {
+        return mode;
+    }
+    
+    /**
+     * Set the target frame rate for the {@link Mode#CONTINUOUS} and 
+     * {@link Mode#ADAPTIVE} modes
+     * 
+     * @param targetFps The target frame rate, in frames per second
+     * @throws IllegalArgumentException If the given value is not positive
+     */
+    public synchronized void setTargetFps(double targetFps)
+    {
+        if (!(targetFps > 0))
+        {
+            throw new IllegalArgumentException(
+                "The targetFps must be positive, but is " + targetFps);
+        }
+        this.targetFps = targetFps;
+        updateTimer();
+    }
+    
+    /**
+     * Returns the target frame rate
+     * 
+     * @return The target frame rate, in frames per second
+     */
+    public double getTargetFps()
+    {
+        return targetFps;
+    }
+    
+    /**
+     * Set whether the scene is currently animating. In 
+     * {@link Mode#ADAPTIVE} mode, frames will be rendered at the target
+     * frame rate while the scene is animating.
+     * 
+     * @param animating Whether the scene is animating
+     */
+    public void setAnimating(boolean animating)
+    {
+        this.animating = animating;
+    }
+    
+    /**
+     * Returns whether the scene is currently animating
+     * 
+     * @return Whether the scene is animating
+     */
+    public boolean isAnimating()
+    {
+        return animating;
+    }
+    
+    /**
+     * Set the time for which frames will continue to be rendered at the
+     * target frame rate after the last call to {@link #requestFrame()},
+     * in {@link Mode#ADAPTIVE} mode
+     * 
+     * @param idleTimeoutMs The idle timeout, in milliseconds
+     * @throws IllegalArgumentException If the given value is negative
+     */
+    public void setIdleTimeoutMs(long idleTimeoutMs)
+    {
+        if (idleTimeoutMs < 0)
+        {
+            throw new IllegalArgumentException(
+                "The idleTimeoutMs may not be negative, but is " + 
+                idleTimeoutMs);
+        }
+        this.idleTimeoutNs = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+    }
+    
+    /**
+     * Start, restart or stop the timer, depending on the current mode
+     */
+    private void updateTimer()
+    {
+        if (timerFuture != null)
+        {
+            timerFuture.cancel(false);
+            timerFuture = null;
+        }
+        if (mode == Mode.ON_DEMAND)
+        {
+            if (executor != null)
+            {
+                executor.shutdown();
+                executor = null;
+            }
+            return;
+        }
+        if (executor == null)
+        {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> 
+            {
+                Thread thread = new Thread(r, "FrameScheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        long periodNs = Math.max(1, (long)(1e9 / targetFps));
+        timerFuture = executor.scheduleAtFixedRate(
+            this::tick, 0, periodNs, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Called by the timer, to request a frame if necessary
+     */
+    private void tick()
+    {
+        long now = System.nanoTime();
+        if (mode == Mode.CONTINUOUS)
+        {
+            requestFrame(now);
+        }
+        else if (mode == Mode.ADAPTIVE)
+        {
+            if (animating || now - lastRequestNs < idleTimeoutNs)
+            {
+                requestFrame(now);
+            }
+        }
+    }
+    
+    /**
+     * Stop the timer of this scheduler. This may be called when the 
+     * rendering environment is no longer used. Afterwards, the
+     * scheduler will be in {@link Mode#ON_DEMAND} mode.
+     */
+    public void shutdown()
+    {
+        setMode(Mode.ON_DEMAND);
+    }
+    
+    /**
+     * Has to be called by the rendering environment, on the rendering 
+     * thread, at the beginning of each frame. Frames that are requested 
+     * after this call will cause another frame to be rendered.
+     */
+    public void frameStarted()
+    {
+        pendingRequestNs.set(0);
+        frameStartNs = System.nanoTime();
+        if (previousFrameStartNs != 0)
+        {
+            long intervalNs = frameStartNs - previousFrameStartNs;
+            double deviation = intervalNs - averageFrameIntervalNs;
+            if (frameCount <= 1)
+            {
+                averageFrameIntervalNs = intervalNs;
+                frameIntervalVarianceNs2 = 0;
+            }
+            else
+            {
+                averageFrameIntervalNs += SMOOTHING * deviation;
+                frameIntervalVarianceNs2 = (1 - SMOOTHING) * 
+                    (frameIntervalVarianceNs2 + 
+                        SMOOTHING * deviation * deviation);
+            }
+            maxFrameIntervalNs = Math.max(maxFrameIntervalNs, intervalNs);
+        }
+        previousFrameStartNs = frameStartNs;
+    }
+    
+    /**
+     * Has to be called by the rendering environment, on the rendering 
+     * thread, at the end of each frame
+     */
+    public void frameFinished()
+    {
+        long frameTimeNs = System.nanoTime() - frameStartNs;
+        if (frameCount == 0)
+        {
+            averageFrameTimeNs = frameTimeNs;
+        }
+        else
+        {
+            averageFrameTimeNs += 
+                SMOOTHING * (frameTimeNs - averageFrameTimeNs);
+        }
+        frameCount++;
+    }
+    
+    /**
+     * Returns the number of frames that have been rendered since the
+     * creation of this scheduler, or the last call to 
+     * {@link #resetStatistics()}
+     * 
+     * @return The number of frames
+     */
+    public long getFrameCount()
+    {
+        return frameCount;
+    }
+    
+    /**
+     * Returns the number of requests that have been coalesced with 
+     * pending requests, and thus did not cause an additional frame
+     * 
+     * @return The number of coalesced requests
+     */
+    public long getCoalescedRequestCount()
+    {
+        return coalescedRequests.get();
+    }
+    
+    /**
+     * Returns the (exponentially smoothed) average time that was spent 
+     * for rendering a frame
+     * 
+     * @return The average frame time, in milliseconds
+     */
+    public double getAverageFrameTimeMs()
+    {
+        return averageFrameTimeNs * 1e-6;
+    }
+    
+    /**
+     * Returns the (exponentially smoothed) average time between the 
+     * starts of two consecutive frames
+     * 
+     * @return The average frame interval, in milliseconds
+     */
+    public double getAverageFrameIntervalMs()
+    {
+        return averageFrameIntervalNs * 1e-6;
+    }
+    
+    /**
+     * Returns the (exponentially smoothed) standard deviation of the 
+     * time between the starts of two consecutive frames. Small values 
+     * indicate an even frame pacing.
+     * 
+     * @return The frame interval jitter, in milliseconds
+     */
+    public double getFrameIntervalJitterMs()
+    {
+        return Math.sqrt(frameIntervalVarianceNs2) * 1e-6;
+    }
+    
+    /**
+     * Returns the maximum time between the starts of two consecutive 
+     * frames
+     * 
+     * @return The maximum frame interval, in milliseconds
+     */
+    public double getMaxFrameIntervalMs()
+    {
+        return maxFrameIntervalNs * 1e-6;
+    }
+    
+    /**
+     * Returns the frame rate that results from the 
+     * {@link #getAverageFrameIntervalMs() average frame interval}
+     * 
+     * @return The frame rate, in frames per second
+     */
+    public double getAverageFps()
+    {
+        double intervalNs = averageFrameIntervalNs;
+        if (intervalNs <= 0)
+        {
+            return 0.0;
+        }
+        return 1e9 / intervalNs;
+    }
+    
+    /**
+     * Reset all statistics of this scheduler. This should be called 
+     * on the rendering thread.
+     */
+    public void resetStatistics()
+    {
+        coalescedRequests.set(0);
+        frameCount = 0;
+        previousFrameStartNs = 0;
+        averageFrameTimeNs = 0;
+        averageFrameIntervalNs = 0;
+        frameIntervalVarianceNs2 = 0;
+        maxFrameIntervalNs = 0;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "FrameScheduler[" + 
+            "mode=" + mode + 
+            ",targetFps=" + targetFps + 
+            ",frameCount=" + frameCount + 
+            ",averageFrameTimeMs=" + getAverageFrameTimeMs() + 
+            ",averageFrameIntervalMs=" + getAverageFrameIntervalMs() + 
+            "]";
+    }
+}
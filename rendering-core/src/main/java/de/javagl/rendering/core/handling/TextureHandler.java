@@ -27,7 +27,10 @@
 
 package de.javagl.rendering.core.handling;
 
+import java.util.List;
+
 import de.javagl.rendering.core.FrameBuffer;
+import de.javagl.rendering.core.ImageRegion;
 import de.javagl.rendering.core.ImageTexture;
 import de.javagl.rendering.core.Texture;
 
@@ -43,13 +46,15 @@ public interface TextureHandler<U> extends Handler<Texture, U>
 {
     /**
      * Updates the specified region of the internal representation
-     * of the given {@link ImageTexture}.
+     * of the given {@link ImageTexture}. The region is clipped to 
+     * the bounds of the texture.
      * 
      * @param texture The {@link Texture}
      * @param x The x coordinate
      * @param y The y coordinate 
      * @param w The width
      * @param h The height
+     * @throws IllegalArgumentException If the width or height is negative
      */
     void updateImageTexture(ImageTexture texture, int x, int y, int w, int h);
     
@@ -60,6 +65,45 @@ public interface TextureHandler<U> extends Handler<Texture, U>
      */
     void updateImageTexture(ImageTexture texture);
     
+    /**
+     * Update the internal representation of the given {@link ImageTexture}
+     * for all regions that have been 
+     * {@link ImageTexture#markDirty(int, int, int, int) marked as dirty}
+     * since the last call to this method. This is called by the 
+     * renderer before the texture is used.<br>
+     * <br>
+     * The default implementation fetches the dirty regions of the given
+     * texture. If there is a single region that covers the whole texture,
+     * then {@link #updateImageTexture(ImageTexture)} is called. Otherwise,
+     * {@link #updateImageTexture(ImageTexture, int, int, int, int)} is 
+     * called for each region.
+     * 
+     * @param texture The {@link ImageTexture}
+     */
+    default void validate(ImageTexture texture)
+    {
+        List<ImageRegion> regions = texture.fetchDirtyRegions();
+        if (regions.isEmpty())
+        {
+            return;
+        }
+        if (regions.size() == 1)
+        {
+            ImageRegion region = regions.get(0);
+            if (region.getWidth() == texture.getWidth() &&
+                region.getHeight() == texture.getHeight())
+            {
+                updateImageTexture(texture);
+                return;
+            }
+        }
+        for (ImageRegion region : regions)
+        {
+            updateImageTexture(texture, region.getX(), region.getY(), 
+                region.getWidth(), region.getHeight());
+        }
+    }
+    
     /**
      * Returns the {@link FrameBufferHandler} that may be used to handle
      * {@link FrameBuffer} instances
@@ -108,6 +108,43 @@ public class Lights
         return light;
     }
     
+    /**
+     * Creates a new {@link Light} that has the same type and the same 
+     * properties as the given one. The listeners of the given light are 
+     * not copied.
+     * 
+     * @param light The {@link Light}
+     * @return The new {@link Light}
+     */
+    public static Light copy(Light light)
+    {
+        Light result = new DefaultLight(light.getType());
+        copy(light, result);
+        return result;
+    }
+    
+    /**
+     * Copies all properties of the given source {@link Light} into the 
+     * given target {@link Light}. The {@link LightType} of the target
+     * remains unaffected.
+     * 
+     * @param source The source {@link Light}
+     * @param target The target {@link Light}
+     */
+    public static void copy(Light source, Light target)
+    {
+        target.setAmbientColor(source.getAmbientColor());
+        target.setDiffuseColor(source.getDiffuseColor());
+        target.setSpecularColor(source.getSpecularColor());
+        target.setPosition(source.getPosition());
+        target.setDirection(source.getDirection());
+        target.setConstantAttenuation(source.getConstantAttenuation());
+        target.setLinearAttenuation(source.getLinearAttenuation());
+        target.setQuadraticAttenuation(source.getQuadraticAttenuation());
+        target.setSpotCutoffDeg(source.getSpotCutoffDeg());
+        target.setSpotExponent(source.getSpotExponent());
+    }
+    
     /**
      * Private constructor to prevent instantiation
      */
@@ -48,6 +48,36 @@ public class Materials
         return new DefaultMaterial();
     }
 
+    /**
+     * Creates a new {@link Material} that has the same properties as the
+     * given one. The listeners of the given material are not copied.
+     * 
+     * @param material The {@link Material}
+     * @return The new {@link Material}
+     */
+    public static Material copy(Material material)
+    {
+        Material result = new DefaultMaterial();
+        copy(material, result);
+        return result;
+    }
+    
+    /**
+     * Copies all properties of the given source {@link Material} into 
+     * the given target {@link Material}.
+     * 
+     * @param source The source {@link Material}
+     * @param target The target {@link Material}
+     */
+    public static void copy(Material source, Material target)
+    {
+        target.setAmbientColor(source.getAmbientColor());
+        target.setDiffuseColor(source.getDiffuseColor());
+        target.setSpecularColor(source.getSpecularColor());
+        target.setEmissionColor(source.getEmissionColor());
+        target.setShininess(source.getShininess());
+    }
+
     /**
      * Private constructor to prevent instantiation
      */
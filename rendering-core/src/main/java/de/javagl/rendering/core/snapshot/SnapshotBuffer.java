@@ -0,0 +1,209 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.snapshot;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A buffer for passing consistent snapshots of an object from one 
+ * producer thread to the rendering thread, without locking.<br>
+ * <br>
+ * The buffer internally maintains three instances of the object. The 
+ * producer thread modifies the {@link #getWriteBuffer() write buffer}, 
+ * and calls {@link #publish()} when the write buffer is in a consistent
+ * state. The rendering thread calls {@link #acquire()} at the beginning
+ * of each frame, and then reads the most recently published state via
+ * {@link #get()}. The producer and the rendering thread never access the
+ * same instance concurrently, except for reading. Both operations only
+ * consist of a single atomic exchange, plus one copy operation on the 
+ * producer side.<br>
+ * <br>
+ * Note that the instance that is returned by {@link #get()} changes 
+ * after a new snapshot has been acquired. Clients should therefore not
+ * store this instance, but call {@link #get()} whenever it is needed.
+ * For example, a <code>SnapshotBuffer&lt;Matrix4f&gt;</code> may directly
+ * be used as a matrix supplier for the render commands. In order to 
+ * transfer the snapshots into a fixed instance, a command that is created
+ * with {@link SnapshotBuffers#createTransferCommand} may be used.<br>
+ * <br>
+ * Instances of this class may only be used by one producer thread 
+ * and one rendering thread.
+ *
+ * @param <T> The type of the buffered objects
+ */
+public final class SnapshotBuffer<T> implements Supplier<T>
+{
+    /**
+     * The flag that indicates that the buffer that is exchanged between
+     * the producer and the rendering thread contains a new snapshot
+     */
+    private static final int FRESH = 4;
+    
+    /**
+     * The mask for the index of the buffer that is exchanged between
+     * the producer and the rendering thread
+     */
+    private static final int INDEX_MASK = 3;
+    
+    /**
+     * The buffers
+     */
+    private final Object buffers[];
+    
+    /**
+     * The function that copies the state from a source into a target
+     */
+    private final BiConsumer<? super T, ? super T> copier;
+    
+    /**
+     * The index of the write buffer. Only accessed by the producer.
+     */
+    private int writeIndex;
+    
+    /**
+     * The index of the read buffer. Only accessed by the rendering thread.
+     */
+    private int readIndex;
+    
+    /**
+     * The index of the buffer that is currently exchanged between the
+     * producer and the rendering thread, combined with the
+     * {@link #FRESH} flag
+     */
+    private final AtomicInteger exchange;
+    
+    /**
+     * Creates a new snapshot buffer.<br>
+     * <br>
+     * The given factory will be called three times, to create the 
+     * instances for the write buffer, the read buffer and the exchanged
+     * buffer. These instances should all have the same state. The given 
+     * copier will be called as <code>copier.accept(source, target)</code>,
+     * and must copy the complete state of the source into the target.
+     * 
+     * @param factory The factory for the buffered instances
+     * @param copier The function that copies a source into a target
+     * @throws NullPointerException If any argument is <code>null</code>
+     */
+    public SnapshotBuffer(
+        Supplier<? extends T> factory, 
+        BiConsumer<? super T, ? super T> copier)
+    {
+        Objects.requireNonNull(factory, "The factory may not be null");
+        this.copier = Objects.requireNonNull(copier, 
+            "The copier may not be null");
+        this.buffers = new Object[3];
+        for (int i = 0; i < buffers.length; i++)
+        {
+            buffers[i] = Objects.requireNonNull(factory.get(),
+                "The factory returned null");
+        }
+        this.writeIndex = 0;
+        this.readIndex = 1;
+        this.exchange = new AtomicInteger(2);
+    }
+    
+    /**
+     * Returns the write buffer. This may only be called by the producer 
+     * thread. The returned instance may be modified, and the modifications
+     * will become visible for the rendering thread after the next call to
+     * {@link #publish()}.
+     * 
+     * @return The write buffer
+     */
+    public T getWriteBuffer()
+    {
+        return buffer(writeIndex);
+    }
+    
+    /**
+     * Publish the current state of the write buffer. This may only be
+     * called by the producer thread. The current write buffer will be 
+     * handed over to the rendering thread, and a new write buffer will
+     * be initialized with the published state.
+     */
+    public void publish()
+    {
+        int published = writeIndex;
+        int previous = exchange.getAndSet(published | FRESH);
+        writeIndex = previous & INDEX_MASK;
+        copier.accept(buffer(published), buffer(writeIndex));
+    }
+    
+    /**
+     * Acquire the most recently published snapshot, if there is a new one.
+     * This may only be called by the rendering thread, usually at the 
+     * beginning of a frame. 
+     * 
+     * @return Whether a new snapshot was acquired
+     */
+    public boolean acquire()
+    {
+        if ((exchange.get() & FRESH) == 0)
+        {
+            return false;
+        }
+        int previous = exchange.getAndSet(readIndex);
+        readIndex = previous & INDEX_MASK;
+        return true;
+    }
+    
+    /**
+     * Returns the snapshot that was obtained with the most recent call 
+     * to {@link #acquire()}. This may only be called by the rendering 
+     * thread, and the returned instance may not be modified.
+     * 
+     * @return The current snapshot
+     */
+    @Override
+    public T get()
+    {
+        return buffer(readIndex);
+    }
+    
+    /**
+     * Returns the buffer with the given index
+     * 
+     * @param index The index
+     * @return The buffer
+     */
+    @SuppressWarnings("unchecked")
+    private T buffer(int index)
+    {
+        return (T)buffers[index];
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "SnapshotBuffer[" + get() + "]";
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.snapshot;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import javax.vecmath.Matrix4f;
+
+import de.javagl.rendering.core.Command;
+import de.javagl.rendering.core.Renderer;
+import de.javagl.rendering.core.light.Light;
+import de.javagl.rendering.core.light.Lights;
+import de.javagl.rendering.core.material.Material;
+import de.javagl.rendering.core.material.Materials;
+import de.javagl.rendering.core.view.Camera;
+import de.javagl.rendering.core.view.Cameras;
+
+/**
+ * Methods for creating {@link SnapshotBuffer} instances and the 
+ * {@link Command}s that acquire their snapshots.
+ */
+public class SnapshotBuffers
+{
+    /**
+     * Creates a new {@link SnapshotBuffer} for matrices. The buffered 
+     * matrices will initially be identity matrices. The returned 
+     * buffer may be used as the matrix supplier for render commands.
+     * 
+     * @return The {@link SnapshotBuffer}
+     */
+    public static SnapshotBuffer<Matrix4f> createMatrixBuffer()
+    {
+        return new SnapshotBuffer<Matrix4f>(
+            () -> 
+            {
+                Matrix4f m = new Matrix4f();
+                m.setIdentity();
+                return m;
+            },
+            (s, t) -> t.set(s));
+    }
+    
+    /**
+     * Creates a new {@link SnapshotBuffer} for {@link Light}s. The 
+     * buffered instances will initially be copies of the given 
+     * {@link Light}.
+     * 
+     * @param light The {@link Light}
+     * @return The {@link SnapshotBuffer}
+     * @throws NullPointerException If the given light is <code>null</code>
+     */
+    public static SnapshotBuffer<Light> createLightBuffer(Light light)
+    {
+        Objects.requireNonNull(light, "The light may not be null");
+        return new SnapshotBuffer<Light>(
+            () -> Lights.copy(light), Lights::copy);
+    }
+    
+    /**
+     * Creates a new {@link SnapshotBuffer} for {@link Material}s. The 
+     * buffered instances will initially be copies of the given 
+     * {@link Material}.
+     * 
+     * @param material The {@link Material}
+     * @return The {@link SnapshotBuffer}
+     * @throws NullPointerException If the given material is 
+     * <code>null</code>
+     */
+    public static SnapshotBuffer<Material> createMaterialBuffer(
+        Material material)
+    {
+        Objects.requireNonNull(material, "The material may not be null");
+        return new SnapshotBuffer<Material>(
+            () -> Materials.copy(material), Materials::copy);
+    }
+    
+    /**
+     * Creates a new {@link SnapshotBuffer} for {@link Camera}s. The 
+     * buffered instances will initially be copies of the given 
+     * {@link Camera}.
+     * 
+     * @param camera The {@link Camera}
+     * @return The {@link SnapshotBuffer}
+     * @throws NullPointerException If the given camera is <code>null</code>
+     */
+    public static SnapshotBuffer<Camera> createCameraBuffer(Camera camera)
+    {
+        Objects.requireNonNull(camera, "The camera may not be null");
+        return new SnapshotBuffer<Camera>(
+            () -> Cameras.copy(camera), Cameras::copy);
+    }
+    
+    /**
+     * Creates a {@link Command} that calls {@link SnapshotBuffer#acquire()}
+     * on all the given buffers. This command should be executed at the 
+     * beginning of each frame, before any command that reads from one of 
+     * the buffers.
+     * 
+     * @param snapshotBuffers The {@link SnapshotBuffer}s
+     * @return The {@link Command}
+     */
+    public static Command createAcquireCommand(
+        SnapshotBuffer<?> ... snapshotBuffers)
+    {
+        SnapshotBuffer<?> buffers[] = 
+            Arrays.copyOf(snapshotBuffers, snapshotBuffers.length);
+        return new Command()
+        {
+            @Override
+            public void execute(Renderer renderer)
+            {
+                for (SnapshotBuffer<?> buffer : buffers)
+                {
+                    buffer.acquire();
+                }
+            }
+            
+            @Override
+            public String toString()
+            {
+                return "acquire(" + Arrays.toString(buffers) + ")";
+            }
+        };
+    }
+    
+    /**
+     * Creates a {@link Command} that calls {@link SnapshotBuffer#acquire()}
+     * on the given buffer, and when a new snapshot was acquired, copies 
+     * it into the given target, using the given copier. This may be used
+     * for transferring the snapshots into objects that are referred to
+     * by other commands, for example, the {@link Light}s of a 
+     * <code>LightSetup</code> that is applied with 
+     * <code>Commands.setLightSetup</code>. This command should be executed
+     * at the beginning of each frame. The target should only be accessed
+     * by the rendering thread.
+     * 
+     * @param <T> The type of the objects
+     * @param snapshotBuffer The {@link SnapshotBuffer}
+     * @param target The target object
+     * @param copier The function that copies a source into a target
+     * @return The {@link Command}
+     * @throws NullPointerException If any argument is <code>null</code>
+     */
+    public static <T> Command createTransferCommand(
+        SnapshotBuffer<? extends T> snapshotBuffer, T target,
+        BiConsumer<? super T, ? super T> copier)
+    {
+        Objects.requireNonNull(snapshotBuffer, 
+            "The snapshotBuffer may not be null");
+        Objects.requireNonNull(target, "The target may not be null");
+        Objects.requireNonNull(copier, "The copier may not be null");
+        return new Command()
+        {
+            @Override
+            public void execute(Renderer renderer)
+            {
+                if (snapshotBuffer.acquire())
+                {
+                    copier.accept(snapshotBuffer.get(), target);
+                }
+            }
+            
+            @Override
+            public String toString()
+            {
+                return "transfer(" + 
+                    "snapshotBuffer=" + snapshotBuffer + ", " + 
+                    "target=" + target + ")";
+            }
+        };
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private SnapshotBuffers()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Classes for passing consistent snapshots of mutable state from 
+ * other threads to the rendering thread.
+ */
+package de.javagl.rendering.core.snapshot;
+
@@ -30,6 +30,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 
 /**
  * Utility methods for buffers
@@ -75,6 +76,17 @@ public class BufferUtils
         return createByteBuffer(size * 4).asFloatBuffer();
     }
 
+    /**
+     * Create a direct short buffer with the given size
+     * 
+     * @param size The size of the buffer
+     * @return The buffer
+     */
+    public static ShortBuffer createShortBuffer(int size)
+    {
+        return createByteBuffer(size * 2).asShortBuffer();
+    }
+
     /**
      * Create a direct int buffer with the given size
      * 
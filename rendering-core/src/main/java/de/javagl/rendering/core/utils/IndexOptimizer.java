@@ -0,0 +1,507 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.utils;
+
+import java.util.Arrays;
+
+/**
+ * Methods for optimizing the order of triangle indices and vertices
+ * for rendering. The methods operate on plain arrays, where each 
+ * consecutive 3 indices describe one triangle.<br>
+ * <br>
+ * The {@link #optimizeVertexCache(int[], int)} method reorders the
+ * triangles to improve the hit rate of the post-transform vertex cache,
+ * using the algorithm by Tom Forsyth ("Linear-Speed Vertex Cache 
+ * Optimisation"). The {@link #optimizeOverdraw(int[], float[])} method 
+ * then reorders clusters of these triangles so that triangles that 
+ * are likely to occlude others are drawn first. Finally, the vertices
+ * may be reordered in the order of their first use, as computed by 
+ * {@link #computeVertexFetchRemapping(int[], int)}, to improve the 
+ * memory access locality. The quality of the triangle order may be 
+ * measured with {@link #computeAcmr(int[], int)}.
+ */
+public class IndexOptimizer
+{
+    /**
+     * The size of the vertex cache that is assumed by the Forsyth 
+     * algorithm
+     */
+    private static final int CACHE_SIZE = 32;
+    
+    /**
+     * The exponent for the decay of the cache position score
+     */
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    
+    /**
+     * The score for vertices that have been used by the last triangle
+     */
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    
+    /**
+     * The scale for the valence score
+     */
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    
+    /**
+     * The exponent for the valence score
+     */
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+    
+    /**
+     * The size of the FIFO cache that is used for detecting cluster
+     * boundaries in {@link #optimizeOverdraw(int[], float[])}
+     */
+    private static final int CLUSTER_CACHE_SIZE = 16;
+    
+    /**
+     * Computes the average cache miss ratio (ACMR) for the given indices,
+     * which is the number of vertex cache misses per triangle, for a 
+     * FIFO cache with the given size. The result is between 0.5 (which 
+     * can only be achieved for very large regular meshes) and 3.0
+     * 
+     * @param indices The indices
+     * @param cacheSize The cache size
+     * @return The ACMR
+     * @throws IllegalArgumentException If the cache size is not positive
+     */
+    public static float computeAcmr(int indices[], int cacheSize)
+    {
+        if (cacheSize <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The cacheSize must be positive, but is " + cacheSize);
+        }
+        int numTriangles = indices.length / 3;
+        if (numTriangles == 0)
+        {
+            return 0.0f;
+        }
+        int numVertices = 0;
+        for (int i = 0; i < numTriangles * 3; i++)
+        {
+            numVertices = Math.max(numVertices, indices[i] + 1);
+        }
+        
+        // The time stamp at which each vertex entered the cache. A vertex
+        // is in the cache if less than cacheSize misses happened since then
+        int timeStamps[] = new int[numVertices];
+        int time = cacheSize + 1;
+        int misses = 0;
+        for (int i = 0; i < numTriangles * 3; i++)
+        {
+            int index = indices[i];
+            if (time - timeStamps[index] > cacheSize)
+            {
+                timeStamps[index] = time;
+                time++;
+                misses++;
+            }
+        }
+        return (float)misses / numTriangles;
+    }
+    
+    /**
+     * Reorders the triangles of the given indices to improve the hit rate 
+     * of the post-transform vertex cache, and returns the result as a 
+     * new array.
+     * 
+     * @param indices The indices
+     * @param numVertices The number of vertices
+     * @return The reordered indices
+     * @throws IllegalArgumentException If any index is negative or not
+     * smaller than the number of vertices
+     */
+    public static int[] optimizeVertexCache(int indices[], int numVertices)
+    {
+        int numTriangles = indices.length / 3;
+        int result[] = new int[numTriangles * 3];
+        if (numTriangles == 0)
+        {
+            return result;
+        }
+        
+        // Build the vertex-to-triangle adjacency, and initialize the
+        // number of remaining triangles of each vertex
+        int offsets[] = new int[numVertices + 1];
+        for (int i = 0; i < numTriangles * 3; i++)
+        {
+            int index = indices[i];
+            if (index < 0 || index >= numVertices)
+            {
+                throw new IllegalArgumentException(
+                    "Index " + index + " is not valid for " + 
+                    numVertices + " vertices");
+            }
+            offsets[index + 1]++;
+        }
+        for (int v = 0; v < numVertices; v++)
+        {
+            offsets[v + 1] += offsets[v];
+        }
+        int adjacentTriangles[] = new int[numTriangles * 3];
+        int remaining[] = new int[numVertices];
+        for (int i = 0; i < numTriangles * 3; i++)
+        {
+            int index = indices[i];
+            adjacentTriangles[offsets[index] + remaining[index]] = i / 3;
+            remaining[index]++;
+        }
+        
+        float vertexScores[] = new float[numVertices];
+        for (int v = 0; v < numVertices; v++)
+        {
+            vertexScores[v] = computeVertexScore(-1, remaining[v]);
+        }
+        float triangleScores[] = new float[numTriangles];
+        boolean emitted[] = new boolean[numTriangles];
+        for (int t = 0; t < numTriangles; t++)
+        {
+            triangleScores[t] = 
+                vertexScores[indices[t * 3 + 0]] + 
+                vertexScores[indices[t * 3 + 1]] + 
+                vertexScores[indices[t * 3 + 2]];
+        }
+        
+        int cache[] = new int[CACHE_SIZE + 3];
+        int newCache[] = new int[CACHE_SIZE + 3];
+        int cacheSize = 0;
+        int bestTriangle = -1;
+        float bestScore = -1.0f;
+        for (int t = 0; t < numTriangles; t++)
+        {
+            if (triangleScores[t] > bestScore)
+            {
+                bestScore = triangleScores[t];
+                bestTriangle = t;
+            }
+        }
+        int scanPosition = 0;
+        for (int n = 0; n < numTriangles; n++)
+        {
+            if (bestTriangle == -1)
+            {
+                // No candidate among the triangles of the vertices in
+                // the cache: Continue with the next remaining triangle
+                while (emitted[scanPosition])
+                {
+                    scanPosition++;
+                }
+                bestTriangle = scanPosition;
+            }
+            int t = bestTriangle;
+            emitted[t] = true;
+            
+            // Emit the triangle, and move its vertices to the 
+            // front of the cache
+            int newCacheSize = 0;
+            for (int k = 0; k < 3; k++)
+            {
+                int v = indices[t * 3 + k];
+                result[n * 3 + k] = v;
+                newCache[newCacheSize++] = v;
+                
+                // Remove the triangle from the adjacency of the vertex
+                int last = offsets[v] + remaining[v] - 1;
+                for (int j = offsets[v]; j <= last; j++)
+                {
+                    if (adjacentTriangles[j] == t)
+                    {
+                        adjacentTriangles[j] = adjacentTriangles[last];
+                        break;
+                    }
+                }
+                remaining[v]--;
+            }
+            for (int c = 0; c < cacheSize; c++)
+            {
+                int v = cache[c];
+                if (v != indices[t * 3 + 0] && 
+                    v != indices[t * 3 + 1] && 
+                    v != indices[t * 3 + 2])
+                {
+                    newCache[newCacheSize++] = v;
+                }
+            }
+            int temp[] = cache;
+            cache = newCache;
+            newCache = temp;
+            cacheSize = newCacheSize;
+            
+            // Update the scores of the vertices that are (or have
+            // just been) in the cache, and of their triangles
+            for (int c = 0; c < cacheSize; c++)
+            {
+                int v = cache[c];
+                int position = c < CACHE_SIZE ? c : -1;
+                float newScore = computeVertexScore(position, remaining[v]);
+                float delta = newScore - vertexScores[v];
+                vertexScores[v] = newScore;
+                for (int j = offsets[v]; j < offsets[v] + remaining[v]; j++)
+                {
+                    triangleScores[adjacentTriangles[j]] += delta;
+                }
+            }
+            cacheSize = Math.min(cacheSize, CACHE_SIZE);
+            
+            // Find the best triangle among the triangles of the
+            // vertices that are in the cache
+            bestTriangle = -1;
+            bestScore = -1.0f;
+            for (int c = 0; c < cacheSize; c++)
+            {
+                int v = cache[c];
+                for (int j = offsets[v]; j < offsets[v] + remaining[v]; j++)
+                {
+                    int a = adjacentTriangles[j];
+                    if (triangleScores[a] > bestScore)
+                    {
+                        bestScore = triangleScores[a];
+                        bestTriangle = a;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Computes the score of a vertex, as described by Tom Forsyth
+     * 
+     * @param cachePosition The position of the vertex in the cache, 
+     * or -1 if it is not in the cache
+     * @param remainingTriangles The number of triangles that use this
+     * vertex and have not been emitted yet
+     * @return The score
+     */
+    private static float computeVertexScore(
+        int cachePosition, int remainingTriangles)
+    {
+        if (remainingTriangles == 0)
+        {
+            return -1.0f;
+        }
+        float score = 0.0f;
+        if (cachePosition >= 0)
+        {
+            if (cachePosition < 3)
+            {
+                score = LAST_TRIANGLE_SCORE;
+            }
+            else
+            {
+                float scale = 1.0f / (CACHE_SIZE - 3);
+                score = 1.0f - (cachePosition - 3) * scale;
+                score = (float)Math.pow(score, CACHE_DECAY_POWER);
+            }
+        }
+        float valenceBoost = 
+            (float)Math.pow(remainingTriangles, -VALENCE_BOOST_POWER);
+        score += VALENCE_BOOST_SCALE * valenceBoost;
+        return score;
+    }
+    
+    /**
+     * Reorders clusters of triangles of the given indices, so that 
+     * clusters that are facing outwards are drawn first, in order to 
+     * reduce overdraw. The indices should already have been optimized
+     * with {@link #optimizeVertexCache(int[], int)}: The clusters are 
+     * formed by splitting the sequence of triangles at points where 
+     * all vertices of a triangle cause a cache miss, so that the vertex
+     * cache efficiency is largely retained.
+     * 
+     * @param indices The indices
+     * @param positions The vertex positions, 3 per vertex
+     * @return The reordered indices
+     */
+    public static int[] optimizeOverdraw(int indices[], float positions[])
+    {
+        int numTriangles = indices.length / 3;
+        int numVertices = positions.length / 3;
+        
+        // Compute the cluster boundaries
+        int clusterStarts[] = new int[numTriangles + 1];
+        int numClusters = 0;
+        int timeStamps[] = new int[numVertices];
+        int time = CLUSTER_CACHE_SIZE + 1;
+        for (int t = 0; t < numTriangles; t++)
+        {
+            int misses = 0;
+            for (int k = 0; k < 3; k++)
+            {
+                int index = indices[t * 3 + k];
+                if (time - timeStamps[index] > CLUSTER_CACHE_SIZE)
+                {
+                    timeStamps[index] = time;
+                    time++;
+                    misses++;
+                }
+            }
+            if (t == 0 || misses == 3)
+            {
+                clusterStarts[numClusters++] = t;
+            }
+        }
+        clusterStarts[numClusters] = numTriangles;
+        
+        // Compute the area-weighted centroid and normal of each 
+        // cluster, and the centroid of the whole mesh
+        float clusterData[] = new float[numClusters * 6];
+        float meshX = 0;
+        float meshY = 0;
+        float meshZ = 0;
+        float meshArea = 0;
+        for (int c = 0; c < numClusters; c++)
+        {
+            float cx = 0;
+            float cy = 0;
+            float cz = 0;
+            float nx = 0;
+            float ny = 0;
+            float nz = 0;
+            float clusterArea = 0;
+            for (int t = clusterStarts[c]; t < clusterStarts[c + 1]; t++)
+            {
+                int i0 = indices[t * 3 + 0] * 3;
+                int i1 = indices[t * 3 + 1] * 3;
+                int i2 = indices[t * 3 + 2] * 3;
+                float e0x = positions[i1 + 0] - positions[i0 + 0];
+                float e0y = positions[i1 + 1] - positions[i0 + 1];
+                float e0z = positions[i1 + 2] - positions[i0 + 2];
+                float e1x = positions[i2 + 0] - positions[i0 + 0];
+                float e1y = positions[i2 + 1] - positions[i0 + 1];
+                float e1z = positions[i2 + 2] - positions[i0 + 2];
+                float tnx = e0y * e1z - e0z * e1y;
+                float tny = e0z * e1x - e0x * e1z;
+                float tnz = e0x * e1y - e0y * e1x;
+                float area = (float)Math.sqrt(
+                    tnx * tnx + tny * tny + tnz * tnz);
+                float s = area / 3.0f;
+                cx += (positions[i0] + positions[i1] + positions[i2]) * s;
+                cy += (positions[i0 + 1] + positions[i1 + 1] + 
+                    positions[i2 + 1]) * s;
+                cz += (positions[i0 + 2] + positions[i1 + 2] + 
+                    positions[i2 + 2]) * s;
+                nx += tnx;
+                ny += tny;
+                nz += tnz;
+                clusterArea += area;
+            }
+            meshX += cx;
+            meshY += cy;
+            meshZ += cz;
+            meshArea += clusterArea;
+            float invArea = clusterArea > 0 ? 1.0f / clusterArea : 0.0f;
+            clusterData[c * 6 + 0] = cx * invArea;
+            clusterData[c * 6 + 1] = cy * invArea;
+            clusterData[c * 6 + 2] = cz * invArea;
+            float length = (float)Math.sqrt(nx * nx + ny * ny + nz * nz);
+            float invLength = length > 0 ? 1.0f / length : 0.0f;
+            clusterData[c * 6 + 3] = nx * invLength;
+            clusterData[c * 6 + 4] = ny * invLength;
+            clusterData[c * 6 + 5] = nz * invLength;
+        }
+        float invMeshArea = meshArea > 0 ? 1.0f / meshArea : 0.0f;
+        meshX *= invMeshArea;
+        meshY *= invMeshArea;
+        meshZ *= invMeshArea;
+        
+        // Sort the clusters by the dot product of their normal and the
+        // direction from the mesh centroid to the cluster centroid, 
+        // in descending order
+        float sortKeys[] = new float[numClusters];
+        Integer order[] = new Integer[numClusters];
+        for (int c = 0; c < numClusters; c++)
+        {
+            float dx = clusterData[c * 6 + 0] - meshX;
+            float dy = clusterData[c * 6 + 1] - meshY;
+            float dz = clusterData[c * 6 + 2] - meshZ;
+            sortKeys[c] = 
+                dx * clusterData[c * 6 + 3] + 
+                dy * clusterData[c * 6 + 4] + 
+                dz * clusterData[c * 6 + 5];
+            order[c] = c;
+        }
+        Arrays.sort(order, 
+            (c0, c1) -> Float.compare(sortKeys[c1], sortKeys[c0]));
+        
+        int result[] = new int[numTriangles * 3];
+        int n = 0;
+        for (int c : order)
+        {
+            int from = clusterStarts[c] * 3;
+            int to = clusterStarts[c + 1] * 3;
+            System.arraycopy(indices, from, result, n, to - from);
+            n += to - from;
+        }
+        return result;
+    }
+    
+    /**
+     * Computes the remapping of vertices that sorts the vertices in the 
+     * order in which they are first used by the given indices. The 
+     * element <code>i</code> of the returned array will be the new 
+     * index of vertex <code>i</code>. Vertices that are not used by the 
+     * indices are moved to the end. 
+     * 
+     * @param indices The indices
+     * @param numVertices The number of vertices
+     * @return The remapping
+     */
+    public static int[] computeVertexFetchRemapping(
+        int indices[], int numVertices)
+    {
+        int remap[] = new int[numVertices];
+        Arrays.fill(remap, -1);
+        int next = 0;
+        for (int i = 0; i < indices.length; i++)
+        {
+            int index = indices[i];
+            if (remap[index] == -1)
+            {
+                remap[index] = next++;
+            }
+        }
+        for (int v = 0; v < numVertices; v++)
+        {
+            if (remap[v] == -1)
+            {
+                remap[v] = next++;
+            }
+        }
+        return remap;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private IndexOptimizer()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
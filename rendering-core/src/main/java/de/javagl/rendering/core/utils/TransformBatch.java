@@ -0,0 +1,480 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.utils;
+
+import java.nio.FloatBuffer;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import javax.vecmath.Matrix3f;
+import javax.vecmath.Matrix4f;
+
+import de.javagl.rendering.core.view.View;
+
+/**
+ * A batch of model matrices for many objects, from which the model-view,
+ * model-view-projection and normal matrices of all objects are computed
+ * in a single pass.<br>
+ * <br>
+ * All matrices are stored in flat float arrays, in column-major order,
+ * as expected by OpenGL: The model matrices and the computed 4x4 matrices
+ * consist of 16 floats per object, and the normal matrices of 9 floats 
+ * per object. The model matrices may be written directly into the 
+ * {@link #getModelMatrices() model matrix array}. After calling
+ * {@link #update(Matrix4f, Matrix4f)}, the results may be written into 
+ * a uniform buffer or an instance attribute buffer with the 
+ * <code>write...</code> methods.<br>
+ * <br>
+ * When the batch is large, the matrices are computed in parallel.
+ */
+public final class TransformBatch
+{
+    /**
+     * The number of objects above which the matrices are computed 
+     * in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 2048;
+    
+    /**
+     * The number of objects that are processed by one parallel task
+     */
+    private static final int CHUNK_SIZE = 512;
+    
+    /**
+     * The number of objects
+     */
+    private final int size;
+    
+    /**
+     * The model matrices
+     */
+    private final float modelMatrices[];
+    
+    /**
+     * The model-view matrices
+     */
+    private final float modelViewMatrices[];
+    
+    /**
+     * The model-view-projection matrices
+     */
+    private final float modelViewProjectionMatrices[];
+    
+    /**
+     * The normal matrices
+     */
+    private final float normalMatrices[];
+    
+    /**
+     * The view matrix, in column-major order
+     */
+    private final float view[];
+    
+    /**
+     * The view-projection matrix, in column-major order
+     */
+    private final float viewProjection[];
+    
+    /**
+     * Creates a new batch for the given number of objects. All model 
+     * matrices will initially be identity matrices.
+     * 
+     * @param size The number of objects
+     * @throws IllegalArgumentException If the size is negative
+     */
+    public TransformBatch(int size)
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException(
+                "The size may not be negative, but is " + size);
+        }
+        this.size = size;
+        this.modelMatrices = new float[size * 16];
+        this.modelViewMatrices = new float[size * 16];
+        this.modelViewProjectionMatrices = new float[size * 16];
+        this.normalMatrices = new float[size * 9];
+        this.view = new float[16];
+        this.viewProjection = new float[16];
+        Matrix4f identity = new Matrix4f();
+        identity.setIdentity();
+        for (int i = 0; i < size; i++)
+        {
+            setModelMatrix(i, identity);
+        }
+    }
+    
+    /**
+     * Returns the number of objects in this batch
+     * 
+     * @return The number of objects
+     */
+    public int getSize()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns a reference to the array containing the model matrices,
+     * 16 floats per object, in column-major order. Changes in this 
+     * array will be visible in the next call to 
+     * {@link #update(Matrix4f, Matrix4f)}.
+     * 
+     * @return The model matrix array
+     */
+    public float[] getModelMatrices()
+    {
+        return modelMatrices;
+    }
+    
+    /**
+     * Set the model matrix of the specified object
+     * 
+     * @param index The index of the object
+     * @param modelMatrix The model matrix
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the {@link #getSize() size}
+     */
+    public void setModelMatrix(int index, Matrix4f modelMatrix)
+    {
+        write(modelMatrix, checkIndex(index) * 16, modelMatrices);
+    }
+    
+    /**
+     * Writes the model matrix of the specified object into the given
+     * target matrix
+     * 
+     * @param index The index of the object
+     * @param target The target matrix
+     * @return The target matrix
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the {@link #getSize() size}
+     */
+    public Matrix4f getModelMatrix(int index, Matrix4f target)
+    {
+        return read(modelMatrices, checkIndex(index) * 16, target);
+    }
+    
+    /**
+     * Writes the model-view matrix of the specified object, as of the
+     * most recent update, into the given target matrix
+     * 
+     * @param index The index of the object
+     * @param target The target matrix
+     * @return The target matrix
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the {@link #getSize() size}
+     */
+    public Matrix4f getModelViewMatrix(int index, Matrix4f target)
+    {
+        return read(modelViewMatrices, checkIndex(index) * 16, target);
+    }
+    
+    /**
+     * Writes the model-view-projection matrix of the specified object, 
+     * as of the most recent update, into the given target matrix
+     * 
+     * @param index The index of the object
+     * @param target The target matrix
+     * @return The target matrix
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the {@link #getSize() size}
+     */
+    public Matrix4f getModelViewProjectionMatrix(int index, Matrix4f target)
+    {
+        return read(modelViewProjectionMatrices, 
+            checkIndex(index) * 16, target);
+    }
+    
+    /**
+     * Writes the normal matrix of the specified object, as of the most 
+     * recent update, into the given target matrix. This is the transposed
+     * inverse of the upper 3x3 part of the model-view matrix.
+     * 
+     * @param index The index of the object
+     * @param target The target matrix
+     * @return The target matrix
+     * @throws IndexOutOfBoundsException If the index is negative or not
+     * smaller than the {@link #getSize() size}
+     */
+    public Matrix3f getNormalMatrix(int index, Matrix3f target)
+    {
+        int o = checkIndex(index) * 9;
+        float n[] = normalMatrices;
+        target.m00 = n[o + 0];
+        target.m10 = n[o + 1];
+        target.m20 = n[o + 2];
+        target.m01 = n[o + 3];
+        target.m11 = n[o + 4];
+        target.m21 = n[o + 5];
+        target.m02 = n[o + 6];
+        target.m12 = n[o + 7];
+        target.m22 = n[o + 8];
+        return target;
+    }
+    
+    /**
+     * Compute the matrices of all objects, using the current view matrix
+     * and projection matrix of the given {@link View}
+     * 
+     * @param view The {@link View}
+     */
+    public void update(View view)
+    {
+        Objects.requireNonNull(view, "The view may not be null");
+        Matrix4f viewMatrix = view.getViewMatrix(new Matrix4f());
+        Matrix4f projectionMatrix = view.getProjectionMatrix(new Matrix4f());
+        update(viewMatrix, projectionMatrix);
+    }
+    
+    /**
+     * Compute the model-view, model-view-projection and normal matrices
+     * of all objects, using the given view and projection matrix.
+     * 
+     * @param viewMatrix The view matrix
+     * @param projectionMatrix The projection matrix
+     */
+    public void update(Matrix4f viewMatrix, Matrix4f projectionMatrix)
+    {
+        Objects.requireNonNull(viewMatrix, 
+            "The viewMatrix may not be null");
+        Objects.requireNonNull(projectionMatrix, 
+            "The projectionMatrix may not be null");
+        write(viewMatrix, 0, view);
+        Matrix4f viewProjectionMatrix = new Matrix4f();
+        viewProjectionMatrix.mul(projectionMatrix, viewMatrix);
+        write(viewProjectionMatrix, 0, viewProjection);
+        if (size >= PARALLEL_THRESHOLD)
+        {
+            int numChunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            IntStream.range(0, numChunks).parallel().forEach(c -> 
+                compute(c * CHUNK_SIZE, Math.min(size, (c + 1) * CHUNK_SIZE)));
+        }
+        else
+        {
+            compute(0, size);
+        }
+    }
+    
+    /**
+     * Compute the matrices for the given range of objects
+     * 
+     * @param start The start index, inclusive
+     * @param end The end index, exclusive
+     */
+    private void compute(int start, int end)
+    {
+        float m[] = modelMatrices;
+        for (int i = start; i < end; i++)
+        {
+            int o = i * 16;
+            transform(view, m, o, modelViewMatrices);
+            transform(viewProjection, m, o, modelViewProjectionMatrices);
+            
+            // The inverse transpose of a 3x3 matrix with the columns 
+            // a, b and c has the columns (b x c, c x a, a x b) / det
+            float mv[] = modelViewMatrices;
+            float ax = mv[o + 0];
+            float ay = mv[o + 1];
+            float az = mv[o + 2];
+            float bx = mv[o + 4];
+            float by = mv[o + 5];
+            float bz = mv[o + 6];
+            float cx = mv[o + 8];
+            float cy = mv[o + 9];
+            float cz = mv[o + 10];
+            float bcx = by * cz - bz * cy;
+            float bcy = bz * cx - bx * cz;
+            float bcz = bx * cy - by * cx;
+            float det = ax * bcx + ay * bcy + az * bcz;
+            int n = i * 9;
+            float nm[] = normalMatrices;
+            if (det == 0)
+            {
+                nm[n + 0] = 1;
+                nm[n + 1] = 0;
+                nm[n + 2] = 0;
+                nm[n + 3] = 0;
+                nm[n + 4] = 1;
+                nm[n + 5] = 0;
+                nm[n + 6] = 0;
+                nm[n + 7] = 0;
+                nm[n + 8] = 1;
+                continue;
+            }
+            float invDet = 1.0f / det;
+            nm[n + 0] = bcx * invDet;
+            nm[n + 1] = bcy * invDet;
+            nm[n + 2] = bcz * invDet;
+            nm[n + 3] = (cy * az - cz * ay) * invDet;
+            nm[n + 4] = (cz * ax - cx * az) * invDet;
+            nm[n + 5] = (cx * ay - cy * ax) * invDet;
+            nm[n + 6] = (ay * bz - az * by) * invDet;
+            nm[n + 7] = (az * bx - ax * bz) * invDet;
+            nm[n + 8] = (ax * by - ay * bx) * invDet;
+        }
+    }
+    
+    /**
+     * Multiply the given column-major matrix with the matrix that starts 
+     * at the given offset in the source array, and write the result to 
+     * the same offset in the target array
+     * 
+     * @param a The left matrix
+     * @param source The source array
+     * @param o The offset
+     * @param target The target array
+     */
+    private static void transform(
+        float a[], float source[], int o, float target[])
+    {
+        for (int c = 0; c < 4; c++)
+        {
+            int s = o + c * 4;
+            float x = source[s + 0];
+            float y = source[s + 1];
+            float z = source[s + 2];
+            float w = source[s + 3];
+            target[s + 0] = a[0] * x + a[4] * y + a[8] * z + a[12] * w;
+            target[s + 1] = a[1] * x + a[5] * y + a[9] * z + a[13] * w;
+            target[s + 2] = a[2] * x + a[6] * y + a[10] * z + a[14] * w;
+            target[s + 3] = a[3] * x + a[7] * y + a[11] * z + a[15] * w;
+        }
+    }
+    
+    /**
+     * Write the model-view matrices of all objects, as of the most recent
+     * update, into the given buffer, starting at its current position. 
+     * The position of the buffer will be advanced by 16 floats per object.
+     * 
+     * @param target The target buffer
+     */
+    public void writeModelViewMatrices(FloatBuffer target)
+    {
+        target.put(modelViewMatrices);
+    }
+
+    /**
+     * Write the model-view-projection matrices of all objects, as of the 
+     * most recent update, into the given buffer, starting at its current 
+     * position. The position of the buffer will be advanced by 16 floats 
+     * per object.
+     * 
+     * @param target The target buffer
+     */
+    public void writeModelViewProjectionMatrices(FloatBuffer target)
+    {
+        target.put(modelViewProjectionMatrices);
+    }
+    
+    /**
+     * Write the normal matrices of all objects, as of the most recent
+     * update, into the given buffer, starting at its current position. 
+     * The position of the buffer will be advanced by 9 floats per object.
+     * 
+     * @param target The target buffer
+     */
+    public void writeNormalMatrices(FloatBuffer target)
+    {
+        target.put(normalMatrices);
+    }
+    
+    /**
+     * Check whether the given index is valid for this batch
+     * 
+     * @param index The index
+     * @return The index
+     * @throws IndexOutOfBoundsException If the index is not valid
+     */
+    private int checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException(
+                "Index " + index + " is not in [0," + size + ")");
+        }
+        return index;
+    }
+    
+    /**
+     * Write the given matrix into the given array, in column-major order
+     * 
+     * @param matrix The matrix
+     * @param o The offset in the array
+     * @param array The array
+     */
+    private static void write(Matrix4f matrix, int o, float array[])
+    {
+        array[o + 0] = matrix.m00;
+        array[o + 1] = matrix.m10;
+        array[o + 2] = matrix.m20;
+        array[o + 3] = matrix.m30;
+        array[o + 4] = matrix.m01;
+        array[o + 5] = matrix.m11;
+        array[o + 6] = matrix.m21;
+        array[o + 7] = matrix.m31;
+        array[o + 8] = matrix.m02;
+        array[o + 9] = matrix.m12;
+        array[o + 10] = matrix.m22;
+        array[o + 11] = matrix.m32;
+        array[o + 12] = matrix.m03;
+        array[o + 13] = matrix.m13;
+        array[o + 14] = matrix.m23;
+        array[o + 15] = matrix.m33;
+    }
+    
+    /**
+     * Read the matrix that is stored in column-major order in the given 
+     * array into the given target matrix
+     * 
+     * @param array The array
+     * @param o The offset in the array
+     * @param target The target matrix
+     * @return The target matrix
+     */
+    private static Matrix4f read(float array[], int o, Matrix4f target)
+    {
+        target.m00 = array[o + 0];
+        target.m10 = array[o + 1];
+        target.m20 = array[o + 2];
+        target.m30 = array[o + 3];
+        target.m01 = array[o + 4];
+        target.m11 = array[o + 5];
+        target.m21 = array[o + 6];
+        target.m31 = array[o + 7];
+        target.m02 = array[o + 8];
+        target.m12 = array[o + 9];
+        target.m22 = array[o + 10];
+        target.m32 = array[o + 11];
+        target.m03 = array[o + 12];
+        target.m13 = array[o + 13];
+        target.m23 = array[o + 14];
+        target.m33 = array[o + 15];
+        return target;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.core.utils;
+
+import java.util.Arrays;
+
+/**
+ * Methods for computing the mapping from vertices to unique vertices,
+ * which is the basis for welding the vertices of geometry data
+ */
+public class VertexRemapping
+{
+    /**
+     * Computes the mapping from the vertices that are given by the 
+     * attributes in the given array to the unique vertices. The array
+     * contains <code>stride</code> values for each vertex. Vertices
+     * whose attributes are equal (after quantizing them to multiples 
+     * of the given epsilon, if it is positive) are mapped to the same
+     * index. The unique vertices are numbered in the order of their
+     * first occurrence, so that <code>remap[i] &lt;= i</code>.
+     * 
+     * @param attributes The vertex attributes
+     * @param stride The number of attribute values per vertex
+     * @param epsilon The quantization epsilon
+     * @param remap The array that will store the index of the unique
+     * vertex for each input vertex. Its length must be at least
+     * <code>attributes.length / stride</code>
+     * @return The number of unique vertices
+     * @throws IllegalArgumentException If the epsilon is negative, or the
+     * stride is not positive
+     */
+    public static int computeRemapping(
+        float attributes[], int stride, float epsilon, int remap[])
+    {
+        if (epsilon < 0)
+        {
+            throw new IllegalArgumentException(
+                "The epsilon may not be negative, but is " + epsilon);
+        }
+        if (stride <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The stride must be positive, but is " + stride);
+        }
+        int numVertices = attributes.length / stride;
+        float invEpsilon = epsilon > 0 ? 1.0f / epsilon : 0.0f;
+        
+        // An open addressing hash table, storing the index of the
+        // first vertex with the respective attributes, or -1
+        int capacity = Integer.highestOneBit(Math.max(16, numVertices)) * 4;
+        int table[] = new int[capacity];
+        Arrays.fill(table, -1);
+        int mask = capacity - 1;
+        int shift = 32 - Integer.numberOfTrailingZeros(capacity);
+        int numUniqueVertices = 0;
+        for (int i = 0; i < numVertices; i++)
+        {
+            int hash = 1;
+            for (int j = 0; j < stride; j++)
+            {
+                hash = 31 * hash + 
+                    key(attributes[i * stride + j], invEpsilon);
+            }
+            int slot = (hash * 0x9E3779B9) >>> shift;
+            while (true)
+            {
+                int other = table[slot];
+                if (other == -1)
+                {
+                    table[slot] = i;
+                    remap[i] = numUniqueVertices++;
+                    break;
+                }
+                if (equal(attributes, i, other, stride, invEpsilon))
+                {
+                    remap[i] = remap[other];
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        return numUniqueVertices;
+    }
+    
+    /**
+     * Returns whether the attributes of the specified vertices are equal
+     * 
+     * @param attributes The attributes
+     * @param i0 The first vertex
+     * @param i1 The second vertex
+     * @param stride The number of attribute values per vertex
+     * @param invEpsilon The inverse quantization epsilon, or 0.0
+     * @return Whether the vertices are equal
+     */
+    private static boolean equal(
+        float attributes[], int i0, int i1, int stride, float invEpsilon)
+    {
+        for (int j = 0; j < stride; j++)
+        {
+            int k0 = key(attributes[i0 * stride + j], invEpsilon);
+            int k1 = key(attributes[i1 * stride + j], invEpsilon);
+            if (k0 != k1)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the key for the given attribute value. This is either the
+     * index of the quantization cell of the value, or the bit 
+     * representation of the value, if the given inverse epsilon is 0.0
+     *  
+     * @param value The value
+     * @param invEpsilon The inverse quantization epsilon, or 0.0
+     * @return The key
+     */
+    private static int key(float value, float invEpsilon)
+    {
+        if (invEpsilon > 0)
+        {
+            return Math.round(value * invEpsilon);
+        }
+        // Treat -0.0 and 0.0 as equal
+        return Float.floatToIntBits(value == 0.0f ? 0.0f : value);
+    }
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private VertexRemapping()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
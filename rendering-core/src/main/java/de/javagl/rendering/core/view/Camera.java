@@ -28,10 +28,13 @@
 package de.javagl.rendering.core.view;
 
 
+import javax.vecmath.Matrix4f;
 import javax.vecmath.Point3f;
 import javax.vecmath.Tuple3f;
 import javax.vecmath.Vector3f;
 
+import de.javagl.rendering.core.utils.MatrixUtils;
+
 /**
  * Interface describing a camera.<br>
  * <br>
@@ -106,6 +109,59 @@ public interface Camera
      * @param cameraListener The listener to add
      */
     void addCameraListener(CameraListener cameraListener);
+    
+    /**
+     * Returns the version of this camera. This is a counter that is 
+     * increased each time that the camera is modified, and may be
+     * used for detecting whether matrices that have been derived from
+     * the camera have to be recomputed.<br>
+     * <br>
+     * The default implementation returns 0, which means that the
+     * modifications of the camera are not tracked.
+     * 
+     * @return The version
+     */
+    default long getVersion()
+    {
+        return 0;
+    }
+    
+    /**
+     * Writes the view matrix of this camera into the given target matrix.
+     * The view matrix transforms world coordinates into the coordinate
+     * system of the camera. Implementations may cache it internally, 
+     * and only recompute it when the camera has been modified.<br>
+     * <br>
+     * The default implementation computes the matrix from the 
+     * {@link #getEyePoint() eye point}, {@link #getViewPoint() view point}
+     * and {@link #getUpVector() up vector}.
+     * 
+     * @param target The target matrix
+     * @return The target matrix
+     */
+    default Matrix4f getViewMatrix(Matrix4f target)
+    {
+        Point3f eye = getEyePoint();
+        MatrixUtils.setLookAt(eye, getViewPoint(), getUpVector(), target);
+        target.mul(MatrixUtils.translation(-eye.x, -eye.y, -eye.z));
+        return target;
+    }
+    
+    /**
+     * Writes the camera matrix, which is the inverse of the 
+     * {@link #getViewMatrix(Matrix4f) view matrix}, into the given 
+     * target matrix. Implementations may cache it internally, and only
+     * recompute it when the camera has been modified.<br>
+     * <br>
+     * The default implementation inverts the view matrix.
+     * 
+     * @param target The target matrix
+     * @return The target matrix
+     */
+    default Matrix4f getCameraMatrix(Matrix4f target)
+    {
+        return MatrixUtils.inverse(getViewMatrix(target), target);
+    }
 
     /**
      * Remove the given listener from this camera
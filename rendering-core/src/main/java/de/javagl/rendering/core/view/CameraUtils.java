@@ -31,8 +31,6 @@ import javax.vecmath.Matrix4f;
 import javax.vecmath.Point3f;
 import javax.vecmath.Vector3f;
 
-import de.javagl.rendering.core.utils.MatrixUtils;
-
 /**
  * A class containing utility methods for {@link Camera} operations.
  */
@@ -45,26 +43,15 @@ public class CameraUtils
      * the eye point. <br> 
      * <br>
      * This method returns the inverse of the matrix obtained with
-     * {@link #computeCameraMatrix(Camera)}. 
+     * {@link #computeCameraMatrix(Camera)}. It returns a new matrix
+     * that contains the value of {@link Camera#getViewMatrix(Matrix4f)}.
      * 
      * @param camera The {@link Camera}
      * @return The view matrix
      */
     public static Matrix4f computeViewMatrix(Camera camera)
     {
-        Point3f eye = camera.getEyePoint();
-        Point3f center = camera.getViewPoint();
-        Vector3f up = camera.getUpVector();
-        Matrix4f lookAtMatrix = MatrixUtils.setLookAt(eye, center, up, null);
-
-        Vector3f negEye = new Vector3f(eye);
-        negEye.negate();
-        Matrix4f translationMatrix = MatrixUtils.translation(negEye);
-
-        Matrix4f viewMatrix = MatrixUtils.mul(
-            lookAtMatrix, translationMatrix);
-
-        return viewMatrix;
+        return camera.getViewMatrix(new Matrix4f());
     }
     
     /**
@@ -107,16 +94,15 @@ public class CameraUtils
      * the eye point. <br> 
      * <br>
      * This method returns the inverse of the matrix obtained with
-     * {@link #computeViewMatrix(Camera)}. 
+     * {@link #computeViewMatrix(Camera)}. It returns a new matrix
+     * that contains the value of {@link Camera#getCameraMatrix(Matrix4f)}.
      * 
      * @param camera The {@link Camera}
      * @return The camera matrix
      */
     public static Matrix4f computeCameraMatrix(Camera camera)
     {
-        Matrix4f viewMatrix = computeViewMatrix(camera);
-        Matrix4f cameraMatrix = MatrixUtils.inverse(viewMatrix);
-        return cameraMatrix;
+        return camera.getCameraMatrix(new Matrix4f());
     }
 
 
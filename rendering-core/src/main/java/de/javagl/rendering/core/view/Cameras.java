@@ -43,6 +43,35 @@ public class Cameras
         return new DefaultCamera();
     }
 
+    /**
+     * Creates a new {@link Camera} that has the same properties as the
+     * given one. The listeners of the given camera are not copied.
+     * 
+     * @param camera The {@link Camera}
+     * @return The new {@link Camera}
+     */
+    public static Camera copy(Camera camera)
+    {
+        Camera result = new DefaultCamera();
+        copy(camera, result);
+        return result;
+    }
+    
+    /**
+     * Copies all properties of the given source {@link Camera} into 
+     * the given target {@link Camera}.
+     * 
+     * @param source The source {@link Camera}
+     * @param target The target {@link Camera}
+     */
+    public static void copy(Camera source, Camera target)
+    {
+        target.setEyePoint(source.getEyePoint());
+        target.setViewPoint(source.getViewPoint());
+        target.setUpVector(source.getUpVector());
+        target.setFovDegY(source.getFovDegY());
+    }
+
     /**
      * Private constructor to prevent instantiation
      */
@@ -28,7 +28,9 @@
 package de.javagl.rendering.core.view;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.vecmath.Matrix4f;
 import javax.vecmath.Point3f;
 import javax.vecmath.Tuple3f;
 import javax.vecmath.Vector3f;
@@ -63,6 +65,26 @@ class DefaultCamera implements Camera
      * The list of listeners attached to this camera
      */
     private final List<CameraListener> cameraListeners;
+    
+    /**
+     * The version of this camera
+     */
+    private final AtomicLong version;
+    
+    /**
+     * The cached view matrix
+     */
+    private final Matrix4f viewMatrix;
+    
+    /**
+     * The cached camera matrix
+     */
+    private final Matrix4f cameraMatrix;
+    
+    /**
+     * The version for which the cached matrices have been computed
+     */
+    private long cachedVersion;
 
     /**
      * Creates a new DefaultCamera with an eyePoint at (0,0,1),
@@ -77,6 +99,10 @@ class DefaultCamera implements Camera
         fovDegree = 60.0f;
 
         cameraListeners = new CopyOnWriteArrayList<CameraListener>();
+        version = new AtomicLong(0);
+        viewMatrix = new Matrix4f();
+        cameraMatrix = new Matrix4f();
+        cachedVersion = -1;
     }
 
     @Override
@@ -143,11 +169,109 @@ class DefaultCamera implements Camera
         }
     }
 
+    @Override
+    public long getVersion()
+    {
+        return version.get();
+    }
+    
+    @Override
+    public synchronized Matrix4f getViewMatrix(Matrix4f target)
+    {
+        validate();
+        target.set(viewMatrix);
+        return target;
+    }
+    
+    @Override
+    public synchronized Matrix4f getCameraMatrix(Matrix4f target)
+    {
+        validate();
+        target.set(cameraMatrix);
+        return target;
+    }
+    
+    /**
+     * Recompute the view matrix and the camera matrix if the camera
+     * has been modified since they have been computed
+     */
+    private void validate()
+    {
+        long currentVersion = version.get();
+        if (cachedVersion == currentVersion)
+        {
+            return;
+        }
+        float fx = viewPoint.x - eyePoint.x;
+        float fy = viewPoint.y - eyePoint.y;
+        float fz = viewPoint.z - eyePoint.z;
+        float fl = (float)Math.sqrt(fx * fx + fy * fy + fz * fz);
+        fx /= fl;
+        fy /= fl;
+        fz /= fl;
+        
+        float sx = fy * upVector.z - fz * upVector.y;
+        float sy = fz * upVector.x - fx * upVector.z;
+        float sz = fx * upVector.y - fy * upVector.x;
+        float sl = (float)Math.sqrt(sx * sx + sy * sy + sz * sz);
+        sx /= sl;
+        sy /= sl;
+        sz /= sl;
+        
+        float ux = sy * fz - sz * fy;
+        float uy = sz * fx - sx * fz;
+        float uz = sx * fy - sy * fx;
+        
+        float ex = eyePoint.x;
+        float ey = eyePoint.y;
+        float ez = eyePoint.z;
+        
+        viewMatrix.m00 = sx;
+        viewMatrix.m01 = sy;
+        viewMatrix.m02 = sz;
+        viewMatrix.m03 = -(sx * ex + sy * ey + sz * ez);
+        viewMatrix.m10 = ux;
+        viewMatrix.m11 = uy;
+        viewMatrix.m12 = uz;
+        viewMatrix.m13 = -(ux * ex + uy * ey + uz * ez);
+        viewMatrix.m20 = -fx;
+        viewMatrix.m21 = -fy;
+        viewMatrix.m22 = -fz;
+        viewMatrix.m23 = fx * ex + fy * ey + fz * ez;
+        viewMatrix.m30 = 0.0f;
+        viewMatrix.m31 = 0.0f;
+        viewMatrix.m32 = 0.0f;
+        viewMatrix.m33 = 1.0f;
+        
+        // The rotation part is orthonormal, so the inverse consists of
+        // the transposed rotation and the eye point as the translation
+        cameraMatrix.m00 = sx;
+        cameraMatrix.m01 = ux;
+        cameraMatrix.m02 = -fx;
+        cameraMatrix.m03 = ex;
+        cameraMatrix.m10 = sy;
+        cameraMatrix.m11 = uy;
+        cameraMatrix.m12 = -fy;
+        cameraMatrix.m13 = ey;
+        cameraMatrix.m20 = sz;
+        cameraMatrix.m21 = uz;
+        cameraMatrix.m22 = -fz;
+        cameraMatrix.m23 = ez;
+        cameraMatrix.m30 = 0.0f;
+        cameraMatrix.m31 = 0.0f;
+        cameraMatrix.m32 = 0.0f;
+        cameraMatrix.m33 = 1.0f;
+        
+        cachedVersion = currentVersion;
+    }
+
     /**
-     * Notify all listeners about a camera change
+     * Notify all listeners about a camera change, after increasing
+     * the version of this camera
      */
     protected void notifyCameraChanged()
     {
+        version.incrementAndGet();
         for (CameraListener cameraListener : cameraListeners)
         {
             cameraListener.cameraChanged(this);
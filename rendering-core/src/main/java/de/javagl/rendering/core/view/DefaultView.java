@@ -29,6 +29,7 @@ package de.javagl.rendering.core.view;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.vecmath.Matrix4f;
 
@@ -49,6 +50,26 @@ class DefaultView implements View
      */
     private final Matrix4f projectionMatrix;
     
+    /**
+     * The current inverse projection matrix
+     */
+    private final Matrix4f inverseProjectionMatrix;
+    
+    /**
+     * The current view-projection matrix
+     */
+    private final Matrix4f viewProjectionMatrix;
+    
+    /**
+     * The current inverse view-projection matrix
+     */
+    private final Matrix4f inverseViewProjectionMatrix;
+    
+    /**
+     * The current view matrix
+     */
+    private final Matrix4f viewMatrix;
+    
     /**
      * The near clipping plane. 
      */
@@ -70,9 +91,15 @@ class DefaultView implements View
     private Rectangle viewport;
     
     /**
-     * Whether the matrices have to be updated
+     * The number of modifications of this view, not including the 
+     * modifications of the camera
      */
-    private boolean updateRequired = true;
+    private final AtomicLong modificationCount;
+    
+    /**
+     * The version for which the matrices have been computed
+     */
+    private long cachedVersion = -1;
 
     /**
      * The List of {@link ViewListener} instances for this view 
@@ -86,6 +113,11 @@ class DefaultView implements View
     {
         camera = Cameras.create();
         projectionMatrix = new Matrix4f();
+        inverseProjectionMatrix = new Matrix4f();
+        viewProjectionMatrix = new Matrix4f();
+        inverseViewProjectionMatrix = new Matrix4f();
+        viewMatrix = new Matrix4f();
+        modificationCount = new AtomicLong(0);
         nearClippingPlane = 0.01f;
         farClippingPlane = 10000.0f;
         viewport = Rectangles.create(0, 0, 1, 1);
@@ -95,19 +127,30 @@ class DefaultView implements View
     
     
     /**
-     * Update the projection matrix, if necessary
+     * Update the matrices if this view or the camera have been modified
+     * since they have been computed
      */
-    private void validate()
+    private synchronized void validate()
     {
-        if (!updateRequired)
+        long currentVersion = getVersion();
+        if (cachedVersion == currentVersion)
         {
             return;
         }
-        
         MatrixUtils.setPerspective(
             camera.getFovDegY(), aspect, 
             nearClippingPlane, farClippingPlane, projectionMatrix);
-        updateRequired = false;
+        MatrixUtils.inverse(projectionMatrix, inverseProjectionMatrix);
+        camera.getViewMatrix(viewMatrix);
+        viewProjectionMatrix.mul(projectionMatrix, viewMatrix);
+        MatrixUtils.inverse(viewProjectionMatrix, inverseViewProjectionMatrix);
+        cachedVersion = currentVersion;
+    }
+    
+    @Override
+    public long getVersion()
+    {
+        return modificationCount.get() + camera.getVersion();
     }
     
     
@@ -120,9 +163,53 @@ class DefaultView implements View
     
     @Override
     public Matrix4f getProjectionMatrix()
+    {
+        return getProjectionMatrix(new Matrix4f());
+    }
+    
+    @Override
+    public synchronized Matrix4f getProjectionMatrix(Matrix4f target)
+    {
+        validate();
+        target.set(projectionMatrix);
+        return target;
+    }
+    
+    @Override
+    public synchronized Matrix4f getInverseProjectionMatrix(Matrix4f target)
+    {
+        validate();
+        target.set(inverseProjectionMatrix);
+        return target;
+    }
+    
+    @Override
+    public Matrix4f getViewMatrix(Matrix4f target)
+    {
+        return camera.getViewMatrix(target);
+    }
+    
+    @Override
+    public Matrix4f getInverseViewMatrix(Matrix4f target)
+    {
+        return camera.getCameraMatrix(target);
+    }
+    
+    @Override
+    public synchronized Matrix4f getViewProjectionMatrix(Matrix4f target)
+    {
+        validate();
+        target.set(viewProjectionMatrix);
+        return target;
+    }
+    
+    @Override
+    public synchronized Matrix4f getInverseViewProjectionMatrix(
+        Matrix4f target)
     {
         validate();
-        return new Matrix4f(projectionMatrix);
+        target.set(inverseViewProjectionMatrix);
+        return target;
     }
 
     @Override
@@ -131,7 +218,7 @@ class DefaultView implements View
         if (newAspect != aspect)
         {
             this.aspect = newAspect;
-            updateRequired = true;
+            modificationCount.incrementAndGet();
             notifyAspectChanged();
         }
     }
@@ -149,7 +236,7 @@ class DefaultView implements View
         if (this.nearClippingPlane != near)
         {
             this.nearClippingPlane = near;
-            updateRequired = true;
+            modificationCount.incrementAndGet();
             notifyClippingPlanesChanged();
         }
     }
@@ -168,7 +255,7 @@ class DefaultView implements View
         if (this.farClippingPlane != far)
         {
             this.farClippingPlane = far;
-            updateRequired = true;
+            modificationCount.incrementAndGet();
             notifyClippingPlanesChanged();
         }
     }
@@ -197,6 +284,7 @@ class DefaultView implements View
             this.viewport.getHeight() != viewport.getHeight())
         {
             this.viewport = Rectangles.create(viewport);
+            modificationCount.incrementAndGet();
             notifyViewportChanged();
         }
     }
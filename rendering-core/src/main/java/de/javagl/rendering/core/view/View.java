@@ -29,6 +29,8 @@ package de.javagl.rendering.core.view;
 
 import javax.vecmath.Matrix4f;
 
+import de.javagl.rendering.core.utils.MatrixUtils;
+
 /**
  * Interface describing a View, consisting of a {@link Camera}, a viewport 
  * configuration and a perspective transformation.
@@ -49,6 +51,120 @@ public interface View
      */
     Matrix4f getProjectionMatrix();
     
+    /**
+     * Writes the current projection matrix into the given target matrix. 
+     * Implementations may cache the matrix internally, and only recompute
+     * it when this view or its camera have been modified.<br>
+     * <br>
+     * The default implementation copies the value of 
+     * {@link #getProjectionMatrix()}.
+     * 
+     * @param target The target matrix
+     * @return The target matrix
+     */
+    default Matrix4f getProjectionMatrix(Matrix4f target)
+    {
+        target.set(getProjectionMatrix());
+        return target;
+    }
+    
+    /**
+     * Writes the current inverse projection matrix into the given target 
+     * matrix. Implementations may cache the matrix internally, and only 
+     * recompute it when this view or its camera have been modified.<br>
+     * <br>
+     * The default implementation inverts the 
+     * {@link #getProjectionMatrix() projection matrix}.
+     * 
+     * @param target The target matrix
+     * @return The target matrix
+     */
+    default Matrix4f getInverseProjectionMatrix(Matrix4f target)
+    {
+        return MatrixUtils.inverse(getProjectionMatrix(), target);
+    }
+    
+    /**
+     * Writes the current view matrix of the {@link Camera} into the given 
+     * target matrix. This is the same as 
+     * {@link Camera#getViewMatrix(Matrix4f)}, which is called by the
+     * default implementation.
+     * 
+     * @param target The target matrix
+     * @return The target matrix
+     */
+    default Matrix4f getViewMatrix(Matrix4f target)
+    {
+        return getCamera().getViewMatrix(target);
+    }
+    
+    /**
+     * Writes the current inverse view matrix into the given target matrix. 
+     * This is the same as {@link Camera#getCameraMatrix(Matrix4f)}, which
+     * is called by the default implementation.
+     * 
+     * @param target The target matrix
+     * @return The target matrix
+     */
+    default Matrix4f getInverseViewMatrix(Matrix4f target)
+    {
+        return getCamera().getCameraMatrix(target);
+    }
+    
+    /**
+     * Writes the current view-projection matrix, which is the product
+     * of the projection matrix and the view matrix, into the given 
+     * target matrix. Implementations may cache the matrix internally, 
+     * and only recompute it when this view or its camera have been 
+     * modified.<br>
+     * <br>
+     * The default implementation computes the product of the 
+     * {@link #getProjectionMatrix() projection matrix} and the 
+     * {@link #getViewMatrix(Matrix4f) view matrix}.
+     * 
+     * @param target The target matrix
+     * @return The target matrix
+     */
+    default Matrix4f getViewProjectionMatrix(Matrix4f target)
+    {
+        Matrix4f viewMatrix = getViewMatrix(new Matrix4f());
+        target.mul(getProjectionMatrix(), viewMatrix);
+        return target;
+    }
+    
+    /**
+     * Writes the current inverse view-projection matrix into the given 
+     * target matrix. Implementations may cache the matrix internally, 
+     * and only recompute it when this view or its camera have been 
+     * modified.<br>
+     * <br>
+     * The default implementation inverts the 
+     * {@link #getViewProjectionMatrix(Matrix4f) view-projection matrix}.
+     * 
+     * @param target The target matrix
+     * @return The target matrix
+     */
+    default Matrix4f getInverseViewProjectionMatrix(Matrix4f target)
+    {
+        return MatrixUtils.inverse(getViewProjectionMatrix(target), target);
+    }
+    
+    /**
+     * Returns the version of this view. This is a counter that is 
+     * increased each time that this view or its {@link Camera} are
+     * modified, and may be used for detecting whether data that was
+     * derived from the view has to be recomputed.<br>
+     * <br>
+     * The default implementation returns 0, which means that the
+     * modifications of the view are not tracked.
+     * 
+     * @return The version
+     */
+    default long getVersion()
+    {
+        return 0;
+    }
+    
     /**
      * Returns the current aspect ratio of this {@link View}
      * 
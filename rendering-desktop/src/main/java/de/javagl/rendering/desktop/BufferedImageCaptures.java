@@ -0,0 +1,85 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.desktop;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteOrder;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import de.javagl.rendering.core.FrameCapture;
+import de.javagl.rendering.core.FrameCaptures;
+
+/**
+ * Methods for creating {@link FrameCapture} instances that provide
+ * the captured frames as <code>BufferedImage</code>s
+ */
+public class BufferedImageCaptures
+{
+    /**
+     * Creates a new {@link FrameCapture} that passes each captured frame 
+     * to the given consumer, as a new <code>BufferedImage</code> of 
+     * type <code>TYPE_INT_ARGB</code>. The consumer will be called on 
+     * the executor of the capture, in the order in which the frames 
+     * have been captured.
+     * 
+     * @param numBuffers The number of buffers that may be in flight
+     * @param consumer The consumer for the images
+     * @return The {@link FrameCapture}
+     * @throws IllegalArgumentException If the number of buffers is 
+     * not positive
+     */
+    public static FrameCapture create(
+        int numBuffers, Consumer<? super BufferedImage> consumer)
+    {
+        Objects.requireNonNull(consumer, "The consumer may not be null");
+        return FrameCaptures.create((pixels, width, height) -> 
+        {
+            BufferedImage image = new BufferedImage(
+                width, height, BufferedImage.TYPE_INT_ARGB);
+            DataBufferInt dataBuffer = 
+                (DataBufferInt)image.getRaster().getDataBuffer();
+            pixels.order(ByteOrder.nativeOrder()).asIntBuffer().get(
+                dataBuffer.getData());
+            consumer.accept(image);
+        })
+        .setNumBuffers(numBuffers)
+        .setFlippingVertically(true)
+        .setConvertingToArgb(true)
+        .build();
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private BufferedImageCaptures()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.desktop;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.stream.IntStream;
+
+import de.javagl.rendering.core.ImageData;
+
+/**
+ * Methods for writing the contents of <code>BufferedImage</code>s 
+ * directly into {@link ImageData} objects, without creating 
+ * intermediate images.<br>
+ * <br>
+ * The pixels are read from the data arrays of the rasters, converted 
+ * into ARGB integer values, and written into the {@link ImageData} in
+ * a single pass, optionally flipping the image vertically. 
+ */
+class ImageDataWriter
+{
+    /**
+     * The number of pixels, starting at which the rows of an image are
+     * converted in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 256 * 256;
+    
+    /**
+     * Interface for the conversion of a single row
+     */
+    private static interface RowWriter
+    {
+        /**
+         * Write the given source row into the given target row
+         * 
+         * @param sourceY The source row
+         * @param target The target buffer
+         * @param targetOffset The index of the first pixel of the 
+         * target row
+         */
+        void writeRow(int sourceY, IntBuffer target, int targetOffset);
+    }
+    
+    /**
+     * Try to write the contents of the given image into the given 
+     * {@link ImageData}, which must have the same size as the image.
+     * Returns whether the type of the image was supported. If this
+     * method returns <code>false</code>, then the target remains
+     * unaffected.<br>
+     * <br>
+     * The supported types are <code>TYPE_INT_ARGB</code>, 
+     * <code>TYPE_INT_RGB</code>, <code>TYPE_3BYTE_BGR</code>, 
+     * <code>TYPE_4BYTE_ABGR</code> and <code>TYPE_BYTE_GRAY</code>. 
+     * The data of the given image is accessed directly, which may cause
+     * the image to become unmanaged.
+     * 
+     * @param source The source image
+     * @param flipVertically Whether the image should be flipped vertically
+     * @param target The target {@link ImageData}
+     * @return Whether the image could be written
+     */
+    static boolean write(
+        BufferedImage source, boolean flipVertically, ImageData target)
+    {
+        RowWriter rowWriter = createRowWriter(source);
+        if (rowWriter == null)
+        {
+            return false;
+        }
+        int w = source.getWidth();
+        int h = source.getHeight();
+        ByteBuffer bBuffer = target.getData();
+        bBuffer.order(ByteOrder.nativeOrder());
+        IntBuffer tBuffer = bBuffer.asIntBuffer();
+        if ((long)w * h >= PARALLEL_THRESHOLD)
+        {
+            IntStream.range(0, h).parallel().forEach(y -> 
+            {
+                int targetY = flipVertically ? h - 1 - y : y;
+                rowWriter.writeRow(y, tBuffer, targetY * w);
+            });
+        }
+        else
+        {
+            for (int y = 0; y < h; y++)
+            {
+                int targetY = flipVertically ? h - 1 - y : y;
+                rowWriter.writeRow(y, tBuffer, targetY * w);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Create the {@link RowWriter} for the given image, or return 
+     * <code>null</code> if the type of the image is not supported
+     * 
+     * @param image The image
+     * @return The {@link RowWriter}
+     */
+    private static RowWriter createRowWriter(BufferedImage image)
+    {
+        Raster raster = image.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        if (dataBuffer.getNumBanks() != 1)
+        {
+            return null;
+        }
+        int w = image.getWidth();
+        int dx = -raster.getSampleModelTranslateX();
+        int dy = -raster.getSampleModelTranslateY();
+        switch (image.getType())
+        {
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_RGB:
+            {
+                if (!(sampleModel instanceof SinglePixelPackedSampleModel) ||
+                    !(dataBuffer instanceof DataBufferInt))
+                {
+                    return null;
+                }
+                SinglePixelPackedSampleModel packed = 
+                    (SinglePixelPackedSampleModel)sampleModel;
+                int stride = packed.getScanlineStride();
+                int offset = dataBuffer.getOffset() + dy * stride + dx;
+                int data[] = ((DataBufferInt)dataBuffer).getData();
+                int alpha = 
+                    image.getType() == BufferedImage.TYPE_INT_RGB ? 
+                    0xFF000000 : 0;
+                return (y, target, targetOffset) -> 
+                {
+                    int s = offset + y * stride;
+                    for (int x = 0; x < w; x++)
+                    {
+                        target.put(targetOffset + x, data[s + x] | alpha);
+                    }
+                };
+            }
+            
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+            case BufferedImage.TYPE_BYTE_GRAY:
+            {
+                if (!(sampleModel instanceof ComponentSampleModel) ||
+                    !(dataBuffer instanceof DataBufferByte))
+                {
+                    return null;
+                }
+                ComponentSampleModel component = 
+                    (ComponentSampleModel)sampleModel;
+                int stride = component.getScanlineStride();
+                int pixelStride = component.getPixelStride();
+                int offset = dataBuffer.getOffset() + 
+                    dy * stride + dx * pixelStride;
+                int bandOffsets[] = component.getBandOffsets();
+                byte data[] = ((DataBufferByte)dataBuffer).getData();
+                if (image.getType() == BufferedImage.TYPE_BYTE_GRAY)
+                {
+                    int g = bandOffsets[0];
+                    return (y, target, targetOffset) -> 
+                    {
+                        int s = offset + y * stride + g;
+                        for (int x = 0; x < w; x++)
+                        {
+                            int v = data[s] & 0xFF;
+                            target.put(targetOffset + x, 
+                                0xFF000000 | (v << 16) | (v << 8) | v);
+                            s += pixelStride;
+                        }
+                    };
+                }
+                int r = bandOffsets[0];
+                int g = bandOffsets[1];
+                int b = bandOffsets[2];
+                boolean hasAlpha = 
+                    image.getType() == BufferedImage.TYPE_4BYTE_ABGR;
+                int a = hasAlpha ? bandOffsets[3] : 0;
+                return (y, target, targetOffset) -> 
+                {
+                    int s = offset + y * stride;
+                    for (int x = 0; x < w; x++)
+                    {
+                        int av = hasAlpha ? (data[s + a] & 0xFF) : 0xFF;
+                        int rv = data[s + r] & 0xFF;
+                        int gv = data[s + g] & 0xFF;
+                        int bv = data[s + b] & 0xFF;
+                        target.put(targetOffset + x, 
+                            (av << 24) | (rv << 16) | (gv << 8) | bv);
+                        s += pixelStride;
+                    }
+                };
+            }
+            
+            default:
+                break;
+        }
+        return null;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private ImageDataWriter()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
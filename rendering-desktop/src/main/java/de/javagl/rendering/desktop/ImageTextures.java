@@ -167,7 +167,14 @@ public class ImageTextures
     
     /**
      * Creates and returns a new {@link ImageTexture} from the 
-     * given BufferedImage. 
+     * given BufferedImage.<br> 
+     * <br>
+     * For images of the types <code>TYPE_INT_ARGB</code>, 
+     * <code>TYPE_INT_RGB</code>, <code>TYPE_3BYTE_BGR</code>, 
+     * <code>TYPE_4BYTE_ABGR</code> and <code>TYPE_BYTE_GRAY</code>, the 
+     * pixels are converted directly into the image data of the texture. 
+     * Images of other types are first painted into an image of the type
+     * <code>TYPE_INT_ARGB</code>. 
      * 
      * @param textureImage The input image
      * @param flipVertically Whether the image should be flipped vertically
@@ -178,6 +185,12 @@ public class ImageTextures
     {
         int w = textureImage.getWidth();
         int h = textureImage.getHeight();
+        ImageTexture result = Textures.createImageTexture(w, h);
+        if (ImageDataWriter.write(
+            textureImage, flipVertically, result.getImageData()))
+        {
+            return result;
+        }
         BufferedImage image = 
             new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g = image.createGraphics();
@@ -190,7 +203,6 @@ public class ImageTextures
             g.drawImage(textureImage, 0, 0, null);
         }
         g.dispose();
-        ImageTexture result = Textures.createImageTexture(w, h);
         write(image, result.getImageData());
         return result;
     }
@@ -0,0 +1,88 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.desktop;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import de.javagl.rendering.core.ImageTexture;
+import de.javagl.rendering.core.RawTextures;
+
+/**
+ * Methods for converting image files into raw texture files, as 
+ * described in {@link RawTextures}. The raw texture files may then be 
+ * loaded with {@link RawTextures#mapImageTexture(Path)}, without 
+ * decoding the image.
+ */
+public class RawTextureConverter
+{
+    /**
+     * Convert the specified image file into a raw texture file. The input
+     * may be any image file that can be read with 
+     * {@link ImageTextures#createImageTexture(String, boolean)}.
+     * 
+     * @param inputFileName The name of the input file
+     * @param outputFileName The name of the output file
+     * @param flipVertically Whether the image should be flipped vertically
+     * @throws IOException If an IO error occurs
+     */
+    public static void convert(String inputFileName, String outputFileName,
+        boolean flipVertically) throws IOException
+    {
+        ImageTexture texture = 
+            ImageTextures.createImageTexture(inputFileName, flipVertically);
+        RawTextures.write(texture.getImageData(), Paths.get(outputFileName));
+    }
+    
+    /**
+     * Convert the image that is read from the given stream into a raw 
+     * texture file. The caller is responsible for closing the stream.
+     * 
+     * @param inputStream The input stream
+     * @param outputPath The path of the output file
+     * @param flipVertically Whether the image should be flipped vertically
+     * @throws IOException If an IO error occurs
+     */
+    public static void convert(InputStream inputStream, Path outputPath,
+        boolean flipVertically) throws IOException
+    {
+        ImageTexture texture = 
+            ImageTextures.createImageTexture(inputStream, flipVertically);
+        RawTextures.write(texture.getImageData(), outputPath);
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private RawTextureConverter()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,506 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.javagl.rendering.desktop;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import de.javagl.rendering.core.ImageData;
+import de.javagl.rendering.core.ImageDataType;
+import de.javagl.rendering.core.ImageDatas;
+import de.javagl.rendering.core.ImageTexture;
+import de.javagl.rendering.core.Textures;
+
+/**
+ * Methods for compressing {@link ImageData} into block-compressed 
+ * formats.<br>
+ * <br>
+ * The supported target types are {@link ImageDataType#BC1_RGBA} and 
+ * {@link ImageDataType#BC3_RGBA}. The image is divided into blocks of 
+ * 4x4 pixels, and each block is encoded independently. For each 
+ * block, the two endpoint colors are chosen as the extreme colors 
+ * along the principal axis of the colors in the block. The rows of
+ * blocks of larger images are encoded in parallel.<br>
+ * <br>
+ * For {@link ImageDataType#BC1_RGBA}, blocks that contain pixels with
+ * an alpha value below 128 are encoded in the 3-color mode, where 
+ * these pixels become fully transparent. 
+ */
+public class TextureCompression
+{
+    /**
+     * The number of blocks, starting at which the rows of blocks of
+     * an image are encoded in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 32 * 32;
+    
+    /**
+     * The number of iterations for computing the principal axis of 
+     * the colors of a block
+     */
+    private static final int POWER_ITERATIONS = 4;
+    
+    /**
+     * Compress all {@link ImageTexture#getMipLevel(int) mipmap levels}
+     * of the given {@link ImageTexture} into the given type, and return
+     * a new {@link ImageTexture} with the compressed levels. 
+     * 
+     * @param imageTexture The {@link ImageTexture}
+     * @param type The target {@link ImageDataType}
+     * @return The compressed {@link ImageTexture}
+     * @throws IllegalArgumentException If the data of the texture is
+     * not {@link ImageDataType#INT_ARGB}, or the given type is not a
+     * supported compressed type
+     */
+    public static ImageTexture compress(
+        ImageTexture imageTexture, ImageDataType type)
+    {
+        Objects.requireNonNull(imageTexture, 
+            "The imageTexture may not be null");
+        int numMipLevels = imageTexture.getNumMipLevels();
+        List<ImageData> levels = new ArrayList<ImageData>(numMipLevels);
+        for (int i = 0; i < numMipLevels; i++)
+        {
+            levels.add(compress(imageTexture.getMipLevel(i), type));
+        }
+        return Textures.createImageTexture(levels);
+    }
+    
+    /**
+     * Compress the given {@link ImageData} into the given type
+     * 
+     * @param imageData The {@link ImageData}
+     * @param type The target {@link ImageDataType}
+     * @return The compressed {@link ImageData}
+     * @throws IllegalArgumentException If the given data is not 
+     * {@link ImageDataType#INT_ARGB}, or the given type is not a
+     * supported compressed type
+     */
+    public static ImageData compress(ImageData imageData, ImageDataType type)
+    {
+        Objects.requireNonNull(imageData, "The imageData may not be null");
+        Objects.requireNonNull(type, "The type may not be null");
+        if (imageData.getType() != ImageDataType.INT_ARGB)
+        {
+            throw new IllegalArgumentException(
+                "Only INT_ARGB can be compressed, but found " + 
+                imageData.getType());
+        }
+        if (!ImageDatas.isCompressed(type))
+        {
+            throw new IllegalArgumentException(
+                "The type is not a compressed type: " + type);
+        }
+        int w = imageData.getWidth();
+        int h = imageData.getHeight();
+        ImageData result = ImageDatas.create(w, h, type);
+        ByteBuffer sBuffer = imageData.getData();
+        sBuffer.order(ByteOrder.nativeOrder());
+        IntBuffer source = sBuffer.asIntBuffer();
+        ByteBuffer target = result.getData();
+        boolean bc3 = (type == ImageDataType.BC3_RGBA);
+        int blocksX = (w + 3) / 4;
+        int blocksY = (h + 3) / 4;
+        if ((long)blocksX * blocksY >= PARALLEL_THRESHOLD)
+        {
+            IntStream.range(0, blocksY).parallel().forEach(by ->
+                encodeBlockRow(source, w, h, by, bc3, target));
+        }
+        else
+        {
+            for (int by = 0; by < blocksY; by++)
+            {
+                encodeBlockRow(source, w, h, by, bc3, target);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Encode one row of blocks
+     * 
+     * @param source The source pixels
+     * @param w The width of the image
+     * @param h The height of the image
+     * @param by The index of the row of blocks
+     * @param bc3 Whether the blocks should be encoded as BC3 (or BC1)
+     * @param target The target buffer
+     */
+    private static void encodeBlockRow(IntBuffer source, int w, int h, 
+        int by, boolean bc3, ByteBuffer target)
+    {
+        int blocksX = (w + 3) / 4;
+        int blockSize = bc3 ? 16 : 8;
+        int pixels[] = new int[16];
+        for (int bx = 0; bx < blocksX; bx++)
+        {
+            for (int y = 0; y < 4; y++)
+            {
+                int sy = Math.min(by * 4 + y, h - 1);
+                for (int x = 0; x < 4; x++)
+                {
+                    int sx = Math.min(bx * 4 + x, w - 1);
+                    pixels[y * 4 + x] = source.get(sy * w + sx);
+                }
+            }
+            int offset = (by * blocksX + bx) * blockSize;
+            if (bc3)
+            {
+                encodeAlphaBlock(pixels, target, offset);
+                encodeColorBlock(pixels, false, target, offset + 8);
+            }
+            else
+            {
+                encodeColorBlock(pixels, true, target, offset);
+            }
+        }
+    }
+    
+    /**
+     * Encode the alpha values of the given pixels as a BC3 alpha block,
+     * and write the resulting 8 bytes into the given buffer
+     * 
+     * @param pixels The 16 ARGB pixels of the block
+     * @param target The target buffer
+     * @param offset The offset in the target buffer
+     */
+    private static void encodeAlphaBlock(
+        int pixels[], ByteBuffer target, int offset)
+    {
+        int a0 = 0;
+        int a1 = 255;
+        for (int i = 0; i < 16; i++)
+        {
+            int a = pixels[i] >>> 24;
+            a0 = Math.max(a0, a);
+            a1 = Math.min(a1, a);
+        }
+        long indices = 0;
+        if (a0 > a1)
+        {
+            int palette[] = new int[8];
+            palette[0] = a0;
+            palette[1] = a1;
+            for (int i = 2; i < 8; i++)
+            {
+                palette[i] = ((8 - i) * a0 + (i - 1) * a1 + 3) / 7;
+            }
+            for (int i = 0; i < 16; i++)
+            {
+                int a = pixels[i] >>> 24;
+                int best = 0;
+                int bestError = Integer.MAX_VALUE;
+                for (int j = 0; j < 8; j++)
+                {
+                    int error = Math.abs(a - palette[j]);
+                    if (error < bestError)
+                    {
+                        bestError = error;
+                        best = j;
+                    }
+                }
+                indices |= ((long)best) << (3 * i);
+            }
+        }
+        target.put(offset, (byte)a0);
+        target.put(offset + 1, (byte)a1);
+        for (int i = 0; i < 6; i++)
+        {
+            target.put(offset + 2 + i, (byte)(indices >>> (8 * i)));
+        }
+    }
+    
+    /**
+     * Encode the colors of the given pixels as a BC1 color block, and 
+     * write the resulting 8 bytes into the given buffer
+     * 
+     * @param pixels The 16 ARGB pixels of the block
+     * @param allowTransparent Whether pixels with an alpha value below
+     * 128 should be encoded as transparent pixels
+     * @param target The target buffer
+     * @param offset The offset in the target buffer
+     */
+    private static void encodeColorBlock(int pixels[], 
+        boolean allowTransparent, ByteBuffer target, int offset)
+    {
+        boolean transparent[] = new boolean[16];
+        boolean anyTransparent = false;
+        boolean anyOpaque = false;
+        for (int i = 0; i < 16; i++)
+        {
+            transparent[i] = allowTransparent && (pixels[i] >>> 24) < 128;
+            anyTransparent |= transparent[i];
+            anyOpaque |= !transparent[i];
+        }
+        int c0 = 0;
+        int c1 = 0;
+        if (anyOpaque)
+        {
+            int endpoints[] = computeEndpoints(pixels, transparent);
+            c0 = toRgb565(endpoints[0]);
+            c1 = toRgb565(endpoints[1]);
+        }
+        
+        // In the 4-color mode, c0 must be greater than c1. In the 3-color 
+        // mode with transparency, c0 must not be greater than c1.
+        if (anyTransparent ? c0 > c1 : c0 < c1)
+        {
+            int t = c0;
+            c0 = c1;
+            c1 = t;
+        }
+        int palette[] = new int[4];
+        palette[0] = fromRgb565(c0);
+        palette[1] = fromRgb565(c1);
+        int numColors = 4;
+        if (anyTransparent)
+        {
+            palette[2] = interpolate(palette[0], palette[1], 1, 1);
+            numColors = 3;
+        }
+        else
+        {
+            palette[2] = interpolate(palette[0], palette[1], 2, 1);
+            palette[3] = interpolate(palette[0], palette[1], 1, 2);
+        }
+        int indices = 0;
+        if (c0 != c1 || anyTransparent)
+        {
+            for (int i = 0; i < 16; i++)
+            {
+                int index = 3;
+                if (!transparent[i])
+                {
+                    index = findClosest(pixels[i], palette, numColors);
+                }
+                indices |= index << (2 * i);
+            }
+        }
+        target.put(offset, (byte)c0);
+        target.put(offset + 1, (byte)(c0 >>> 8));
+        target.put(offset + 2, (byte)c1);
+        target.put(offset + 3, (byte)(c1 >>> 8));
+        for (int i = 0; i < 4; i++)
+        {
+            target.put(offset + 4 + i, (byte)(indices >>> (8 * i)));
+        }
+    }
+    
+    /**
+     * Compute the endpoint colors for the given pixels, as the extreme 
+     * colors along the principal axis of the colors of all pixels that 
+     * are not transparent. At least one pixel must not be transparent.
+     * 
+     * @param pixels The 16 ARGB pixels of the block
+     * @param transparent Which pixels are transparent
+     * @return The two endpoint colors, as RGB values
+     */
+    private static int[] computeEndpoints(
+        int pixels[], boolean transparent[])
+    {
+        int n = 0;
+        float mr = 0;
+        float mg = 0;
+        float mb = 0;
+        for (int i = 0; i < 16; i++)
+        {
+            if (!transparent[i])
+            {
+                mr += (pixels[i] >> 16) & 0xFF;
+                mg += (pixels[i] >>  8) & 0xFF;
+                mb += (pixels[i]      ) & 0xFF;
+                n++;
+            }
+        }
+        mr /= n;
+        mg /= n;
+        mb /= n;
+        
+        float crr = 0;
+        float crg = 0;
+        float crb = 0;
+        float cgg = 0;
+        float cgb = 0;
+        float cbb = 0;
+        for (int i = 0; i < 16; i++)
+        {
+            if (!transparent[i])
+            {
+                float r = ((pixels[i] >> 16) & 0xFF) - mr;
+                float g = ((pixels[i] >>  8) & 0xFF) - mg;
+                float b = ((pixels[i]      ) & 0xFF) - mb;
+                crr += r * r;
+                crg += r * g;
+                crb += r * b;
+                cgg += g * g;
+                cgb += g * b;
+                cbb += b * b;
+            }
+        }
+        
+        // Compute the principal axis with a few power iterations
+        float ar = 1.0f;
+        float ag = 1.0f;
+        float ab = 1.0f;
+        for (int k = 0; k < POWER_ITERATIONS; k++)
+        {
+            float r = crr * ar + crg * ag + crb * ab;
+            float g = crg * ar + cgg * ag + cgb * ab;
+            float b = crb * ar + cgb * ag + cbb * ab;
+            float max = Math.max(Math.abs(r), 
+                Math.max(Math.abs(g), Math.abs(b)));
+            if (max == 0.0f)
+            {
+                break;
+            }
+            ar = r / max;
+            ag = g / max;
+            ab = b / max;
+        }
+        
+        int minPixel = 0;
+        int maxPixel = 0;
+        float minDot = Float.POSITIVE_INFINITY;
+        float maxDot = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < 16; i++)
+        {
+            if (!transparent[i])
+            {
+                float dot = 
+                    ((pixels[i] >> 16) & 0xFF) * ar + 
+                    ((pixels[i] >>  8) & 0xFF) * ag + 
+                    ((pixels[i]      ) & 0xFF) * ab;
+                if (dot < minDot)
+                {
+                    minDot = dot;
+                    minPixel = pixels[i];
+                }
+                if (dot > maxDot)
+                {
+                    maxDot = dot;
+                    maxPixel = pixels[i];
+                }
+            }
+        }
+        return new int[] { maxPixel & 0xFFFFFF, minPixel & 0xFFFFFF };
+    }
+    
+    /**
+     * Find the index of the color in the given palette that is closest 
+     * to the given color
+     * 
+     * @param color The RGB color
+     * @param palette The palette of RGB colors
+     * @param numColors The number of colors in the palette
+     * @return The index of the closest color
+     */
+    private static int findClosest(int color, int palette[], int numColors)
+    {
+        int r = (color >> 16) & 0xFF;
+        int g = (color >>  8) & 0xFF;
+        int b = (color      ) & 0xFF;
+        int best = 0;
+        int bestError = Integer.MAX_VALUE;
+        for (int j = 0; j < numColors; j++)
+        {
+            int dr = r - ((palette[j] >> 16) & 0xFF);
+            int dg = g - ((palette[j] >>  8) & 0xFF);
+            int db = b - ((palette[j]      ) & 0xFF);
+            int error = dr * dr + dg * dg + db * db;
+            if (error < bestError)
+            {
+                bestError = error;
+                best = j;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Computes the weighted average of the given RGB colors
+     * 
+     * @param c0 The first color
+     * @param c1 The second color
+     * @param w0 The weight of the first color
+     * @param w1 The weight of the second color
+     * @return The interpolated color
+     */
+    private static int interpolate(int c0, int c1, int w0, int w1)
+    {
+        int sum = w0 + w1;
+        int r = (((c0 >> 16) & 0xFF) * w0 + ((c1 >> 16) & 0xFF) * w1) / sum;
+        int g = (((c0 >>  8) & 0xFF) * w0 + ((c1 >>  8) & 0xFF) * w1) / sum;
+        int b = (((c0      ) & 0xFF) * w0 + ((c1      ) & 0xFF) * w1) / sum;
+        return (r << 16) | (g << 8) | b;
+    }
+    
+    /**
+     * Converts the given RGB color into an RGB565 value
+     * 
+     * @param rgb The RGB color
+     * @return The RGB565 value
+     */
+    private static int toRgb565(int rgb)
+    {
+        int r = (((rgb >> 16) & 0xFF) * 31 + 127) / 255;
+        int g = (((rgb >>  8) & 0xFF) * 63 + 127) / 255;
+        int b = (((rgb      ) & 0xFF) * 31 + 127) / 255;
+        return (r << 11) | (g << 5) | b;
+    }
+    
+    /**
+     * Converts the given RGB565 value into an RGB color
+     * 
+     * @param c The RGB565 value
+     * @return The RGB color
+     */
+    private static int fromRgb565(int c)
+    {
+        int r = (c >> 11) & 0x1F;
+        int g = (c >>  5) & 0x3F;
+        int b = (c      ) & 0x1F;
+        r = (r << 3) | (r >> 2);
+        g = (g << 2) | (g >> 4);
+        b = (b << 3) | (b >> 2);
+        return (r << 16) | (g << 8) | b;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private TextureCompression()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
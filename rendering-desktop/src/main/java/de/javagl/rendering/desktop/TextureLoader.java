@@ -0,0 +1,544 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.desktop;
+
+import java.awt.image.BufferedImage;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import de.javagl.rendering.core.Command;
+import de.javagl.rendering.core.ImageTexture;
+import de.javagl.rendering.core.Renderer;
+import de.javagl.rendering.core.RenderingEnvironment;
+
+/**
+ * A class for loading many {@link ImageTexture}s concurrently.<br>
+ * <br>
+ * The images are decoded on an executor. By default, this is an executor
+ * that uses virtual threads when they are available, and a thread pool 
+ * with one thread per core otherwise.<br>
+ * <br>
+ * The amount of memory that is occupied by images that are currently 
+ * being decoded is limited: Before an image is decoded, its size is 
+ * determined from the image header, and the decoding only starts when
+ * the estimated number of bytes fits into the budget of bytes in flight. 
+ * An image that is larger than the whole budget is decoded when no other
+ * image is in flight. The budget is managed with a fair semaphore, with 
+ * one permit per kilobyte, so that waiting for the budget does not pin
+ * the carrier threads of virtual threads. Files are closed after their
+ * header has been read, and opened again when the budget was granted, 
+ * so that loads that are waiting do not keep files open.<br>
+ * <br>
+ * When a {@link RenderingEnvironment} is set, each loaded texture is
+ * passed to its texture handler, on the rendering thread, as soon as
+ * it has been decoded.
+ */
+public final class TextureLoader
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(TextureLoader.class.getName());
+    
+    /**
+     * The default number of bytes that may be in flight
+     */
+    private static final long DEFAULT_MAX_BYTES_IN_FLIGHT = 256L << 20;
+    
+    /**
+     * The executor that performs the decoding
+     */
+    private final ExecutorService executor;
+    
+    /**
+     * Whether the executor was created by this instance
+     */
+    private final boolean ownsExecutor;
+    
+    /**
+     * The maximum number of bytes that may be in flight
+     */
+    private final long maxBytesInFlight;
+    
+    /**
+     * The maximum number of permits of the {@link #budget}
+     */
+    private final int maxPermits;
+    
+    /**
+     * The semaphore for the budget of bytes in flight, with one permit 
+     * per kilobyte
+     */
+    private final Semaphore budget;
+    
+    /**
+     * The {@link RenderingEnvironment} that receives the loaded textures
+     */
+    private volatile RenderingEnvironment<?> renderingEnvironment;
+    
+    /**
+     * Creates a new texture loader with a default executor, and a 
+     * budget of 256 MB in flight
+     */
+    public TextureLoader()
+    {
+        this(createDefaultExecutor(), true, DEFAULT_MAX_BYTES_IN_FLIGHT);
+    }
+    
+    /**
+     * Creates a new texture loader that uses the given executor. The 
+     * executor will not be shut down by this loader.
+     * 
+     * @param executor The executor
+     * @param maxBytesInFlight The maximum number of bytes that may be
+     * occupied by images that are currently being decoded
+     * @throws NullPointerException If the executor is <code>null</code>
+     * @throws IllegalArgumentException If the maximum number of bytes is
+     * not positive
+     */
+    public TextureLoader(ExecutorService executor, long maxBytesInFlight)
+    {
+        this(executor, false, maxBytesInFlight);
+    }
+    
+    /**
+     * Creates a new texture loader
+     * 
+     * @param executor The executor
+     * @param ownsExecutor Whether the executor was created by this loader
+     * @param maxBytesInFlight The maximum number of bytes in flight
+     */
+    private TextureLoader(ExecutorService executor, boolean ownsExecutor,
+        long maxBytesInFlight)
+    {
+        this.executor = Objects.requireNonNull(executor, 
+            "The executor may not be null");
+        if (maxBytesInFlight <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The maxBytesInFlight must be positive, but is " + 
+                maxBytesInFlight);
+        }
+        this.ownsExecutor = ownsExecutor;
+        this.maxBytesInFlight = maxBytesInFlight;
+        this.maxPermits = (int)Math.min(
+            Integer.MAX_VALUE, (maxBytesInFlight + 1023) / 1024);
+        this.budget = new Semaphore(maxPermits, true);
+    }
+    
+    /**
+     * Creates the default executor. This will be an executor that 
+     * creates one virtual thread per task if virtual threads are 
+     * available, and a pool of daemon threads with one thread per
+     * core otherwise.
+     * 
+     * @return The executor
+     */
+    private static ExecutorService createDefaultExecutor()
+    {
+        try
+        {
+            Method method = 
+                Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)method.invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            logger.fine("Virtual threads are not available, using a pool");
+        }
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(numThreads, r -> 
+        {
+            Thread thread = new Thread(r, "TextureLoader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Set the {@link RenderingEnvironment} that should receive the loaded
+     * textures. Each texture that is loaded afterwards will be passed to
+     * the texture handler of the environment, on the rendering thread.
+     * 
+     * @param renderingEnvironment The {@link RenderingEnvironment}. May
+     * be <code>null</code>.
+     */
+    public void setRenderingEnvironment(
+        RenderingEnvironment<?> renderingEnvironment)
+    {
+        this.renderingEnvironment = renderingEnvironment;
+    }
+    
+    /**
+     * Load the {@link ImageTexture} from the specified file
+     * 
+     * @param fileName The name of the file
+     * @param flipVertically Whether the image should be flipped vertically
+     * @return The future that will receive the {@link ImageTexture}. If
+     * the texture can not be loaded, then the future will be completed
+     * exceptionally, with an <code>UncheckedIOException</code>
+     */
+    public CompletableFuture<ImageTexture> load(
+        String fileName, boolean flipVertically)
+    {
+        Objects.requireNonNull(fileName, "The fileName may not be null");
+        return CompletableFuture.supplyAsync(() -> 
+        {
+            try
+            {
+                return loadFile(fileName, flipVertically);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+    
+    /**
+     * Load the {@link ImageTexture} from the given stream. The stream
+     * will be read on the executor, and closed when the loading is 
+     * finished. Unlike files, streams can not be reopened, so the stream
+     * stays open while the loading waits for the budget of bytes in 
+     * flight.
+     * 
+     * @param inputStream The input stream
+     * @param flipVertically Whether the image should be flipped vertically
+     * @return The future that will receive the {@link ImageTexture}. If
+     * the texture can not be loaded, then the future will be completed
+     * exceptionally, with an <code>UncheckedIOException</code>
+     */
+    public CompletableFuture<ImageTexture> load(
+        InputStream inputStream, boolean flipVertically)
+    {
+        Objects.requireNonNull(inputStream, 
+            "The inputStream may not be null");
+        return CompletableFuture.supplyAsync(() -> 
+        {
+            try (InputStream s = inputStream)
+            {
+                return loadStream(s, String.valueOf(s), flipVertically);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+    
+    /**
+     * Load the {@link ImageTexture}s from all the specified files
+     * 
+     * @param fileNames The names of the files
+     * @param flipVertically Whether the images should be flipped vertically
+     * @return The futures that will receive the {@link ImageTexture}s,
+     * in the same order as the given file names
+     */
+    public List<CompletableFuture<ImageTexture>> loadAll(
+        Collection<String> fileNames, boolean flipVertically)
+    {
+        List<CompletableFuture<ImageTexture>> futures = 
+            new ArrayList<CompletableFuture<ImageTexture>>();
+        for (String fileName : fileNames)
+        {
+            futures.add(load(fileName, flipVertically));
+        }
+        return futures;
+    }
+    
+    /**
+     * Load the {@link ImageTexture} from the specified file, within the 
+     * budget of bytes in flight, and pass it to the rendering environment.
+     * The file is closed while waiting for the budget.
+     * 
+     * @param fileName The name of the file
+     * @param flipVertically Whether the image should be flipped vertically
+     * @return The {@link ImageTexture}
+     * @throws IOException If an IO error occurs
+     */
+    private ImageTexture loadFile(String fileName, boolean flipVertically) 
+        throws IOException
+    {
+        long bytes;
+        try (InputStream inputStream = new FileInputStream(fileName);
+            ImageInputStream imageInputStream = 
+                openImageInputStream(inputStream, fileName))
+        {
+            ImageReader reader = openReader(imageInputStream, fileName);
+            try
+            {
+                bytes = estimateBytes(reader);
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+        int permits = acquire(bytes);
+        try (InputStream inputStream = new FileInputStream(fileName);
+            ImageInputStream imageInputStream = 
+                openImageInputStream(inputStream, fileName))
+        {
+            ImageReader reader = openReader(imageInputStream, fileName);
+            try
+            {
+                return decode(reader, flipVertically);
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+        finally
+        {
+            release(permits);
+        }
+    }
+    
+    /**
+     * Load the {@link ImageTexture} from the given stream, within the 
+     * budget of bytes in flight, and pass it to the rendering environment
+     * 
+     * @param inputStream The input stream
+     * @param name The name of the source, for error messages
+     * @param flipVertically Whether the image should be flipped vertically
+     * @return The {@link ImageTexture}
+     * @throws IOException If an IO error occurs
+     */
+    private ImageTexture loadStream(
+        InputStream inputStream, String name, boolean flipVertically) 
+        throws IOException
+    {
+        try (ImageInputStream imageInputStream = 
+            openImageInputStream(inputStream, name))
+        {
+            ImageReader reader = openReader(imageInputStream, name);
+            try
+            {
+                int permits = acquire(estimateBytes(reader));
+                try
+                {
+                    return decode(reader, flipVertically);
+                }
+                finally
+                {
+                    release(permits);
+                }
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+    }
+    
+    /**
+     * Create an image input stream for the given input stream
+     * 
+     * @param inputStream The input stream
+     * @param name The name of the source, for error messages
+     * @return The image input stream
+     * @throws IOException If the stream can not be created
+     */
+    private static ImageInputStream openImageInputStream(
+        InputStream inputStream, String name) throws IOException
+    {
+        ImageInputStream imageInputStream = 
+            ImageIO.createImageInputStream(inputStream);
+        if (imageInputStream == null)
+        {
+            throw new IOException("Could not read " + name);
+        }
+        return imageInputStream;
+    }
+    
+    /**
+     * Create an image reader for the given image input stream. The 
+     * caller is responsible for disposing the reader.
+     * 
+     * @param imageInputStream The image input stream
+     * @param name The name of the source, for error messages
+     * @return The image reader
+     * @throws IOException If no reader is found for the stream
+     */
+    private static ImageReader openReader(
+        ImageInputStream imageInputStream, String name) throws IOException
+    {
+        Iterator<ImageReader> readers = 
+            ImageIO.getImageReaders(imageInputStream);
+        if (!readers.hasNext())
+        {
+            throw new IOException("No image reader found for " + name);
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(imageInputStream, true, true);
+        return reader;
+    }
+    
+    /**
+     * Estimate the number of bytes that the image of the given reader
+     * occupies while it is decoded, based on the image header
+     * 
+     * @param reader The image reader
+     * @return The number of bytes
+     * @throws IOException If the header can not be read
+     */
+    private long estimateBytes(ImageReader reader) throws IOException
+    {
+        int w = reader.getWidth(0);
+        int h = reader.getHeight(0);
+        
+        // The estimate covers the decoded image and the image 
+        // data of the texture, with up to 4 bytes per pixel each
+        return Math.min(8L * w * h, maxBytesInFlight);
+    }
+    
+    /**
+     * Decode the image of the given reader into an {@link ImageTexture},
+     * and pass it to the rendering environment
+     * 
+     * @param reader The image reader
+     * @param flipVertically Whether the image should be flipped vertically
+     * @return The {@link ImageTexture}
+     * @throws IOException If an IO error occurs
+     */
+    private ImageTexture decode(ImageReader reader, boolean flipVertically)
+        throws IOException
+    {
+        BufferedImage image = reader.read(0);
+        ImageTexture texture = ImageTextures.create(image, flipVertically);
+        handOver(texture);
+        return texture;
+    }
+    
+    /**
+     * Pass the given texture to the texture handler of the rendering 
+     * environment, if one was set
+     * 
+     * @param texture The texture
+     */
+    private void handOver(ImageTexture texture)
+    {
+        RenderingEnvironment<?> environment = renderingEnvironment;
+        if (environment == null)
+        {
+            return;
+        }
+        environment.addTask(new Command()
+        {
+            @Override
+            public void execute(Renderer renderer)
+            {
+                renderer.getTextureHandler().handle(texture);
+            }
+            
+            @Override
+            public String toString()
+            {
+                return "handleTexture(" + texture + ")";
+            }
+        });
+        environment.triggerRendering();
+    }
+    
+    /**
+     * Wait until the given number of bytes fits into the budget, and
+     * add them to the bytes in flight
+     * 
+     * @param bytes The number of bytes
+     * @return The number of permits that have been acquired
+     * @throws IOException If the thread is interrupted while waiting
+     */
+    private int acquire(long bytes) throws IOException
+    {
+        int permits = (int)Math.min(maxPermits, (bytes + 1023) / 1024);
+        try
+        {
+            budget.acquire(permits);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting", e);
+        }
+        return permits;
+    }
+    
+    /**
+     * Remove the given number of permits from the bytes in flight
+     * 
+     * @param permits The number of permits
+     */
+    private void release(int permits)
+    {
+        budget.release(permits);
+    }
+    
+    /**
+     * Returns the estimated number of bytes that are currently occupied 
+     * by images that are being decoded. This is rounded up to full 
+     * kilobytes per image.
+     * 
+     * @return The number of bytes in flight
+     */
+    public long getBytesInFlight()
+    {
+        return (maxPermits - budget.availablePermits()) * 1024L;
+    }
+    
+    /**
+     * Shut down this loader. If the executor was created by this loader,
+     * then it will be shut down. Textures that are currently loading will
+     * still be loaded.
+     */
+    public void shutdown()
+    {
+        if (ownsExecutor)
+        {
+            executor.shutdown();
+        }
+    }
+}
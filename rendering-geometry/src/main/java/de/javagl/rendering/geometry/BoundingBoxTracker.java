@@ -0,0 +1,55 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.geometry;
+
+/**
+ * Interface for classes that maintain the {@link BoundingBox} of an 
+ * {@link Array3f} whose contents may change. Instances of this class 
+ * may be created with the {@link BoundingBoxes} class.
+ */
+public interface BoundingBoxTracker
+{
+    /**
+     * Notify this tracker that the elements of the array between the
+     * given fromIndex (inclusive) and toIndex (exclusive) have been
+     * modified. This will recompute the bounding box, only reading
+     * the array elements in the vicinity of the given range.
+     * 
+     * @param fromIndex The start index (inclusive)
+     * @param toIndex The end index (exclusive)
+     * @throws IndexOutOfBoundsException If the given range is not valid
+     */
+    void update(int fromIndex, int toIndex);
+    
+    /**
+     * Returns the current {@link BoundingBox} of the array
+     * 
+     * @return The {@link BoundingBox}
+     */
+    BoundingBox getBoundingBox();
+}
@@ -27,8 +27,9 @@
 
 package de.javagl.rendering.geometry;
 
+import java.nio.FloatBuffer;
+
 import javax.vecmath.Matrix4f;
-import javax.vecmath.Point3f;
 import javax.vecmath.Tuple3f;
 
 /**
@@ -124,29 +125,23 @@ public class BoundingBoxes
     
     
     /**
-     * Computes the {@link BoundingBox} of the given {@link Geometry}
+     * Computes the {@link BoundingBox} of the given {@link Geometry}.
+     * If the geometry does not contain any vertices, then the
+     * bounding box will consist of the origin.
      * 
      * @param geometry The {@link Geometry}
      * @return The {@link BoundingBox}
      */
     public static BoundingBox computeBoundingBox(Geometry geometry)
     {
-        Tuple3f min = new Point3f();
-        Tuple3f max = new Point3f();
-        Tuple3f vertex = new Point3f();
-        Array3f vertices = geometry.getVertices();
-        for (int i=0; i<vertices.getSize(); i++)
-        {
-            vertices.get3f(i, vertex);
-            min(min, min, vertex);
-            max(max, max, vertex);
-        }
-        return create(min, max);
+        return computeBoundingBox(geometry.getVertices());
     }
 
     /**
      * Computes the {@link BoundingBox} of the given {@link Geometry} 
-     * when it is transformed with the given matrix.
+     * when it is transformed with the given matrix. If the geometry does 
+     * not contain any vertices, then the bounding box will consist of 
+     * the transformed origin.
      * 
      * @param geometry The {@link Geometry}
      * @param matrix The matrix
@@ -155,46 +150,111 @@ public class BoundingBoxes
     public static BoundingBox computeBoundingBox(
         Geometry geometry, Matrix4f matrix)
     {
-        Tuple3f min = new Point3f();
-        Tuple3f max = new Point3f();
-        Point3f vertex = new Point3f();
-        Array3f vertices = geometry.getVertices();
-        for (int i=0; i<vertices.getSize(); i++)
+        return computeBoundingBox(geometry.getVertices(), matrix);
+    }
+    
+    /**
+     * Computes the {@link BoundingBox} of the given {@link Array3f}.
+     * The array will be read in chunks, and large arrays will be 
+     * processed in parallel. If the array is empty, then the 
+     * bounding box will consist of the origin.
+     * 
+     * @param array The {@link Array3f}
+     * @return The {@link BoundingBox}
+     */
+    public static BoundingBox computeBoundingBox(Array3f array)
+    {
+        return BoundsComputation.toBoundingBox(
+            BoundsComputation.compute(array, null));
+    }
+    
+    /**
+     * Computes the {@link BoundingBox} of the given {@link Array3f}
+     * when all its elements are transformed with the given matrix. 
+     * The array will be read in chunks, and large arrays will be 
+     * processed in parallel. If the array is empty, then the 
+     * bounding box will consist of the transformed origin.<br>
+     * <br>
+     * The result is exact, but requires transforming each element.
+     * An approximation that is sufficient for many applications may
+     * be computed with {@link #transform(BoundingBox, Matrix4f)}. 
+     * 
+     * @param array The {@link Array3f}
+     * @param matrix The matrix
+     * @return The {@link BoundingBox}
+     */
+    public static BoundingBox computeBoundingBox(
+        Array3f array, Matrix4f matrix)
+    {
+        if (array.getSize() == 0)
         {
-            vertices.get3f(i, vertex);
-            matrix.transform(vertex);
-            min(min, min, vertex);
-            max(max, max, vertex);
+            return transform(create(0, 0, 0, 0, 0, 0), matrix);
         }
-        return create(min, max);
+        return BoundsComputation.toBoundingBox(
+            BoundsComputation.compute(array, matrix));
     }
     
     /**
-     * Set the minimum tuple to the element-wise minimum of the given ones
+     * Computes the {@link BoundingBox} of the points whose x,y,z 
+     * coordinates are stored in the given buffer, between its
+     * position and its limit. The position of the buffer will not
+     * be modified. If the buffer does not contain any points, then 
+     * the bounding box will consist of the origin.
      * 
-     * @param min The minimum tuple
-     * @param t0 The first other tuple
-     * @param t1 The second other tuple
+     * @param buffer The buffer
+     * @return The {@link BoundingBox}
      */
-    private static void min(Tuple3f min, Tuple3f t0, Tuple3f t1)
+    public static BoundingBox computeBoundingBox(FloatBuffer buffer)
     {
-        min.x = Math.min(t0.x, t1.x);
-        min.y = Math.min(t0.y, t1.y);
-        min.z = Math.min(t0.z, t1.z);
+        float bounds[] = BoundsComputation.createEmpty();
+        BoundsComputation.compute(buffer, null, bounds);
+        return BoundsComputation.toBoundingBox(bounds);
+    }
+    
+    /**
+     * Computes the {@link BoundingBox} that contains the 8 corners of 
+     * the given {@link BoundingBox}, transformed with the given matrix.
+     * The result contains all points that are contained in the given
+     * box, but may be larger than the bounding box of the transformed 
+     * points, in particular for rotations. 
+     * 
+     * @param boundingBox The {@link BoundingBox}
+     * @param matrix The matrix
+     * @return The {@link BoundingBox}
+     */
+    public static BoundingBox transform(
+        BoundingBox boundingBox, Matrix4f matrix)
+    {
+        float corners[] = new float[8 * 3];
+        int n = 0;
+        for (int i = 0; i < 8; i++)
+        {
+            corners[n++] = (i & 1) == 0 ? 
+                boundingBox.getMinX() : boundingBox.getMaxX();
+            corners[n++] = (i & 2) == 0 ? 
+                boundingBox.getMinY() : boundingBox.getMaxY();
+            corners[n++] = (i & 4) == 0 ? 
+                boundingBox.getMinZ() : boundingBox.getMaxZ();
+        }
+        float bounds[] = BoundsComputation.createEmpty();
+        BoundsComputation.compute(FloatBuffer.wrap(corners), matrix, bounds);
+        return BoundsComputation.toBoundingBox(bounds);
     }
     
     /**
-     * Set the maximum tuple to the element-wise maximum of the given ones
+     * Creates a {@link BoundingBoxTracker} for the given {@link Array3f}.
+     * When elements of the array are modified, the tracker may be 
+     * notified via {@link BoundingBoxTracker#update(int, int)}, and 
+     * will then update its bounding box by only re-reading the 
+     * elements in the vicinity of the modified range. The size
+     * of the given array must not change.
      * 
-     * @param max The maximum tuple
-     * @param t0 The first other tuple
-     * @param t1 The second other tuple
+     * @param array The {@link Array3f}
+     * @return The {@link BoundingBoxTracker}
      */
-    private static void max(Tuple3f max, Tuple3f t0, Tuple3f t1)
+    public static BoundingBoxTracker createTracker(Array3f array)
     {
-        max.x = Math.max(t0.x, t1.x);
-        max.y = Math.max(t0.y, t1.y);
-        max.z = Math.max(t0.z, t1.z);
+        return new DefaultBoundingBoxTracker(array);
     }
 
     /**
@@ -0,0 +1,340 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.geometry;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.vecmath.Matrix4f;
+
+/**
+ * Package-private methods for the computation of bounds of 
+ * {@link Array3f} and FloatBuffer contents. The bounds are
+ * stored as float arrays {minX, minY, minZ, maxX, maxY, maxZ}.
+ */
+final class BoundsComputation
+{
+    /**
+     * The number of elements that are read from an {@link Array3f}
+     * at once
+     */
+    private static final int CHUNK_SIZE = 1024;
+    
+    /**
+     * The number of elements above which the computation is distributed
+     * among multiple fork/join workers 
+     */
+    private static final int PARALLEL_THRESHOLD = 65536;
+    
+    /**
+     * The number of elements that are processed by a single fork/join task
+     */
+    private static final int TASK_SIZE = 16384;
+    
+    /**
+     * Creates new, empty bounds, where the minimum is positive infinity
+     * and the maximum is negative infinity
+     * 
+     * @return The bounds
+     */
+    static float[] createEmpty()
+    {
+        return new float[] {
+            Float.POSITIVE_INFINITY, 
+            Float.POSITIVE_INFINITY, 
+            Float.POSITIVE_INFINITY, 
+            Float.NEGATIVE_INFINITY,
+            Float.NEGATIVE_INFINITY,
+            Float.NEGATIVE_INFINITY
+        };
+    }
+    
+    /**
+     * Combine the given bounds with the other bounds, storing the result 
+     * in the given bounds
+     * 
+     * @param bounds The bounds
+     * @param other The other bounds
+     * @param otherOffset The offset of the bounds in the other array
+     */
+    static void combine(float bounds[], float other[], int otherOffset)
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            bounds[i] = Math.min(bounds[i], other[otherOffset + i]);
+            bounds[i + 3] = Math.max(bounds[i + 3], other[otherOffset + i + 3]);
+        }
+    }
+    
+    /**
+     * Creates a {@link BoundingBox} from the given bounds. If the bounds
+     * are empty, then the bounding box will consist of the origin.
+     * 
+     * @param bounds The bounds
+     * @return The {@link BoundingBox}
+     */
+    static BoundingBox toBoundingBox(float bounds[])
+    {
+        if (bounds[0] > bounds[3])
+        {
+            return BoundingBoxes.create(0, 0, 0, 0, 0, 0);
+        }
+        return BoundingBoxes.create(
+            bounds[0], bounds[1], bounds[2], 
+            bounds[3], bounds[4], bounds[5]);
+    }
+    
+    /**
+     * Compute the bounds of the given array, optionally transformed with
+     * the given matrix, and return them. Large arrays will be processed
+     * in parallel.
+     * 
+     * @param array The array
+     * @param matrix The optional matrix
+     * @return The bounds
+     */
+    static float[] compute(Array3f array, Matrix4f matrix)
+    {
+        int size = array.getSize();
+        if (size < PARALLEL_THRESHOLD)
+        {
+            float bounds[] = createEmpty();
+            compute(array, matrix, bounds, new float[CHUNK_SIZE * 3]);
+            return bounds;
+        }
+        
+        // Create the sub-arrays on this thread, because creating them
+        // may modify the state of the backing buffer
+        List<Array3f> blocks = new ArrayList<Array3f>();
+        for (int from = 0; from < size; from += TASK_SIZE)
+        {
+            int to = Math.min(size, from + TASK_SIZE);
+            blocks.add(array.subArray3f(from, to));
+        }
+        return ForkJoinPool.commonPool().invoke(
+            new BoundsTask(blocks, 0, blocks.size(), matrix));
+    }
+    
+    /**
+     * Combine the given bounds with the bounds of the given array, 
+     * optionally transformed with the given matrix. The array will 
+     * be read in chunks, using the given temporary array.
+     * 
+     * @param array The array
+     * @param matrix The optional matrix
+     * @param bounds The bounds
+     * @param chunk The temporary array, with a length that is a 
+     * multiple of 3
+     */
+    static void compute(
+        Array3f array, Matrix4f matrix, float bounds[], float chunk[])
+    {
+        int size = array.getSize();
+        int chunkSize = chunk.length / 3;
+        FloatBuffer chunkBuffer = FloatBuffer.wrap(chunk);
+        for (int from = 0; from < size; from += chunkSize)
+        {
+            int to = Math.min(size, from + chunkSize);
+            chunkBuffer.clear();
+            array.subArray3f(from, to).get3f(chunkBuffer);
+            compute(chunk, 0, (to - from) * 3, matrix, bounds);
+        }
+    }
+    
+    /**
+     * Combine the given bounds with the bounds of the remaining elements 
+     * of the given buffer, optionally transformed with the given matrix. 
+     * The position of the buffer will not be modified.
+     * 
+     * @param buffer The buffer
+     * @param matrix The optional matrix
+     * @param bounds The bounds
+     */
+    static void compute(FloatBuffer buffer, Matrix4f matrix, float bounds[])
+    {
+        if (buffer.hasArray())
+        {
+            int offset = buffer.arrayOffset() + buffer.position();
+            float array[] = buffer.array();
+            int n = buffer.remaining() - buffer.remaining() % 3;
+            compute(array, offset, n, matrix, bounds);
+            return;
+        }
+        float chunk[] = new float[CHUNK_SIZE * 3];
+        FloatBuffer b = buffer.slice();
+        while (b.remaining() >= 3)
+        {
+            int n = Math.min(chunk.length, b.remaining() - b.remaining() % 3);
+            b.get(chunk, 0, n);
+            compute(chunk, 0, n, matrix, bounds);
+        }
+    }
+    
+    /**
+     * Combine the given bounds with the bounds of n elements of the given 
+     * array, starting at the given offset, optionally transformed with the 
+     * given matrix.
+     * 
+     * @param array The array, containing x,y,z coordinates
+     * @param offset The offset in the array
+     * @param n The number of elements to process (3 per point)
+     * @param matrix The optional matrix
+     * @param bounds The bounds
+     */
+    private static void compute(
+        float array[], int offset, int n, Matrix4f matrix, float bounds[])
+    {
+        float minX = bounds[0];
+        float minY = bounds[1];
+        float minZ = bounds[2];
+        float maxX = bounds[3];
+        float maxY = bounds[4];
+        float maxZ = bounds[5];
+        if (matrix == null)
+        {
+            for (int i = offset; i < offset + n; i += 3)
+            {
+                float x = array[i + 0];
+                float y = array[i + 1];
+                float z = array[i + 2];
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                minZ = Math.min(minZ, z);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+                maxZ = Math.max(maxZ, z);
+            }
+        }
+        else
+        {
+            Matrix4f m = matrix;
+            for (int i = offset; i < offset + n; i += 3)
+            {
+                float vx = array[i + 0];
+                float vy = array[i + 1];
+                float vz = array[i + 2];
+                float x = m.m00 * vx + m.m01 * vy + m.m02 * vz + m.m03; 
+                float y = m.m10 * vx + m.m11 * vy + m.m12 * vz + m.m13; 
+                float z = m.m20 * vx + m.m21 * vy + m.m22 * vz + m.m23; 
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                minZ = Math.min(minZ, z);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+                maxZ = Math.max(maxZ, z);
+            }
+        }
+        bounds[0] = minX;
+        bounds[1] = minY;
+        bounds[2] = minZ;
+        bounds[3] = maxX;
+        bounds[4] = maxY;
+        bounds[5] = maxZ;
+    }
+    
+    /**
+     * A fork/join task computing the bounds of a range of blocks
+     */
+    private static class BoundsTask extends RecursiveTask<float[]>
+    {
+        /**
+         * Serial UID
+         */
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * The blocks
+         */
+        private final List<Array3f> blocks;
+        
+        /**
+         * The first block, inclusive
+         */
+        private final int from;
+        
+        /**
+         * The last block, exclusive
+         */
+        private final int to;
+        
+        /**
+         * The optional matrix
+         */
+        private final Matrix4f matrix;
+        
+        /**
+         * Creates a new task
+         * 
+         * @param blocks The blocks
+         * @param from The first block, inclusive
+         * @param to The last block, exclusive
+         * @param matrix The optional matrix
+         */
+        BoundsTask(List<Array3f> blocks, int from, int to, Matrix4f matrix)
+        {
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+            this.matrix = matrix;
+        }
+
+        @Override
+        protected float[] compute()
+        {
+            if (to - from <= 1)
+            {
+                float bounds[] = createEmpty();
+                float chunk[] = new float[CHUNK_SIZE * 3];
+                for (int i = from; i < to; i++)
+                {
+                    BoundsComputation.compute(
+                        blocks.get(i), matrix, bounds, chunk);
+                }
+                return bounds;
+            }
+            int mid = (from + to) >>> 1;
+            BoundsTask left = new BoundsTask(blocks, from, mid, matrix);
+            BoundsTask right = new BoundsTask(blocks, mid, to, matrix);
+            left.fork();
+            float bounds[] = right.compute();
+            combine(bounds, left.join(), 0);
+            return bounds;
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private BoundsComputation()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.geometry;
+
+/**
+ * Default implementation of a {@link BoundingBoxTracker}. It divides
+ * the array into blocks of a fixed size, and stores the bounds of each
+ * block, so that only the blocks that are affected by a modification
+ * have to be re-read.
+ */
+final class DefaultBoundingBoxTracker implements BoundingBoxTracker
+{
+    /**
+     * The number of array elements in each block
+     */
+    private static final int BLOCK_SIZE = 1024;
+    
+    /**
+     * The array whose bounds are tracked
+     */
+    private final Array3f array;
+    
+    /**
+     * The number of blocks
+     */
+    private final int numBlocks;
+    
+    /**
+     * The bounds of the blocks, 6 per block
+     */
+    private final float blockBounds[];
+    
+    /**
+     * A temporary array for reading the array elements
+     */
+    private final float chunk[];
+    
+    /**
+     * The current bounding box
+     */
+    private BoundingBox boundingBox;
+    
+    /**
+     * Creates a new tracker for the given array
+     * 
+     * @param array The array
+     */
+    DefaultBoundingBoxTracker(Array3f array)
+    {
+        this.array = array;
+        this.numBlocks = (array.getSize() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.blockBounds = new float[numBlocks * 6];
+        this.chunk = new float[BLOCK_SIZE * 3];
+        update(0, array.getSize());
+    }
+
+    @Override
+    public synchronized void update(int fromIndex, int toIndex)
+    {
+        int size = array.getSize();
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex)
+        {
+            throw new IndexOutOfBoundsException(
+                "Invalid range [" + fromIndex + "," + toIndex + 
+                ") for an array with size " + size);
+        }
+        if (fromIndex == toIndex && boundingBox != null)
+        {
+            return;
+        }
+        int firstBlock = fromIndex / BLOCK_SIZE;
+        int lastBlock = (toIndex + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        float bounds[] = BoundsComputation.createEmpty();
+        for (int b = firstBlock; b < lastBlock; b++)
+        {
+            int from = b * BLOCK_SIZE;
+            int to = Math.min(size, from + BLOCK_SIZE);
+            float block[] = BoundsComputation.createEmpty();
+            BoundsComputation.compute(
+                array.subArray3f(from, to), null, block, chunk);
+            System.arraycopy(block, 0, blockBounds, b * 6, 6);
+        }
+        for (int b = 0; b < numBlocks; b++)
+        {
+            BoundsComputation.combine(bounds, blockBounds, b * 6);
+        }
+        boundingBox = BoundsComputation.toBoundingBox(bounds);
+    }
+
+    @Override
+    public synchronized BoundingBox getBoundingBox()
+    {
+        return boundingBox;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "DefaultBoundingBoxTracker[" + 
+            "boundingBox=" + getBoundingBox() + "]";
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.geometry.utils;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.logging.Logger;
+
+import javax.vecmath.Point2f;
+import javax.vecmath.Point3f;
+import javax.vecmath.Vector3f;
+
+import de.javagl.rendering.geometry.Array2f;
+import de.javagl.rendering.geometry.Array3f;
+import de.javagl.rendering.geometry.IntArray;
+import de.javagl.rendering.geometry.MutableRenderGeometry;
+import de.javagl.rendering.geometry.RenderGeometries;
+import de.javagl.rendering.geometry.RenderGeometry;
+
+/**
+ * Methods for optimizing the order of triangle indices and vertices
+ * of {@link RenderGeometry} objects for rendering.<br>
+ * <br>
+ * The actual optimizations, as well as the computation of the average
+ * cache miss ratio, are performed by the methods of 
+ * {@link de.javagl.rendering.core.utils.IndexOptimizer}, which operate
+ * on plain index arrays. 
+ */
+public class IndexOptimizer
+{
+    /**
+     * The logger used in this class
+     */
+    private static final Logger logger = 
+        Logger.getLogger(IndexOptimizer.class.getName());
+    
+    /**
+     * The size of the FIFO vertex cache that is assumed for computing
+     * the average cache miss ratio in {@link #optimize(RenderGeometry)}
+     */
+    private static final int ACMR_CACHE_SIZE = 32;
+    
+    /**
+     * Computes the average cache miss ratio (ACMR) for the given indices.
+     * See {@link de.javagl.rendering.core.utils.IndexOptimizer#computeAcmr}
+     * for details.
+     * 
+     * @param indices The indices
+     * @param cacheSize The cache size
+     * @return The ACMR
+     * @throws IllegalArgumentException If the cache size is not positive
+     */
+    public static float computeAcmr(IntArray indices, int cacheSize)
+    {
+        return de.javagl.rendering.core.utils.IndexOptimizer.computeAcmr(
+            toArray(indices), cacheSize);
+    }
+    
+    /**
+     * Creates a new {@link MutableRenderGeometry} that describes the same 
+     * triangles as the given one, but with the triangles and vertices 
+     * being reordered for more efficient rendering: The triangles are 
+     * reordered to improve the hit rate of the post-transform vertex 
+     * cache, clusters of these triangles are reordered to reduce overdraw,
+     * and the vertices are reordered in the order of their first use.<br>
+     * <br>
+     * The normals and texture coordinates of the given geometry are only 
+     * contained in the result if they are not <code>null</code> and 
+     * have the same size as the vertices.<br>
+     * <br>
+     * The average cache miss ratio (ACMR) before and after the 
+     * optimization is logged.
+     * 
+     * @param geometry The {@link RenderGeometry}
+     * @return The new {@link MutableRenderGeometry}
+     */
+    public static MutableRenderGeometry optimize(RenderGeometry geometry)
+    {
+        Array3f vertices = geometry.getVertices();
+        int numVertices = vertices.getSize();
+        float positions[] = new float[numVertices * 3];
+        vertices.get3f(FloatBuffer.wrap(positions));
+        int indices[] = toArray(geometry.getIndices());
+        float acmrBefore = 
+            de.javagl.rendering.core.utils.IndexOptimizer.computeAcmr(
+                indices, ACMR_CACHE_SIZE);
+        
+        int optimized[] = de.javagl.rendering.core.utils.IndexOptimizer
+            .optimizeVertexCache(indices, numVertices);
+        optimized = de.javagl.rendering.core.utils.IndexOptimizer
+            .optimizeOverdraw(optimized, positions);
+        int remap[] = de.javagl.rendering.core.utils.IndexOptimizer
+            .computeVertexFetchRemapping(optimized, numVertices);
+        for (int i = 0; i < optimized.length; i++)
+        {
+            optimized[i] = remap[optimized[i]];
+        }
+        float acmrAfter = 
+            de.javagl.rendering.core.utils.IndexOptimizer.computeAcmr(
+                optimized, ACMR_CACHE_SIZE);
+        logger.info("Optimized " + (optimized.length / 3) + " triangles, " +
+            "ACMR before: " + acmrBefore + ", after: " + acmrAfter);
+        
+        int inverse[] = new int[numVertices];
+        for (int v = 0; v < numVertices; v++)
+        {
+            inverse[remap[v]] = v;
+        }
+        Array3f normals = geometry.getNormals();
+        if (normals != null && normals.getSize() != numVertices)
+        {
+            normals = null;
+        }
+        Array2f texCoords = geometry.getTexCoords();
+        if (texCoords != null && texCoords.getSize() != numVertices)
+        {
+            texCoords = null;
+        }
+        RenderGeometries.MutableRenderGeometryBuilder builder =
+            RenderGeometries.MutableRenderGeometryBuilder.create();
+        Point3f p = new Point3f();
+        Vector3f n = new Vector3f();
+        Point2f t = new Point2f();
+        for (int i = 0; i < numVertices; i++)
+        {
+            int v = inverse[i];
+            vertices.get3f(v, p);
+            builder.addVertex(p);
+            if (normals != null)
+            {
+                normals.get3f(v, n);
+                builder.addNormal(n);
+            }
+            if (texCoords != null)
+            {
+                texCoords.get2f(v, t);
+                builder.addTexCoord(t);
+            }
+        }
+        for (int i = 0; i < optimized.length; i += 3)
+        {
+            builder.addTriangle(
+                optimized[i + 0], optimized[i + 1], optimized[i + 2]);
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Returns the contents of the given {@link IntArray} as an array
+     * 
+     * @param intArray The {@link IntArray}
+     * @return The array
+     */
+    private static int[] toArray(IntArray intArray)
+    {
+        int result[] = new int[intArray.getSize()];
+        intArray.get(IntBuffer.wrap(result));
+        return result;
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private IndexOptimizer()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
@@ -0,0 +1,892 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.geometry.utils;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import javax.vecmath.Point2f;
+import javax.vecmath.Point3f;
+import javax.vecmath.Vector3f;
+
+import de.javagl.rendering.core.utils.VertexRemapping;
+import de.javagl.rendering.geometry.Array2f;
+import de.javagl.rendering.geometry.Array3f;
+import de.javagl.rendering.geometry.MutableRenderGeometry;
+import de.javagl.rendering.geometry.RenderGeometries;
+import de.javagl.rendering.geometry.RenderGeometry;
+
+/**
+ * Methods for simplifying {@link RenderGeometry} instances, based on
+ * edge collapses that are ordered by their quadric error metric 
+ * (Garland and Heckbert, "Surface Simplification Using Quadric Error 
+ * Metrics").<br>
+ * <br>
+ * Each collapse removes one vertex, by moving it to the position of
+ * an adjacent vertex. Vertices that are located at texture coordinate
+ * or normal seams (that is, vertices that share their position with 
+ * other vertices), as well as vertices at the border of the mesh, are
+ * never removed, so that seams and borders are preserved. Note that
+ * this means that meshes where <i>all</i> vertices share their position
+ * with other vertices, like flat-shaded meshes or meshes that consist 
+ * of unconnected triangles, can not be simplified at all. Such meshes 
+ * have to be welded first, for example with the {@link VertexWelder},
+ * after removing the normals, which may then be recomputed with the 
+ * {@link NormalUpdater}.<br>
+ * <br>
+ * An edge is only collapsed if it is shared by exactly two triangles, 
+ * and if the vertices of the edge have no common neighbors except for
+ * the two vertices opposite to the edge (the "link condition"). This
+ * ensures that the collapses do not create non-manifold geometry from
+ * manifold input.<br>
+ * <br>
+ * The simplification is performed in passes. In each pass, the 
+ * cheapest collapse of each vertex is computed, in parallel for large 
+ * meshes. These candidates are executed in the order of increasing 
+ * error, using a priority queue, as long as they do not affect the 
+ * neighborhood of a collapse that was already executed in the same 
+ * pass.
+ */
+public class MeshSimplifier
+{
+    /**
+     * The number of elements above which loops are executed in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 8192;
+    
+    /**
+     * The number of values that describe a quadric
+     */
+    private static final int QUADRIC_SIZE = 10;
+    
+    /**
+     * Creates a simplified version of the given {@link RenderGeometry}.
+     * The simplification stops when the number of triangles is not 
+     * larger than the given target number, or when no further edge 
+     * can be collapsed with an error that is not larger than the given 
+     * maximum error.<br>
+     * <br>
+     * The error is measured as the (approximate) distance between the 
+     * simplified and the original surface, in the units of the 
+     * vertex coordinates.<br>
+     * <br>
+     * The normals and texture coordinates of the given geometry are only 
+     * contained in the result if they are not <code>null</code> and 
+     * have the same size as the vertices.
+     * 
+     * @param geometry The {@link RenderGeometry}
+     * @param targetTriangles The target number of triangles
+     * @param maxError The maximum error
+     * @return The simplified {@link MutableRenderGeometry}
+     * @throws IllegalArgumentException If the target number of triangles
+     * or the maximum error is negative
+     */
+    public static MutableRenderGeometry simplify(
+        RenderGeometry geometry, int targetTriangles, float maxError)
+    {
+        if (targetTriangles < 0)
+        {
+            throw new IllegalArgumentException(
+                "The targetTriangles may not be negative, but is " + 
+                targetTriangles);
+        }
+        if (maxError < 0)
+        {
+            throw new IllegalArgumentException(
+                "The maxError may not be negative, but is " + maxError);
+        }
+        Array3f vertices = geometry.getVertices();
+        int numVertices = vertices.getSize();
+        float positions[] = new float[numVertices * 3];
+        vertices.get3f(FloatBuffer.wrap(positions));
+        int indices[] = new int[geometry.getIndices().getSize() / 3 * 3];
+        geometry.getIndices().subArray(0, indices.length).get(
+            IntBuffer.wrap(indices));
+        int simplified[] = 
+            simplify(indices, positions, targetTriangles, maxError);
+        return createGeometry(geometry, simplified);
+    }
+    
+    /**
+     * Creates a chain of levels of detail (LODs) for the given 
+     * {@link RenderGeometry}. The first element of the returned list 
+     * will be the given geometry. Each following element is created by
+     * simplifying the previous one, with a target number of triangles 
+     * that is the number of triangles of the previous one, multiplied 
+     * with the given ratio. The chain ends when the requested number of
+     * levels has been created, or when a level could not be simplified 
+     * any further.
+     * 
+     * @param geometry The {@link RenderGeometry}
+     * @param numLevels The maximum number of levels, including the 
+     * given geometry
+     * @param ratio The ratio of the number of triangles between
+     * two levels
+     * @param maxError The maximum error for each level. See 
+     * {@link #simplify(RenderGeometry, int, float)}
+     * @return The unmodifiable list of levels
+     * @throws IllegalArgumentException If the number of levels is not 
+     * positive, the ratio is not in (0,1), or the maximum error is 
+     * negative
+     */
+    public static List<RenderGeometry> createLodChain(RenderGeometry geometry, 
+        int numLevels, float ratio, float maxError)
+    {
+        if (numLevels <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The numLevels must be positive, but is " + numLevels);
+        }
+        if (!(ratio > 0 && ratio < 1))
+        {
+            throw new IllegalArgumentException(
+                "The ratio must be in (0,1), but is " + ratio);
+        }
+        List<RenderGeometry> levels = new ArrayList<RenderGeometry>();
+        levels.add(geometry);
+        RenderGeometry current = geometry;
+        while (levels.size() < numLevels)
+        {
+            int numTriangles = current.getIndices().getSize() / 3;
+            int target = (int)(numTriangles * ratio);
+            RenderGeometry next = simplify(current, target, maxError);
+            if (next.getIndices().getSize() / 3 >= numTriangles)
+            {
+                break;
+            }
+            levels.add(next);
+            current = next;
+        }
+        return Collections.unmodifiableList(levels);
+    }
+    
+    /**
+     * Simplifies the mesh that is given by the given indices and 
+     * positions, and returns the indices of the simplified mesh.
+     * The result will refer to a subset of the given vertices.
+     * See {@link #simplify(RenderGeometry, int, float)} for details.
+     * 
+     * @param inputIndices The triangle indices
+     * @param positions The vertex positions, 3 per vertex
+     * @param targetTriangles The target number of triangles
+     * @param maxError The maximum error
+     * @return The indices of the simplified mesh
+     */
+    public static int[] simplify(int inputIndices[], float positions[], 
+        int targetTriangles, float maxError)
+    {
+        int numVertices = positions.length / 3;
+        int indices[] = inputIndices.clone();
+        boolean locked[] = computeLockedVertices(indices, positions);
+        double quadrics[] = computeQuadrics(indices, positions);
+        double maxCost = (double)maxError * maxError;
+        int numTriangles = indices.length / 3;
+        int remap[] = new int[numVertices];
+        int marks[] = new int[numVertices];
+        int mark = 0;
+        int linkMarks[] = new int[numVertices];
+        int linkMark = 0;
+        while (numTriangles > targetTriangles)
+        {
+            Adjacency adjacency = new Adjacency(indices, numVertices);
+            
+            // Compute the candidate collapse for each vertex, which is
+            // the collapse to the adjacent vertex with the lowest cost
+            final int currentIndices[] = indices;
+            int targets[] = new int[numVertices];
+            float costs[] = new float[numVertices];
+            forEach(numVertices, v -> 
+            {
+                targets[v] = -1;
+                costs[v] = Float.POSITIVE_INFINITY;
+                if (locked[v])
+                {
+                    return;
+                }
+                for (int j = adjacency.offsets[v]; 
+                    j < adjacency.offsets[v + 1]; j++)
+                {
+                    int t = adjacency.triangles[j] * 3;
+                    for (int k = 0; k < 3; k++)
+                    {
+                        int to = currentIndices[t + k];
+                        if (to == v)
+                        {
+                            continue;
+                        }
+                        float cost = (float)evaluate(
+                            quadrics, v, quadrics, to, positions, to);
+                        if (cost < costs[v])
+                        {
+                            costs[v] = cost;
+                            targets[v] = to;
+                        }
+                    }
+                }
+            });
+            
+            // The heap contains the candidates with their costs in the 
+            // upper 32 bits. The costs are not negative, so the order 
+            // of their bit representations is the order of the costs.
+            // Vertices without a candidate (because they are locked
+            // or not used by any triangle) have an infinite cost.
+            long heap[] = new long[numVertices];
+            int heapSize = 0;
+            for (int v = 0; v < numVertices; v++)
+            {
+                if (targets[v] >= 0 && 
+                    costs[v] < Float.POSITIVE_INFINITY && 
+                    costs[v] <= maxCost)
+                {
+                    heap[heapSize++] = 
+                        ((long)Float.floatToIntBits(costs[v]) << 32) | v;
+                }
+            }
+            for (int i = heapSize / 2 - 1; i >= 0; i--)
+            {
+                siftDown(heap, heapSize, i);
+            }
+            
+            // Execute the collapses in the order of increasing costs,
+            // skipping the ones that affect the neighborhood of a 
+            // previous collapse in this pass
+            mark++;
+            for (int v = 0; v < numVertices; v++)
+            {
+                remap[v] = v;
+            }
+            int numCollapses = 0;
+            while (heapSize > 0 && numTriangles > targetTriangles)
+            {
+                int from = (int)heap[0];
+                int to = targets[from];
+                heap[0] = heap[--heapSize];
+                siftDown(heap, heapSize, 0);
+                
+                if (marks[from] == mark || marks[to] == mark)
+                {
+                    continue;
+                }
+                int numShared = adjacency.countShared(indices, from, to);
+                if (numShared != 2)
+                {
+                    continue;
+                }
+                linkMark += 2;
+                int numCommon = adjacency.countCommonNeighbors(
+                    indices, from, to, linkMarks, linkMark);
+                if (numCommon != 2)
+                {
+                    continue;
+                }
+                if (flips(adjacency, indices, positions, from, to))
+                {
+                    continue;
+                }
+                remap[from] = to;
+                for (int k = 0; k < QUADRIC_SIZE; k++)
+                {
+                    quadrics[to * QUADRIC_SIZE + k] += 
+                        quadrics[from * QUADRIC_SIZE + k];
+                }
+                numTriangles -= numShared;
+                adjacency.mark(indices, from, marks, mark);
+                adjacency.mark(indices, to, marks, mark);
+                numCollapses++;
+            }
+            if (numCollapses == 0)
+            {
+                break;
+            }
+            indices = applyRemapping(indices, remap);
+            numTriangles = indices.length / 3;
+        }
+        return indices;
+    }
+    
+    /**
+     * Returns whether collapsing the given vertex to the given target 
+     * vertex would flip the orientation of any of the triangles that 
+     * remain after the collapse
+     * 
+     * @param adjacency The {@link Adjacency}
+     * @param indices The indices
+     * @param positions The positions
+     * @param from The vertex that is removed
+     * @param to The target vertex
+     * @return Whether the collapse would flip a triangle
+     */
+    private static boolean flips(Adjacency adjacency, int indices[],
+        float positions[], int from, int to)
+    {
+        for (int j = adjacency.offsets[from]; 
+            j < adjacency.offsets[from + 1]; j++)
+        {
+            int t = adjacency.triangles[j];
+            int i0 = indices[t * 3 + 0];
+            int i1 = indices[t * 3 + 1];
+            int i2 = indices[t * 3 + 2];
+            if (i0 == to || i1 == to || i2 == to)
+            {
+                continue;
+            }
+            float dot = normalDot(positions, i0, i1, i2, from, to);
+            if (dot <= 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Computes the dot product of the normal of the given triangle and
+     * the normal of the triangle where the position of the vertex 
+     * <code>from</code> is replaced by the position of vertex 
+     * <code>to</code>
+     * 
+     * @param positions The positions
+     * @param i0 The first vertex
+     * @param i1 The second vertex
+     * @param i2 The third vertex
+     * @param from The replaced vertex
+     * @param to The replacing vertex
+     * @return The dot product
+     */
+    private static float normalDot(float positions[], 
+        int i0, int i1, int i2, int from, int to)
+    {
+        int p0 = i0 * 3;
+        int p1 = i1 * 3;
+        int p2 = i2 * 3;
+        float e0x = positions[p1 + 0] - positions[p0 + 0];
+        float e0y = positions[p1 + 1] - positions[p0 + 1];
+        float e0z = positions[p1 + 2] - positions[p0 + 2];
+        float e1x = positions[p2 + 0] - positions[p0 + 0];
+        float e1y = positions[p2 + 1] - positions[p0 + 1];
+        float e1z = positions[p2 + 2] - positions[p0 + 2];
+        float nx = e0y * e1z - e0z * e1y;
+        float ny = e0z * e1x - e0x * e1z;
+        float nz = e0x * e1y - e0y * e1x;
+        
+        p0 = (i0 == from ? to : i0) * 3;
+        p1 = (i1 == from ? to : i1) * 3;
+        p2 = (i2 == from ? to : i2) * 3;
+        e0x = positions[p1 + 0] - positions[p0 + 0];
+        e0y = positions[p1 + 1] - positions[p0 + 1];
+        e0z = positions[p1 + 2] - positions[p0 + 2];
+        e1x = positions[p2 + 0] - positions[p0 + 0];
+        e1y = positions[p2 + 1] - positions[p0 + 1];
+        e1z = positions[p2 + 2] - positions[p0 + 2];
+        float mx = e0y * e1z - e0z * e1y;
+        float my = e0z * e1x - e0x * e1z;
+        float mz = e0x * e1y - e0y * e1x;
+        return nx * mx + ny * my + nz * mz;
+    }
+    
+    /**
+     * Computes the (non-normalized) normal of the given triangle, 
+     * where the position of the vertex <code>from</code> is replaced
+     * by the position of the vertex <code>to</code>
+     * 
+     * @param positions The positions
+     * @param i0 The first vertex
+     * @param i1 The second vertex
+     * @param i2 The third vertex
+     * @param from The replaced vertex, or -1
+     * @param to The replacing vertex
+     * @return The normal
+     */
+    private static float[] normal(float positions[], 
+        int i0, int i1, int i2, int from, int to)
+    {
+        int p0 = (i0 == from ? to : i0) * 3;
+        int p1 = (i1 == from ? to : i1) * 3;
+        int p2 = (i2 == from ? to : i2) * 3;
+        float e0x = positions[p1 + 0] - positions[p0 + 0];
+        float e0y = positions[p1 + 1] - positions[p0 + 1];
+        float e0z = positions[p1 + 2] - positions[p0 + 2];
+        float e1x = positions[p2 + 0] - positions[p0 + 0];
+        float e1y = positions[p2 + 1] - positions[p0 + 1];
+        float e1z = positions[p2 + 2] - positions[p0 + 2];
+        return new float[] {
+            e0y * e1z - e0z * e1y,
+            e0z * e1x - e0x * e1z,
+            e0x * e1y - e0y * e1x
+        };
+    }
+    
+    /**
+     * Applies the given remapping to the given indices, and returns 
+     * the indices of all triangles that are not degenerate after the
+     * remapping
+     * 
+     * @param indices The indices
+     * @param remap The remapping
+     * @return The new indices
+     */
+    private static int[] applyRemapping(int indices[], int remap[])
+    {
+        int result[] = new int[indices.length];
+        int n = 0;
+        for (int t = 0; t < indices.length / 3; t++)
+        {
+            int i0 = remap[indices[t * 3 + 0]];
+            int i1 = remap[indices[t * 3 + 1]];
+            int i2 = remap[indices[t * 3 + 2]];
+            if (i0 != i1 && i1 != i2 && i2 != i0)
+            {
+                result[n++] = i0;
+                result[n++] = i1;
+                result[n++] = i2;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+    
+    /**
+     * Computes which vertices may not be removed: These are the vertices
+     * that share their position with other vertices (i.e. that are 
+     * located at a seam of the normals or texture coordinates), and
+     * vertices at the border of the mesh.
+     * 
+     * @param indices The indices
+     * @param positions The positions
+     * @return The locked vertices
+     */
+    private static boolean[] computeLockedVertices(
+        int indices[], float positions[])
+    {
+        int numVertices = positions.length / 3;
+        boolean locked[] = new boolean[numVertices];
+        
+        // Map each vertex to the first vertex with the same position,
+        // and lock all vertices whose position is shared
+        int positionIds[] = new int[numVertices];
+        int numPositions = 
+            VertexRemapping.computeRemapping(positions, 3, 0.0f, positionIds);
+        int counts[] = new int[numPositions];
+        for (int v = 0; v < numVertices; v++)
+        {
+            counts[positionIds[v]]++;
+        }
+        for (int v = 0; v < numVertices; v++)
+        {
+            locked[v] = counts[positionIds[v]] > 1;
+        }
+        
+        // Count how often each undirected edge between positions 
+        // is used, and lock the vertices of edges that are used once
+        int numEdges = indices.length;
+        int capacity = Integer.highestOneBit(Math.max(16, numEdges)) * 4;
+        long keys[] = new long[capacity];
+        int edgeCounts[] = new int[capacity];
+        Arrays.fill(keys, -1L);
+        int mask = capacity - 1;
+        int shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        int slots[] = new int[numEdges];
+        for (int i = 0; i < numEdges; i++)
+        {
+            int p0 = positionIds[indices[i]];
+            int p1 = positionIds[indices[i - i % 3 + (i + 1) % 3]];
+            long key = p0 < p1 ? 
+                ((long)p0 << 32) | p1 : ((long)p1 << 32) | p0;
+            int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> shift);
+            while (keys[slot] != -1L && keys[slot] != key)
+            {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            edgeCounts[slot]++;
+            slots[i] = slot;
+        }
+        for (int i = 0; i < numEdges; i++)
+        {
+            if (edgeCounts[slots[i]] == 1)
+            {
+                locked[indices[i]] = true;
+                locked[indices[i - i % 3 + (i + 1) % 3]] = true;
+            }
+        }
+        return locked;
+    }
+    
+    /**
+     * Computes the quadrics for all vertices, which are the sums of the
+     * fundamental error quadrics of the planes of the adjacent triangles
+     * 
+     * @param indices The indices
+     * @param positions The positions
+     * @return The quadrics
+     */
+    private static double[] computeQuadrics(int indices[], float positions[])
+    {
+        int numVertices = positions.length / 3;
+        int numTriangles = indices.length / 3;
+        double planes[] = new double[numTriangles * 4];
+        forEach(numTriangles, t -> 
+        {
+            float n[] = normal(positions, 
+                indices[t * 3 + 0], indices[t * 3 + 1], indices[t * 3 + 2], 
+                -1, -1);
+            double length = Math.sqrt(n[0] * n[0] + n[1] * n[1] + n[2] * n[2]);
+            if (length > 0)
+            {
+                double a = n[0] / length;
+                double b = n[1] / length;
+                double c = n[2] / length;
+                int p = indices[t * 3] * 3;
+                double d = 
+                    -(a * positions[p] + b * positions[p + 1] + 
+                      c * positions[p + 2]);
+                planes[t * 4 + 0] = a;
+                planes[t * 4 + 1] = b;
+                planes[t * 4 + 2] = c;
+                planes[t * 4 + 3] = d;
+            }
+        });
+        Adjacency adjacency = new Adjacency(indices, numVertices);
+        double quadrics[] = new double[numVertices * QUADRIC_SIZE];
+        forEach(numVertices, v -> 
+        {
+            int q = v * QUADRIC_SIZE;
+            for (int j = adjacency.offsets[v]; 
+                j < adjacency.offsets[v + 1]; j++)
+            {
+                int t = adjacency.triangles[j] * 4;
+                double a = planes[t + 0];
+                double b = planes[t + 1];
+                double c = planes[t + 2];
+                double d = planes[t + 3];
+                quadrics[q + 0] += a * a;
+                quadrics[q + 1] += a * b;
+                quadrics[q + 2] += a * c;
+                quadrics[q + 3] += a * d;
+                quadrics[q + 4] += b * b;
+                quadrics[q + 5] += b * c;
+                quadrics[q + 6] += b * d;
+                quadrics[q + 7] += c * c;
+                quadrics[q + 8] += c * d;
+                quadrics[q + 9] += d * d;
+            }
+        });
+        return quadrics;
+    }
+    
+    /**
+     * Evaluates the sum of the specified quadrics at the specified 
+     * position
+     * 
+     * @param q0 The first quadrics array
+     * @param i0 The index of the first quadric
+     * @param q1 The second quadrics array
+     * @param i1 The index of the second quadric
+     * @param positions The positions
+     * @param p The index of the position
+     * @return The error
+     */
+    private static double evaluate(double q0[], int i0, 
+        double q1[], int i1, float positions[], int p)
+    {
+        double x = positions[p * 3 + 0];
+        double y = positions[p * 3 + 1];
+        double z = positions[p * 3 + 2];
+        int a = i0 * QUADRIC_SIZE;
+        int b = i1 * QUADRIC_SIZE;
+        double error = 0;
+        error += (q0[a + 0] + q1[b + 0]) * x * x;
+        error += (q0[a + 1] + q1[b + 1]) * 2 * x * y;
+        error += (q0[a + 2] + q1[b + 2]) * 2 * x * z;
+        error += (q0[a + 3] + q1[b + 3]) * 2 * x;
+        error += (q0[a + 4] + q1[b + 4]) * y * y;
+        error += (q0[a + 5] + q1[b + 5]) * 2 * y * z;
+        error += (q0[a + 6] + q1[b + 6]) * 2 * y;
+        error += (q0[a + 7] + q1[b + 7]) * z * z;
+        error += (q0[a + 8] + q1[b + 8]) * 2 * z;
+        error += (q0[a + 9] + q1[b + 9]);
+        return Math.max(0.0, error);
+    }
+    
+    /**
+     * Restore the heap property for the subtree at the given index of
+     * the given min-heap
+     * 
+     * @param heap The heap
+     * @param heapSize The heap size
+     * @param index The index
+     */
+    private static void siftDown(long heap[], int heapSize, int index)
+    {
+        int i = index;
+        long element = heap[i];
+        while (true)
+        {
+            int child = 2 * i + 1;
+            if (child >= heapSize)
+            {
+                break;
+            }
+            if (child + 1 < heapSize && heap[child + 1] < heap[child])
+            {
+                child++;
+            }
+            if (heap[child] >= element)
+            {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = element;
+    }
+    
+    /**
+     * Creates a {@link MutableRenderGeometry} that contains the given 
+     * triangles, and the vertices of the given geometry that are used 
+     * by these triangles
+     * 
+     * @param geometry The {@link RenderGeometry}
+     * @param indices The indices, referring to the vertices of the
+     * given geometry
+     * @return The new {@link MutableRenderGeometry}
+     */
+    private static MutableRenderGeometry createGeometry(
+        RenderGeometry geometry, int indices[])
+    {
+        Array3f vertices = geometry.getVertices();
+        int numVertices = vertices.getSize();
+        Array3f normals = geometry.getNormals();
+        if (normals != null && normals.getSize() != numVertices)
+        {
+            normals = null;
+        }
+        Array2f texCoords = geometry.getTexCoords();
+        if (texCoords != null && texCoords.getSize() != numVertices)
+        {
+            texCoords = null;
+        }
+        RenderGeometries.MutableRenderGeometryBuilder builder =
+            RenderGeometries.MutableRenderGeometryBuilder.create();
+        int remap[] = new int[numVertices];
+        Arrays.fill(remap, -1);
+        int next = 0;
+        Point3f p = new Point3f();
+        Vector3f n = new Vector3f();
+        Point2f t = new Point2f();
+        for (int i = 0; i < indices.length; i++)
+        {
+            int v = indices[i];
+            if (remap[v] != -1)
+            {
+                continue;
+            }
+            remap[v] = next++;
+            vertices.get3f(v, p);
+            builder.addVertex(p);
+            if (normals != null)
+            {
+                normals.get3f(v, n);
+                builder.addNormal(n);
+            }
+            if (texCoords != null)
+            {
+                texCoords.get2f(v, t);
+                builder.addTexCoord(t);
+            }
+        }
+        for (int i = 0; i < indices.length; i += 3)
+        {
+            builder.addTriangle(remap[indices[i + 0]], 
+                remap[indices[i + 1]], remap[indices[i + 2]]);
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Apply the given consumer to all values in [0, n), in parallel 
+     * if n is large enough
+     * 
+     * @param n The number of elements
+     * @param consumer The consumer
+     */
+    private static void forEach(int n, IntConsumer consumer)
+    {
+        if (n >= PARALLEL_THRESHOLD)
+        {
+            IntStream.range(0, n).parallel().forEach(consumer);
+        }
+        else
+        {
+            for (int i = 0; i < n; i++)
+            {
+                consumer.accept(i);
+            }
+        }
+    }
+    
+    /**
+     * A vertex-to-triangle adjacency in compressed sparse row form
+     */
+    private static final class Adjacency
+    {
+        /**
+         * The offsets of the adjacency lists, numVertices+1 elements
+         */
+        final int offsets[];
+        
+        /**
+         * The adjacent triangle indices of all vertices
+         */
+        final int triangles[];
+        
+        /**
+         * Creates the adjacency for the given indices
+         * 
+         * @param indices The indices
+         * @param numVertices The number of vertices
+         */
+        Adjacency(int indices[], int numVertices)
+        {
+            offsets = new int[numVertices + 1];
+            for (int i = 0; i < indices.length; i++)
+            {
+                offsets[indices[i] + 1]++;
+            }
+            for (int v = 0; v < numVertices; v++)
+            {
+                offsets[v + 1] += offsets[v];
+            }
+            triangles = new int[indices.length];
+            int fill[] = new int[numVertices];
+            for (int i = 0; i < indices.length; i++)
+            {
+                int index = indices[i];
+                triangles[offsets[index] + fill[index]] = i / 3;
+                fill[index]++;
+            }
+        }
+        
+        /**
+         * Returns the number of triangles that contain both given vertices
+         * 
+         * @param indices The indices
+         * @param v0 The first vertex
+         * @param v1 The second vertex
+         * @return The number of shared triangles
+         */
+        int countShared(int indices[], int v0, int v1)
+        {
+            int count = 0;
+            for (int j = offsets[v0]; j < offsets[v0 + 1]; j++)
+            {
+                int t = triangles[j];
+                if (indices[t * 3 + 0] == v1 || 
+                    indices[t * 3 + 1] == v1 || 
+                    indices[t * 3 + 2] == v1)
+                {
+                    count++;
+                }
+            }
+            return count;
+        }
+        
+        /**
+         * Returns the number of distinct vertices (other than the given
+         * ones) that are adjacent to both given vertices. 
+         * 
+         * @param indices The indices
+         * @param v0 The first vertex
+         * @param v1 The second vertex
+         * @param marks The marks, one per vertex
+         * @param mark The mark to use. The given marks array may not 
+         * contain this mark or the mark that follows it.
+         * @return The number of common neighbors
+         */
+        int countCommonNeighbors(
+            int indices[], int v0, int v1, int marks[], int mark)
+        {
+            for (int j = offsets[v0]; j < offsets[v0 + 1]; j++)
+            {
+                int t = triangles[j] * 3;
+                for (int k = 0; k < 3; k++)
+                {
+                    marks[indices[t + k]] = mark;
+                }
+            }
+            int count = 0;
+            for (int j = offsets[v1]; j < offsets[v1 + 1]; j++)
+            {
+                int t = triangles[j] * 3;
+                for (int k = 0; k < 3; k++)
+                {
+                    int w = indices[t + k];
+                    if (w != v0 && w != v1 && marks[w] == mark)
+                    {
+                        marks[w] = mark + 1;
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+        
+        /**
+         * Set the given mark for all vertices of all triangles that 
+         * are adjacent to the given vertex
+         * 
+         * @param indices The indices
+         * @param v The vertex
+         * @param marks The marks
+         * @param mark The mark
+         */
+        void mark(int indices[], int v, int marks[], int mark)
+        {
+            for (int j = offsets[v]; j < offsets[v + 1]; j++)
+            {
+                int t = triangles[j];
+                marks[indices[t * 3 + 0]] = mark;
+                marks[indices[t * 3 + 1]] = mark;
+                marks[indices[t * 3 + 2]] = mark;
+            }
+        }
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MeshSimplifier()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
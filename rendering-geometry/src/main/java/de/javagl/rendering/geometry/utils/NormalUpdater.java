@@ -27,14 +27,16 @@
 
 package de.javagl.rendering.geometry.utils;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.vecmath.Point3f;
 import javax.vecmath.Vector3f;
 
 import de.javagl.rendering.geometry.Array3f;
-import de.javagl.rendering.geometry.GeometryArrays;
 import de.javagl.rendering.geometry.IntArray;
 import de.javagl.rendering.geometry.MutableArray3f;
 import de.javagl.rendering.geometry.MutableRenderGeometry;
@@ -43,93 +45,281 @@ import de.javagl.rendering.geometry.MutableRenderGeometry;
  * Utility class for updating the vertex normals of a 
  * {@link MutableRenderGeometry}, by computing the 
  * average of the normals of the triangles that are
- * adjacent to the respective vertex.
+ * adjacent to the respective vertex.<br>
+ * <br>
+ * The vertex-to-triangle adjacency information is computed once for 
+ * each {@link IntArray} of indices, and cached until the {@link IntArray}
+ * is no longer referenced. If the <i>contents</i> of the indices of a 
+ * geometry are modified, then {@link #invalidate(IntArray)} has to be 
+ * called before the next update. The positions and normals from the 
+ * last update, which are required for incremental updates, are cached
+ * for each geometry, until the geometry is no longer referenced.
  */
 public class NormalUpdater
 {
+    /**
+     * The cached adjacency information, per index array
+     */
+    private static final Map<IntArray, VertexTriangleAdjacency> adjacencies =
+        Collections.synchronizedMap(
+            new WeakHashMap<IntArray, VertexTriangleAdjacency>());
+    
+    /**
+     * The cached working arrays, per geometry
+     */
+    private static final Map<MutableRenderGeometry, VertexNormalState> 
+        states = Collections.synchronizedMap(
+            new WeakHashMap<MutableRenderGeometry, VertexNormalState>());
+    
     /**
      * Update the vertex normals of the given {@link MutableRenderGeometry}.
      * 
-    * @param geometry The {@link MutableRenderGeometry}
-    * @throws IllegalArgumentException If the given geometry does not 
-    * have vertex normals.
+     * @param geometry The {@link MutableRenderGeometry}
+     * @throws IllegalArgumentException If the given geometry does not 
+     * have vertex normals.
      */
     public static void updateNormals(MutableRenderGeometry geometry)
     {
-        IntArray indices = geometry.getIndices();
+        MutableArray3f normals = validateNormals(geometry);
         Array3f vertices = geometry.getVertices();
+        VertexNormalState state = obtainState(geometry, vertices.getSize());
+        synchronized (state)
+        {
+            updateAll(state, vertices, normals);
+        }
+    }
+    
+    /**
+     * Update the vertex normals of the given {@link MutableRenderGeometry},
+     * assuming that only the vertices between the given fromIndex 
+     * (inclusive) and toIndex (exclusive) have changed since the
+     * last update. This will only recompute the normals of the triangles 
+     * that are adjacent to these vertices, and the normals of the vertices 
+     * of these triangles.<br>
+     * <br>
+     * If the normals of the given geometry have not been updated with
+     * this class before, then all normals will be updated.
+     * 
+     * @param geometry The {@link MutableRenderGeometry}
+     * @param fromIndex The index of the first changed vertex, inclusive
+     * @param toIndex The index of the last changed vertex, exclusive
+     * @throws IllegalArgumentException If the given geometry does not 
+     * have vertex normals.
+     * @throws IndexOutOfBoundsException If the given range is not valid
+     */
+    public static void updateNormals(
+        MutableRenderGeometry geometry, int fromIndex, int toIndex)
+    {
+        MutableArray3f normals = validateNormals(geometry);
+        Array3f vertices = geometry.getVertices();
+        int numVertices = vertices.getSize();
+        if (fromIndex < 0 || toIndex > numVertices || fromIndex > toIndex)
+        {
+            throw new IndexOutOfBoundsException(
+                "Invalid range [" + fromIndex + "," + toIndex + 
+                ") for " + numVertices + " vertices");
+        }
+        VertexNormalState state = obtainState(geometry, numVertices);
+        synchronized (state)
+        {
+            if (!state.valid)
+            {
+                updateAll(state, vertices, normals);
+            }
+            else
+            {
+                updateRange(state, vertices, normals, fromIndex, toIndex);
+            }
+        }
+    }
+    
+    /**
+     * Discard the cached adjacency information for the given indices.
+     * This has to be called when the contents of the given array have
+     * been modified.
+     * 
+     * @param indices The indices
+     */
+    public static void invalidate(IntArray indices)
+    {
+        adjacencies.remove(indices);
+    }
+    
+    /**
+     * Returns the normals of the given geometry, throwing an 
+     * IllegalArgumentException if they are <code>null</code>
+     * 
+     * @param geometry The geometry
+     * @return The normals
+     * @throws IllegalArgumentException If the given geometry does not 
+     * have vertex normals.
+     */
+    private static MutableArray3f validateNormals(
+        MutableRenderGeometry geometry)
+    {
         MutableArray3f normals = geometry.getNormals();
         if (normals == null)
         {
             throw new IllegalArgumentException(
                 "The given geometry does not have vertex normals");
         }
-
-        // Create the list that stores for each vertex the list of indices
-        // of triangles that are adjacent to the vertex
-        List<List<Integer>> vertexTriangleIndices = 
-            new ArrayList<List<Integer>>();
-        int numVertices = vertices.getSize();
-        for (int i=0; i<numVertices; i++)
+        return normals;
+    }
+    
+    /**
+     * Returns the cached {@link VertexTriangleAdjacency} for the given 
+     * indices, creating it if necessary
+     * 
+     * @param indices The indices
+     * @param numVertices The number of vertices
+     * @return The {@link VertexTriangleAdjacency}
+     */
+    private static VertexTriangleAdjacency obtainAdjacency(
+        IntArray indices, int numVertices)
+    {
+        synchronized (adjacencies)
         {
-            vertexTriangleIndices.add(new ArrayList<Integer>());
+            VertexTriangleAdjacency adjacency = adjacencies.get(indices);
+            if (adjacency == null || 
+                !adjacency.isApplicable(indices, numVertices))
+            {
+                adjacency = new VertexTriangleAdjacency(indices, numVertices);
+                adjacencies.put(indices, adjacency);
+            }
+            return adjacency;
         }
-        
-        // Fill the list of triangle indices for the vertices
-        // and create the triangle normals
-        int numTriangles = indices.getSize() / 3;
-        for (int i=0; i<numTriangles; i++)
+    }
+    
+    /**
+     * Returns the cached {@link VertexNormalState} for the given geometry,
+     * creating it if necessary, or if the adjacency information of the 
+     * indices of the geometry has changed
+     * 
+     * @param geometry The geometry
+     * @param numVertices The number of vertices
+     * @return The {@link VertexNormalState}
+     */
+    private static VertexNormalState obtainState(
+        MutableRenderGeometry geometry, int numVertices)
+    {
+        VertexTriangleAdjacency adjacency = 
+            obtainAdjacency(geometry.getIndices(), numVertices);
+        synchronized (states)
         {
-            int i0 = indices.get(i*3+0);
-            int i1 = indices.get(i*3+1);
-            int i2 = indices.get(i*3+2);
-            vertexTriangleIndices.get(i0).add(i);
-            vertexTriangleIndices.get(i1).add(i);
-            vertexTriangleIndices.get(i2).add(i);
+            VertexNormalState state = states.get(geometry);
+            if (state == null || state.adjacency != adjacency)
+            {
+                state = new VertexNormalState(adjacency);
+                states.put(geometry, state);
+            }
+            return state;
+        }
+    }
+    
+    /**
+     * Recompute all face- and vertex normals, and write them into the 
+     * given normals array
+     * 
+     * @param state The {@link VertexNormalState}
+     * @param vertices The vertices
+     * @param normals The normals
+     */
+    private static void updateAll(VertexNormalState state,
+        Array3f vertices, MutableArray3f normals)
+    {
+        VertexTriangleAdjacency adjacency = state.adjacency;
+        vertices.get3f(FloatBuffer.wrap(state.positions));
+        VertexTriangleAdjacency.forEach(
+            adjacency.numTriangles, state::computeFaceNormal);
+        VertexTriangleAdjacency.forEach(
+            adjacency.numVertices, state::computeVertexNormal);
+        normals.set3f(FloatBuffer.wrap(state.vertexNormals));
+        state.valid = true;
+    }
+    
+    /**
+     * Recompute the face normals of all triangles that are adjacent to 
+     * the vertices in the given range, and the vertex normals of all
+     * vertices of these triangles, and write them into the given
+     * normals array
+     * 
+     * @param state The {@link VertexNormalState}
+     * @param vertices The vertices
+     * @param normals The normals
+     * @param fromIndex The index of the first changed vertex, inclusive
+     * @param toIndex The index of the last changed vertex, exclusive
+     */
+    private static void updateRange(VertexNormalState state,
+        Array3f vertices, MutableArray3f normals, int fromIndex, int toIndex)
+    {
+        VertexTriangleAdjacency adjacency = state.adjacency;
+        float positions[] = state.positions;
+        Point3f vertex = new Point3f();
+        for (int v = fromIndex; v < toIndex; v++)
+        {
+            vertices.get3f(v, vertex);
+            positions[v * 3 + 0] = vertex.x;
+            positions[v * 3 + 1] = vertex.y;
+            positions[v * 3 + 2] = vertex.z;
         }
         
-        // Compute the triangle normals
-        Vector3f edge0 = new Vector3f();
-        Vector3f edge1 = new Vector3f();
-        Point3f v0 = new Point3f();
-        Point3f v1 = new Point3f();
-        Point3f v2 = new Point3f();
-        Vector3f triangleNormal = new Vector3f();
-        MutableArray3f triangleNormals = 
-            GeometryArrays.createMutableArray3f(numTriangles);
-        for (int i = 0; i < indices.getSize() / 3; i++)
+        // Collect the triangles that are adjacent to the changed 
+        // vertices, and the vertices of these triangles
+        int mark = ++state.mark;
+        if (mark == 0)
         {
-            int i0 = indices.get(i * 3 + 0);
-            int i1 = indices.get(i * 3 + 1);
-            int i2 = indices.get(i * 3 + 2);
-            vertices.get3f(i0, v0);
-            vertices.get3f(i1, v1);
-            vertices.get3f(i2, v2);
-            edge0.sub(v1, v0);
-            edge1.sub(v2, v0);
-            triangleNormals.get3f(i, triangleNormal);
-            triangleNormal.cross(edge0, edge1);
-            //triangleNormal.normalize(); // Not required
-            triangleNormals.set3f(i, triangleNormal);
+            Arrays.fill(state.vertexMarks, 0);
+            Arrays.fill(state.triangleMarks, 0);
+            mark = ++state.mark;
         }
-
-        // Compute the vertex normals
-        Vector3f vertexNormal = new Vector3f();
-        for (int i = 0; i < vertices.getSize(); i++)
+        int offsets[] = adjacency.offsets;
+        int triangles[] = adjacency.triangles;
+        int indices[] = adjacency.indices;
+        int ringTriangles[] = new int[
+            offsets[toIndex] - offsets[fromIndex]];
+        int numRingTriangles = 0;
+        int ringVertices[] = new int[ringTriangles.length * 3];
+        int numRingVertices = 0;
+        for (int v = fromIndex; v < toIndex; v++)
         {
-            vertexNormal.set(0,0,0);
-            for (int j = 0; j < vertexTriangleIndices.get(i).size(); j++)
+            for (int j = offsets[v]; j < offsets[v + 1]; j++)
             {
-                int index = vertexTriangleIndices.get(i).get(j);
-                triangleNormals.get3f(index, triangleNormal);
-                vertexNormal.add(triangleNormal);
+                int t = triangles[j];
+                if (state.triangleMarks[t] == mark)
+                {
+                    continue;
+                }
+                state.triangleMarks[t] = mark;
+                ringTriangles[numRingTriangles++] = t;
+                for (int k = 0; k < 3; k++)
+                {
+                    int w = indices[t * 3 + k];
+                    if (state.vertexMarks[w] != mark)
+                    {
+                        state.vertexMarks[w] = mark;
+                        ringVertices[numRingVertices++] = w;
+                    }
+                }
             }
-            vertexNormal.normalize();
-            normals.set3f(i, vertexNormal);
+        }
+        
+        VertexTriangleAdjacency.forEach(numRingTriangles, 
+            i -> state.computeFaceNormal(ringTriangles[i]));
+        VertexTriangleAdjacency.forEach(numRingVertices, 
+            i -> state.computeVertexNormal(ringVertices[i]));
+        
+        float vertexNormals[] = state.vertexNormals;
+        Vector3f normal = new Vector3f();
+        for (int i = 0; i < numRingVertices; i++)
+        {
+            int v = ringVertices[i];
+            normal.x = vertexNormals[v * 3 + 0];
+            normal.y = vertexNormals[v * 3 + 1];
+            normal.z = vertexNormals[v * 3 + 2];
+            normals.set3f(v, normal);
         }
     }
 
-
     /**
      * Private constructor to prevent instantiation
      */
@@ -0,0 +1,153 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.geometry.utils;
+
+/**
+ * The working arrays that are used by the {@link NormalUpdater} for 
+ * one geometry: The vertex positions, face normals and vertex normals 
+ * from the last update, which allow updating the normals incrementally.
+ * Access to these arrays has to be synchronized on this object.
+ */
+final class VertexNormalState
+{
+    /**
+     * The {@link VertexTriangleAdjacency} of the indices of the geometry
+     */
+    final VertexTriangleAdjacency adjacency;
+    
+    /**
+     * The vertex positions, 3 per vertex
+     */
+    final float positions[];
+    
+    /**
+     * The (non-normalized) face normals, 3 per triangle
+     */
+    final float faceNormals[];
+    
+    /**
+     * The vertex normals, 3 per vertex
+     */
+    final float vertexNormals[];
+    
+    /**
+     * Per-vertex markers for collecting the vertices in a one-ring
+     */
+    final int vertexMarks[];
+    
+    /**
+     * Per-triangle markers for collecting the triangles in a one-ring
+     */
+    final int triangleMarks[];
+    
+    /**
+     * The current value for the markers
+     */
+    int mark;
+    
+    /**
+     * Whether the positions and face normals currently reflect the 
+     * state of the geometry, so that incremental updates are possible
+     */
+    boolean valid;
+    
+    /**
+     * Creates a new state for a geometry with the given adjacency
+     * 
+     * @param adjacency The {@link VertexTriangleAdjacency}
+     */
+    VertexNormalState(VertexTriangleAdjacency adjacency)
+    {
+        this.adjacency = adjacency;
+        int numVertices = adjacency.numVertices;
+        int numTriangles = adjacency.numTriangles;
+        this.positions = new float[numVertices * 3];
+        this.faceNormals = new float[numTriangles * 3];
+        this.vertexNormals = new float[numVertices * 3];
+        this.vertexMarks = new int[numVertices];
+        this.triangleMarks = new int[numTriangles];
+    }
+    
+    /**
+     * Compute the (non-normalized) normal of the specified triangle
+     * from the {@link #positions}, and store it in {@link #faceNormals}
+     * 
+     * @param t The triangle index
+     */
+    void computeFaceNormal(int t)
+    {
+        int indices[] = adjacency.indices;
+        int i0 = indices[t * 3 + 0] * 3;
+        int i1 = indices[t * 3 + 1] * 3;
+        int i2 = indices[t * 3 + 2] * 3;
+        float e0x = positions[i1 + 0] - positions[i0 + 0];
+        float e0y = positions[i1 + 1] - positions[i0 + 1];
+        float e0z = positions[i1 + 2] - positions[i0 + 2];
+        float e1x = positions[i2 + 0] - positions[i0 + 0];
+        float e1y = positions[i2 + 1] - positions[i0 + 1];
+        float e1z = positions[i2 + 2] - positions[i0 + 2];
+        faceNormals[t * 3 + 0] = e0y * e1z - e0z * e1y;
+        faceNormals[t * 3 + 1] = e0z * e1x - e0x * e1z;
+        faceNormals[t * 3 + 2] = e0x * e1y - e0y * e1x;
+    }
+    
+    /**
+     * Compute the normal of the specified vertex as the normalized 
+     * sum of the {@link #faceNormals} of all adjacent triangles, and
+     * store it in {@link #vertexNormals}. If the sum is zero, then
+     * the vertex normal will be zero as well.
+     * 
+     * @param v The vertex index
+     */
+    void computeVertexNormal(int v)
+    {
+        float x = 0;
+        float y = 0;
+        float z = 0;
+        int offsets[] = adjacency.offsets;
+        int triangles[] = adjacency.triangles;
+        for (int j = offsets[v]; j < offsets[v + 1]; j++)
+        {
+            int t = triangles[j] * 3;
+            x += faceNormals[t + 0];
+            y += faceNormals[t + 1];
+            z += faceNormals[t + 2];
+        }
+        float length = (float)Math.sqrt(x * x + y * y + z * z);
+        if (length > 0)
+        {
+            float invLength = 1.0f / length;
+            x *= invLength;
+            y *= invLength;
+            z *= invLength;
+        }
+        vertexNormals[v * 3 + 0] = x;
+        vertexNormals[v * 3 + 1] = y;
+        vertexNormals[v * 3 + 2] = z;
+    }
+}
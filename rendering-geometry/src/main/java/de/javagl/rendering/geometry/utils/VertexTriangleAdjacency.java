@@ -0,0 +1,157 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.geometry.utils;
+
+import java.nio.IntBuffer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import de.javagl.rendering.geometry.IntArray;
+
+/**
+ * A compact vertex-to-triangle adjacency in compressed sparse row (CSR)
+ * form: The indices of the triangles that are adjacent to vertex
+ * <code>v</code> are stored in {@link #triangles} between the indices 
+ * <code>offsets[v]</code> (inclusive) and <code>offsets[v+1]</code> 
+ * (exclusive).<br>
+ * <br>
+ * Instances of this class are immutable after construction, and may
+ * be shared between all geometries that use the same indices. The
+ * working arrays of the {@link NormalUpdater} are stored per geometry, 
+ * in a {@link VertexNormalState}.
+ */
+final class VertexTriangleAdjacency
+{
+    /**
+     * The number of elements above which loops are executed in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 8192;
+    
+    /**
+     * The number of vertices
+     */
+    final int numVertices;
+    
+    /**
+     * The number of triangles
+     */
+    final int numTriangles;
+    
+    /**
+     * A copy of the triangle indices, 3 per triangle
+     */
+    final int indices[];
+    
+    /**
+     * The offsets of the adjacency lists, numVertices+1 elements
+     */
+    final int offsets[];
+    
+    /**
+     * The adjacent triangle indices of all vertices
+     */
+    final int triangles[];
+    
+    /**
+     * Creates the adjacency information for the given triangle indices
+     * 
+     * @param indexArray The triangle indices
+     * @param numVertices The number of vertices
+     * @throws IllegalArgumentException If any index is negative or not
+     * smaller than the number of vertices
+     */
+    VertexTriangleAdjacency(IntArray indexArray, int numVertices)
+    {
+        this.numVertices = numVertices;
+        this.numTriangles = indexArray.getSize() / 3;
+        this.indices = new int[numTriangles * 3];
+        indexArray.subArray(0, indices.length).get(IntBuffer.wrap(indices));
+        
+        this.offsets = new int[numVertices + 1];
+        for (int i = 0; i < indices.length; i++)
+        {
+            int index = indices[i];
+            if (index < 0 || index >= numVertices)
+            {
+                throw new IllegalArgumentException(
+                    "Index " + index + " is not valid for " + 
+                    numVertices + " vertices");
+            }
+            offsets[index + 1]++;
+        }
+        for (int v = 0; v < numVertices; v++)
+        {
+            offsets[v + 1] += offsets[v];
+        }
+        this.triangles = new int[indices.length];
+        int fill[] = new int[numVertices];
+        for (int i = 0; i < indices.length; i++)
+        {
+            int index = indices[i];
+            triangles[offsets[index] + fill[index]] = i / 3;
+            fill[index]++;
+        }
+    }
+    
+    /**
+     * Returns whether this adjacency information is still applicable
+     * for the given indices and number of vertices
+     * 
+     * @param indexArray The triangle indices
+     * @param numVertices The number of vertices
+     * @return Whether this adjacency is applicable
+     */
+    boolean isApplicable(IntArray indexArray, int numVertices)
+    {
+        return this.numVertices == numVertices && 
+            this.numTriangles == indexArray.getSize() / 3;
+    }
+    
+    /**
+     * Apply the given consumer to all values in [0, n), in parallel 
+     * if n is large enough
+     * 
+     * @param n The number of elements
+     * @param consumer The consumer
+     */
+    static void forEach(int n, IntConsumer consumer)
+    {
+        if (n >= PARALLEL_THRESHOLD)
+        {
+            IntStream.range(0, n).parallel().forEach(consumer);
+        }
+        else
+        {
+            for (int i = 0; i < n; i++)
+            {
+                consumer.accept(i);
+            }
+        }
+    }
+    
+}
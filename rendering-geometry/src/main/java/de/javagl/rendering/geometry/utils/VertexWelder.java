@@ -0,0 +1,178 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.geometry.utils;
+
+import javax.vecmath.Point2f;
+import javax.vecmath.Point3f;
+import javax.vecmath.Vector3f;
+
+import de.javagl.rendering.core.utils.VertexRemapping;
+import de.javagl.rendering.geometry.Array2f;
+import de.javagl.rendering.geometry.Array3f;
+import de.javagl.rendering.geometry.IntArray;
+import de.javagl.rendering.geometry.MutableRenderGeometry;
+import de.javagl.rendering.geometry.RenderGeometries;
+import de.javagl.rendering.geometry.RenderGeometry;
+
+/**
+ * Utility class for welding the vertices of a {@link RenderGeometry}:
+ * Vertices that have the same position, normal and texture coordinate
+ * are merged into a single vertex, and the indices are remapped 
+ * accordingly.
+ */
+public class VertexWelder
+{
+    /**
+     * Creates a new {@link MutableRenderGeometry} that contains the
+     * unique vertices of the given {@link RenderGeometry}. Vertices 
+     * are only merged when their position, normal and texture coordinate
+     * are exactly equal.
+     * 
+     * @param geometry The {@link RenderGeometry}
+     * @return The welded {@link MutableRenderGeometry}
+     */
+    public static MutableRenderGeometry weld(RenderGeometry geometry)
+    {
+        return weld(geometry, 0.0f);
+    }
+    
+    /**
+     * Creates a new {@link MutableRenderGeometry} that contains the
+     * unique vertices of the given {@link RenderGeometry}.<br>
+     * <br>
+     * If the given epsilon is positive, then all vertex attributes are
+     * quantized to multiples of epsilon before they are compared, and 
+     * vertices whose quantized attributes are equal are merged. The 
+     * merged vertex receives the attributes of the first of these 
+     * vertices. Otherwise, vertices are only merged when their 
+     * attributes are exactly equal.<br>
+     * <br>
+     * The normals and texture coordinates of the given geometry are only 
+     * taken into account (and contained in the result) if they are not 
+     * <code>null</code> and have the same size as the vertices.
+     * 
+     * @param geometry The {@link RenderGeometry}
+     * @param epsilon The quantization epsilon
+     * @return The welded {@link MutableRenderGeometry}
+     * @throws IllegalArgumentException If the epsilon is negative
+     */
+    public static MutableRenderGeometry weld(
+        RenderGeometry geometry, float epsilon)
+    {
+        Array3f vertices = geometry.getVertices();
+        int numVertices = vertices.getSize();
+        Array3f normals = geometry.getNormals();
+        if (normals != null && normals.getSize() != numVertices)
+        {
+            normals = null;
+        }
+        Array2f texCoords = geometry.getTexCoords();
+        if (texCoords != null && texCoords.getSize() != numVertices)
+        {
+            texCoords = null;
+        }
+        
+        // Collect the attributes of each vertex in one array
+        int stride = 3;
+        stride += normals != null ? 3 : 0;
+        stride += texCoords != null ? 2 : 0;
+        float attributes[] = new float[numVertices * stride];
+        Point3f p = new Point3f();
+        Vector3f n = new Vector3f();
+        Point2f t = new Point2f();
+        for (int i = 0; i < numVertices; i++)
+        {
+            int a = i * stride;
+            vertices.get3f(i, p);
+            attributes[a++] = p.x;
+            attributes[a++] = p.y;
+            attributes[a++] = p.z;
+            if (normals != null)
+            {
+                normals.get3f(i, n);
+                attributes[a++] = n.x;
+                attributes[a++] = n.y;
+                attributes[a++] = n.z;
+            }
+            if (texCoords != null)
+            {
+                texCoords.get2f(i, t);
+                attributes[a++] = t.x;
+                attributes[a++] = t.y;
+            }
+        }
+        int remap[] = new int[numVertices];
+        int numUniqueVertices = VertexRemapping.computeRemapping(
+            attributes, stride, epsilon, remap);
+
+        RenderGeometries.MutableRenderGeometryBuilder builder =
+            RenderGeometries.MutableRenderGeometryBuilder.create();
+        int next = 0;
+        for (int i = 0; i < numVertices && next < numUniqueVertices; i++)
+        {
+            if (remap[i] != next)
+            {
+                continue;
+            }
+            next++;
+            int a = i * stride;
+            p.set(attributes[a], attributes[a + 1], attributes[a + 2]);
+            builder.addVertex(p);
+            a += 3;
+            if (normals != null)
+            {
+                n.set(attributes[a], attributes[a + 1], attributes[a + 2]);
+                builder.addNormal(n);
+                a += 3;
+            }
+            if (texCoords != null)
+            {
+                t.set(attributes[a], attributes[a + 1]);
+                builder.addTexCoord(t);
+            }
+        }
+        IntArray indices = geometry.getIndices();
+        int numTriangles = indices.getSize() / 3;
+        for (int i = 0; i < numTriangles; i++)
+        {
+            builder.addTriangle(
+                remap[indices.get(i * 3 + 0)], 
+                remap[indices.get(i * 3 + 1)], 
+                remap[indices.get(i * 3 + 2)]);
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private VertexWelder()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
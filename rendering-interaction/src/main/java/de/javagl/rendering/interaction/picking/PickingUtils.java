@@ -32,7 +32,6 @@ import javax.vecmath.Point3f;
 import javax.vecmath.Vector3f;
 
 import de.javagl.rendering.core.utils.MatrixUtils;
-import de.javagl.rendering.core.view.CameraUtils;
 import de.javagl.rendering.core.view.Rectangle;
 import de.javagl.rendering.core.view.View;
 import de.javagl.rendering.geometry.Ray;
@@ -55,9 +54,8 @@ public class PickingUtils
      */
     public static Ray computePickingRay(View view, int x, int y)
     {
-        Matrix4f viewMatrix = 
-            CameraUtils.computeViewMatrix(view.getCamera());
-        Matrix4f projectionMatrix = view.getProjectionMatrix();
+        Matrix4f viewMatrix = view.getViewMatrix(new Matrix4f());
+        Matrix4f projectionMatrix = view.getProjectionMatrix(new Matrix4f());
         Rectangle viewport = view.getViewport();
         return computePickingRay(
             viewMatrix, projectionMatrix, viewport, x, y);
@@ -29,6 +29,8 @@ import de.javagl.rendering.core.light.LightSetups;
 import de.javagl.rendering.core.light.Lights;
 import de.javagl.rendering.core.material.Material;
 import de.javagl.rendering.core.material.Materials;
+import de.javagl.rendering.core.snapshot.SnapshotBuffer;
+import de.javagl.rendering.core.snapshot.SnapshotBuffers;
 import de.javagl.rendering.core.utils.MatrixUtils;
 import de.javagl.rendering.desktop.ImageTextures;
 import de.javagl.rendering.desktop.RenderingEnvironments;
@@ -124,7 +126,15 @@ public class Rendering_03_LightsAnimation
         Light light0 = Lights.createPointLight(0, 0, 2);
         lightSetup.addLight(light0);
         
-        // Create a thread that moves the point light
+        // Create a snapshot buffer for the light. The animation thread
+        // modifies the write buffer of the snapshot buffer, and publishes
+        // the changes. They are transferred into the light of the light
+        // setup at the beginning of each frame.
+        SnapshotBuffer<Light> lightBuffer = 
+            SnapshotBuffers.createLightBuffer(light0);
+        
+        // Create a thread that moves the point light, and triggers
+        // a repaint whenever the light was moved
         Thread lightAnimationThread = new Thread(() ->
         {
             while (true)
@@ -135,7 +145,9 @@ public class Rendering_03_LightsAnimation
                 float distance = 2.0f;
                 float x = (float)Math.sin(time * 2 * Math.PI) * distance;
                 float z = (float)Math.cos(time * 2 * Math.PI) * distance;
-                light0.setPosition(x, 2, z);
+                lightBuffer.getWriteBuffer().setPosition(x, 2, z);
+                lightBuffer.publish();
+                renderingEnvironment.triggerRendering();
                 try
                 {
                     Thread.sleep(20);
@@ -150,12 +162,7 @@ public class Rendering_03_LightsAnimation
         lightAnimationThread.setDaemon(true);
         lightAnimationThread.start();
         
-        // Add a listener to the light that triggers a repaint
-        // whenever a property of the light changes
-        light0.addLightListener(
-            light -> renderingEnvironment.triggerRendering());
-        
-        
+
         // Create a default material
         Material material = Materials.create();
         
@@ -163,6 +170,10 @@ public class Rendering_03_LightsAnimation
         // (See the basic samples for details)
         CommandList commandList = new CommandList();
         commandList.addCommands(
+            // Transfer the most recent state of the animated light
+            SnapshotBuffers.createTransferCommand(
+                lightBuffer, light0, Lights::copy),
+                
             Commands.setDefaultMatrices(
                 program, MatrixUtils.identity(), 
                 renderingEnvironment.getView()),
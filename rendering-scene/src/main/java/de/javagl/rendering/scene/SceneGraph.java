@@ -0,0 +1,778 @@
+/*
+ * www.javagl.de - Rendering
+ * 
+ * Copyright 2010-2016 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.rendering.scene;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import javax.vecmath.Matrix4f;
+
+/**
+ * A scene graph that maintains a hierarchy of nodes with local and world
+ * transforms.<br>
+ * <br>
+ * The nodes are identified by <code>int</code> values that are returned
+ * by {@link #createNode(int)}. The data of the nodes is stored in 
+ * structure-of-arrays form, indexed by these identifiers: The parent
+ * index, the local and world matrix (16 floats each, in column-major 
+ * order) and the dirty flag. Additionally, the nodes are kept in 
+ * depth-first order, so that each subtree is a contiguous range.<br>
+ * <br>
+ * Modifying a local matrix marks the node as dirty. A call to 
+ * {@link #update()} then recomputes the world matrices, only visiting 
+ * the subtrees that contain dirty nodes. Large subtrees that do not 
+ * depend on each other are updated in parallel.<br>
+ * <br>
+ * The world matrices may be passed to render commands with the suppliers
+ * that are created with {@link #createWorldMatrixSupplier(int)}, which do
+ * not allocate any objects.<br>
+ * <br>
+ * This class is not thread-safe. Modifications and updates have to be 
+ * performed by the same thread, or externally synchronized.
+ */
+public final class SceneGraph
+{
+    /**
+     * The size of a subtree, starting at which its child subtrees are 
+     * updated in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+    
+    /**
+     * The identity matrix, in column-major order
+     */
+    private static final float IDENTITY[] = 
+    { 
+        1, 0, 0, 0, 
+        0, 1, 0, 0, 
+        0, 0, 1, 0, 
+        0, 0, 0, 1 
+    };
+    
+    /**
+     * The current capacity of the arrays
+     */
+    private int capacity;
+    
+    /**
+     * The number of node identifiers that have been assigned, including
+     * the ones that are currently free
+     */
+    private int numIds;
+    
+    /**
+     * The number of nodes
+     */
+    private int numNodes;
+    
+    /**
+     * The parent of each node, or -1 for root nodes
+     */
+    private int parents[];
+    
+    /**
+     * The first child of each node, or -1
+     */
+    private int firstChildren[];
+    
+    /**
+     * The next sibling of each node, or -1
+     */
+    private int nextSiblings[];
+    
+    /**
+     * Whether each node identifier is currently used
+     */
+    private boolean used[];
+    
+    /**
+     * The local matrices, 16 floats per node
+     */
+    private float localMatrices[];
+    
+    /**
+     * The world matrices, 16 floats per node
+     */
+    private float worldMatrices[];
+    
+    /**
+     * Whether the local matrix of each node has been modified
+     */
+    private boolean dirty[];
+    
+    /**
+     * Whether each node has a descendant that is dirty
+     */
+    private boolean dirtyDescendants[];
+    
+    /**
+     * Whether the world matrix of each node has been changed in the 
+     * current update
+     */
+    private boolean changed[];
+    
+    /**
+     * The free node identifiers
+     */
+    private int freeIds[];
+    
+    /**
+     * The number of free node identifiers
+     */
+    private int numFreeIds;
+    
+    /**
+     * The identifiers of all nodes, in depth-first order
+     */
+    private int order[];
+    
+    /**
+     * For each position in the {@link #order}, the position after the
+     * end of the subtree that starts at this position
+     */
+    private int subtreeEnds[];
+    
+    /**
+     * Whether the {@link #order} has to be rebuilt
+     */
+    private boolean topologyChanged;
+    
+    /**
+     * Creates a new, empty scene graph
+     */
+    public SceneGraph()
+    {
+        this.capacity = 0;
+        this.parents = new int[0];
+        this.firstChildren = new int[0];
+        this.nextSiblings = new int[0];
+        this.used = new boolean[0];
+        this.localMatrices = new float[0];
+        this.worldMatrices = new float[0];
+        this.dirty = new boolean[0];
+        this.dirtyDescendants = new boolean[0];
+        this.changed = new boolean[0];
+        this.freeIds = new int[0];
+        this.order = new int[0];
+        this.subtreeEnds = new int[0];
+        ensureCapacity(16);
+    }
+    
+    /**
+     * Ensure that the arrays can store the given number of nodes
+     * 
+     * @param minCapacity The minimum capacity
+     */
+    private void ensureCapacity(int minCapacity)
+    {
+        if (minCapacity <= capacity)
+        {
+            return;
+        }
+        int newCapacity = Math.max(minCapacity, capacity * 2);
+        parents = Arrays.copyOf(parents, newCapacity);
+        firstChildren = Arrays.copyOf(firstChildren, newCapacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, newCapacity);
+        used = Arrays.copyOf(used, newCapacity);
+        localMatrices = Arrays.copyOf(localMatrices, newCapacity * 16);
+        worldMatrices = Arrays.copyOf(worldMatrices, newCapacity * 16);
+        dirty = Arrays.copyOf(dirty, newCapacity);
+        dirtyDescendants = Arrays.copyOf(dirtyDescendants, newCapacity);
+        changed = Arrays.copyOf(changed, newCapacity);
+        freeIds = Arrays.copyOf(freeIds, newCapacity);
+        order = Arrays.copyOf(order, newCapacity);
+        subtreeEnds = Arrays.copyOf(subtreeEnds, newCapacity);
+        capacity = newCapacity;
+    }
+    
+    /**
+     * Returns the number of nodes in this scene graph
+     * 
+     * @return The number of nodes
+     */
+    public int getNumNodes()
+    {
+        return numNodes;
+    }
+    
+    /**
+     * Create a new node with the given parent. The local matrix of the
+     * node will be the identity matrix.
+     * 
+     * @param parent The parent node, or -1 to create a root node
+     * @return The new node
+     * @throws IllegalArgumentException If the parent is not -1 and 
+     * not a valid node
+     */
+    public int createNode(int parent)
+    {
+        if (parent != -1)
+        {
+            checkNode(parent);
+        }
+        int node;
+        if (numFreeIds > 0)
+        {
+            node = freeIds[--numFreeIds];
+        }
+        else
+        {
+            ensureCapacity(numIds + 1);
+            node = numIds++;
+        }
+        used[node] = true;
+        firstChildren[node] = -1;
+        nextSiblings[node] = -1;
+        parents[node] = -1;
+        System.arraycopy(IDENTITY, 0, localMatrices, node * 16, 16);
+        System.arraycopy(IDENTITY, 0, worldMatrices, node * 16, 16);
+        dirtyDescendants[node] = false;
+        link(node, parent);
+        numNodes++;
+        markDirty(node);
+        topologyChanged = true;
+        return node;
+    }
+    
+    /**
+     * Remove the given node and all its descendants from this scene graph.
+     * The identifiers of the removed nodes may be reused for nodes that
+     * are created later.
+     * 
+     * @param node The node
+     * @throws IllegalArgumentException If the node is not valid
+     */
+    public void removeNode(int node)
+    {
+        checkNode(node);
+        unlink(node);
+        int stack[] = new int[16];
+        int size = 0;
+        stack[size++] = node;
+        while (size > 0)
+        {
+            int current = stack[--size];
+            int child = firstChildren[current];
+            while (child != -1)
+            {
+                if (size == stack.length)
+                {
+                    stack = Arrays.copyOf(stack, size * 2);
+                }
+                stack[size++] = child;
+                child = nextSiblings[child];
+            }
+            used[current] = false;
+            dirty[current] = false;
+            freeIds[numFreeIds++] = current;
+            numNodes--;
+        }
+        topologyChanged = true;
+    }
+    
+    /**
+     * Set the parent of the given node
+     * 
+     * @param node The node
+     * @param parent The new parent, or -1 to make the node a root node
+     * @throws IllegalArgumentException If the nodes are not valid, or the
+     * parent is the node itself or one of its descendants
+     */
+    public void setParent(int node, int parent)
+    {
+        checkNode(node);
+        if (parent != -1)
+        {
+            checkNode(parent);
+            for (int p = parent; p != -1; p = parents[p])
+            {
+                if (p == node)
+                {
+                    throw new IllegalArgumentException(
+                        "Node " + parent + " is node " + node + 
+                        " or one of its descendants");
+                }
+            }
+        }
+        unlink(node);
+        link(node, parent);
+        markDirty(node);
+        topologyChanged = true;
+    }
+    
+    /**
+     * Returns the parent of the given node
+     * 
+     * @param node The node
+     * @return The parent, or -1 if the node is a root node
+     * @throws IllegalArgumentException If the node is not valid
+     */
+    public int getParent(int node)
+    {
+        checkNode(node);
+        return parents[node];
+    }
+    
+    /**
+     * Add the given node as the first child of the given parent
+     * 
+     * @param node The node
+     * @param parent The parent, or -1
+     */
+    private void link(int node, int parent)
+    {
+        parents[node] = parent;
+        if (parent != -1)
+        {
+            nextSiblings[node] = firstChildren[parent];
+            firstChildren[parent] = node;
+        }
+    }
+    
+    /**
+     * Remove the given node from the children of its parent
+     * 
+     * @param node The node
+     */
+    private void unlink(int node)
+    {
+        int parent = parents[node];
+        if (parent != -1)
+        {
+            if (firstChildren[parent] == node)
+            {
+                firstChildren[parent] = nextSiblings[node];
+            }
+            else
+            {
+                int sibling = firstChildren[parent];
+                while (nextSiblings[sibling] != node)
+                {
+                    sibling = nextSiblings[sibling];
+                }
+                nextSiblings[sibling] = nextSiblings[node];
+            }
+        }
+        parents[node] = -1;
+        nextSiblings[node] = -1;
+    }
+    
+    /**
+     * Set the local matrix of the given node
+     * 
+     * @param node The node
+     * @param matrix The local matrix
+     * @throws IllegalArgumentException If the node is not valid
+     */
+    public void setLocalMatrix(int node, Matrix4f matrix)
+    {
+        checkNode(node);
+        write(matrix, localMatrices, node * 16);
+        markDirty(node);
+    }
+    
+    /**
+     * Set the local matrix of the given node from the given array, 
+     * which contains the matrix in column-major order
+     * 
+     * @param node The node
+     * @param matrix The array containing the matrix
+     * @param offset The offset in the array
+     * @throws IllegalArgumentException If the node is not valid
+     */
+    public void setLocalMatrix(int node, float matrix[], int offset)
+    {
+        checkNode(node);
+        System.arraycopy(matrix, offset, localMatrices, node * 16, 16);
+        markDirty(node);
+    }
+    
+    /**
+     * Writes the local matrix of the given node into the given target
+     * 
+     * @param node The node
+     * @param target The target matrix
+     * @return The target matrix
+     * @throws IllegalArgumentException If the node is not valid
+     */
+    public Matrix4f getLocalMatrix(int node, Matrix4f target)
+    {
+        checkNode(node);
+        return read(localMatrices, node * 16, target);
+    }
+    
+    /**
+     * Writes the world matrix of the given node, as of the most recent
+     * call to {@link #update()}, into the given target
+     * 
+     * @param node The node
+     * @param target The target matrix
+     * @return The target matrix
+     * @throws IllegalArgumentException If the node is not valid
+     */
+    public Matrix4f getWorldMatrix(int node, Matrix4f target)
+    {
+        checkNode(node);
+        return read(worldMatrices, node * 16, target);
+    }
+    
+    /**
+     * Writes the world matrix of the given node, as of the most recent
+     * call to {@link #update()}, into the given array, in column-major 
+     * order. This may, for example, be used for filling the model 
+     * matrices of a <code>TransformBatch</code>.
+     * 
+     * @param node The node
+     * @param target The target array
+     * @param offset The offset in the target array
+     * @throws IllegalArgumentException If the node is not valid
+     */
+    public void getWorldMatrix(int node, float target[], int offset)
+    {
+        checkNode(node);
+        System.arraycopy(worldMatrices, node * 16, target, offset, 16);
+    }
+    
+    /**
+     * Creates a supplier that provides the world matrix of the given node,
+     * as of the most recent call to {@link #update()}. The supplier always
+     * returns the same matrix instance, which is updated in each call, 
+     * so it may be passed to the render commands, for example 
+     * <code>Commands.setDefaultMatrices</code>, without causing any 
+     * allocations. 
+     * 
+     * @param node The node
+     * @return The supplier
+     * @throws IllegalArgumentException If the node is not valid
+     */
+    public Supplier<Matrix4f> createWorldMatrixSupplier(int node)
+    {
+        checkNode(node);
+        Matrix4f matrix = new Matrix4f();
+        return () -> read(worldMatrices, node * 16, matrix);
+    }
+    
+    /**
+     * Mark the given node as dirty, and record this in all its ancestors
+     * 
+     * @param node The node
+     */
+    private void markDirty(int node)
+    {
+        dirty[node] = true;
+        int p = parents[node];
+        while (p != -1 && !dirtyDescendants[p])
+        {
+            dirtyDescendants[p] = true;
+            p = parents[p];
+        }
+    }
+    
+    /**
+     * Check whether the given node is valid
+     * 
+     * @param node The node
+     * @throws IllegalArgumentException If the node is not valid
+     */
+    private void checkNode(int node)
+    {
+        if (node < 0 || node >= numIds || !used[node])
+        {
+            throw new IllegalArgumentException(
+                "Invalid node: " + node);
+        }
+    }
+    
+    /**
+     * Update the world matrices of all nodes whose local matrix, or the
+     * local matrix of one of their ancestors, has been modified since 
+     * the last update.
+     */
+    public void update()
+    {
+        if (topologyChanged)
+        {
+            rebuildOrder();
+            topologyChanged = false;
+        }
+        int roots[] = collectChildPositions(0, numNodes);
+        if (numNodes >= PARALLEL_THRESHOLD && roots.length > 1)
+        {
+            IntStream.of(roots).parallel().forEach(
+                p -> updateSubtree(p, false));
+        }
+        else
+        {
+            for (int p : roots)
+            {
+                updateSubtree(p, false);
+            }
+        }
+    }
+    
+    /**
+     * Returns the positions of the subtrees that are directly contained
+     * in the given range of the {@link #order}
+     * 
+     * @param start The start position, inclusive
+     * @param end The end position, exclusive
+     * @return The positions
+     */
+    private int[] collectChildPositions(int start, int end)
+    {
+        int count = 0;
+        for (int p = start; p < end; p = subtreeEnds[p])
+        {
+            count++;
+        }
+        int result[] = new int[count];
+        int index = 0;
+        for (int p = start; p < end; p = subtreeEnds[p])
+        {
+            result[index++] = p;
+        }
+        return result;
+    }
+    
+    /**
+     * Update the subtree that starts at the given position
+     * 
+     * @param start The position of the root of the subtree
+     * @param parentChanged Whether the world matrix of the parent of the
+     * root of the subtree has been changed
+     */
+    private void updateSubtree(int start, boolean parentChanged)
+    {
+        int end = subtreeEnds[start];
+        int root = order[start];
+        if (!parentChanged && !dirty[root] && !dirtyDescendants[root])
+        {
+            return;
+        }
+        if (end - start >= PARALLEL_THRESHOLD)
+        {
+            boolean rootChanged = updateNode(root, parentChanged);
+            dirtyDescendants[root] = false;
+            int children[] = collectChildPositions(start + 1, end);
+            IntStream.of(children).parallel().forEach(
+                p -> updateSubtree(p, rootChanged));
+            return;
+        }
+        updateNode(root, parentChanged);
+        dirtyDescendants[root] = false;
+        int p = start + 1;
+        while (p < end)
+        {
+            int node = order[p];
+            boolean nodeParentChanged = changed[parents[node]];
+            if (!nodeParentChanged && !dirty[node] && !dirtyDescendants[node])
+            {
+                p = subtreeEnds[p];
+                continue;
+            }
+            updateNode(node, nodeParentChanged);
+            dirtyDescendants[node] = false;
+            p++;
+        }
+    }
+    
+    /**
+     * Update the world matrix of the given node if it is dirty or the
+     * world matrix of its parent has been changed
+     * 
+     * @param node The node
+     * @param parentChanged Whether the world matrix of the parent has 
+     * been changed
+     * @return Whether the world matrix of the node has been changed
+     */
+    private boolean updateNode(int node, boolean parentChanged)
+    {
+        boolean result = parentChanged || dirty[node];
+        changed[node] = result;
+        if (!result)
+        {
+            return false;
+        }
+        dirty[node] = false;
+        int parent = parents[node];
+        if (parent == -1)
+        {
+            System.arraycopy(localMatrices, node * 16, 
+                worldMatrices, node * 16, 16);
+        }
+        else
+        {
+            mul(worldMatrices, parent * 16, localMatrices, node * 16, 
+                worldMatrices, node * 16);
+        }
+        return true;
+    }
+    
+    /**
+     * Rebuild the depth-first {@link #order} of the nodes and the
+     * {@link #subtreeEnds}
+     */
+    private void rebuildOrder()
+    {
+        int size = 0;
+        int stack[] = new int[16];
+        int stackSize = 0;
+        for (int node = 0; node < numIds; node++)
+        {
+            if (!used[node] || parents[node] != -1)
+            {
+                continue;
+            }
+            stack[stackSize++] = node;
+            while (stackSize > 0)
+            {
+                int current = stack[--stackSize];
+                if (current < 0)
+                {
+                    // Marker for the end of the subtree at position ~current
+                    subtreeEnds[~current] = size;
+                    continue;
+                }
+                int position = size++;
+                order[position] = current;
+                int child = firstChildren[current];
+                int numChildren = 0;
+                for (int c = child; c != -1; c = nextSiblings[c])
+                {
+                    numChildren++;
+                }
+                int required = stackSize + numChildren + 1;
+                if (required > stack.length)
+                {
+                    stack = Arrays.copyOf(stack, 
+                        Math.max(stack.length * 2, required));
+                }
+                stack[stackSize++] = ~position;
+                for (int c = child; c != -1; c = nextSiblings[c])
+                {
+                    stack[stackSize++] = c;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Multiply the column-major matrices at the given offsets of the
+     * given arrays, and write the result into the given result array
+     * 
+     * @param a The array of the left matrix
+     * @param ao The offset of the left matrix
+     * @param b The array of the right matrix
+     * @param bo The offset of the right matrix
+     * @param r The array for the result
+     * @param ro The offset for the result
+     */
+    private static void mul(
+        float a[], int ao, float b[], int bo, float r[], int ro)
+    {
+        for (int c = 0; c < 4; c++)
+        {
+            float x = b[bo + c * 4 + 0];
+            float y = b[bo + c * 4 + 1];
+            float z = b[bo + c * 4 + 2];
+            float w = b[bo + c * 4 + 3];
+            r[ro + c * 4 + 0] = a[ao + 0] * x + a[ao + 4] * y 
+                + a[ao + 8] * z + a[ao + 12] * w;
+            r[ro + c * 4 + 1] = a[ao + 1] * x + a[ao + 5] * y 
+                + a[ao + 9] * z + a[ao + 13] * w;
+            r[ro + c * 4 + 2] = a[ao + 2] * x + a[ao + 6] * y 
+                + a[ao + 10] * z + a[ao + 14] * w;
+            r[ro + c * 4 + 3] = a[ao + 3] * x + a[ao + 7] * y 
+                + a[ao + 11] * z + a[ao + 15] * w;
+        }
+    }
+    
+    /**
+     * Write the given matrix into the given array, in column-major order
+     * 
+     * @param matrix The matrix
+     * @param array The array
+     * @param o The offset in the array
+     */
+    private static void write(Matrix4f matrix, float array[], int o)
+    {
+        array[o + 0] = matrix.m00;
+        array[o + 1] = matrix.m10;
+        array[o + 2] = matrix.m20;
+        array[o + 3] = matrix.m30;
+        array[o + 4] = matrix.m01;
+        array[o + 5] = matrix.m11;
+        array[o + 6] = matrix.m21;
+        array[o + 7] = matrix.m31;
+        array[o + 8] = matrix.m02;
+        array[o + 9] = matrix.m12;
+        array[o + 10] = matrix.m22;
+        array[o + 11] = matrix.m32;
+        array[o + 12] = matrix.m03;
+        array[o + 13] = matrix.m13;
+        array[o + 14] = matrix.m23;
+        array[o + 15] = matrix.m33;
+    }
+    
+    /**
+     * Read the matrix that is stored in column-major order in the given 
+     * array into the given target matrix
+     * 
+     * @param array The array
+     * @param o The offset in the array
+     * @param target The target matrix
+     * @return The target matrix
+     */
+    private static Matrix4f read(float array[], int o, Matrix4f target)
+    {
+        target.m00 = array[o + 0];
+        target.m10 = array[o + 1];
+        target.m20 = array[o + 2];
+        target.m30 = array[o + 3];
+        target.m01 = array[o + 4];
+        target.m11 = array[o + 5];
+        target.m21 = array[o + 6];
+        target.m31 = array[o + 7];
+        target.m02 = array[o + 8];
+        target.m12 = array[o + 9];
+        target.m22 = array[o + 10];
+        target.m32 = array[o + 11];
+        target.m03 = array[o + 12];
+        target.m13 = array[o + 13];
+        target.m23 = array[o + 14];
+        target.m33 = array[o + 15];
+        return target;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "SceneGraph[numNodes=" + numNodes + "]";
+    }
+}
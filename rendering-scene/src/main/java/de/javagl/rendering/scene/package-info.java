@@ -0,0 +1,5 @@
+/**
+ * Classes for maintaining hierarchical transforms of objects in a scene.
+ */
+package de.javagl.rendering.scene;
+